@@ -0,0 +1,125 @@
+package kaiakk.powerhouse.calculations.entity;
+
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+import org.bukkit.entity.EntityType;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Randomized check of {@link CrammingCalculator} against the all-pairs scan it replaced, on
+ * seeded snapshots mixing worlds, players, excluded, named and already-removed rows. Every
+ * row's {@code MARK_REMOVE} must match, as must every {@link CrammingCalculator#countNeighbors}
+ * count; large multi-world rounds take the fork-join path. Exits non-zero on the first
+ * mismatch. Run with {@code gradlew crammingCheck}.
+ */
+public final class CrammingGridCheck {
+    private static final int ROUNDS = 400;
+
+    private CrammingGridCheck() {}
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 9L;
+        Random random = new Random(seed);
+        long marked = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            int n = round % 20 == 0 ? 5000 + random.nextInt(2000) : random.nextInt(600);
+            int worlds = 1 + random.nextInt(3);
+            double radius = 0.5 + random.nextDouble() * 3.0;
+            int threshold = 1 + random.nextInt(20);
+            long snapshotSeed = random.nextLong();
+
+            EntitySnapshotBuffer grid = snapshot(snapshotSeed, n, worlds);
+            EntitySnapshotBuffer scan = snapshot(snapshotSeed, n, worlds);
+            CrammingCalculator.markCrammingRemovals(grid, radius, threshold);
+            bruteForceRemovals(scan, radius, threshold);
+            for (int row = 0; row < n; row++) {
+                boolean a = grid.isMarked(row, EntitySnapshotBuffer.MARK_REMOVE);
+                if (a != scan.isMarked(row, EntitySnapshotBuffer.MARK_REMOVE)) {
+                    fail("removal", seed, round, row);
+                }
+                if (a) marked++;
+            }
+
+            int[] counts = new int[n];
+            CrammingCalculator.countNeighbors(snapshot(snapshotSeed, n, worlds), radius, counts);
+            for (int row = 0; row < n; row++) {
+                if (counts[row] != bruteForceCount(scan, row, radius)) fail("count", seed, round, row);
+            }
+        }
+        System.out.println("CrammingGridCheck: " + ROUNDS + " rounds, " + marked + " removals, all match (seed " + seed + ")");
+    }
+
+    /** Rows in a 10x2x10 box across {@code worlds} worlds, dense enough that most rounds trim something. */
+    private static EntitySnapshotBuffer snapshot(long seed, int n, int worlds) {
+        Random random = new Random(seed);
+        EntityType type = EntityType.values()[0];
+        EntitySnapshotBuffer buf = new EntitySnapshotBuffer();
+        for (int i = 0; i < n; i++) {
+            int row = buf.add(new UUID(seed, i), 1 + random.nextInt(worlds),
+                    random.nextDouble() * 10.0, 64.0 + random.nextDouble() * 2.0, random.nextDouble() * 10.0, type, 0);
+            int roll = random.nextInt(40);
+            if (roll < 4) buf.mark(row, EntitySnapshotBuffer.MARK_EXCLUDE);
+            else if (roll < 6) buf.setFlag(row, EntitySnapshotBuffer.FLAG_PLAYER);
+            else if (roll < 7) buf.mark(row, EntitySnapshotBuffer.MARK_REMOVE);
+            if (random.nextInt(7) == 0) buf.setFlag(row, EntitySnapshotBuffer.FLAG_NAMED);
+        }
+        return buf;
+    }
+
+    private static boolean skipped(EntitySnapshotBuffer buf, int row) {
+        return buf.hasFlag(row, EntitySnapshotBuffer.FLAG_PLAYER) || buf.isMarked(row, EntitySnapshotBuffer.MARK_EXCLUDE);
+    }
+
+    private static boolean within(EntitySnapshotBuffer buf, int a, int b, double radius) {
+        if (buf.worldIndex[a] != buf.worldIndex[b]) return false;
+        double dx = buf.x[a] - buf.x[b];
+        double dy = buf.y[a] - buf.y[b];
+        double dz = buf.z[a] - buf.z[b];
+        return dx*dx + dy*dy + dz*dz <= radius * radius;
+    }
+
+    /** The pre-grid pass: every row against every other, neighbours in row order, unnamed trimmed first. */
+    private static void bruteForceRemovals(EntitySnapshotBuffer buf, double radius, int threshold) {
+        int n = buf.size;
+        boolean[] removed = new boolean[n];
+        for (int i = 0; i < n; i++) removed[i] = buf.isMarked(i, EntitySnapshotBuffer.MARK_REMOVE);
+        int[] neighbors = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (removed[i] || skipped(buf, i)) continue;
+            int found = 0;
+            neighbors[found++] = i;
+            for (int j = 0; j < n; j++) {
+                if (j != i && !skipped(buf, j) && within(buf, i, j, radius)) neighbors[found++] = j;
+            }
+            if (found <= threshold) continue;
+            int toTrim = found - threshold;
+            for (int pass = 0; pass < 2 && toTrim > 0; pass++) {
+                boolean wantNamed = pass == 1;
+                for (int m = 0; m < found && toTrim > 0; m++) {
+                    int j = neighbors[m];
+                    if (buf.hasFlag(j, EntitySnapshotBuffer.FLAG_NAMED) != wantNamed) continue;
+                    if (!removed[j]) {
+                        removed[j] = true;
+                        buf.mark(j, EntitySnapshotBuffer.MARK_REMOVE);
+                    }
+                    toTrim--;
+                }
+            }
+        }
+    }
+
+    private static int bruteForceCount(EntitySnapshotBuffer buf, int row, double radius) {
+        if (skipped(buf, row)) return 0;
+        int found = 0;
+        for (int j = 0; j < buf.size; j++) {
+            if (!skipped(buf, j) && within(buf, row, j, radius)) found++;
+        }
+        return found;
+    }
+
+    private static void fail(String what, long seed, int round, int row) {
+        System.err.println("CrammingGridCheck: " + what + " mismatch at round " + round + ", row " + row + " (seed " + seed + ")");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,122 @@
+package kaiakk.powerhouse.calculations.items;
+
+import kaiakk.powerhouse.calculations.Calculations;
+import kaiakk.powerhouse.data.snapshot.ItemSnapshot;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item merge search on one chunk of random drops: 7 materials, 1-8 per stack, spread over a
+ * 16x16 column three blocks tall. {@code spatialHash} is {@link ItemMergeEngine}, and
+ * {@code sectorScan} is the per-sector all-pairs scan it replaced, kept here as the baseline.
+ * The old scan only checks each pair against the stack size, so it reports fewer merges (and
+ * can overfill a target); compare times with that in mind. Run with {@code gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemMergeBenchmark {
+    private static final Material[] MATERIALS = {
+            Material.COBBLESTONE, Material.DIRT, Material.SAND, Material.GRAVEL,
+            Material.OAK_LOG, Material.ROTTEN_FLESH, Material.BONE
+    };
+
+    @Param({"100", "1000", "10000"})
+    public int items;
+
+    private List<ItemSnapshot> drops;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        drops = drops(items);
+    }
+
+    /** The seeded drops every benchmark in this package runs on. */
+    static List<ItemSnapshot> drops(int items) {
+        Random random = new Random(42L);
+        List<ItemSnapshot> drops = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            Material type = MATERIALS[random.nextInt(MATERIALS.length)];
+            drops.add(new ItemSnapshot(i, random.nextDouble() * 16.0, 64.0 + random.nextDouble() * 3.0, random.nextDouble() * 16.0,
+                    type, 1 + random.nextInt(8), (short) 0, 64, false, false));
+        }
+        return drops;
+    }
+
+    @Benchmark
+    public Map<ItemSnapshot, List<ItemSnapshot>> spatialHash() {
+        return ItemMergeEngine.findMerges(drops, Calculations.ITEM_MERGE_RADIUS);
+    }
+
+    @Benchmark
+    public Map<ItemSnapshot, List<ItemSnapshot>> sectorScan() {
+        return sectorScan(drops);
+    }
+
+    /** The scan ItemMergeEngine replaced: 4-block sectors, all pairs inside each sector, one source per pair. */
+    private static Map<ItemSnapshot, List<ItemSnapshot>> sectorScan(List<ItemSnapshot> items) {
+        Map<ItemSnapshot, List<ItemSnapshot>> mergeGroups = new HashMap<>();
+        Set<Integer> processed = new HashSet<>();
+
+        Map<Long, List<ItemSnapshot>> spatialMap = new HashMap<>();
+        for (ItemSnapshot s : items) {
+            if (s.type == null || s.type == Material.AIR || s.hasMeta || s.isPlayerNearby) continue;
+            int gx = (int) Math.floor(s.x / 4.0);
+            int gz = (int) Math.floor(s.z / 4.0);
+            long gridKey = (((long) gx) << 32) | ((long) gz & 0xFFFFFFFFL);
+            spatialMap.computeIfAbsent(gridKey, k -> new ArrayList<>()).add(s);
+        }
+
+        for (List<ItemSnapshot> sector : spatialMap.values()) {
+            for (int i = 0; i < sector.size(); i++) {
+                ItemSnapshot item1 = sector.get(i);
+                if (processed.contains(item1.originalIndex)) continue;
+
+                List<ItemSnapshot> mergeList = new ArrayList<>();
+                for (int j = i + 1; j < sector.size(); j++) {
+                    ItemSnapshot item2 = sector.get(j);
+                    if (processed.contains(item2.originalIndex)) continue;
+                    if (item1.type != item2.type || item1.durability != item2.durability) continue;
+                    if (item1.amount + item2.amount > item1.maxStackSize) continue;
+
+                    double dx = item1.x - item2.x;
+                    double dy = item1.y - item2.y;
+                    double dz = item1.z - item2.z;
+                    if ((dx * dx + dy * dy + dz * dz) <= 9.0) {
+                        mergeList.add(item2);
+                        processed.add(item2.originalIndex);
+                    }
+                }
+
+                if (!mergeList.isEmpty()) {
+                    mergeGroups.put(item1, mergeList);
+                    processed.add(item1.originalIndex);
+                }
+            }
+        }
+        return mergeGroups;
+    }
+}
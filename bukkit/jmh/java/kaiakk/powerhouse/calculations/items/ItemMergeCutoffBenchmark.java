@@ -0,0 +1,55 @@
+package kaiakk.powerhouse.calculations.items;
+
+import kaiakk.powerhouse.calculations.Calculations;
+import kaiakk.powerhouse.data.snapshot.ItemSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Places {@link ItemMergeEngine#LINEAR_CUTOFF}: the same drops as {@link ItemMergeBenchmark}
+ * (7 materials, so a group holds about {@code items / 7} stacks) run with every group on the
+ * pairwise path ({@code linear}) or every group on the cell table ({@code hashed}). The cutoff
+ * sits where the two cross.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemMergeCutoffBenchmark {
+
+    @Param({"140", "280", "420", "700", "980", "1400"})
+    public int items;
+
+    private List<ItemSnapshot> drops;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        drops = ItemMergeBenchmark.drops(items);
+    }
+
+    @Benchmark
+    public Map<ItemSnapshot, List<ItemSnapshot>> linear() {
+        return ItemMergeEngine.findMerges(drops, Calculations.ITEM_MERGE_RADIUS, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Map<ItemSnapshot, List<ItemSnapshot>> hashed() {
+        return ItemMergeEngine.findMerges(drops, Calculations.ITEM_MERGE_RADIUS, 0);
+    }
+}
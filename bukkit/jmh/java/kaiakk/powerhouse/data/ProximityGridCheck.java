@@ -0,0 +1,118 @@
+package kaiakk.powerhouse.data;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Randomized check of {@link PlayerProximityIndex.WorldSnapshot} queries against a flat scan
+ * over the same players. Rounds range from empty worlds to a few hundred clustered or spread
+ * players, and radii run from zero through column-sized to infinite, so both the column probe
+ * and the linear fallback are exercised. Exits non-zero on the first mismatch. Run with
+ * {@code gradlew proximityCheck}.
+ */
+public final class ProximityGridCheck {
+    private static final int ROUNDS = 2000;
+    private static final int QUERIES = 200;
+    private static final int WORLD = 1;
+
+    private ProximityGridCheck() {}
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 14L;
+        Random random = new Random(seed);
+        long hits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            int n = random.nextInt(8) == 0 ? 0 : random.nextInt(round % 10 == 0 ? 400 : 40);
+            double spread = random.nextBoolean() ? 64.0 : 2000.0;
+            double[] x = new double[n], y = new double[n], z = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = (random.nextDouble() - 0.5) * spread;
+                y[i] = random.nextDouble() * 256.0;
+                z[i] = (random.nextDouble() - 0.5) * spread;
+            }
+            PlayerProximityIndex.WorldSnapshot snap = PlayerProximityIndex.WorldSnapshot.of(WORLD, x, y, z);
+
+            for (int q = 0; q < QUERIES; q++) {
+                double px = (random.nextDouble() - 0.5) * spread * 1.2;
+                double py = random.nextDouble() * 256.0;
+                double pz = (random.nextDouble() - 0.5) * spread * 1.2;
+                double radius = radius(random);
+
+                boolean any = snap.anyWithin(px, py, pz, radius);
+                if (any != (nearest(x, y, z, px, py, pz, radius, false) < Double.POSITIVE_INFINITY)) fail("anyWithin", seed, round, q);
+                if (any) hits++;
+                for (int h = 0; h < 2; h++) {
+                    boolean horizontal = h == 1;
+                    if (Double.compare(snap.nearestDistanceSq(px, py, pz, radius, horizontal), nearest(x, y, z, px, py, pz, radius, horizontal)) != 0) {
+                        fail(horizontal ? "nearestDistanceSq (horizontal)" : "nearestDistanceSq", seed, round, q);
+                    }
+                }
+
+                int minX = (int) Math.floor(px), minY = (int) Math.floor(py), minZ = (int) Math.floor(pz);
+                int maxX = minX + random.nextInt(40), maxY = minY + random.nextInt(8), maxZ = minZ + random.nextInt(40);
+                if (snap.anyWithinBox(minX, minY, minZ, maxX, maxY, maxZ, radius) != anyWithinBox(x, y, z, minX, minY, minZ, maxX, maxY, maxZ, radius)) {
+                    fail("anyWithinBox", seed, round, q);
+                }
+            }
+
+            int chunkRadius = random.nextInt(4);
+            Set<Long> expected = new HashSet<Long>();
+            for (int i = 0; i < n; i++) {
+                int cx = ((int) Math.floor(x[i])) >> 4, cz = ((int) Math.floor(z[i])) >> 4;
+                if (snap.playerChunk(i) != BlockKey.pack(WORLD, cx, 0, cz)) fail("playerChunk", seed, round, i);
+                for (int dx = -chunkRadius; dx <= chunkRadius; dx++) {
+                    for (int dz = -chunkRadius; dz <= chunkRadius; dz++) expected.add(BlockKey.pack(WORLD, cx + dx, 0, cz + dz));
+                }
+            }
+            long[] around = snap.chunksAround(chunkRadius);
+            Set<Long> got = new HashSet<Long>();
+            for (long key : around) got.add(key);
+            if (got.size() != around.length || !got.equals(expected)) fail("chunksAround", seed, round, chunkRadius);
+        }
+        System.out.println("ProximityGridCheck: " + ROUNDS + " rounds x " + QUERIES + " queries, " + hits + " hits, all match (seed " + seed + ")");
+    }
+
+    /** Mostly radii near the column size, plus the edge cases: zero, world-sized, past the int range, infinite, NaN. */
+    private static double radius(Random random) {
+        switch (random.nextInt(20)) {
+            case 0: return 0.0;
+            case 1: return Double.POSITIVE_INFINITY;
+            case 2: return Double.NaN;
+            case 3: return 5000.0;
+            case 4: return 1.0e12;
+            default: return random.nextDouble() * 3.0 * PlayerProximityIndex.CELL_SIZE;
+        }
+    }
+
+    private static double nearest(double[] x, double[] y, double[] z, double px, double py, double pz, double radius, boolean horizontal) {
+        double best = Double.POSITIVE_INFINITY;
+        if (!(radius >= 0.0)) return best;
+        for (int i = 0; i < x.length; i++) {
+            double dx = x[i] - px, dz = z[i] - pz;
+            double d2 = dx * dx + dz * dz;
+            if (!horizontal) {
+                double dy = y[i] - py;
+                d2 += dy * dy;
+            }
+            if (d2 <= radius * radius && d2 < best) best = d2;
+        }
+        return best;
+    }
+
+    private static boolean anyWithinBox(double[] x, double[] y, double[] z, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, double radius) {
+        if (!(radius >= 0.0)) return false;
+        for (int i = 0; i < x.length; i++) {
+            double dx = Math.max(0.0, Math.max(minX - x[i], x[i] - (maxX + 1)));
+            double dy = Math.max(0.0, Math.max(minY - y[i], y[i] - (maxY + 1)));
+            double dz = Math.max(0.0, Math.max(minZ - z[i], z[i] - (maxZ + 1)));
+            if (dx * dx + dy * dy + dz * dz <= radius * radius) return true;
+        }
+        return false;
+    }
+
+    private static void fail(String what, long seed, int round, int at) {
+        System.err.println("ProximityGridCheck: " + what + " mismatch at round " + round + ", query " + at + " (seed " + seed + ")");
+        System.exit(1);
+    }
+}
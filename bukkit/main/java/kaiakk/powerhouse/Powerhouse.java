@@ -39,6 +39,65 @@ public final class Powerhouse extends JavaPlugin {
         defaults.put("item-merging.interval-seconds", 3);
         defaults.put("redstone-culling.enabled", true);
         defaults.put("redstone-culling.max-updates-per-second", 200);
+        defaults.put("redstone-culling.cull-ttl-seconds", 10);
+        defaults.put("redstone-culling.chunk-budget-per-tick", 32);
+        defaults.put("redstone-culling.min-chunk-budget-per-tick", 2);
+        defaults.put("redstone-culling.refresh-budget-micros", 1000);
+        defaults.put("chunk-scanner.budget-micros", 500);
+        defaults.put("chunk-scanner.max-chunks-per-tick", 64);
+        defaults.put("entity-pipeline.apply-budget-micros", 2000);
+        defaults.put("entity-index.reconcile-seconds", 60);
+        defaults.put("ai-lod.enabled", true);
+        defaults.put("ai-lod.full-distance", 48.0);
+        defaults.put("ai-lod.reduced-distance", 64.0);
+        defaults.put("ai-lod.frozen-distance", 96.0);
+        defaults.put("ai-lod.hysteresis", 6.0);
+        defaults.put("ai-lod.min-scale-multiplier", 0.5);
+        defaults.put("ai-lod.reduced-toggle-ticks", 20);
+        defaults.put("ai-lod.transition-budget-micros", 1000);
+        defaults.put("spawn-gate.enabled", true);
+        defaults.put("spawn-gate.caps.monster", 32);
+        defaults.put("spawn-gate.caps.animal", 24);
+        defaults.put("spawn-gate.caps.water", 16);
+        defaults.put("spawn-gate.caps.ambient", 8);
+        defaults.put("spawn-gate.caps.item", 96);
+        defaults.put("spawn-gate.min-scale-multiplier", 0.5);
+        defaults.put("spawn-gate.item-player-radius", 6.0);
+        defaults.put("spawn-governor.enabled", true);
+        defaults.put("spawn-governor.min-limit-multiplier", 0.25);
+        defaults.put("spawn-governor.max-ticks-multiplier", 4.0);
+        defaults.put("spawn-governor.healthy-scale", 0.85);
+        defaults.put("spawn-governor.hysteresis", 0.1);
+        defaults.put("game-rules.enabled", true);
+        defaults.put("game-rules.cooldown-seconds", 30);
+        defaults.put("game-rules.healthy-scale", 0.85);
+        defaults.put("game-rules.min-random-tick-multiplier", 0.33);
+        defaults.put("game-rules.min-cramming-multiplier", 0.5);
+        defaults.put("game-rules.disable-spawners-below-scale", 0.4);
+        defaults.put("cramming.mode", "collision");
+        defaults.put("cramming.removal-multiplier", 4.0);
+        defaults.put("cramming.revert-ratio", 0.75);
+        defaults.put("spawner-throttle.enabled", true);
+        defaults.put("spawner-throttle.spawns-per-minute", 12.0);
+        defaults.put("spawner-throttle.burst", 8.0);
+        defaults.put("spawner-throttle.min-scale-multiplier", 0.25);
+        defaults.put("spawner-throttle.density-soft", 16);
+        defaults.put("spawner-throttle.density-hard", 48);
+        defaults.put("spawner-throttle.cluster-radius", 16.0);
+        defaults.put("spawner-throttle.cluster-penalty", 0.5);
+        defaults.put("spawner-throttle.max-delay-ticks", 1200);
+        defaults.put("spawner-throttle.idle-seconds", 300);
+        defaults.put("mob-stacking.enabled", false);
+        defaults.put("mob-stacking.radius", 4.0);
+        defaults.put("mob-stacking.max-stack", 100);
+        defaults.put("mob-stacking.interval-seconds", 10.0);
+        defaults.put("mob-stacking.stack-below-scale", 0.7);
+        defaults.put("mob-stacking.split-above-scale", 0.85);
+        defaults.put("mob-stacking.unstack-per-second", 10);
+        defaults.put("mob-stacking.split-cooldown-seconds", 30);
+        defaults.put("mob-stacking.name-format", "&ex{count}");
+        defaults.put("rate-estimator.window-ms", 1000);
+        defaults.put("rate-estimator.buckets", 5);
         defaults.put("item-hiding.distance", 16.0);
         defaults.put("item-hiding.velocity-threshold", 5.0);
         defaults.put("web-server.enabled", false);
@@ -181,13 +240,15 @@ public final class Powerhouse extends JavaPlugin {
                 entityCulling.start();
             } catch (Throwable ignored) {}
 
-            try {
-                aiManagement = new kaiakk.powerhouse.world.entity.AiManagement(new java.util.function.DoubleSupplier() {
-                    public double getAsDouble() { return optimizations.getAverageMspt(); }
-                });
-                aiManagement.start(this);
-                try { optimizations.registerScalable(aiManagement); } catch (Throwable ignored) {}
-            } catch (Throwable ignored) {}
+            if (ConfigHelp.getBoolean("ai-lod.enabled", true)) {
+                try {
+                    aiManagement = new kaiakk.powerhouse.world.entity.AiManagement(new java.util.function.DoubleSupplier() {
+                        public double getAsDouble() { return optimizations.getAverageMspt(); }
+                    });
+                    aiManagement.start(this);
+                    try { optimizations.registerScalable(aiManagement); } catch (Throwable ignored) {}
+                } catch (Throwable ignored) {}
+            }
             try {
                 itemRemover = new kaiakk.powerhouse.world.physics.ItemRemover(this);
                 itemRemover.start();
@@ -285,7 +346,50 @@ public final class Powerhouse extends JavaPlugin {
             sender.sendMessage(ColorConverter.colorize("&a&l=== Powerhouse Statistics ==="));
             sender.sendMessage(ColorConverter.colorize("&7Monitored Locations: &e" + stats.get("monitored_locations")));
             sender.sendMessage(ColorConverter.colorize("&7Culled Locations: &c" + stats.get("culled_locations")));
+            sender.sendMessage(ColorConverter.colorize("&7Culled Clusters: &c" + stats.get("culled_clusters")));
+            if (stats.containsKey("redstone_dilated_chunks")) {
+                sender.sendMessage(ColorConverter.colorize("&7Dilated Chunks: &e" + stats.get("redstone_dilated_chunks") + " &7(budget &e" + stats.get("redstone_chunk_budget") + "&7/tick, queued &e" + stats.get("redstone_deferred_queued") + "&7, replayed &e" + stats.get("redstone_replayed_total") + "&7)"));
+            }
+            try {
+                java.util.List<kaiakk.powerhouse.data.RedstoneCluster> clusters = kaiakk.powerhouse.calculations.Calculations.getCulledClusters();
+                for (int i = 0; i < clusters.size() && i < 5; i++) {
+                    kaiakk.powerhouse.data.RedstoneCluster c = clusters.get(i);
+                    sender.sendMessage(ColorConverter.colorize("&8 - &7#" + c.id + " &f" + c.describeBounds() + " &7(" + c.size() + " blocks, &e" + c.totalUpdates + "&7 upd/s)"));
+                }
+            } catch (Throwable ignored) {}
             sender.sendMessage(ColorConverter.colorize("&7Total Tracked: &b" + stats.get("total_tracked")));
+            sender.sendMessage(ColorConverter.colorize("&7Redstone Events/Tick: &e" + stats.get("redstone_events_per_tick") + " &7(last: &e" + stats.get("redstone_events_last_tick") + "&7)"));
+            if (stats.containsKey("chunk_scan_ms_per_tick")) {
+                sender.sendMessage(ColorConverter.colorize("&7Chunk Sweep: &e" + stats.get("chunk_scan_ms_per_tick") + "ms&7/tick (max &e" + stats.get("chunk_scan_max_ms") + "ms&7, passes &e" + stats.get("chunk_scan_passes_total") + "&7)"));
+            }
+            if (stats.containsKey("entity_snapshot_capture_ms")) {
+                sender.sendMessage(ColorConverter.colorize("&7Entity Snapshot: &e" + stats.get("entity_snapshot_capture_ms") + "ms&7/capture (&e" + stats.get("entity_snapshot_entities") + " &7entities, epoch &e" + stats.get("entity_snapshot_epoch") + "&7, apply queue &e" + stats.get("entity_apply_queue_depth") + "&7)"));
+            }
+            if (stats.containsKey("entity_lookup_per_tick")) {
+                sender.sendMessage(ColorConverter.colorize("&7Entity Lookups: &e" + stats.get("entity_lookup_per_tick") + "&7/tick (cache hit &e" + stats.get("entity_lookup_hit_rate") + "%&7)"));
+            }
+            sender.sendMessage(ColorConverter.colorize("&7Cramming Removals: &c" + stats.get("cramming_removals") + " &7Prevented Spawns: &c" + stats.get("prevented_spawns")));
+            if (stats.containsKey("cramming_mode")) {
+                sender.sendMessage(ColorConverter.colorize("&7Crowds (" + stats.get("cramming_mode") + "): &e" + stats.get("cramming_collision_clusters") + " &7collision-off (&e" + stats.get("cramming_decollided") + " &7mobs), &c" + stats.get("cramming_removal_clusters") + " &7trimmed"));
+            }
+            if (stats.containsKey("spawn_limit_multiplier")) {
+                sender.sendMessage(ColorConverter.colorize("&7Spawn Limits: &ex" + stats.get("spawn_limit_multiplier") + " &7(spawn interval &ex" + stats.get("spawn_ticks_multiplier") + "&7)"));
+            }
+            if (stats.containsKey("game_rule_random_tick_multiplier")) {
+                sender.sendMessage(ColorConverter.colorize("&7Game Rules: &erandom tick x" + stats.get("game_rule_random_tick_multiplier") + "&7, cramming &ex" + stats.get("game_rule_cramming_multiplier") + (Boolean.TRUE.equals(stats.get("game_rule_spawners_off")) ? " &c(patrol/trader spawns off)" : "")));
+            }
+            if (stats.containsKey("spawner_tracked")) {
+                sender.sendMessage(ColorConverter.colorize("&7Spawners: &e" + stats.get("spawner_tracked") + " &7tracked, &e" + stats.get("spawner_farm_clusters") + " &7farm clusters, &c" + stats.get("spawner_throttled_total") + " &7spawns throttled (rate &ex" + stats.get("spawner_rate_multiplier") + "&7)"));
+            }
+            if (stats.containsKey("mob_stack_saved")) {
+                sender.sendMessage(ColorConverter.colorize("&7Mob Stacks: &a" + stats.get("mob_stack_saved") + " &7mobs saved in &e" + stats.get("mob_stack_carriers") + " &7stacks " + stats.get("mob_stack_saved_by_world") + (Boolean.TRUE.equals(stats.get("mob_stack_active")) ? " &c(stacking)" : "")));
+            }
+            if (stats.containsKey("entity_index_tracked")) {
+                sender.sendMessage(ColorConverter.colorize("&7Entity Index: &e" + stats.get("entity_index_tracked") + " &7entities in &e" + stats.get("entity_index_chunks") + " &7chunks (reconcile drift &e" + stats.get("entity_index_reconcile_delta") + "&7)"));
+            }
+            if (stats.containsKey("redstone_refreshes_per_tick")) {
+                sender.sendMessage(ColorConverter.colorize("&7Redstone Refreshes/Tick: &e" + stats.get("redstone_refreshes_per_tick") + " &7(last: &e" + stats.get("redstone_refreshes_last_tick") + "&7, pending &e" + stats.get("redstone_refresh_pending") + "&7)"));
+            }
             try {
                 if (itemRemover != null) sender.sendMessage(ColorConverter.colorize("&7Hidden items: &e" + itemRemover.getHiddenCount()));
             } catch (Throwable ignored) {}
@@ -333,6 +437,8 @@ public final class Powerhouse extends JavaPlugin {
             ConfigHelp.reload();
             ConfigHelp.ensureDefaults(new java.util.HashMap<>());
         } catch (Throwable ignored) {}
+        try { kaiakk.powerhouse.helpers.internal.MaterialClassifier.init(); } catch (Throwable ignored) {}
+        try { kaiakk.powerhouse.helpers.internal.EntityTypeClassifier.init(); } catch (Throwable ignored) {}
 
         try {
             try { if (optimizations != null) optimizations.stop(); } catch (Throwable ignored) {}
@@ -432,14 +538,24 @@ public final class Powerhouse extends JavaPlugin {
             sender.sendMessage(ColorConverter.colorize("&cOptimization system not initialized!"));
             return true;
         }
+        kaiakk.powerhouse.world.entity.AiManagement ai = kaiakk.powerhouse.world.entity.AiManagement.getInstance();
         if (args.length < 2) {
-            sender.sendMessage(ColorConverter.colorize("&cUsage: /powerhouse ai <entity-uuid>"));
+            if (ai == null) {
+                sender.sendMessage(ColorConverter.colorize("&cAI tiers are disabled. Usage: /powerhouse ai <entity-uuid>"));
+                return true;
+            }
+            int[] counts = ai.getTierCounts();
+            sender.sendMessage(ColorConverter.colorize("&aPowerhouse AI tiers:"));
+            sender.sendMessage(ColorConverter.colorize("&7Full: &e" + counts[0] + " &7Reduced: &e" + counts[1] + " &7Frozen: &e" + counts[2] + " &7Dormant: &e" + counts[3]));
+            sender.sendMessage(ColorConverter.colorize("&7Transitions: &e" + ai.getTransitions() + " &7(last tick &e" + ai.getLastTickTransitions() + "&7, avg &e" + String.format("%.2f", ai.getAverageTickTransitions()) + "&7/tick)"));
+            sender.sendMessage(ColorConverter.colorize("&7Queued: &e" + ai.getQueueDepth()));
             return true;
         }
         try {
             java.util.UUID id = java.util.UUID.fromString(args[1]);
             boolean disabled = optimizations.isEntityAiDisabled(id);
             sender.sendMessage(ColorConverter.colorize(disabled ? "&cAI is disabled for that entity" : "&aAI is enabled for that entity"));
+            if (ai != null) sender.sendMessage(ColorConverter.colorize("&7AI tier: &e" + ai.getTier(id).name().toLowerCase()));
         } catch (Throwable ex) {
             sender.sendMessage(ColorConverter.colorize("&cInvalid UUID."));
         }
@@ -756,6 +872,10 @@ public final class Powerhouse extends JavaPlugin {
         try {
             if (itemRemover != null) itemRemover.stop();
         } catch (Throwable ignored) {}
+        try { kaiakk.powerhouse.world.entity.EntitySnapshotPipeline.shutdown(); } catch (Throwable ignored) {}
+        try { kaiakk.powerhouse.world.entity.ChunkEntityIndex.shutdown(); } catch (Throwable ignored) {}
+        try { kaiakk.powerhouse.world.ChunkScanner.shutdown(); } catch (Throwable ignored) {}
+        try { kaiakk.powerhouse.data.PlayerProximityIndex.shutdown(); } catch (Throwable ignored) {}
         try {
             if (serverController != null) serverController.stop();
         } catch (Throwable ignored) {}
@@ -5,6 +5,8 @@ import org.bukkit.Material;
 import org.bukkit.block.Block;
 
 import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.BlockStatTable;
+import kaiakk.powerhouse.data.RedstoneCluster;
 import kaiakk.powerhouse.data.snapshot.ItemSnapshot;
 
 import java.util.*;
@@ -12,88 +14,24 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class Calculations {
 
-    private static final ConcurrentHashMap<BlockKey, RedstoneData> redstoneStats = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<BlockKey, Long> culledLocations = new ConcurrentHashMap<>();
-    private static final java.util.Set<BlockKey> throttledLocations = Collections.newSetFromMap(new ConcurrentHashMap<BlockKey, Boolean>());
-    private static final ConcurrentHashMap<BlockKey, Long> throttledTimestamps = new ConcurrentHashMap<>();
-    
-    private static final ConcurrentHashMap<BlockKey, Long> redstoneExceedTimestamps = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<BlockKey, ParticleData> particleStats = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<BlockKey, Long> culledParticleLocations = new ConcurrentHashMap<>();
-    
-    private static final ConcurrentHashMap<BlockKey, Long> recentlyUnculled = new ConcurrentHashMap<>();
+    private static final BlockStatTable redstoneStats = new BlockStatTable(kaiakk.powerhouse.data.RateWindow.fromConfig("redstone-culling"));
+    private static final BlockStatTable particleStats = new BlockStatTable(kaiakk.powerhouse.data.RateWindow.fromConfig("particle-culling"));
+    private static final ConcurrentHashMap<Integer, RedstoneCluster> culledClusters = new ConcurrentHashMap<>();
 
-    private static class ParticleData {
-        int count;
-        long lastUpdate;
-        ParticleData(int count, long lastUpdate) { this.count = count; this.lastUpdate = lastUpdate; }
-    }
+    // Cull TTLs live only in these wheels; entries carry the culledAt/exemptUntil they were scheduled for.
+    private static final kaiakk.powerhouse.data.TimerWheel clusterExpiry = new kaiakk.powerhouse.data.TimerWheel(250L, 512);
+    private static final kaiakk.powerhouse.data.TimerWheel particleExpiry = new kaiakk.powerhouse.data.TimerWheel(250L, 512);
+    private static final kaiakk.powerhouse.data.TimerWheel exemptionExpiry = new kaiakk.powerhouse.data.TimerWheel(250L, 512);
+    public static final long REDSTONE_CULL_TTL_MS = 10000L;
+    public static final long PARTICLE_CULL_TTL_MS = 30000L;
+    private static final long UNCULL_EXEMPTION_MS = 2000L;
 
-    private static class RedstoneData {
-        int count;
-        long lastUpdate;
-        RedstoneData(int count, long lastUpdate) { this.count = count; this.lastUpdate = lastUpdate; }
-    }
-    
-    public static Map<ItemSnapshot, List<ItemSnapshot>> scanItemMergeCandidatesSnapshots(List<ItemSnapshot> items) {
-        if (items == null || items.size() < 2) return Collections.emptyMap();
-
-        Map<ItemSnapshot, List<ItemSnapshot>> mergeGroups = new HashMap<>();
-        java.util.Set<Integer> processed = new HashSet<>();
-
-        Map<Long, List<ItemSnapshot>> spatialMap = new HashMap<>();
-        for (ItemSnapshot s : items) {
-            if (!isValidForMerging(s) || s.isPlayerNearby) continue;
-            int gx = (int) Math.floor(s.x / 4.0);
-            int gz = (int) Math.floor(s.z / 4.0);
-            long gridKey = (((long) gx) << 32) | ((long) gz & 0xFFFFFFFFL);
-            spatialMap.computeIfAbsent(gridKey, k -> new ArrayList<>()).add(s);
-        }
+    private static final long STALE_MS = 5000L;
 
-        for (List<ItemSnapshot> sector : spatialMap.values()) {
-            for (int i = 0; i < sector.size(); i++) {
-                ItemSnapshot item1 = sector.get(i);
-                if (item1 == null) continue;
-                if (processed.contains(item1.originalIndex)) continue;
-
-                List<ItemSnapshot> mergeList = new ArrayList<>();
-                for (int j = i + 1; j < sector.size(); j++) {
-                    ItemSnapshot item2 = sector.get(j);
-                    if (item2 == null) continue;
-                    if (processed.contains(item2.originalIndex)) continue;
-                    if (!canItemsMerge(item1, item2)) continue;
-
-                    double dx = item1.x - item2.x;
-                    double dy = item1.y - item2.y;
-                    double dz = item1.z - item2.z;
-
-                    if ((dx * dx + dy * dy + dz * dz) <= 9.0) {
-                        mergeList.add(item2);
-                        processed.add(item2.originalIndex);
-                    }
-                }
-
-                if (!mergeList.isEmpty()) {
-                    mergeGroups.put(item1, mergeList);
-                    processed.add(item1.originalIndex);
-                }
-            }
-        }
+    public static final double ITEM_MERGE_RADIUS = 3.0;
 
-        return mergeGroups;
-    }
-    private static boolean isValidForMerging(ItemSnapshot item) {
-        if (item == null) return false;
-        if (item.type == null || item.type == Material.AIR) return false;
-        if (item.hasMeta) return false;
-        return true;
-    }
-    
-    private static boolean canItemsMerge(ItemSnapshot s1, ItemSnapshot s2) {
-        if (s1.type != s2.type) return false;
-        if (s1.durability != s2.durability) return false;
-        int combined = s1.amount + s2.amount;
-        return combined <= s1.maxStackSize;
+    public static Map<ItemSnapshot, List<ItemSnapshot>> scanItemMergeCandidatesSnapshots(List<ItemSnapshot> items) {
+        return kaiakk.powerhouse.calculations.items.ItemMergeEngine.findMerges(items, ITEM_MERGE_RADIUS);
     }
     
     public static int calculateMergedAmountSnapshot(ItemSnapshot target, List<ItemSnapshot> toMerge) {
@@ -107,35 +45,7 @@ public class Calculations {
     }
 
     public static Map<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot, List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot>> scanXpMergeCandidatesSnapshots(List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot> orbs) {
-        Map<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot, List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot>> groups = new HashMap<>();
-        if (orbs == null || orbs.isEmpty()) return groups;
-
-        Set<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot> processed = new HashSet<>();
-        for (int i = 0; i < orbs.size(); i++) {
-            kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot a = orbs.get(i);
-            if (a == null) continue;
-            if (processed.contains(a)) continue;
-
-            List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot> list = new ArrayList<>();
-            for (int j = i + 1; j < orbs.size(); j++) {
-                kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot b = orbs.get(j);
-                if (b == null) continue;
-                double dx = a.x - b.x;
-                double dy = a.y - b.y;
-                double dz = a.z - b.z;
-                if (dx*dx + dy*dy + dz*dz <= 4.0) {
-                    list.add(b);
-                    processed.add(b);
-                }
-            }
-
-            if (!list.isEmpty()) {
-                groups.put(a, list);
-                processed.add(a);
-            }
-        }
-
-        return groups;
+        return kaiakk.powerhouse.data.OrbIndex.group(orbs, kaiakk.powerhouse.data.OrbIndex.CELL_SIZE);
     }
 
     public static int calculateMergedXpSnapshot(kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot target, List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot> toMerge) {
@@ -150,300 +60,243 @@ public class Calculations {
     }
     
     
-    public static void recordBlockUpdate(Location location) {
-        BlockKey key = BlockKey.from(location);
-        if (key == null) return;
-
-        long now = System.currentTimeMillis();
-        redstoneStats.compute(key, (k, v) -> {
-            if (v == null || now - v.lastUpdate > 1000) return new RedstoneData(1, now);
-            v.count++;
-            v.lastUpdate = now;
-            return v;
-        });
+    public static void applyPackedBlockUpdates(long packedKey, int delta, long now) {
+        if (delta <= 0) return;
+        redstoneStats.addCount(packedKey, delta, now);
     }
 
-    public static void markThrottled(Location location) {
-        try {
-            BlockKey key = BlockKey.from(location);
-            if (key != null) {
-                throttledLocations.add(key);
-                try { throttledTimestamps.put(key, System.currentTimeMillis()); } catch (Throwable ignored) {}
-            }
-        } catch (Throwable ignored) {}
+    public static boolean markDeferred(long packedKey) {
+        if (packedKey == BlockKey.NO_KEY) return false;
+        return redstoneStats.markThrottled(packedKey, System.currentTimeMillis());
     }
-    public static List<Location> drainThrottledLocations() {
-        List<Location> out = new ArrayList<>();
-        try {
-            long now = System.currentTimeMillis();
-            final long MAX_AGE_MS = 60_000L; // drop very old entries to avoid leaks
-            // Snapshot keys to iterate safely and clear immediately to avoid memory leaks
-            List<BlockKey> keys = new ArrayList<>(throttledLocations);
-            try { throttledLocations.clear(); } catch (Throwable ignored) {}
-
-            for (BlockKey k : keys) {
-                try {
-                    Long stamped = throttledTimestamps.get(k);
-                    if (stamped == null) stamped = 0L;
-                    // purge very old entries
-                    if (now - stamped > MAX_AGE_MS) {
-                        try { throttledTimestamps.remove(k); } catch (Throwable ignored) {}
-                        continue;
-                    }
 
-                    // Only process if the location is no longer culled
-                    if (!culledLocations.containsKey(k)) {
-                        try { throttledTimestamps.remove(k); } catch (Throwable ignored) {}
-                        try {
-                            Location l = k.toLocation();
-                            if (l != null) out.add(l);
-                        } catch (Throwable ignored) {}
-                    }
-                } catch (Throwable ignored) {}
-            }
-        } catch (Throwable ignored) {}
-        return out;
+    public static void clearDeferred(long packedKey) {
+        if (packedKey == BlockKey.NO_KEY) return;
+        redstoneStats.clearThrottled(packedKey);
     }
 
     public static void recordParticle(Location location) {
-        BlockKey key = BlockKey.from(location);
-        if (key == null) return;
-
-        long now = System.currentTimeMillis();
-        particleStats.compute(key, (k, v) -> {
-            if (v == null || now - v.lastUpdate > 1000) return new ParticleData(1, now);
-            v.count++;
-            v.lastUpdate = now;
-            return v;
-        });
+        long key = BlockKey.pack(location);
+        if (key == BlockKey.NO_KEY) return;
+        particleStats.addCount(key, 1, System.currentTimeMillis());
     }
     
-    public static List<Location> scanRedstoneCullingCandidates() {
-        return scanRedstoneCullingCandidates(15);
-    }
-
-    public static List<Location> scanRedstoneCullingCandidates(int dynamicThreshold) {
-        List<Location> toCull = new ArrayList<>();
-        long now = System.currentTimeMillis();
-
-        redstoneStats.entrySet().removeIf(entry -> {
-            BlockKey key = entry.getKey();
-            RedstoneData data = entry.getValue();
-            if (data == null) return true;
+    public static List<RedstoneCluster> scanRedstoneClusters(final int minUpdates) {
+        final long now = System.currentTimeMillis();
+        final long GRACE_MS = 3000L; 
+        final long[][] keys = { new long[64] };
+        final int[][] counts = { new int[64] };
+        final boolean[][] ready = { new boolean[64] };
+        final int[] n = { 0 };
+
+        redstoneStats.forEach(new BlockStatTable.Visitor() {
+            public void visit(BlockStatTable.Scan t, int slot, long key) {
+                long last = t.lastUpdate(slot);
+                if (last == 0L) {
+                    t.releaseIfEmpty(slot);
+                    return;
+                }
 
-            if (now - data.lastUpdate > 5000) {
-                return true;
-            }
+                int count = t.count(slot, now);
+                if (count == 0) {
+                    t.setExceedSince(slot, 0L);
+                    if (now - last > STALE_MS) {
+                        t.resetCount(slot);
+                        t.releaseIfEmpty(slot);
+                    }
+                    return;
+                }
+                if (t.culledAt(slot) != 0L) return;
+
+                boolean hot = false;
+                if (count >= minUpdates) {
+                    long first = t.exceedSince(slot);
+                    if (first == 0L) t.setExceedSince(slot, now);
+                    else hot = now - first >= GRACE_MS;
+                } else {
+                    t.setExceedSince(slot, 0L);
+                }
 
-            if (data.count > dynamicThreshold && (now - data.lastUpdate) <= 1000) {
-                if (!culledLocations.containsKey(key)) {
-                    Location loc = key.toLocation();
-                    if (loc != null) toCull.add(loc);
+                int i = n[0];
+                if (i == keys[0].length) {
+                    keys[0] = Arrays.copyOf(keys[0], i << 1);
+                    counts[0] = Arrays.copyOf(counts[0], i << 1);
+                    ready[0] = Arrays.copyOf(ready[0], i << 1);
                 }
+                keys[0][i] = key;
+                counts[0][i] = count;
+                ready[0][i] = hot;
+                n[0] = i + 1;
             }
-            return false;
         });
 
-        return toCull;
+        return kaiakk.powerhouse.calculations.redstone.RedstoneClustering.cluster(keys[0], counts[0], ready[0], n[0]);
     }
 
-    public static java.util.Map<Location, Integer> scanRedstoneCullingCandidatesWithCounts(int minUpdates) {
-        java.util.Map<Location, Integer> results = new java.util.HashMap<Location, Integer>();
-        long now = System.currentTimeMillis();
-        final long GRACE_MS = 3000L; 
-
-        for (Map.Entry<BlockKey, RedstoneData> entry : redstoneStats.entrySet()) {
-            BlockKey key = entry.getKey();
-            RedstoneData data = entry.getValue();
-            if (data == null) continue;
-
-            
-            if (now - data.lastUpdate <= 1000 && data.count >= minUpdates) {
-                
-                if (culledLocations.containsKey(key)) continue;
-
-                Long first = redstoneExceedTimestamps.get(key);
-                if (first == null) {
-                    redstoneExceedTimestamps.put(key, now);
-                    continue;
-                }
-
-                if (now - first >= GRACE_MS) {
-                    Location loc = key.toLocation();
-                    if (loc != null) results.put(loc, data.count);
+    public static java.util.Map<Location, Integer> scanParticleCullingCandidatesWithCounts(final int minUpdates) {
+        final java.util.Map<Location, Integer> results = new java.util.HashMap<Location, Integer>();
+        final long now = System.currentTimeMillis();
+        particleStats.forEach(new BlockStatTable.Visitor() {
+            public void visit(BlockStatTable.Scan t, int slot, long key) {
+                long last = t.lastUpdate(slot);
+                if (last == 0L) return;
+                int count = t.count(slot, now);
+                if (count >= minUpdates) {
+                    Location loc = BlockKey.toLocation(key);
+                    if (loc != null) results.put(loc, count);
+                } else if (now - last > STALE_MS) {
+                    t.resetCount(slot);
+                    t.releaseIfEmpty(slot);
                 }
-            } else {
-                
-                redstoneExceedTimestamps.remove(key);
             }
-        }
-
-        
-        redstoneStats.entrySet().removeIf(en -> en.getValue() == null || (now - en.getValue().lastUpdate) > 5000);
+        });
 
         return results;
     }
+    
+    public static void markClusterCulled(RedstoneCluster cluster) {
+        markClusterCulled(cluster, REDSTONE_CULL_TTL_MS);
+    }
 
-    public static java.util.Map<Location, Integer> scanParticleCullingCandidatesWithCounts(int minUpdates) {
-        java.util.Map<Location, Integer> results = new java.util.HashMap<Location, Integer>();
+    public static void markClusterCulled(RedstoneCluster cluster, long ttlMs) {
+        if (cluster == null || cluster.members == null) return;
         long now = System.currentTimeMillis();
-        for (Map.Entry<BlockKey, ParticleData> entry : particleStats.entrySet()) {
-            BlockKey key = entry.getKey();
-            ParticleData data = entry.getValue();
-            if (data == null) continue;
-            if (now - data.lastUpdate <= 1000 && data.count >= minUpdates) {
-                Location loc = key.toLocation();
-                if (loc != null) results.put(loc, data.count);
-            }
-        }
-
-        particleStats.entrySet().removeIf(en -> en.getValue() == null || (now - en.getValue().lastUpdate) > 5000);
+        cluster.culledAt = now;
+        culledClusters.put(cluster.id, cluster);
+        for (long key : cluster.members) redstoneStats.markCulled(key, now, cluster.id);
+        clusterExpiry.schedule(cluster.id, now, now + Math.max(1000L, ttlMs));
+    }
 
-        return results;
+    public static List<RedstoneCluster> getExpiredCulledClusters() {
+        final List<RedstoneCluster> expired = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        clusterExpiry.advance(now, new kaiakk.powerhouse.data.TimerWheel.Expiry() {
+            public void expire(long id, long stamp) {
+                RedstoneCluster c = culledClusters.get((int) id);
+                if (c == null || c.culledAt != stamp || !culledClusters.remove(c.id, c)) return;
+                uncullCluster(c, now);
+                expired.add(c);
+            }
+        });
+        return expired;
     }
-    
-    public static void markLocationCulled(Location location) {
-        BlockKey key = BlockKey.from(location);
-        if (key != null) {
-            culledLocations.put(key, System.currentTimeMillis());
-            redstoneExceedTimestamps.remove(key);
+
+    private static void uncullCluster(RedstoneCluster cluster, long now) {
+        long until = now + UNCULL_EXEMPTION_MS;
+        for (long key : cluster.members) {
+            redstoneStats.uncull(key, until);
+            exemptionExpiry.schedule(key, until, until);
         }
     }
 
+    public static List<RedstoneCluster> getCulledClusters() {
+        List<RedstoneCluster> out = new ArrayList<>(culledClusters.values());
+        out.sort(new Comparator<RedstoneCluster>() {
+            public int compare(RedstoneCluster a, RedstoneCluster b) {
+                return Integer.compare(b.totalUpdates, a.totalUpdates);
+            }
+        });
+        return out;
+    }
+
     public static void markParticleLocationCulled(Location location) {
-        BlockKey key = BlockKey.from(location);
-        if (key != null) culledParticleLocations.put(key, System.currentTimeMillis());
+        long key = BlockKey.pack(location);
+        if (key == BlockKey.NO_KEY) return;
+        long now = System.currentTimeMillis();
+        particleStats.markCulled(key, now);
+        particleExpiry.schedule(key, now, now + PARTICLE_CULL_TTL_MS);
     }
 
     public static boolean isParticleLocationCulled(Location location) {
-        BlockKey key = BlockKey.from(location);
-        return key != null && culledParticleLocations.containsKey(key);
+        long key = BlockKey.pack(location);
+        return key != BlockKey.NO_KEY && particleStats.isCulled(key);
     }
 
     
     public static boolean isBlockCulled(Block block) {
         if (block == null || block.getWorld() == null) return false;
-        BlockKey key = new BlockKey(block.getX(), block.getY(), block.getZ(), block.getWorld().getName());
-        return culledLocations.containsKey(key);
+        long key = BlockKey.pack(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+        return key != BlockKey.NO_KEY && redstoneStats.isCulled(key);
     }
 
     public static boolean isLocationCulled(Location location) {
-        BlockKey key = BlockKey.from(location);
-        if (key == null) return false;
-        Long exempt = recentlyUnculled.get(key);
-        if (exempt != null && System.currentTimeMillis() < exempt) return false;
-        return culledLocations.containsKey(key);
+        long key = BlockKey.pack(location);
+        if (key == BlockKey.NO_KEY) return false;
+        return redstoneStats.isCulled(key, System.currentTimeMillis());
     }
 
-    public static List<Location> getExpiredCulledLocations() {
-        List<Location> expired = new ArrayList<>();
-        long now = System.currentTimeMillis();
-        
-        culledLocations.entrySet().removeIf(entry -> {
-            if (now - entry.getValue() > 10000) {
-                Location loc = entry.getKey().toLocation();
-                if (loc != null) expired.add(loc);
-                return true;
+    /** Ends the post-uncull exemptions whose time is up, so those blocks can be culled again. */
+    public static void expireUncullExemptions() {
+        exemptionExpiry.advance(System.currentTimeMillis(), new kaiakk.powerhouse.data.TimerWheel.Expiry() {
+            public void expire(long key, long stamp) {
+                redstoneStats.expireExemption(key, stamp);
             }
-            return false;
         });
-        return expired;
     }
 
-    public static void uncullLocation(Location location) {
-        BlockKey key = BlockKey.from(location);
-        if (key == null) return;
-        culledLocations.remove(key);
-        redstoneExceedTimestamps.remove(key);
-        redstoneStats.remove(key);
-        
-        recentlyUnculled.put(key, System.currentTimeMillis() + 2000L);
+    private static List<Location> drainExpiredCulled(final BlockStatTable table, kaiakk.powerhouse.data.TimerWheel wheel, long now) {
+        final List<Location> expired = new ArrayList<>();
+        wheel.advance(now, new kaiakk.powerhouse.data.TimerWheel.Expiry() {
+            public void expire(long key, long stamp) {
+                if (!table.expireCulled(key, stamp)) return;
+                Location loc = BlockKey.toLocation(key);
+                if (loc != null) expired.add(loc);
+            }
+        });
+        return expired;
     }
 
     public static void uncullAll() {
-        culledLocations.clear();
-        recentlyUnculled.clear();
+        culledClusters.clear();
+        clusterExpiry.clear();
+        exemptionExpiry.clear();
+        redstoneStats.clearCulledAll();
     }
 
     public static List<Location> getExpiredParticleCulledLocations() {
-        List<Location> expired = new ArrayList<>();
-        long now = System.currentTimeMillis();
-
-        culledParticleLocations.entrySet().removeIf(entry -> {
-            if (now - entry.getValue() > 30000) {
-                Location loc = entry.getKey().toLocation();
-                if (loc != null) expired.add(loc);
-                return true;
-            }
-            return false;
-        });
-        return expired;
+        return drainExpiredCulled(particleStats, particleExpiry, System.currentTimeMillis());
     }
 
     public static void uncullParticleLocation(Location location) {
-        BlockKey key = BlockKey.from(location);
-        if (key == null) return;
-        culledParticleLocations.remove(key);
+        long key = BlockKey.pack(location);
+        if (key == BlockKey.NO_KEY) return;
         particleStats.remove(key);
     }
 
     public static void uncullAllParticles() {
-        culledParticleLocations.clear();
+        particleExpiry.clear();
+        particleStats.clearCulledAll();
     }
     
     public static Map<String, Object> getStatistics() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("monitored_locations", redstoneStats.size());
-        stats.put("culled_locations", culledLocations.size());
-        stats.put("total_tracked", redstoneStats.size());
+        int tracked = redstoneStats.size();
+        stats.put("monitored_locations", tracked);
+        stats.put("culled_locations", redstoneStats.culledCount());
+        stats.put("culled_clusters", culledClusters.size());
+        stats.put("total_tracked", tracked);
         stats.put("particle_tracked", particleStats.size());
-        stats.put("particle_culled", culledParticleLocations.size());
+        stats.put("particle_culled", particleStats.culledCount());
+        stats.put("pending_expiries", clusterExpiry.size() + particleExpiry.size() + exemptionExpiry.size());
         return stats;
     }
     
     public static void clearAllData() {
+        culledClusters.clear();
+        clusterExpiry.clear();
+        particleExpiry.clear();
+        exemptionExpiry.clear();
         redstoneStats.clear();
-        culledLocations.clear();
         particleStats.clear();
-        culledParticleLocations.clear();
-        recentlyUnculled.clear();
     }
 
     public static void clearWorldData(String worldName) {
         if (worldName == null) return;
         try {
-            redstoneStats.entrySet().removeIf(en -> en.getKey() != null && worldName.equals(en.getKey().worldName));
-        } catch (Throwable ignored) {}
-        try {
-            culledLocations.entrySet().removeIf(en -> en.getKey() != null && worldName.equals(en.getKey().worldName));
-        } catch (Throwable ignored) {}
-        try {
-            recentlyUnculled.entrySet().removeIf(en -> en.getKey() != null && worldName.equals(en.getKey().worldName));
-        } catch (Throwable ignored) {}
-        try {
-            particleStats.entrySet().removeIf(en -> en.getKey() != null && worldName.equals(en.getKey().worldName));
-        } catch (Throwable ignored) {}
-        try {
-            culledParticleLocations.entrySet().removeIf(en -> en.getKey() != null && worldName.equals(en.getKey().worldName));
+            culledClusters.values().removeIf(c -> worldName.equals(c.worldName));
+            int idx = BlockKey.worldIndex(worldName);
+            redstoneStats.removeWorld(idx);
+            particleStats.removeWorld(idx);
         } catch (Throwable ignored) {}
     }
-
-    
-    public static void applyListenerCounts(java.util.Map<BlockKey, Integer> counts) {
-        if (counts == null || counts.isEmpty()) return;
-        long now = System.currentTimeMillis();
-        for (java.util.Map.Entry<BlockKey, Integer> e : counts.entrySet()) {
-            BlockKey key = e.getKey();
-            int delta = e.getValue() == null ? 0 : e.getValue();
-            if (delta <= 0) continue;
-            redstoneStats.compute(key, (k, v) -> {
-                if (v == null || now - v.lastUpdate > 1000) return new RedstoneData(delta, now);
-                v.count += delta;
-                v.lastUpdate = now;
-                return v;
-            });
-        }
-    }
 }
-
-
@@ -2,10 +2,10 @@ package kaiakk.powerhouse.calculations;
 
 import org.bukkit.Location;
 import org.bukkit.entity.Item;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import kaiakk.powerhouse.data.PlayerProximityIndex;
 import kaiakk.powerhouse.data.snapshot.ItemSnapshot;
 
 import java.util.*;
@@ -18,7 +18,7 @@ public class CalculationsSync {
         List<ItemSnapshot> snaps = new ArrayList<>();
         Map<Integer, Item> indexToItem = new HashMap<>();
         
-        List<Player> worldPlayers = items.get(0).getWorld().getPlayers();
+        PlayerProximityIndex.WorldSnapshot players = PlayerProximityIndex.snapshot(items.get(0).getWorld());
 
         for (int i = 0; i < items.size(); i++) {
             Item it = items.get(i);
@@ -34,13 +34,7 @@ public class CalculationsSync {
                 hasMeta = meta.hasDisplayName() || meta.hasLore() || meta.hasEnchants();
             }
 
-            boolean playerNearby = false;
-            for (Player p : worldPlayers) {
-                if (p != null && p.getLocation().distanceSquared(loc) <= 2.25) { 
-                    playerNearby = true; 
-                    break; 
-                }
-            }
+            boolean playerNearby = players.anyWithin(loc.getX(), loc.getY(), loc.getZ(), 1.5);
 
             ItemSnapshot s = new ItemSnapshot(i, loc.getX(), loc.getY(), loc.getZ(), 
                 stack.getType(), stack.getAmount(), stack.getDurability(), 
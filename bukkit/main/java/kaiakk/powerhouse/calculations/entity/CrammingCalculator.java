@@ -1,64 +1,161 @@
 package kaiakk.powerhouse.calculations.entity;
 
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.UUID;
-
-import kaiakk.powerhouse.data.snapshot.EntitySnapshot;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+/**
+ * Cramming detection over a {@link SpatialGrid} with one cell per {@code radius}. Each world is
+ * bucketed on its own, and a neighbour query only walks the 3x3x3 cells around an entity,
+ * so a run costs O(n) for bounded density. Large multi-world snapshots split across the
+ * common fork-join pool, one task per world.
+ */
 public class CrammingCalculator {
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int MAX_WORLDS = 64;
 
-    public static Set<UUID> calculateCrammingRemovals(List<EntitySnapshot> snaps, double radius, int threshold) {
-        Set<UUID> toRemove = new HashSet<>();
-        if (snaps == null || snaps.isEmpty()) return toRemove;
-
-        final double rSq = radius * radius;
-
-        for (int i = 0; i < snaps.size(); i++) {
-            EntitySnapshot a = snaps.get(i);
-            if (a == null) continue;
-            if (a.isPlayer) continue;
-            if (toRemove.contains(a.uuid)) continue;
-
-            List<EntitySnapshot> neighbors = new ArrayList<>();
-            neighbors.add(a);
-            for (int j = 0; j < snaps.size(); j++) {
-                if (i == j) continue;
-                EntitySnapshot b = snaps.get(j);
-                if (b == null) continue;
-                if (b.isPlayer) continue;
-                if (!a.world.equals(b.world)) continue;
-                double dx = a.x - b.x;
-                double dy = a.y - b.y;
-                double dz = a.z - b.z;
-                if (dx*dx + dy*dy + dz*dz <= rSq) neighbors.add(b);
-            }
+    private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
 
-            if (neighbors.size() > threshold) {
-                int toTrim = neighbors.size() - threshold;
-                for (EntitySnapshot s : neighbors) {
-                    if (toTrim <= 0) break;
-                    if (!s.hasCustomName) {
-                        toRemove.add(s.uuid);
-                        toTrim--;
+    /** Marks {@link EntitySnapshotBuffer#MARK_REMOVE} on rows to trim from over-crowded spots, unnamed rows first. */
+    public static int markCrammingRemovals(final EntitySnapshotBuffer buf, final double radius, final int threshold) {
+        if (buf == null || buf.size == 0) return 0;
+
+        final int n = buf.size;
+        final int[] order = buf.intScratch(n);
+        int[] starts = SpatialGrid.byWorld(buf, order, MAX_WORLDS);
+        int worlds = 0;
+        for (int w = 0; w < MAX_WORLDS; w++) {
+            if (starts[w + 1] > starts[w]) worlds++;
+        }
+
+        if (worlds > 1 && n >= PARALLEL_THRESHOLD) {
+            List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>(worlds);
+            for (int w = 0; w < MAX_WORLDS; w++) {
+                final int from = starts[w], to = starts[w + 1];
+                if (to <= from) continue;
+                tasks.add(new Callable<int[]>() {
+                    public int[] call() {
+                        Workspace ws = WORKSPACE.get();
+                        int k = ws.scan(buf, order, from, to, radius, threshold);
+                        return Arrays.copyOf(ws.removals, k);
                     }
+                });
+            }
+            try {
+                for (Future<int[]> f : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                    for (int row : f.get()) buf.mark(row, EntitySnapshotBuffer.MARK_REMOVE);
                 }
-                if (toTrim > 0) {
-                    for (EntitySnapshot s : neighbors) {
-                        if (toTrim <= 0) break;
-                        if (s.hasCustomName) {
-                            toRemove.add(s.uuid);
-                            toTrim--;
+                return buf.countMarked(EntitySnapshotBuffer.MARK_REMOVE);
+            } catch (Throwable ignored) {}
+        }
+
+        Workspace ws = WORKSPACE.get();
+        for (int w = 0; w < MAX_WORLDS; w++) {
+            if (starts[w + 1] <= starts[w]) continue;
+            int k = ws.scan(buf, order, starts[w], starts[w + 1], radius, threshold);
+            for (int r = 0; r < k; r++) buf.mark(ws.removals[r], EntitySnapshotBuffer.MARK_REMOVE);
+        }
+        return buf.countMarked(EntitySnapshotBuffer.MARK_REMOVE);
+    }
+
+    /**
+     * Writes into {@code counts[row]} how many rows (itself included) lie within {@code radius};
+     * players and {@link EntitySnapshotBuffer#MARK_EXCLUDE excluded} rows get 0. Unlike
+     * {@link #markCrammingRemovals} nothing is marked, so callers can apply their own thresholds.
+     */
+    public static void countNeighbors(EntitySnapshotBuffer buf, double radius, int[] counts) {
+        if (buf == null || buf.size == 0) return;
+        int[] order = new int[buf.size];
+        int[] starts = SpatialGrid.byWorld(buf, order, MAX_WORLDS);
+
+        Workspace ws = WORKSPACE.get();
+        for (int w = 0; w < MAX_WORLDS; w++) {
+            if (starts[w + 1] > starts[w]) ws.count(buf, order, starts[w], starts[w + 1], radius, counts);
+        }
+    }
+
+    /** Per-thread scratch for one world's rows; only reads the buffer, so worlds can run concurrently. */
+    private static final class Workspace {
+        final SpatialGrid grid = new SpatialGrid();
+        boolean[] removed = new boolean[0];
+        int[] neighbors = new int[0];
+        int[] removals = new int[0];
+
+        void ensure(int count) {
+            if (removed.length >= count) return;
+            int cap = Math.max(count, removed.length << 1);
+            removed = new boolean[cap];
+            neighbors = new int[cap];
+            removals = new int[cap];
+        }
+
+        /** Scans {@code order[from, to)} and returns how many rows it wrote to {@link #removals}. */
+        int scan(EntitySnapshotBuffer buf, int[] order, int from, int to, double radius, int threshold) {
+            int count = to - from;
+            ensure(count);
+            grid.reset(buf, order, from, count, radius);
+
+            // Insert back to front so every cell chain comes out in ascending row order.
+            for (int k = count - 1; k >= 0; k--) {
+                int row = order[from + k];
+                removed[k] = buf.isMarked(row, EntitySnapshotBuffer.MARK_REMOVE);
+                if (buf.hasFlag(row, EntitySnapshotBuffer.FLAG_PLAYER) || buf.isMarked(row, EntitySnapshotBuffer.MARK_EXCLUDE)) continue;
+                grid.insert(k);
+            }
+
+            int out = 0;
+            for (int k = 0; k < count; k++) {
+                int row = order[from + k];
+                if (removed[k] || buf.hasFlag(row, EntitySnapshotBuffer.FLAG_PLAYER) || buf.isMarked(row, EntitySnapshotBuffer.MARK_EXCLUDE)) continue;
+
+                neighbors[0] = k;
+                int found = grid.near(k, neighbors, 1);
+
+                if (found <= threshold) continue;
+                // Keep trimming deterministic: same neighbour order as a plain scan over the rows.
+                Arrays.sort(neighbors, 1, found);
+                int toTrim = found - threshold;
+                for (int pass = 0; pass < 2 && toTrim > 0; pass++) {
+                    boolean wantNamed = pass == 1;
+                    for (int m = 0; m < found && toTrim > 0; m++) {
+                        int j = neighbors[m];
+                        if (buf.hasFlag(order[from + j], EntitySnapshotBuffer.FLAG_NAMED) != wantNamed) continue;
+                        if (!removed[j]) {
+                            removed[j] = true;
+                            removals[out++] = order[from + j];
                         }
+                        toTrim--;
                     }
                 }
             }
+            return out;
         }
 
-        return toRemove;
+        void count(EntitySnapshotBuffer buf, int[] order, int from, int to, double radius, int[] counts) {
+            int count = to - from;
+            grid.reset(buf, order, from, count, radius);
+            for (int k = 0; k < count; k++) {
+                int row = order[from + k];
+                counts[row] = 0;
+                if (buf.hasFlag(row, EntitySnapshotBuffer.FLAG_PLAYER) || buf.isMarked(row, EntitySnapshotBuffer.MARK_EXCLUDE)) continue;
+                grid.insert(k);
+                counts[row] = 1;
+            }
+
+            for (int k = 0; k < count; k++) {
+                int row = order[from + k];
+                if (counts[row] > 0) counts[row] = 1 + grid.countNear(k);
+            }
+        }
     }
 }
-
-
@@ -1,62 +1,77 @@
 package kaiakk.powerhouse.calculations.entity;
 
-import org.bukkit.entity.EntityType;
 
-import kaiakk.powerhouse.data.snapshot.EntitySnapshot;
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.LongIntMap;
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import java.util.Arrays;
 
 public class EntityCalculator {
 
-	public static Set<UUID> calculateCullCandidates(List<EntitySnapshot> snapshots, Map<String, List<double[]>> playersByWorld, int maxPerChunk, double maxDistance) {
-		Set<UUID> toRemove = new HashSet<>();
-		if (snapshots == null || snapshots.isEmpty()) return toRemove;
-
-		Map<Long, List<EntitySnapshot>> chunks = new HashMap<>();
-		double maxDistSq = maxDistance * maxDistance;
-
-		for (EntitySnapshot s : snapshots) {
-			if (s == null || s.isPlayer || s.type == EntityType.ENDER_DRAGON || s.type == EntityType.WITHER) continue;
-
-			int cx = ((int) Math.floor(s.x)) >> 4;
-			int cz = ((int) Math.floor(s.z)) >> 4;
-			long chunkKey = (((long) s.world.hashCode()) << 32) | ((cx & 0xFFFFL) << 16) | (cz & 0xFFFFL);
-
-			chunks.computeIfAbsent(chunkKey, k -> new ArrayList<>()).add(s);
-
-			if (maxDistance > 0 && !s.hasCustomName) {
-				List<double[]> worldPlayers = playersByWorld.get(s.world);
-				if (worldPlayers != null) {
-					boolean near = false;
-					for (double[] p : worldPlayers) {
-						double dx = s.x - p[0];
-						double dz = s.z - p[2];
-						if (dx*dx + dz*dz <= maxDistSq) { near = true; break; }
-					}
-					if (!near && s.worth <= 50) toRemove.add(s.uuid);
-				}
-			}
+	/**
+	 * Marks cull candidates in {@code buf} with {@link EntitySnapshotBuffer#MARK_REMOVE} and returns how many were marked.
+	 * Rows beyond {@code maxPerChunk} in a single block go first; the remaining rows are trimmed per chunk by worth, and
+	 * low-worth rows farther than {@code maxDistance} from every player of their world are dropped.
+	 */
+	public static int markCullCandidates(EntitySnapshotBuffer buf, int maxPerChunk, double maxDistance) {
+		if (buf == null || buf.size == 0) return 0;
+		final int n = buf.size;
+		final LongIntMap table = buf.table;
+		table.clear();
+		table.ensureCapacity(n);
+
+		for (int i = 0; i < n; i++) {
+			if (skip(buf, i)) continue;
+			long block = BlockKey.pack(buf.worldIndex[i], (int) Math.floor(buf.x[i]), (int) Math.floor(buf.y[i]), (int) Math.floor(buf.z[i]));
+			if (table.add(block, 1) > maxPerChunk) buf.mark(i, EntitySnapshotBuffer.MARK_REMOVE);
 		}
 
-		for (List<EntitySnapshot> list : chunks.values()) {
-			if (list.size() <= maxPerChunk) continue;
-			
-			list.sort((a, b) -> Integer.compare(a.worth, b.worth));
-			int toTrim = list.size() - maxPerChunk;
-			for (int i = 0; i < toTrim; i++) {
-				toRemove.add(list.get(i).uuid);
+		// Sort key: chunk slot (20 bits) | worth (12 bits) | row (31 bits), so each chunk is contiguous and cheapest first.
+		table.clear();
+		long[] keys = buf.sortScratch(n);
+		int m = 0;
+		int slots = 0;
+		for (int i = 0; i < n; i++) {
+			if (skip(buf, i) || buf.isMarked(i, EntitySnapshotBuffer.MARK_REMOVE)) continue;
+			long chunk = BlockKey.pack(buf.worldIndex[i], ((int) Math.floor(buf.x[i])) >> 4, 0, ((int) Math.floor(buf.z[i])) >> 4);
+			int slot = table.get(chunk, -1);
+			if (slot < 0) {
+				slot = slots++;
+				table.put(chunk, slot, -1);
 			}
+			long worth = Math.max(0, Math.min(0xFFF, buf.worth[i]));
+			keys[m++] = (((long) slot) << 43) | (worth << 31) | i;
 		}
 
-		return toRemove;
-	}
-}
+		if (maxDistance > 0) {
+			double maxDistSq = maxDistance * maxDistance;
+			for (int i = 0; i < n; i++) {
+				if (skip(buf, i) || buf.worth[i] > 50 || buf.hasFlag(i, EntitySnapshotBuffer.FLAG_NAMED)) continue;
+				if (!buf.hasPlayers(buf.worldIndex[i])) continue;
+				if (buf.nearestPlayerDistSq(i, true, maxDistance) > maxDistSq) buf.mark(i, EntitySnapshotBuffer.MARK_REMOVE);
+			}
+		}
 
+		Arrays.sort(keys, 0, m);
+		int start = 0;
+		while (start < m) {
+			long slot = keys[start] >>> 43;
+			int end = start + 1;
+			while (end < m && (keys[end] >>> 43) == slot) end++;
+			int toTrim = (end - start) - maxPerChunk;
+			for (int k = 0; k < toTrim; k++) {
+				buf.mark((int) (keys[start + k] & 0x7FFFFFFFL), EntitySnapshotBuffer.MARK_REMOVE);
+			}
+			start = end;
+		}
 
+		return buf.countMarked(EntitySnapshotBuffer.MARK_REMOVE);
+	}
 
+	private static boolean skip(EntitySnapshotBuffer buf, int i) {
+		return buf.hasFlag(i, EntitySnapshotBuffer.FLAG_PLAYER)
+				|| buf.isMarked(i, EntitySnapshotBuffer.MARK_EXCLUDE)
+				|| kaiakk.powerhouse.helpers.internal.EntityTypeClassifier.isBoss(buf.type(i));
+	}
+}
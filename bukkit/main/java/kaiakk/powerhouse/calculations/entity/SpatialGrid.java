@@ -0,0 +1,112 @@
+package kaiakk.powerhouse.calculations.entity;
+
+import kaiakk.powerhouse.data.LongIntMap;
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over one slice of snapshot rows, with one cell per {@code radius}; a query walks
+ * the 3x3x3 cells around a row, so it costs O(neighbours) for bounded density. Callers bucket
+ * rows by world first, as the grid only looks at coordinates. Slots are positions in
+ * {@code order[from, from + count)} and only inserted slots are found. Reused across calls,
+ * so one instance per thread.
+ */
+final class SpatialGrid {
+    private final LongIntMap heads = new LongIntMap();
+    private int[] next = new int[0];
+    private EntitySnapshotBuffer buf;
+    private int[] order;
+    private int from;
+    private double cellSize;
+    private double rSq;
+
+    void reset(EntitySnapshotBuffer buf, int[] order, int from, int count, double radius) {
+        this.buf = buf;
+        this.order = order;
+        this.from = from;
+        this.cellSize = Math.max(radius, 0.25);
+        this.rSq = radius * radius;
+        if (next.length < count) next = new int[Math.max(count, next.length << 1)];
+        Arrays.fill(next, 0, count, -1);
+        heads.clear();
+        heads.ensureCapacity(count);
+    }
+
+    int row(int slot) {
+        return order[from + slot];
+    }
+
+    /** Adds {@code slot}; inserting back to front makes every cell chain ascend by slot. */
+    void insert(int slot) {
+        int row = row(slot);
+        next[slot] = heads.put(cellKey(cell(buf.x[row]), cell(buf.y[row]), cell(buf.z[row])), slot, -1);
+    }
+
+    /** Writes the other inserted slots within the radius of {@code slot} into {@code out} from {@code end}; returns the new end. */
+    int near(int slot, int[] out, int end) {
+        int row = row(slot);
+        final double ax = buf.x[row], ay = buf.y[row], az = buf.z[row];
+        final int cx = cell(ax), cy = cell(ay), cz = cell(az);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    for (int j = heads.get(cellKey(cx + dx, cy + dy, cz + dz), -1); j >= 0; j = next[j]) {
+                        if (j == slot) continue;
+                        int other = order[from + j];
+                        double ddx = ax - buf.x[other];
+                        double ddy = ay - buf.y[other];
+                        double ddz = az - buf.z[other];
+                        if (ddx*ddx + ddy*ddy + ddz*ddz <= rSq) out[end++] = j;
+                    }
+                }
+            }
+        }
+        return end;
+    }
+
+    /** How many other inserted slots lie within the radius of {@code slot}. */
+    int countNear(int slot) {
+        int row = row(slot);
+        final double ax = buf.x[row], ay = buf.y[row], az = buf.z[row];
+        final int cx = cell(ax), cy = cell(ay), cz = cell(az);
+        int found = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    for (int j = heads.get(cellKey(cx + dx, cy + dy, cz + dz), -1); j >= 0; j = next[j]) {
+                        if (j == slot) continue;
+                        int other = order[from + j];
+                        double ddx = ax - buf.x[other];
+                        double ddy = ay - buf.y[other];
+                        double ddz = az - buf.z[other];
+                        if (ddx*ddx + ddy*ddy + ddz*ddz <= rSq) found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Rows of {@code buf} grouped by world index, ascending inside each world, written to
+     * {@code order}; returns the {@code worlds + 1} slice boundaries.
+     */
+    static int[] byWorld(EntitySnapshotBuffer buf, int[] order, int maxWorlds) {
+        int n = buf.size;
+        int[] starts = new int[maxWorlds + 1];
+        for (int i = 0; i < n; i++) starts[buf.worldIndex[i] + 1]++;
+        for (int w = 0; w < maxWorlds; w++) starts[w + 1] += starts[w];
+        int[] fill = Arrays.copyOf(starts, maxWorlds);
+        for (int i = 0; i < n; i++) order[fill[buf.worldIndex[i]]++] = i;
+        return starts;
+    }
+
+    private int cell(double coord) {
+        return (int) Math.floor(coord / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy, int cz) {
+        return ((cx & 0x1FFFFFL) << 42) | ((cy & 0x1FFFFFL) << 21) | (cz & 0x1FFFFFL);
+    }
+}
@@ -0,0 +1,76 @@
+package kaiakk.powerhouse.calculations.entity;
+
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Groups same-type rows within a radius into stacks, on the same {@link SpatialGrid} as
+ * {@link CrammingCalculator}: rows bucketed per world, neighbours from the surrounding 3x3x3
+ * cells. {@link EntitySnapshotBuffer#worth} holds each row's current stack size; larger stacks
+ * are visited first so they absorb smaller ones rather than the other way round.
+ */
+public class StackCalculator {
+    private static final int MAX_WORLDS = 64;
+
+    /**
+     * Returns {@code carrierOf}, one entry per row: the carrier row a row should merge into, the
+     * row itself for carriers that gained members, or -1. Players and
+     * {@link EntitySnapshotBuffer#MARK_EXCLUDE excluded} rows are never grouped, and no stack
+     * grows past {@code maxStack}.
+     */
+    public static int[] groupStacks(EntitySnapshotBuffer buf, double radius, int maxStack) {
+        int n = buf == null ? 0 : buf.size;
+        int[] carrierOf = new int[n];
+        Arrays.fill(carrierOf, -1);
+        if (n == 0) return carrierOf;
+
+        int[] order = new int[n];
+        int[] starts = SpatialGrid.byWorld(buf, order, MAX_WORLDS);
+        SpatialGrid grid = new SpatialGrid();
+        boolean[] done = new boolean[n];
+        int[] near = new int[n];
+        long[] visit = buf.sortScratch(n);
+
+        for (int w = 0; w < MAX_WORLDS; w++) {
+            int from = starts[w], count = starts[w + 1] - from;
+            if (count <= 0) continue;
+            grid.reset(buf, order, from, count, radius);
+            int candidates = 0;
+            for (int k = count - 1; k >= 0; k--) {
+                int row = order[from + k];
+                if (buf.hasFlag(row, EntitySnapshotBuffer.FLAG_PLAYER) || buf.isMarked(row, EntitySnapshotBuffer.MARK_EXCLUDE)) {
+                    done[row] = true;
+                    continue;
+                }
+                grid.insert(k);
+                // Biggest stacks first, then row order.
+                visit[candidates++] = ((long) (Integer.MAX_VALUE - Math.max(1, buf.worth[row])) << 32) | k;
+            }
+            Arrays.sort(visit, 0, candidates);
+
+            for (int c = 0; c < candidates; c++) {
+                int k = (int) visit[c];
+                int row = order[from + k];
+                if (done[row]) continue;
+                done[row] = true;
+                int size = Math.max(1, buf.worth[row]);
+                if (size >= maxStack) continue;
+
+                int found = grid.near(k, near, 0);
+                Arrays.sort(near, 0, found);
+                for (int m = 0; m < found && size < maxStack; m++) {
+                    int other = order[from + near[m]];
+                    if (done[other] || buf.typeOrdinal[other] != buf.typeOrdinal[row]) continue;
+                    int add = Math.max(1, buf.worth[other]);
+                    if (size + add > maxStack) continue;
+                    done[other] = true;
+                    carrierOf[other] = row;
+                    carrierOf[row] = row;
+                    size += add;
+                }
+            }
+        }
+        return carrierOf;
+    }
+}
@@ -0,0 +1,245 @@
+package kaiakk.powerhouse.calculations.items;
+
+import kaiakk.powerhouse.data.snapshot.ItemSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds item merges with a spatial hash. Items are presorted by material and durability, so
+ * only compatible stacks end up in the same group. Each group is hashed into cells one merge
+ * radius wide, and a neighbour search only probes the 3x3 cells around an item, so work grows
+ * with local density rather than with the number of items in the chunk.
+ */
+public class ItemMergeEngine {
+    /** Groups up to this size skip the cell table; see {@link #mergeGroupLinear}. */
+    static final int LINEAR_CUTOFF = 48;
+
+    public static Map<ItemSnapshot, List<ItemSnapshot>> findMerges(List<ItemSnapshot> items, double radius) {
+        return findMerges(items, radius, LINEAR_CUTOFF);
+    }
+
+    /** {@link #findMerges(List, double)} with the small-group cutoff as a parameter, for ItemMergeCutoffBenchmark. */
+    static Map<ItemSnapshot, List<ItemSnapshot>> findMerges(List<ItemSnapshot> items, double radius, int linearCutoff) {
+        if (items == null || items.size() < 2 || radius <= 0.0) return Collections.emptyMap();
+
+        int n = items.size();
+        ItemSnapshot[] snaps = new ItemSnapshot[n];
+        long[] order = new long[n];
+        int m = 0;
+        for (ItemSnapshot s : items) {
+            if (s == null || s.type == null || s.hasMeta || s.isPlayerNearby || s.amount <= 0) continue;
+            if (s.type == org.bukkit.Material.AIR) continue;
+            long compat = (((long) s.type.ordinal()) << 16) | (s.durability & 0xFFFFL);
+            snaps[m] = s;
+            order[m] = (compat << 32) | m;
+            m++;
+        }
+        if (m < 2) return Collections.emptyMap();
+        Arrays.sort(order, 0, m);
+
+        Map<ItemSnapshot, List<ItemSnapshot>> result = new LinkedHashMap<>();
+        Workspace ws = null;
+        Linear linear = null;
+        double r2 = radius * radius;
+        int start = 0;
+        while (start < m) {
+            long compat = order[start] >>> 32;
+            int end = start + 1;
+            while (end < m && (order[end] >>> 32) == compat) end++;
+            if (end - start > 1) {
+                if (end - start <= linearCutoff) {
+                    if (linear == null) linear = new Linear(Math.min(m, linearCutoff));
+                    mergeGroupLinear(snaps, order, start, end, r2, linear, result);
+                } else {
+                    if (ws == null) ws = new Workspace(m);
+                    mergeGroup(snaps, order, start, end, radius, r2, ws, result);
+                }
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Same greedy fill as {@link #mergeGroup}, but every target checks every other stack in the
+     * group instead of probing cells. Building the cell table costs more than it saves on small
+     * groups; the cutoff is the crossover ItemMergeCutoffBenchmark measured.
+     */
+    private static void mergeGroupLinear(ItemSnapshot[] snaps, long[] order, int start, int end, double r2,
+                                         Linear ws, Map<ItemSnapshot, List<ItemSnapshot>> result) {
+        int count = end - start;
+        int maxStack = Math.max(1, snaps[(int) order[start]].maxStackSize);
+        ItemSnapshot[] items = ws.items;
+        int[] remaining = ws.remaining;
+        long[] targets = ws.targets;
+        for (int i = 0; i < count; i++) {
+            ItemSnapshot s = snaps[(int) order[start + i]];
+            items[i] = s;
+            remaining[i] = s.amount;
+            targets[i] = (((long) Math.max(0, maxStack - s.amount)) << 32) | i;
+        }
+        Arrays.sort(targets, 0, count);
+
+        for (int t = 0; t < count; t++) {
+            int ti = (int) targets[t];
+            if (remaining[ti] <= 0) continue;
+            int room = maxStack - remaining[ti];
+            if (room <= 0) continue;
+            ItemSnapshot target = items[ti];
+            List<ItemSnapshot> sources = null;
+            for (int j = 0; j < count && room > 0; j++) {
+                if (j == ti || remaining[j] <= 0 || remaining[j] >= maxStack) continue;
+                ItemSnapshot s = items[j];
+                double ddx = target.x - s.x, ddy = target.y - s.y, ddz = target.z - s.z;
+                if (ddx * ddx + ddy * ddy + ddz * ddz > r2) continue;
+                int move = Math.min(room, remaining[j]);
+                remaining[j] -= move;
+                remaining[ti] += move;
+                room -= move;
+                if (sources == null) sources = new ArrayList<>();
+                sources.add(s);
+            }
+            if (sources != null) result.put(target, sources);
+        }
+    }
+
+    private static void mergeGroup(ItemSnapshot[] snaps, long[] order, int start, int end, double radius, double r2,
+                                   Workspace ws, Map<ItemSnapshot, List<ItemSnapshot>> result) {
+        int count = end - start;
+        ws.reset(count);
+        int maxStack = Math.max(1, snaps[(int) order[start]].maxStackSize);
+        for (int i = 0; i < count; i++) {
+            ItemSnapshot s = snaps[(int) order[start + i]];
+            ws.items[i] = s;
+            ws.remaining[i] = s.amount;
+            ws.cellX[i] = (int) Math.floor(s.x / radius);
+            ws.cellZ[i] = (int) Math.floor(s.z / radius);
+            ws.insert(i);
+            // Fullest stacks act as targets first so they top up before anything else moves.
+            ws.targets[i] = (((long) Math.max(0, maxStack - s.amount)) << 32) | i;
+        }
+        Arrays.sort(ws.targets, 0, count);
+
+        for (int t = 0; t < count; t++) {
+            int ti = (int) ws.targets[t];
+            if (ws.remaining[ti] <= 0) continue;
+            int room = maxStack - ws.remaining[ti];
+            if (room <= 0) continue;
+            ItemSnapshot target = ws.items[ti];
+            List<ItemSnapshot> sources = null;
+            for (int dx = -1; dx <= 1 && room > 0; dx++) {
+                for (int dz = -1; dz <= 1 && room > 0; dz++) {
+                    int j = ws.head(ws.cellX[ti] + dx, ws.cellZ[ti] + dz);
+                    while (j >= 0 && room > 0) {
+                        if (j != ti && ws.remaining[j] > 0 && ws.remaining[j] < maxStack) {
+                            ItemSnapshot s = ws.items[j];
+                            double ddx = target.x - s.x, ddy = target.y - s.y, ddz = target.z - s.z;
+                            if (ddx * ddx + ddy * ddy + ddz * ddz <= r2) {
+                                int move = Math.min(room, ws.remaining[j]);
+                                ws.remaining[j] -= move;
+                                ws.remaining[ti] += move;
+                                room -= move;
+                                if (sources == null) sources = new ArrayList<>();
+                                sources.add(s);
+                            }
+                        }
+                        j = ws.next[j];
+                    }
+                }
+            }
+            if (sources != null) result.put(target, sources);
+        }
+    }
+
+    /** Per-call scratch for {@link #mergeGroupLinear}, shared by every small group of the call. */
+    private static final class Linear {
+        final ItemSnapshot[] items;
+        final int[] remaining;
+        final long[] targets;
+
+        Linear(int capacity) {
+            items = new ItemSnapshot[capacity];
+            remaining = new int[capacity];
+            targets = new long[capacity];
+        }
+    }
+
+    /** Per-call scratch arrays; cells are chained through {@code next} from an open-addressing head table. */
+    private static final class Workspace {
+        final ItemSnapshot[] items;
+        final int[] remaining;
+        final int[] cellX;
+        final int[] cellZ;
+        final int[] next;
+        final long[] targets;
+        final long[] cellKeys;
+        final int[] cellHeads;
+        final boolean[] used;
+        final int mask;
+
+        Workspace(int capacity) {
+            items = new ItemSnapshot[capacity];
+            remaining = new int[capacity];
+            cellX = new int[capacity];
+            cellZ = new int[capacity];
+            next = new int[capacity];
+            targets = new long[capacity];
+            int cap = 16;
+            while (cap < capacity * 2) cap <<= 1;
+            cellKeys = new long[cap];
+            cellHeads = new int[cap];
+            used = new boolean[cap];
+            mask = cap - 1;
+        }
+
+        void reset(int count) {
+            Arrays.fill(used, false);
+            Arrays.fill(items, 0, count, null);
+        }
+
+        void insert(int i) {
+            long key = cellKey(cellX[i], cellZ[i]);
+            int slot = slot(key);
+            if (!used[slot]) {
+                used[slot] = true;
+                cellKeys[slot] = key;
+                next[i] = -1;
+            } else {
+                next[i] = cellHeads[slot];
+            }
+            cellHeads[slot] = i;
+        }
+
+        int head(int cx, int cz) {
+            long key = cellKey(cx, cz);
+            int idx = mix(key) & mask;
+            while (used[idx]) {
+                if (cellKeys[idx] == key) return cellHeads[idx];
+                idx = (idx + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int slot(long key) {
+            int idx = mix(key) & mask;
+            while (used[idx] && cellKeys[idx] != key) idx = (idx + 1) & mask;
+            return idx;
+        }
+
+        private static long cellKey(int cx, int cz) {
+            return (((long) cx) << 32) | (cz & 0xFFFFFFFFL);
+        }
+
+        private static int mix(long key) {
+            key ^= (key >>> 33);
+            key *= 0xff51afd7ed558ccdL;
+            key ^= (key >>> 33);
+            return (int) key;
+        }
+    }
+}
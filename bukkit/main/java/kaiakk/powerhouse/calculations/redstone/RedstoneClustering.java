@@ -0,0 +1,129 @@
+package kaiakk.powerhouse.calculations.redstone;
+
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.RedstoneCluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public class RedstoneClustering {
+
+    // Blocks up to this many blocks apart (per axis) join the same cluster, so a dust line on
+    // a solid block or a repeater behind a full block still counts as one machine.
+    public static final int LINK_DISTANCE = 2;
+
+    /**
+     * Groups active blocks into clusters with union-find. Only blocks in the same 16x16x16
+     * chunk section are linked. A cluster is returned when at least one member is flagged
+     * in {@code ready}.
+     */
+    public static List<RedstoneCluster> cluster(final long[] keys, int[] counts, boolean[] ready, int n) {
+        List<RedstoneCluster> out = new ArrayList<>();
+        if (keys == null || n <= 0) return out;
+
+        final long[] sections = new long[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            long k = keys[i];
+            sections[i] = BlockKey.pack(BlockKey.unpackWorld(k), BlockKey.unpackX(k) & ~15, BlockKey.unpackY(k) & ~15, BlockKey.unpackZ(k) & ~15);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Long.compare(sections[a], sections[b]);
+            }
+        });
+
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+
+        int start = 0;
+        while (start < n) {
+            int end = start + 1;
+            long section = sections[order[start]];
+            while (end < n && sections[order[end]] == section) end++;
+            for (int a = start; a < end; a++) {
+                int ia = order[a];
+                long ka = keys[ia];
+                int ax = BlockKey.unpackX(ka), ay = BlockKey.unpackY(ka), az = BlockKey.unpackZ(ka);
+                for (int b = a + 1; b < end; b++) {
+                    int ib = order[b];
+                    long kb = keys[ib];
+                    if (Math.abs(BlockKey.unpackX(kb) - ax) > LINK_DISTANCE) continue;
+                    if (Math.abs(BlockKey.unpackY(kb) - ay) > LINK_DISTANCE) continue;
+                    if (Math.abs(BlockKey.unpackZ(kb) - az) > LINK_DISTANCE) continue;
+                    union(parent, ia, ib);
+                }
+            }
+            start = end;
+        }
+
+        int[] rootSize = new int[n];
+        boolean[] rootReady = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int r = find(parent, i);
+            rootSize[r]++;
+            if (ready != null && ready[i]) rootReady[r] = true;
+        }
+
+        int[] slotOf = new int[n];
+        Arrays.fill(slotOf, -1);
+        List<long[]> memberLists = new ArrayList<>();
+        List<int[]> aggregates = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int r = find(parent, i);
+            if (!rootReady[r]) continue;
+            int s = slotOf[r];
+            long k = keys[i];
+            int x = BlockKey.unpackX(k), y = BlockKey.unpackY(k), z = BlockKey.unpackZ(k);
+            int c = counts[i];
+            if (s < 0) {
+                s = memberLists.size();
+                slotOf[r] = s;
+                memberLists.add(new long[rootSize[r]]);
+                // fill, minX, minY, minZ, maxX, maxY, maxZ, total, peak, world
+                aggregates.add(new int[] { 0, x, y, z, x, y, z, 0, 0, BlockKey.unpackWorld(k) });
+            }
+            int[] agg = aggregates.get(s);
+            memberLists.get(s)[agg[0]++] = k;
+            if (x < agg[1]) agg[1] = x;
+            if (y < agg[2]) agg[2] = y;
+            if (z < agg[3]) agg[3] = z;
+            if (x > agg[4]) agg[4] = x;
+            if (y > agg[5]) agg[5] = y;
+            if (z > agg[6]) agg[6] = z;
+            agg[7] += c;
+            if (c > agg[8]) agg[8] = c;
+        }
+
+        for (int s = 0; s < memberLists.size(); s++) {
+            int[] agg = aggregates.get(s);
+            String world = BlockKey.worldName(agg[9]);
+            if (world == null) continue;
+            out.add(new RedstoneCluster(world, agg[1], agg[2], agg[3], agg[4], agg[5], agg[6], memberLists.get(s), agg[7], agg[8]));
+        }
+
+        out.sort(new Comparator<RedstoneCluster>() {
+            public int compare(RedstoneCluster a, RedstoneCluster b) {
+                return Integer.compare(b.totalUpdates, a.totalUpdates);
+            }
+        });
+        return out;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra != rb) parent[rb] = ra;
+    }
+}
@@ -1,9 +1,15 @@
 package kaiakk.powerhouse.data;
 
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 public final class BlockKey {
     public final int x;
     public final int y;
@@ -11,6 +17,18 @@ public final class BlockKey {
     public final String worldName;
     private final int memoizedHash;
 
+    // Packed layout: world(6) | y(12) | x(23) | z(23). World index 0 is reserved so 0L never names a block.
+    public static final long NO_KEY = 0L;
+    private static final int MAX_WORLDS = 64;
+    private static final int XZ_LIMIT = 1 << 22;
+    private static final int Y_LIMIT = 1 << 11;
+    private static final ConcurrentHashMap<String, Integer> WORLD_INDEX = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<String> WORLD_NAMES = new AtomicReferenceArray<>(MAX_WORLDS);
+    private static final AtomicInteger NEXT_WORLD_INDEX = new AtomicInteger(1);
+    /** Indices of unloaded worlds, oldest first; only reused once every fresh index is taken. */
+    private static final ArrayDeque<Integer> FREE_WORLD_INDICES = new ArrayDeque<>();
+    private static volatile boolean warnedFull = false;
+
     public BlockKey(int x, int y, int z, String worldName) {
         this.x = x;
         this.y = y;
@@ -29,11 +47,108 @@ public final class BlockKey {
         return new BlockKey(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ(), loc.getWorld().getName());
     }
 
+    public static BlockKey fromPacked(long packed) {
+        if (packed == NO_KEY) return null;
+        String name = WORLD_NAMES.get(unpackWorld(packed));
+        if (name == null) return null;
+        return new BlockKey(unpackX(packed), unpackY(packed), unpackZ(packed), name);
+    }
+
     public Location toLocation() {
         World w = Bukkit.getWorld(this.worldName);
         return (w != null) ? new Location(w, x, y, z) : null;
     }
 
+    public long pack() {
+        return pack(worldName, x, y, z);
+    }
+
+    /**
+     * Index of {@code worldName} in packed keys, or 0 once all {@value #MAX_WORLDS} slots are in
+     * use; 0 packs to {@link #NO_KEY}, so callers treat such a world as untracked.
+     */
+    public static int worldIndex(String worldName) {
+        if (worldName == null) return 0;
+        Integer idx = WORLD_INDEX.get(worldName);
+        if (idx != null) return idx;
+        synchronized (WORLD_INDEX) {
+            idx = WORLD_INDEX.get(worldName);
+            if (idx != null) return idx;
+            int next = NEXT_WORLD_INDEX.get();
+            if (next < MAX_WORLDS) {
+                NEXT_WORLD_INDEX.set(next + 1);
+            } else if (!FREE_WORLD_INDICES.isEmpty()) {
+                next = FREE_WORLD_INDICES.poll();
+            } else {
+                if (!warnedFull) {
+                    warnedFull = true;
+                    PowerhouseLogger.error("Powerhouse: more than " + (MAX_WORLDS - 1) + " worlds loaded at once; '" + worldName
+                            + "' and any further worlds are skipped by block and chunk tracking until a world unloads.");
+                }
+                return 0;
+            }
+            WORLD_NAMES.set(next, worldName);
+            WORLD_INDEX.put(worldName, next);
+            return next;
+        }
+    }
+
+    /**
+     * Frees the index of an unloaded world for reuse. Call only after every store keyed by that
+     * index has dropped the world, or its stale keys would name whichever world gets it next.
+     */
+    public static void releaseWorld(String worldName) {
+        if (worldName == null) return;
+        synchronized (WORLD_INDEX) {
+            Integer idx = WORLD_INDEX.remove(worldName);
+            if (idx == null) return;
+            WORLD_NAMES.set(idx, null);
+            FREE_WORLD_INDICES.add(idx);
+            warnedFull = false;
+        }
+    }
+
+    public static String worldName(int worldIndex) {
+        if (worldIndex <= 0 || worldIndex >= MAX_WORLDS) return null;
+        return WORLD_NAMES.get(worldIndex);
+    }
+
+    public static long pack(String worldName, int x, int y, int z) {
+        return pack(worldIndex(worldName), x, y, z);
+    }
+
+    public static long pack(int worldIndex, int x, int y, int z) {
+        if (worldIndex <= 0 || worldIndex >= MAX_WORLDS) return NO_KEY;
+        if (x < -XZ_LIMIT || x >= XZ_LIMIT || z < -XZ_LIMIT || z >= XZ_LIMIT) return NO_KEY;
+        if (y < -Y_LIMIT || y >= Y_LIMIT) return NO_KEY;
+        return ((long) worldIndex << 58)
+                | (((long) y & 0xFFFL) << 46)
+                | (((long) x & 0x7FFFFFL) << 23)
+                | ((long) z & 0x7FFFFFL);
+    }
+
+    public static long pack(Location loc) {
+        if (loc == null || loc.getWorld() == null) return NO_KEY;
+        return pack(loc.getWorld().getName(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+    }
+
+    public static int unpackWorld(long packed) { return (int) (packed >>> 58); }
+    public static int unpackY(long packed) { return (int) ((packed << 6) >> 52); }
+    public static int unpackX(long packed) { return (int) ((packed << 18) >> 41); }
+    public static int unpackZ(long packed) { return (int) ((packed << 41) >> 41); }
+
+    /** Packed key of the chunk column holding the block: same world index, chunk x/z, y = 0. */
+    public static long chunkKey(long packed) {
+        return pack(unpackWorld(packed), unpackX(packed) >> 4, 0, unpackZ(packed) >> 4);
+    }
+
+    public static Location toLocation(long packed) {
+        String name = worldName(unpackWorld(packed));
+        if (name == null) return null;
+        World w = Bukkit.getWorld(name);
+        return (w != null) ? new Location(w, unpackX(packed), unpackY(packed), unpackZ(packed)) : null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -48,5 +163,3 @@ public final class BlockKey {
         return memoizedHash;
     }
 }
-
-
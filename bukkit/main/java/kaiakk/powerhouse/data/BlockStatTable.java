@@ -0,0 +1,441 @@
+package kaiakk.powerhouse.data;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing table from packed block keys ({@link BlockKey#pack}) to a row of
+ * primitive columns. One row replaces what used to be spread over several
+ * {@code ConcurrentHashMap<BlockKey, ...>} instances, so a scan walks a handful of
+ * flat arrays and lookups never allocate.
+ *
+ * All access goes through the table monitor, which is only ever held for one row or one
+ * array copy. {@link #forEach(Visitor)} copies the columns a scan reads under the monitor
+ * and walks the copy outside it, so main-thread lookups and counts never wait for a scan;
+ * the few writes a scan makes are queued and applied afterwards, each re-checked against
+ * the live row.
+ */
+public final class BlockStatTable {
+
+    public interface Visitor {
+        void visit(Scan scan, int slot, long key);
+    }
+
+    // World index 0 is never handed out by BlockKey, so this value cannot collide with a real block.
+    private static final long TOMBSTONE = 1L;
+    private static final int MIN_CAPACITY = 64;
+
+    private final RateWindow window;
+    private long[] keys;
+    private int[] ring;
+    private long[] heads;
+    private long[] lastUpdate;
+    private long[] culledAt;
+    private long[] exceedSince;
+    private long[] throttledAt;
+    private long[] exemptUntil;
+    private int[] clusterIds;
+    private int size = 0;
+    private int tombstones = 0;
+    private int culled = 0;
+    private int throttled = 0;
+    /** Reused by every {@link #forEach}; its own monitor serialises scans without touching the table's. */
+    private final Scan scan = new Scan();
+
+    public BlockStatTable() {
+        this(new RateWindow(RateWindow.DEFAULT_WINDOW_MS, RateWindow.DEFAULT_BUCKETS));
+    }
+
+    public BlockStatTable(RateWindow window) {
+        this.window = window == null ? new RateWindow(RateWindow.DEFAULT_WINDOW_MS, RateWindow.DEFAULT_BUCKETS) : window;
+        allocate(MIN_CAPACITY);
+    }
+
+    public RateWindow getWindow() {
+        return window;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        ring = new int[capacity * window.buckets];
+        heads = new long[capacity];
+        lastUpdate = new long[capacity];
+        culledAt = new long[capacity];
+        exceedSince = new long[capacity];
+        throttledAt = new long[capacity];
+        exemptUntil = new long[capacity];
+        clusterIds = new int[capacity];
+    }
+
+    private static int hash(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return (int) key;
+    }
+
+    private int find(long key) {
+        if (key == BlockKey.NO_KEY || key == TOMBSTONE) return -1;
+        int mask = keys.length - 1;
+        int idx = hash(key) & mask;
+        while (true) {
+            long k = keys[idx];
+            if (k == key) return idx;
+            if (k == BlockKey.NO_KEY) return -1;
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    private int findOrInsert(long key) {
+        if (key == BlockKey.NO_KEY || key == TOMBSTONE) return -1;
+        if ((size + tombstones + 1) * 2 > keys.length) {
+            rehash((size + 1) * 3 > keys.length ? keys.length << 1 : keys.length);
+        }
+        int mask = keys.length - 1;
+        int idx = hash(key) & mask;
+        int firstFree = -1;
+        while (true) {
+            long k = keys[idx];
+            if (k == key) return idx;
+            if (k == BlockKey.NO_KEY) break;
+            if (k == TOMBSTONE && firstFree < 0) firstFree = idx;
+            idx = (idx + 1) & mask;
+        }
+        if (firstFree >= 0) {
+            idx = firstFree;
+            tombstones--;
+        }
+        keys[idx] = key;
+        heads[idx] = 0L;
+        lastUpdate[idx] = 0L;
+        culledAt[idx] = 0L;
+        exceedSince[idx] = 0L;
+        throttledAt[idx] = 0L;
+        exemptUntil[idx] = 0L;
+        clusterIds[idx] = 0;
+        size++;
+        return idx;
+    }
+
+    private void rehash(int capacity) {
+        long[] oKeys = keys;
+        int[] oRing = ring;
+        long[] oHeads = heads;
+        long[] oLast = lastUpdate;
+        long[] oCulled = culledAt;
+        long[] oExceed = exceedSince;
+        long[] oThrottled = throttledAt;
+        long[] oExempt = exemptUntil;
+        int[] oClusters = clusterIds;
+        allocate(Math.max(MIN_CAPACITY, capacity));
+        int b = window.buckets;
+        int mask = keys.length - 1;
+        for (int i = 0; i < oKeys.length; i++) {
+            long k = oKeys[i];
+            if (k == BlockKey.NO_KEY || k == TOMBSTONE) continue;
+            int idx = hash(k) & mask;
+            while (keys[idx] != BlockKey.NO_KEY) idx = (idx + 1) & mask;
+            keys[idx] = k;
+            heads[idx] = oHeads[i];
+            System.arraycopy(oRing, i * b, ring, idx * b, b);
+            lastUpdate[idx] = oLast[i];
+            culledAt[idx] = oCulled[i];
+            exceedSince[idx] = oExceed[i];
+            throttledAt[idx] = oThrottled[i];
+            exemptUntil[idx] = oExempt[i];
+            clusterIds[idx] = oClusters[i];
+        }
+        tombstones = 0;
+    }
+
+    private void removeSlot(int slot) {
+        if (culledAt[slot] != 0L) culled--;
+        if (throttledAt[slot] != 0L) throttled--;
+        keys[slot] = TOMBSTONE;
+        tombstones++;
+        size--;
+    }
+
+    private void compactIfSparse() {
+        int cap = keys.length;
+        if (cap > MIN_CAPACITY && size * 8 < cap) {
+            int target = MIN_CAPACITY;
+            while (target < size * 3) target <<= 1;
+            rehash(target);
+        } else if (tombstones * 4 > cap) {
+            rehash(cap);
+        }
+    }
+
+    // ---- window counters ----
+
+    /** Records {@code delta} events for the key in its sliding window. */
+    public synchronized void addCount(long key, int delta, long now) {
+        int slot = findOrInsert(key);
+        if (slot < 0) return;
+        heads[slot] = window.add(ring, slot * window.buckets, heads[slot], now, delta);
+        lastUpdate[slot] = now;
+    }
+
+    // ---- culling state ----
+
+    public synchronized boolean isCulled(long key) {
+        int slot = find(key);
+        return slot >= 0 && culledAt[slot] != 0L;
+    }
+
+    public synchronized boolean isCulled(long key, long now) {
+        int slot = find(key);
+        if (slot < 0 || culledAt[slot] == 0L) return false;
+        return exemptUntil[slot] == 0L || now >= exemptUntil[slot];
+    }
+
+    public synchronized void markCulled(long key, long now) {
+        markCulled(key, now, 0);
+    }
+
+    public synchronized void markCulled(long key, long now, int clusterId) {
+        int slot = findOrInsert(key);
+        if (slot < 0) return;
+        if (culledAt[slot] == 0L) culled++;
+        culledAt[slot] = now;
+        exceedSince[slot] = 0L;
+        clusterIds[slot] = clusterId;
+    }
+
+    /** Clears culling, counters and grace state for the key; a non-zero {@code exemptUntil} keeps the row as an exemption. */
+    public synchronized void uncull(long key, long exemptUntilMs) {
+        int slot = exemptUntilMs > 0L ? findOrInsert(key) : find(key);
+        if (slot < 0) return;
+        if (culledAt[slot] != 0L) culled--;
+        culledAt[slot] = 0L;
+        clusterIds[slot] = 0;
+        exceedSince[slot] = 0L;
+        heads[slot] = 0L;
+        lastUpdate[slot] = 0L;
+        exemptUntil[slot] = exemptUntilMs;
+        releaseIfEmpty(slot);
+    }
+
+    /** Clears the cull if it is still the one stamped {@code culledAtStamp}; returns true when it was. */
+    public synchronized boolean expireCulled(long key, long culledAtStamp) {
+        int slot = find(key);
+        if (slot < 0 || culledAt[slot] == 0L || culledAt[slot] != culledAtStamp) return false;
+        clearCulled(slot);
+        releaseIfEmpty(slot);
+        return true;
+    }
+
+    public synchronized void expireExemption(long key, long exemptUntilStamp) {
+        int slot = find(key);
+        if (slot < 0 || exemptUntil[slot] != exemptUntilStamp) return;
+        exemptUntil[slot] = 0L;
+        releaseIfEmpty(slot);
+    }
+
+    public synchronized void remove(long key) {
+        int slot = find(key);
+        if (slot >= 0) removeSlot(slot);
+    }
+
+    /** Returns true when the key was not throttled before this call. */
+    public synchronized boolean markThrottled(long key, long now) {
+        int slot = findOrInsert(key);
+        if (slot < 0) return false;
+        if (throttledAt[slot] != 0L) return false;
+        throttled++;
+        throttledAt[slot] = now;
+        return true;
+    }
+
+    public synchronized void clearThrottled(long key) {
+        int slot = find(key);
+        if (slot < 0 || throttledAt[slot] == 0L) return;
+        throttled--;
+        throttledAt[slot] = 0L;
+        releaseIfEmpty(slot);
+    }
+
+    private void releaseIfEmpty(int slot) {
+        if (keys[slot] == BlockKey.NO_KEY || keys[slot] == TOMBSTONE) return;
+        if (lastUpdate[slot] != 0L || culledAt[slot] != 0L || throttledAt[slot] != 0L || exemptUntil[slot] != 0L) return;
+        removeSlot(slot);
+    }
+
+    private void clearCulled(int slot) {
+        if (culledAt[slot] != 0L) culled--;
+        culledAt[slot] = 0L;
+        clusterIds[slot] = 0;
+    }
+
+    // ---- bulk ----
+
+    public void forEach(Visitor visitor) {
+        if (visitor == null) return;
+        synchronized (scan) {
+            synchronized (this) {
+                if (size == 0) return;
+                scan.copy(this);
+            }
+            long[] k = scan.keys;
+            for (int i = 0; i < scan.capacity; i++) {
+                long key = k[i];
+                if (key == BlockKey.NO_KEY || key == TOMBSTONE) continue;
+                try { visitor.visit(scan, i, key); } catch (Throwable ignored) {}
+            }
+            if (scan.ops > 0) {
+                synchronized (this) {
+                    scan.apply(this);
+                    compactIfSparse();
+                }
+            }
+        }
+    }
+
+    public synchronized void clearCulledAll() {
+        if (culled == 0 && size == 0) return;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key == BlockKey.NO_KEY || key == TOMBSTONE) continue;
+            culledAt[i] = 0L;
+            clusterIds[i] = 0;
+            exemptUntil[i] = 0L;
+            releaseIfEmpty(i);
+        }
+        culled = 0;
+        compactIfSparse();
+    }
+
+    public synchronized void removeWorld(int worldIndex) {
+        if (worldIndex <= 0 || size == 0) return;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key == BlockKey.NO_KEY || key == TOMBSTONE) continue;
+            if (BlockKey.unpackWorld(key) == worldIndex) removeSlot(i);
+        }
+        compactIfSparse();
+    }
+
+    public synchronized void clear() {
+        if (keys.length > MIN_CAPACITY) {
+            allocate(MIN_CAPACITY);
+        } else {
+            Arrays.fill(keys, BlockKey.NO_KEY);
+        }
+        size = 0;
+        tombstones = 0;
+        culled = 0;
+        throttled = 0;
+    }
+
+    public synchronized int size() { return size; }
+    public synchronized int culledCount() { return culled; }
+    public synchronized int throttledCount() { return throttled; }
+    public synchronized int capacity() { return keys.length; }
+
+    /**
+     * Point-in-time copy of the columns a {@link Visitor} reads, taken under the table monitor.
+     * Writes update the copy at once and are queued for the live table, where they are applied
+     * by key after the walk: a count reset only lands if the row saw no update since the copy.
+     */
+    public static final class Scan {
+        private static final byte OP_EXCEED = 0;
+        private static final byte OP_RESET = 1;
+        private static final byte OP_RELEASE = 2;
+
+        private RateWindow window;
+        private int capacity = 0;
+        private long[] keys = new long[0];
+        private int[] ring = new int[0];
+        private long[] heads = new long[0];
+        private long[] lastUpdate = new long[0];
+        private long[] culledAt = new long[0];
+        private long[] exceedSince = new long[0];
+
+        private byte[] opCodes = new byte[16];
+        private long[] opKeys = new long[16];
+        private long[] opValues = new long[16];
+        private int ops = 0;
+
+        private Scan() {}
+
+        private void copy(BlockStatTable t) {
+            int cap = t.keys.length;
+            int b = t.window.buckets;
+            window = t.window;
+            capacity = cap;
+            if (keys.length < cap) {
+                keys = new long[cap];
+                heads = new long[cap];
+                lastUpdate = new long[cap];
+                culledAt = new long[cap];
+                exceedSince = new long[cap];
+            }
+            if (ring.length < cap * b) ring = new int[cap * b];
+            System.arraycopy(t.keys, 0, keys, 0, cap);
+            System.arraycopy(t.ring, 0, ring, 0, cap * b);
+            System.arraycopy(t.heads, 0, heads, 0, cap);
+            System.arraycopy(t.lastUpdate, 0, lastUpdate, 0, cap);
+            System.arraycopy(t.culledAt, 0, culledAt, 0, cap);
+            System.arraycopy(t.exceedSince, 0, exceedSince, 0, cap);
+            ops = 0;
+        }
+
+        private void queue(byte op, long key, long value) {
+            if (ops == opCodes.length) {
+                opCodes = Arrays.copyOf(opCodes, ops << 1);
+                opKeys = Arrays.copyOf(opKeys, ops << 1);
+                opValues = Arrays.copyOf(opValues, ops << 1);
+            }
+            opCodes[ops] = op;
+            opKeys[ops] = key;
+            opValues[ops] = value;
+            ops++;
+        }
+
+        private void apply(BlockStatTable t) {
+            for (int i = 0; i < ops; i++) {
+                int slot = t.find(opKeys[i]);
+                if (slot < 0) continue;
+                switch (opCodes[i]) {
+                    case OP_EXCEED:
+                        t.exceedSince[slot] = opValues[i];
+                        break;
+                    case OP_RESET:
+                        if (t.lastUpdate[slot] != opValues[i]) break;
+                        t.heads[slot] = 0L;
+                        t.lastUpdate[slot] = 0L;
+                        t.exceedSince[slot] = 0L;
+                        break;
+                    default:
+                        t.releaseIfEmpty(slot);
+                }
+            }
+            ops = 0;
+        }
+
+        /** Events inside the sliding window ending at {@code now}. */
+        public int count(int slot, long now) { return window.count(ring, slot * window.buckets, heads[slot], now); }
+        public long lastUpdate(int slot) { return lastUpdate[slot]; }
+        public long culledAt(int slot) { return culledAt[slot]; }
+        public long exceedSince(int slot) { return exceedSince[slot]; }
+
+        public void setExceedSince(int slot, long value) {
+            if (exceedSince[slot] == value) return;
+            exceedSince[slot] = value;
+            queue(OP_EXCEED, keys[slot], value);
+        }
+
+        public void resetCount(int slot) {
+            queue(OP_RESET, keys[slot], lastUpdate[slot]);
+            heads[slot] = 0L;
+            lastUpdate[slot] = 0L;
+            exceedSince[slot] = 0L;
+        }
+
+        /** Frees the row once no column holds state any more, judged against the live row. */
+        public void releaseIfEmpty(int slot) {
+            if (lastUpdate[slot] != 0L || culledAt[slot] != 0L) return;
+            queue(OP_RELEASE, keys[slot], 0L);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package kaiakk.powerhouse.data;
+
+/**
+ * Unsynchronized open-addressing map from {@code long} keys to {@code int} values. Slots are
+ * stamped with a generation, so {@link #clear()} is O(1) and a map owned by a reusable
+ * buffer costs nothing to recycle between cycles.
+ */
+public final class LongIntMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int[] stamps;
+    private int generation = 1;
+    private int size = 0;
+
+    public LongIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntMap(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    private static int capacityFor(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap < expected * 2) cap <<= 1;
+        return cap;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        stamps = new int[capacity];
+    }
+
+    private static int hash(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return (int) key;
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int idx = hash(key) & mask;
+        while (stamps[idx] == generation && keys[idx] != key) idx = (idx + 1) & mask;
+        return idx;
+    }
+
+    /** Grows ahead of a burst of inserts; keeps current entries. */
+    public void ensureCapacity(int expected) {
+        if (expected * 2 <= keys.length) return;
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldStamps = stamps;
+        int oldGen = generation;
+        allocate(capacityFor(expected));
+        generation = 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] != oldGen) continue;
+            int s = slot(oldKeys[i]);
+            keys[s] = oldKeys[i];
+            values[s] = oldValues[i];
+            stamps[s] = generation;
+        }
+    }
+
+    public int get(long key, int defaultValue) {
+        int s = slot(key);
+        return stamps[s] == generation ? values[s] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return stamps[slot(key)] == generation;
+    }
+
+    /** Stores {@code value} and returns the previous one, or {@code defaultValue} if the key was absent. */
+    public int put(long key, int value, int defaultValue) {
+        int s = slot(key);
+        if (stamps[s] == generation) {
+            int old = values[s];
+            values[s] = value;
+            return old;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            ensureCapacity(size + 1);
+            s = slot(key);
+        }
+        keys[s] = key;
+        values[s] = value;
+        stamps[s] = generation;
+        size++;
+        return defaultValue;
+    }
+
+    /** Adds {@code delta} to the value for {@code key} (absent counts as 0) and returns the new value. */
+    public int add(long key, int delta) {
+        int s = slot(key);
+        if (stamps[s] == generation) return values[s] += delta;
+        put(key, delta, 0);
+        return delta;
+    }
+
+    public void clear() {
+        size = 0;
+        if (++generation == 0) {
+            java.util.Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
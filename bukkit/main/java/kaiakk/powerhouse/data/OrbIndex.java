@@ -0,0 +1,266 @@
+package kaiakk.powerhouse.data;
+
+import kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.ExperienceOrb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live index of experience orbs, bucketed per chunk into 2x2-block columns. A lookup only
+ * probes the 3x3 columns around a point. Entries are checked against the orb's live position
+ * when probed, so orbs that drifted, were picked up or despawned are re-homed or dropped
+ * lazily instead of needing a removal event.
+ */
+public final class OrbIndex {
+    public static final double CELL_SIZE = 2.0;
+    private static final int CELLS_PER_CHUNK = 8;
+
+    private final HashMap<Long, OrbChunk> chunks = new HashMap<>();
+    private int size = 0;
+
+    public synchronized void add(ExperienceOrb orb) {
+        if (orb == null) return;
+        try {
+            Location loc = orb.getLocation();
+            if (loc.getWorld() == null) return;
+            int wi = BlockKey.worldIndex(loc.getWorld().getName());
+            insert(wi, cell(loc.getX()), cell(loc.getZ()), orb);
+        } catch (Throwable ignored) {}
+    }
+
+    public synchronized void remove(ExperienceOrb orb) {
+        if (orb == null) return;
+        try {
+            Location loc = orb.getLocation();
+            if (loc.getWorld() == null) return;
+            int wi = BlockKey.worldIndex(loc.getWorld().getName());
+            delete(wi, cell(loc.getX()), cell(loc.getZ()), orb);
+        } catch (Throwable ignored) {}
+    }
+
+    /** Nearest live orb within {@code radius} (at most {@link #CELL_SIZE}) of the point, other than {@code exclude}. */
+    public synchronized ExperienceOrb nearest(World world, double x, double y, double z, double radius, ExperienceOrb exclude) {
+        if (world == null) return null;
+        int wi = BlockKey.worldIndex(world.getName());
+        double r2 = Math.min(radius, CELL_SIZE) * Math.min(radius, CELL_SIZE);
+        int ccx = cell(x), ccz = cell(z);
+        ExperienceOrb best = null;
+        double bestD2 = Double.MAX_VALUE;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                int cx = ccx + dx, cz = ccz + dz;
+                OrbChunk chunk = chunks.get(chunkKey(wi, cx, cz));
+                if (chunk == null) continue;
+                int c = localIndex(cx, cz);
+                ExperienceOrb[] orbs = chunk.orbs[c];
+                int i = 0;
+                while (i < chunk.counts[c]) {
+                    ExperienceOrb o = orbs[i];
+                    Location loc = null;
+                    try { if (o.isValid() && !o.isDead()) loc = o.getLocation(); } catch (Throwable ignored) {}
+                    if (loc == null || loc.getWorld() != world) {
+                        removeAt(chunk, c, i);
+                        continue;
+                    }
+                    int ox = cell(loc.getX()), oz = cell(loc.getZ());
+                    if (ox != cx || oz != cz) {
+                        removeAt(chunk, c, i);
+                        insert(wi, ox, oz, o);
+                        continue;
+                    }
+                    if (o != exclude) {
+                        double ddx = loc.getX() - x, ddy = loc.getY() - y, ddz = loc.getZ() - z;
+                        double d2 = ddx * ddx + ddy * ddy + ddz * ddz;
+                        if (d2 <= r2 && d2 < bestD2) {
+                            best = o;
+                            bestD2 = d2;
+                        }
+                    }
+                    i++;
+                }
+                if (chunk.total == 0) chunks.remove(chunk.key);
+            }
+        }
+        return best;
+    }
+
+    /** Replaces everything indexed for a chunk with the orbs a scan just found there. */
+    public synchronized void reindexChunk(World world, int chunkX, int chunkZ, Collection<ExperienceOrb> orbs) {
+        if (world == null) return;
+        int wi = BlockKey.worldIndex(world.getName());
+        dropChunk(wi, chunkX, chunkZ);
+        if (orbs == null) return;
+        for (ExperienceOrb o : orbs) {
+            try {
+                if (o == null || !o.isValid()) continue;
+                Location loc = o.getLocation();
+                insert(wi, cell(loc.getX()), cell(loc.getZ()), o);
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    public synchronized void dropChunk(World world, int chunkX, int chunkZ) {
+        if (world == null) return;
+        dropChunk(BlockKey.worldIndex(world.getName()), chunkX, chunkZ);
+    }
+
+    public synchronized void clearWorld(String worldName) {
+        int wi = BlockKey.worldIndex(worldName);
+        Iterator<OrbChunk> it = chunks.values().iterator();
+        while (it.hasNext()) {
+            OrbChunk c = it.next();
+            if (BlockKey.unpackWorld(c.key) == wi) {
+                size -= c.total;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        chunks.clear();
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int chunkCount() {
+        return chunks.size();
+    }
+
+    private void dropChunk(int wi, int chunkX, int chunkZ) {
+        OrbChunk c = chunks.remove(BlockKey.pack(wi, chunkX, 0, chunkZ));
+        if (c != null) size -= c.total;
+    }
+
+    private void insert(int wi, int cx, int cz, ExperienceOrb orb) {
+        long key = chunkKey(wi, cx, cz);
+        OrbChunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new OrbChunk(key);
+            chunks.put(key, chunk);
+        }
+        int c = localIndex(cx, cz);
+        ExperienceOrb[] orbs = chunk.orbs[c];
+        int n = chunk.counts[c];
+        for (int i = 0; i < n; i++) if (orbs[i] == orb) return;
+        if (orbs == null) {
+            orbs = chunk.orbs[c] = new ExperienceOrb[4];
+        } else if (n == orbs.length) {
+            orbs = chunk.orbs[c] = Arrays.copyOf(orbs, n << 1);
+        }
+        orbs[n] = orb;
+        chunk.counts[c] = n + 1;
+        chunk.total++;
+        size++;
+    }
+
+    private void delete(int wi, int cx, int cz, ExperienceOrb orb) {
+        OrbChunk chunk = chunks.get(chunkKey(wi, cx, cz));
+        if (chunk == null) return;
+        int c = localIndex(cx, cz);
+        for (int i = 0; i < chunk.counts[c]; i++) {
+            if (chunk.orbs[c][i] == orb) {
+                removeAt(chunk, c, i);
+                break;
+            }
+        }
+        if (chunk.total == 0) chunks.remove(chunk.key);
+    }
+
+    private void removeAt(OrbChunk chunk, int c, int i) {
+        int last = --chunk.counts[c];
+        chunk.orbs[c][i] = chunk.orbs[c][last];
+        chunk.orbs[c][last] = null;
+        chunk.total--;
+        size--;
+    }
+
+    private static int cell(double coord) {
+        return (int) Math.floor(coord / CELL_SIZE);
+    }
+
+    private static long chunkKey(int wi, int cx, int cz) {
+        return BlockKey.pack(wi, Math.floorDiv(cx, CELLS_PER_CHUNK), 0, Math.floorDiv(cz, CELLS_PER_CHUNK));
+    }
+
+    private static int localIndex(int cx, int cz) {
+        return (cx & (CELLS_PER_CHUNK - 1)) * CELLS_PER_CHUNK + (cz & (CELLS_PER_CHUNK - 1));
+    }
+
+    private static final class OrbChunk {
+        final long key;
+        final ExperienceOrb[][] orbs = new ExperienceOrb[CELLS_PER_CHUNK * CELLS_PER_CHUNK][];
+        final int[] counts = new int[CELLS_PER_CHUNK * CELLS_PER_CHUNK];
+        int total = 0;
+
+        OrbChunk(long key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Groups snapshots on the same 2-block grid the live index uses: every orb that is not
+     * already in a group collects the ungrouped orbs within {@code radius} from its 3x3 cells.
+     */
+    public static Map<ExperienceOrbSnapshot, List<ExperienceOrbSnapshot>> group(List<ExperienceOrbSnapshot> orbs, double radius) {
+        Map<ExperienceOrbSnapshot, List<ExperienceOrbSnapshot>> groups = new LinkedHashMap<>();
+        if (orbs == null || orbs.size() < 2) return groups;
+        int n = orbs.size();
+        double cellSize = Math.max(radius, 0.5);
+        double r2 = radius * radius;
+        int[] cx = new int[n];
+        int[] cz = new int[n];
+        int[] next = new int[n];
+        boolean[] grouped = new boolean[n];
+        HashMap<Long, Integer> heads = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ExperienceOrbSnapshot s = orbs.get(i);
+            next[i] = -1;
+            if (s == null) {
+                grouped[i] = true;
+                continue;
+            }
+            cx[i] = (int) Math.floor(s.x / cellSize);
+            cz[i] = (int) Math.floor(s.z / cellSize);
+            Long key = (((long) cx[i]) << 32) | (cz[i] & 0xFFFFFFFFL);
+            Integer head = heads.put(key, i);
+            if (head != null) next[i] = head;
+        }
+        for (int i = 0; i < n; i++) {
+            if (grouped[i]) continue;
+            ExperienceOrbSnapshot a = orbs.get(i);
+            List<ExperienceOrbSnapshot> list = null;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    Integer head = heads.get((((long) (cx[i] + dx)) << 32) | ((cz[i] + dz) & 0xFFFFFFFFL));
+                    for (int j = head == null ? -1 : head; j >= 0; j = next[j]) {
+                        if (j == i || grouped[j]) continue;
+                        ExperienceOrbSnapshot b = orbs.get(j);
+                        double ddx = a.x - b.x, ddy = a.y - b.y, ddz = a.z - b.z;
+                        if (ddx * ddx + ddy * ddy + ddz * ddz <= r2) {
+                            if (list == null) list = new ArrayList<>();
+                            list.add(b);
+                            grouped[j] = true;
+                        }
+                    }
+                }
+            }
+            if (list != null) {
+                grouped[i] = true;
+                groups.put(a, list);
+            }
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,281 @@
+package kaiakk.powerhouse.data;
+
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Player positions captured once per tick into an immutable per-world grid of 32-block
+ * columns. Proximity questions ("is anyone within r", "how far is the closest player")
+ * probe only the columns the radius overlaps instead of walking {@code getPlayers()}.
+ * Snapshots never change after publication, so async calculators may hold and read them.
+ */
+public final class PlayerProximityIndex {
+    public static final double CELL_SIZE = 32.0;
+
+    private static PlayerProximityIndex INSTANCE = null;
+
+    private final Plugin plugin;
+    private volatile BukkitTask task = null;
+    private volatile Map<String, WorldSnapshot> worlds = Collections.emptyMap();
+
+    private PlayerProximityIndex(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /** Starts the per-tick capture; returns null when it cannot be scheduled (e.g. on Folia), in which case lookups capture on demand. */
+    public static synchronized PlayerProximityIndex init(Plugin plugin) {
+        if (INSTANCE != null) return INSTANCE;
+        PlayerProximityIndex idx = new PlayerProximityIndex(plugin);
+        try {
+            idx.task = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+                public void run() { idx.capture(); }
+            }, 0L, 1L);
+        } catch (Throwable t) {
+            return null;
+        }
+        INSTANCE = idx;
+        PowerhouseLogger.info("Player proximity index enabled");
+        return idx;
+    }
+
+    public static PlayerProximityIndex getInstance() { return INSTANCE; }
+
+    public static synchronized void shutdown() {
+        PlayerProximityIndex idx = INSTANCE;
+        INSTANCE = null;
+        if (idx == null) return;
+        if (idx.task != null) {
+            try { idx.task.cancel(); } catch (Throwable ignored) {}
+            idx.task = null;
+        }
+        idx.worlds = Collections.emptyMap();
+    }
+
+    private void capture() {
+        Map<String, WorldSnapshot> next = new HashMap<>();
+        try {
+            for (World w : Bukkit.getWorlds()) {
+                WorldSnapshot s = WorldSnapshot.capture(w);
+                if (s != null) next.put(w.getName(), s);
+            }
+        } catch (Throwable ignored) {}
+        worlds = next;
+    }
+
+    /** This tick's snapshot of {@code world}; captured on the spot when the index is not running or has not seen the world yet. */
+    public static WorldSnapshot snapshot(World world) {
+        if (world == null) return WorldSnapshot.EMPTY;
+        PlayerProximityIndex idx = INSTANCE;
+        if (idx != null) {
+            WorldSnapshot s = idx.worlds.get(world.getName());
+            if (s != null) return s;
+        }
+        WorldSnapshot s = WorldSnapshot.capture(world);
+        return s == null ? WorldSnapshot.EMPTY : s;
+    }
+
+    public static boolean anyWithin(Location loc, double radius) {
+        if (loc == null || loc.getWorld() == null) return false;
+        return snapshot(loc.getWorld()).anyWithin(loc.getX(), loc.getY(), loc.getZ(), radius);
+    }
+
+    /** Squared distance to the closest player within {@code maxRadius}, or positive infinity. */
+    public static double nearestDistanceSq(Location loc, double maxRadius) {
+        if (loc == null || loc.getWorld() == null) return Double.POSITIVE_INFINITY;
+        return snapshot(loc.getWorld()).nearestDistanceSq(loc.getX(), loc.getY(), loc.getZ(), maxRadius, false);
+    }
+
+    public static final class WorldSnapshot {
+        static final WorldSnapshot EMPTY = new WorldSnapshot(0, 0, new Player[0], new double[0], new double[0], new double[0]);
+
+        private final int worldIndex;
+        private final int count;
+        private final Player[] players;
+        private final double[] x, y, z;
+        private final int[] next;
+        private final LongIntMap heads;
+
+        private WorldSnapshot(int worldIndex, int count, Player[] players, double[] x, double[] y, double[] z) {
+            this.worldIndex = worldIndex;
+            this.count = count;
+            this.players = players;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.next = new int[count];
+            this.heads = new LongIntMap(count);
+            for (int i = 0; i < count; i++) {
+                next[i] = heads.put(cellKey(cell(x[i]), cell(z[i])), i, -1);
+            }
+        }
+
+        static WorldSnapshot capture(World world) {
+            try {
+                List<Player> list = world.getPlayers();
+                int n = list.size();
+                Player[] ps = new Player[n];
+                double[] px = new double[n], py = new double[n], pz = new double[n];
+                int count = 0;
+                for (Player p : list) {
+                    if (count == n) break;
+                    try {
+                        Location l = p.getLocation();
+                        ps[count] = p;
+                        px[count] = l.getX();
+                        py[count] = l.getY();
+                        pz[count] = l.getZ();
+                        count++;
+                    } catch (Throwable ignored) {}
+                }
+                return new WorldSnapshot(BlockKey.worldIndex(world.getName()), count, ps, px, py, pz);
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+
+        /** Snapshot of bare positions with no player handles, for checks that run without a server. */
+        static WorldSnapshot of(int worldIndex, double[] x, double[] y, double[] z) {
+            return new WorldSnapshot(worldIndex, x.length, new Player[x.length], x, y, z);
+        }
+
+        public int size() { return count; }
+        public boolean isEmpty() { return count == 0; }
+        public double x(int i) { return x[i]; }
+        public double y(int i) { return y[i]; }
+        public double z(int i) { return z[i]; }
+
+        /** Live player handle for row {@code i}; main thread only. */
+        public Player player(int i) { return players[i]; }
+
+        /** Chunk the player stood in at capture time, packed with {@link BlockKey#pack(int, int, int, int)} (y = 0). */
+        public long playerChunk(int i) {
+            return BlockKey.pack(worldIndex, ((int) Math.floor(x[i])) >> 4, 0, ((int) Math.floor(z[i])) >> 4);
+        }
+
+        /** Distinct chunk keys within {@code chunkRadius} chunks of any player, in the {@link #playerChunk} packing. */
+        public long[] chunksAround(int chunkRadius) {
+            if (count == 0) return new long[0];
+            int side = chunkRadius * 2 + 1;
+            LongIntMap seen = new LongIntMap(count * side * side);
+            long[] out = new long[count * side * side];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int pcx = ((int) Math.floor(x[i])) >> 4, pcz = ((int) Math.floor(z[i])) >> 4;
+                for (int dx = -chunkRadius; dx <= chunkRadius; dx++) {
+                    for (int dz = -chunkRadius; dz <= chunkRadius; dz++) {
+                        long key = BlockKey.pack(worldIndex, pcx + dx, 0, pcz + dz);
+                        if (seen.put(key, n, -1) == -1) out[n++] = key;
+                    }
+                }
+            }
+            return n == out.length ? out : java.util.Arrays.copyOf(out, n);
+        }
+
+        public boolean anyWithin(double px, double py, double pz, double radius) {
+            return search(px, py, pz, radius, false, true) < Double.POSITIVE_INFINITY;
+        }
+
+        /** Squared distance to the closest player within {@code maxRadius} (ignoring y when {@code horizontal}), or positive infinity. */
+        public double nearestDistanceSq(double px, double py, double pz, double maxRadius, boolean horizontal) {
+            return search(px, py, pz, maxRadius, horizontal, false);
+        }
+
+        /** True if a player is within {@code radius} of the block-aligned box {@code [min, max + 1]}. */
+        public boolean anyWithinBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, double radius) {
+            if (count == 0 || !(radius >= 0.0)) return false;
+            double r2 = radius * radius;
+            int x0 = cell(minX - radius), x1 = cell(maxX + 1 + radius);
+            int z0 = cell(minZ - radius), z1 = cell(maxZ + 1 + radius);
+            if (cellArea(x0, x1, z0, z1) > count) {
+                for (int i = 0; i < count; i++) if (boxDistSq(i, minX, minY, minZ, maxX, maxY, maxZ) <= r2) return true;
+                return false;
+            }
+            for (int cx = x0; cx <= x1; cx++) {
+                for (int cz = z0; cz <= z1; cz++) {
+                    for (int i = heads.get(cellKey(cx, cz), -1); i >= 0; i = next[i]) {
+                        if (boxDistSq(i, minX, minY, minZ, maxX, maxY, maxZ) <= r2) return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private double boxDistSq(int i, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            double dx = x[i] < minX ? minX - x[i] : (x[i] > maxX + 1 ? x[i] - (maxX + 1) : 0.0);
+            double dy = y[i] < minY ? minY - y[i] : (y[i] > maxY + 1 ? y[i] - (maxY + 1) : 0.0);
+            double dz = z[i] < minZ ? minZ - z[i] : (z[i] > maxZ + 1 ? z[i] - (maxZ + 1) : 0.0);
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        private double search(double px, double py, double pz, double radius, boolean horizontal, boolean firstHit) {
+            if (count == 0 || !(radius >= 0.0)) return Double.POSITIVE_INFINITY;
+            double r2 = radius * radius;
+            double best = Double.POSITIVE_INFINITY;
+            boolean linear = Double.isInfinite(radius);
+            int x0 = 0, x1 = -1, z0 = 0, z1 = -1;
+            if (!linear) {
+                x0 = cell(px - radius);
+                x1 = cell(px + radius);
+                z0 = cell(pz - radius);
+                z1 = cell(pz + radius);
+                linear = cellArea(x0, x1, z0, z1) > count;
+            }
+            if (linear) {
+                for (int i = 0; i < count; i++) {
+                    double d2 = distSq(i, px, py, pz, horizontal);
+                    if (d2 <= r2 && d2 < best) {
+                        best = d2;
+                        if (firstHit) return best;
+                    }
+                }
+                return best;
+            }
+            for (int cx = x0; cx <= x1; cx++) {
+                for (int cz = z0; cz <= z1; cz++) {
+                    for (int i = heads.get(cellKey(cx, cz), -1); i >= 0; i = next[i]) {
+                        double d2 = distSq(i, px, py, pz, horizontal);
+                        if (d2 <= r2 && d2 < best) {
+                            best = d2;
+                            if (firstHit) return best;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        private double distSq(int i, double px, double py, double pz, boolean horizontal) {
+            double dx = x[i] - px, dz = z[i] - pz;
+            double d2 = dx * dx + dz * dz;
+            if (!horizontal) {
+                double dy = y[i] - py;
+                d2 += dy * dy;
+            }
+            return d2;
+        }
+
+        /** Columns in the range, in double: a huge radius clamps to the whole int range, whose area overflows a long. */
+        private static double cellArea(int x0, int x1, int z0, int z1) {
+            return ((double) x1 - x0 + 1) * ((double) z1 - z0 + 1);
+        }
+
+        private static int cell(double coord) {
+            return (int) Math.floor(coord / CELL_SIZE);
+        }
+
+        private static long cellKey(int cx, int cz) {
+            return (((long) cx) << 32) | (cz & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package kaiakk.powerhouse.data;
+
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+
+/**
+ * Long-keyed sliding-window counters backed by a {@link RateWindow}. Keys live in an
+ * open-addressing table; each slot owns a stripe of the shared bucket array. Idle keys are
+ * dropped by {@link #purgeIdle(long)} or when the table would otherwise grow past its cap.
+ * New keys that still find the table full share one overflow window, so they are limited
+ * together rather than not at all.
+ */
+public final class RateCounter {
+    // 0 is used as the empty marker, so keys equal to it are shifted onto this value.
+    private static final long ZERO_KEY_ALIAS = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 32;
+
+    private final String name;
+    private final RateWindow window;
+    private final int maxKeys;
+    private final int[] overflowRing;
+    private long overflowHead = 0L;
+    private boolean warnedFull = false;
+    private long[] keys;
+    private long[] heads;
+    private int[] ring;
+    private int size = 0;
+    private long lastPurgeEpoch = 0L;
+
+    public RateCounter(RateWindow window, int maxKeys) {
+        this("rate counter", window, maxKeys);
+    }
+
+    /** {@code name} identifies the counter in the one warning logged when it fills up. */
+    public RateCounter(String name, RateWindow window, int maxKeys) {
+        this.name = name;
+        this.window = window == null ? new RateWindow(RateWindow.DEFAULT_WINDOW_MS, RateWindow.DEFAULT_BUCKETS) : window;
+        this.maxKeys = Math.max(16, maxKeys);
+        this.overflowRing = new int[this.window.buckets];
+        allocate(MIN_CAPACITY);
+    }
+
+    public RateWindow getWindow() {
+        return window;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        heads = new long[capacity];
+        ring = new int[capacity * window.buckets];
+    }
+
+    private static int hash(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return (int) key;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int idx = hash(key) & mask;
+        while (true) {
+            long k = keys[idx];
+            if (k == key) return idx;
+            if (k == 0L) return -1;
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    /** Records one event and returns the count in the current window including it. */
+    public synchronized int increment(long key, long now) {
+        return add(key, 1, now);
+    }
+
+    public synchronized int add(long key, int delta, long now) {
+        if (key == 0L) key = ZERO_KEY_ALIAS;
+        int slot = find(key);
+        if (slot < 0) {
+            if ((size + 1) * 2 > keys.length) {
+                long epoch = window.epoch(now);
+                if (epoch != lastPurgeEpoch) {
+                    lastPurgeEpoch = epoch;
+                    purgeIdleLocked(now);
+                }
+                if ((size + 1) * 2 > keys.length) {
+                    if (size >= maxKeys) return addOverflow(now, delta);
+                    rehash(keys.length << 1);
+                }
+            }
+            int mask = keys.length - 1;
+            slot = hash(key) & mask;
+            while (keys[slot] != 0L) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            heads[slot] = 0L;
+            size++;
+        }
+        int base = slot * window.buckets;
+        heads[slot] = window.add(ring, base, heads[slot], now, delta);
+        return window.count(ring, base, heads[slot], now);
+    }
+
+    /** Counts an event for a key the full table could not take; all such keys share one window. */
+    private int addOverflow(long now, int delta) {
+        if (!warnedFull) {
+            warnedFull = true;
+            PowerhouseLogger.error("Powerhouse: " + name + " is tracking " + maxKeys + " keys; further keys share one overflow count until idle keys expire.");
+        }
+        overflowHead = window.add(overflowRing, 0, overflowHead, now, delta);
+        return window.count(overflowRing, 0, overflowHead, now);
+    }
+
+    public synchronized int count(long key, long now) {
+        if (key == 0L) key = ZERO_KEY_ALIAS;
+        int slot = find(key);
+        if (slot < 0) return 0;
+        return window.count(ring, slot * window.buckets, heads[slot], now);
+    }
+
+    public synchronized double perSecond(long key, long now) {
+        return window.perSecond(count(key, now));
+    }
+
+    public synchronized void remove(long key) {
+        if (key == 0L) key = ZERO_KEY_ALIAS;
+        int slot = find(key);
+        if (slot < 0) return;
+        heads[slot] = 0L;
+        purgeIdleLocked(System.currentTimeMillis());
+    }
+
+    /** Drops keys with no events inside the window. */
+    public synchronized int purgeIdle(long now) {
+        return purgeIdleLocked(now);
+    }
+
+    private int purgeIdleLocked(long now) {
+        int before = size;
+        int live = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0L && !window.isIdle(heads[i], now)) live++;
+        }
+        if (live == size) return 0;
+        int cap = MIN_CAPACITY;
+        while (cap < live * 3) cap <<= 1;
+        long[] oKeys = keys;
+        long[] oHeads = heads;
+        int[] oRing = ring;
+        allocate(Math.max(cap, Math.min(oKeys.length, MIN_CAPACITY << 2)));
+        size = 0;
+        int b = window.buckets;
+        int mask = keys.length - 1;
+        for (int i = 0; i < oKeys.length; i++) {
+            long k = oKeys[i];
+            if (k == 0L || window.isIdle(oHeads[i], now)) continue;
+            int idx = hash(k) & mask;
+            while (keys[idx] != 0L) idx = (idx + 1) & mask;
+            keys[idx] = k;
+            heads[idx] = oHeads[i];
+            System.arraycopy(oRing, i * b, ring, idx * b, b);
+            size++;
+        }
+        return before - size;
+    }
+
+    private void rehash(int capacity) {
+        long[] oKeys = keys;
+        long[] oHeads = heads;
+        int[] oRing = ring;
+        allocate(capacity);
+        int b = window.buckets;
+        int mask = keys.length - 1;
+        for (int i = 0; i < oKeys.length; i++) {
+            long k = oKeys[i];
+            if (k == 0L) continue;
+            int idx = hash(k) & mask;
+            while (keys[idx] != 0L) idx = (idx + 1) & mask;
+            keys[idx] = k;
+            heads[idx] = oHeads[i];
+            System.arraycopy(oRing, i * b, ring, idx * b, b);
+        }
+    }
+
+    public synchronized void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+        overflowHead = 0L;
+        warnedFull = false;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,71 @@
+package kaiakk.powerhouse.data;
+
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+
+/**
+ * Sliding-window event counter stored as a ring of small buckets. The window itself holds
+ * no per-key state: callers keep one {@code int[buckets]} stripe and one head epoch per key
+ * in their own primitive arrays, so the same estimator serves every rate table.
+ */
+public final class RateWindow {
+    public static final long DEFAULT_WINDOW_MS = 1000L;
+    public static final int DEFAULT_BUCKETS = 5;
+
+    public final long windowMs;
+    public final int buckets;
+    public final long bucketMs;
+
+    public RateWindow(long windowMs, int buckets) {
+        this.buckets = Math.max(1, Math.min(64, buckets));
+        this.bucketMs = Math.max(1L, windowMs / this.buckets);
+        this.windowMs = this.bucketMs * this.buckets;
+    }
+
+    /** Reads {@code <path>.window-ms} and {@code <path>.buckets}, falling back to the shared {@code rate-estimator} keys. */
+    public static RateWindow fromConfig(String path) {
+        long ms = ConfigHelp.getInt("rate-estimator.window-ms", (int) DEFAULT_WINDOW_MS);
+        int b = ConfigHelp.getInt("rate-estimator.buckets", DEFAULT_BUCKETS);
+        if (path != null) {
+            ms = ConfigHelp.getInt(path + ".window-ms", (int) ms);
+            b = ConfigHelp.getInt(path + ".buckets", b);
+        }
+        return new RateWindow(Math.max(50L, ms), b);
+    }
+
+    public long epoch(long now) {
+        return now / bucketMs;
+    }
+
+    /** Adds {@code delta} at {@code now}, zeroing any buckets that rotated out since {@code head}. Returns the new head. */
+    public long add(int[] ring, int base, long head, long now, int delta) {
+        long epoch = now / bucketMs;
+        if (head <= 0L || epoch - head >= buckets || epoch < head) {
+            for (int i = 0; i < buckets; i++) ring[base + i] = 0;
+        } else {
+            for (long e = head + 1; e <= epoch; e++) ring[base + (int) (e % buckets)] = 0;
+        }
+        ring[base + (int) (epoch % buckets)] += delta;
+        return epoch;
+    }
+
+    /** Events recorded within the last window as seen at {@code now}. */
+    public int count(int[] ring, int base, long head, long now) {
+        if (head <= 0L) return 0;
+        long epoch = now / bucketMs;
+        long age = epoch - head;
+        if (age >= buckets || age < 0) return 0;
+        int sum = 0;
+        for (long e = head; e > epoch - buckets && e > head - buckets; e--) {
+            sum += ring[base + (int) (e % buckets)];
+        }
+        return sum;
+    }
+
+    public double perSecond(int count) {
+        return count * 1000.0 / (double) windowMs;
+    }
+
+    public boolean isIdle(long head, long now) {
+        return head <= 0L || (now / bucketMs) - head >= buckets;
+    }
+}
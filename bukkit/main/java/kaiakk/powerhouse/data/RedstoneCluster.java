@@ -0,0 +1,63 @@
+package kaiakk.powerhouse.data;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class RedstoneCluster {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+    public final int id;
+    public final String worldName;
+    public final int chunkX;
+    public final int chunkZ;
+    public final int minX;
+    public final int minY;
+    public final int minZ;
+    public final int maxX;
+    public final int maxY;
+    public final int maxZ;
+    public final long[] members;
+    public final int totalUpdates;
+    public final int peakUpdates;
+    public volatile long culledAt = 0L;
+
+    public RedstoneCluster(String worldName, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, long[] members, int totalUpdates, int peakUpdates) {
+        this.id = NEXT_ID.getAndIncrement();
+        this.worldName = worldName;
+        this.chunkX = minX >> 4;
+        this.chunkZ = minZ >> 4;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.members = members;
+        this.totalUpdates = totalUpdates;
+        this.peakUpdates = peakUpdates;
+    }
+
+    public int size() {
+        return members == null ? 0 : members.length;
+    }
+
+    public Location getCenter() {
+        World w = Bukkit.getWorld(worldName);
+        if (w == null) return null;
+        return new Location(w, (minX + maxX) / 2.0 + 0.5, (minY + maxY) / 2.0 + 0.5, (minZ + maxZ) / 2.0 + 0.5);
+    }
+
+    public double distanceSquaredTo(double x, double y, double z) {
+        double dx = x < minX ? minX - x : (x > maxX + 1 ? x - (maxX + 1) : 0.0);
+        double dy = y < minY ? minY - y : (y > maxY + 1 ? y - (maxY + 1) : 0.0);
+        double dz = z < minZ ? minZ - z : (z > maxZ + 1 ? z - (maxZ + 1) : 0.0);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public String describeBounds() {
+        return worldName + " [" + minX + "," + minY + "," + minZ + " -> " + maxX + "," + maxY + "," + maxZ + "] chunk " + chunkX + "," + chunkZ;
+    }
+}
@@ -0,0 +1,162 @@
+package kaiakk.powerhouse.data;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-tick redstone event counter keyed by packed block positions.
+ * Listeners call {@link #record(long)}, which only bumps a slot in a primitive
+ * open-addressing table; the table is swapped out and drained once per tick.
+ */
+public final class RedstoneIngestBuffer {
+
+    public interface Sink {
+        void accept(long packedKey, int count);
+    }
+
+    private static final int STRIPES = 8;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_CAPACITY = 1 << 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong totalIngested = new AtomicLong(0);
+    private final AtomicLong totalDropped = new AtomicLong(0);
+    private volatile int lastTickEvents = 0;
+    private volatile int lastTickBlocks = 0;
+    private volatile double avgEventsPerTick = 0.0;
+
+    public RedstoneIngestBuffer() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    public void record(long packedKey) {
+        if (packedKey == BlockKey.NO_KEY) return;
+        Stripe s = stripes[(int) (mix(packedKey) >>> 61)];
+        synchronized (s) {
+            if (!s.front.increment(packedKey)) s.dropped++;
+        }
+    }
+
+    /**
+     * Swaps every stripe and hands the accumulated counts to the sink.
+     * Returns the number of events drained.
+     */
+    public int drain(Sink sink) {
+        int events = 0;
+        int blocks = 0;
+        long dropped = 0;
+        for (Stripe s : stripes) {
+            Table t;
+            synchronized (s) {
+                t = s.front;
+                s.front = s.back;
+                s.back = t;
+                dropped += s.dropped;
+                s.dropped = 0;
+            }
+            if (t.size == 0) continue;
+            long[] keys = t.keys;
+            int[] counts = t.counts;
+            for (int i = 0; i < keys.length; i++) {
+                long k = keys[i];
+                if (k == BlockKey.NO_KEY) continue;
+                int c = counts[i];
+                events += c;
+                blocks++;
+                if (sink != null) {
+                    try { sink.accept(k, c); } catch (Throwable ignored) {}
+                }
+            }
+            t.clear();
+        }
+        lastTickEvents = events;
+        lastTickBlocks = blocks;
+        avgEventsPerTick = avgEventsPerTick * 0.95 + events * 0.05;
+        if (events > 0) totalIngested.addAndGet(events);
+        if (dropped > 0) totalDropped.addAndGet(dropped);
+        return events;
+    }
+
+    public void clear() {
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                s.front.clear();
+                s.back.clear();
+                s.dropped = 0;
+            }
+        }
+    }
+
+    public int getLastTickEvents() { return lastTickEvents; }
+    public int getLastTickBlocks() { return lastTickBlocks; }
+    public double getAverageEventsPerTick() { return avgEventsPerTick; }
+    public long getTotalIngested() { return totalIngested.get(); }
+    public long getTotalDropped() { return totalDropped.get(); }
+
+    static long mix(long k) {
+        k ^= (k >>> 33);
+        k *= 0xff51afd7ed558ccdL;
+        k ^= (k >>> 33);
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= (k >>> 33);
+        return k;
+    }
+
+    private static final class Stripe {
+        Table front = new Table();
+        Table back = new Table();
+        long dropped = 0;
+    }
+
+    private static final class Table {
+        long[] keys = new long[INITIAL_CAPACITY];
+        int[] counts = new int[INITIAL_CAPACITY];
+        int size = 0;
+
+        boolean increment(long key) {
+            int mask = keys.length - 1;
+            int idx = (int) mix(key) & mask;
+            while (true) {
+                long k = keys[idx];
+                if (k == key) {
+                    counts[idx]++;
+                    return true;
+                }
+                if (k == BlockKey.NO_KEY) {
+                    if ((size + 1) * 2 > keys.length) {
+                        if (keys.length >= MAX_CAPACITY) return false;
+                        grow();
+                        return increment(key);
+                    }
+                    keys[idx] = key;
+                    counts[idx] = 1;
+                    size++;
+                    return true;
+                }
+                idx = (idx + 1) & mask;
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length << 1];
+            counts = new int[oldKeys.length << 1];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                long k = oldKeys[i];
+                if (k == BlockKey.NO_KEY) continue;
+                int idx = (int) mix(k) & mask;
+                while (keys[idx] != BlockKey.NO_KEY) idx = (idx + 1) & mask;
+                keys[idx] = k;
+                counts[idx] = oldCounts[i];
+            }
+        }
+
+        void clear() {
+            if (size == 0) return;
+            Arrays.fill(keys, BlockKey.NO_KEY);
+            size = 0;
+        }
+    }
+}
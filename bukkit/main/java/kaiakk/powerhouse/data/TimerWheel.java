@@ -0,0 +1,137 @@
+package kaiakk.powerhouse.data;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timing wheel over primitive payloads. Each entry carries a payload (a packed block
+ * key or an id) and a stamp; the owner compares the stamp with its current state when the
+ * entry fires, so rescheduling or cancelling never has to search the wheel.
+ *
+ * {@link #advance(long, Expiry)} only visits the slots between the previous and the current
+ * tick, so expiring N entries costs O(N) plus the slots passed, independent of how many
+ * entries are pending further out.
+ */
+public final class TimerWheel {
+
+    public interface Expiry {
+        void expire(long payload, long stamp);
+    }
+
+    private final long tickMs;
+    private final int mask;
+    private final long[][] payloads;
+    private final long[][] stamps;
+    private final long[][] deadlines;
+    private final int[] sizes;
+    private long currentTick = Long.MIN_VALUE;
+    private int size = 0;
+
+    private long[] firedPayloads = new long[64];
+    private long[] firedStamps = new long[64];
+
+    public TimerWheel(long tickMs, int slots) {
+        int n = 16;
+        while (n < slots) n <<= 1;
+        this.tickMs = Math.max(1L, tickMs);
+        this.mask = n - 1;
+        this.payloads = new long[n][];
+        this.stamps = new long[n][];
+        this.deadlines = new long[n][];
+        this.sizes = new int[n];
+    }
+
+    public synchronized void schedule(long payload, long stamp, long deadlineMs) {
+        long tick = (deadlineMs + tickMs - 1) / tickMs;
+        if (currentTick != Long.MIN_VALUE && tick <= currentTick) tick = currentTick + 1;
+        int slot = (int) (tick & mask);
+        int n = sizes[slot];
+        if (payloads[slot] == null) {
+            payloads[slot] = new long[4];
+            stamps[slot] = new long[4];
+            deadlines[slot] = new long[4];
+        } else if (n == payloads[slot].length) {
+            payloads[slot] = Arrays.copyOf(payloads[slot], n << 1);
+            stamps[slot] = Arrays.copyOf(stamps[slot], n << 1);
+            deadlines[slot] = Arrays.copyOf(deadlines[slot], n << 1);
+        }
+        payloads[slot][n] = payload;
+        stamps[slot][n] = stamp;
+        deadlines[slot][n] = tick;
+        sizes[slot] = n + 1;
+        size++;
+    }
+
+    /** Fires every entry whose deadline is at or before {@code now}. Returns the number fired. */
+    public int advance(long now, Expiry expiry) {
+        long[] outPayloads;
+        long[] outStamps;
+        int fired = 0;
+        synchronized (this) {
+            long nowTick = now / tickMs;
+            if (currentTick == Long.MIN_VALUE) currentTick = nowTick - 1;
+            if (nowTick <= currentTick || size == 0) {
+                if (nowTick > currentTick) currentTick = nowTick;
+                return 0;
+            }
+            long from = currentTick + 1;
+            // A gap longer than one rotation still only needs a single pass over every slot.
+            if (nowTick - from > mask) from = nowTick - mask;
+            for (long t = from; t <= nowTick; t++) {
+                int slot = (int) (t & mask);
+                int n = sizes[slot];
+                if (n == 0) continue;
+                long[] p = payloads[slot];
+                long[] s = stamps[slot];
+                long[] d = deadlines[slot];
+                int keep = 0;
+                for (int i = 0; i < n; i++) {
+                    if (d[i] <= nowTick) {
+                        if (fired == firedPayloads.length) {
+                            firedPayloads = Arrays.copyOf(firedPayloads, fired << 1);
+                            firedStamps = Arrays.copyOf(firedStamps, fired << 1);
+                        }
+                        firedPayloads[fired] = p[i];
+                        firedStamps[fired] = s[i];
+                        fired++;
+                    } else {
+                        p[keep] = p[i];
+                        s[keep] = s[i];
+                        d[keep] = d[i];
+                        keep++;
+                    }
+                }
+                sizes[slot] = keep;
+                size -= (n - keep);
+                if (keep == 0 && p.length > 64) {
+                    payloads[slot] = null;
+                    stamps[slot] = null;
+                    deadlines[slot] = null;
+                }
+            }
+            currentTick = nowTick;
+            if (fired == 0) return 0;
+            outPayloads = Arrays.copyOf(firedPayloads, fired);
+            outStamps = Arrays.copyOf(firedStamps, fired);
+        }
+        if (expiry != null) {
+            for (int i = 0; i < fired; i++) {
+                try { expiry.expire(outPayloads[i], outStamps[i]); } catch (Throwable ignored) {}
+            }
+        }
+        return fired;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i <= mask; i++) {
+            sizes[i] = 0;
+            payloads[i] = null;
+            stamps[i] = null;
+            deadlines[i] = null;
+        }
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
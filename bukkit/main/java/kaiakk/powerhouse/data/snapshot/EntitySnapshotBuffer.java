@@ -0,0 +1,241 @@
+package kaiakk.powerhouse.data.snapshot;
+
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.LongIntMap;
+import kaiakk.powerhouse.data.PlayerProximityIndex;
+
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Column-oriented entity snapshot. The main thread fills one row per entity plus the
+ * player positions of each world; an async calculator then reads the columns in place and
+ * records its verdict in the {@link #marks} bitsets, which the main thread walks to apply
+ * the result. Buffers are recycled through a {@link Pair}, so after warm-up a cycle only
+ * allocates for the entities it actually acts on.
+ *
+ * <p>When several calculators share one capture, the row columns and flags are read-only
+ * to them; {@link #worth}, the marks and the scratch arrays are theirs to overwrite, and
+ * {@link #clearScratch()} resets them between calculators.
+ */
+public final class EntitySnapshotBuffer {
+    public static final int FLAG_NAMED = 0;
+    public static final int FLAG_PLAYER = 1;
+    public static final int FLAG_TARGET = 2;
+    public static final int FLAG_LIVING = 3;
+    public static final int FLAG_TAMEABLE = 4;
+    public static final int FLAG_KEEP = 5;
+    /** Carrier of a mob stack; removing it would lose the whole stack. */
+    public static final int FLAG_STACKED = 6;
+    private static final int FLAG_COUNT = 7;
+
+    public static final int MARK_REMOVE = 0;
+    public static final int MARK_SIMPLIFY = 1;
+    public static final int MARK_RESTORE = 2;
+    /** Rows a calculator must leave alone, treated like players by the cull and cramming passes. */
+    public static final int MARK_EXCLUDE = 3;
+    private static final int MARK_COUNT = 4;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_WORLDS = 64;
+    private static final EntityType[] TYPES = EntityType.values();
+
+    public int size = 0;
+    public double[] x, y, z;
+    public int[] typeOrdinal;
+    public int[] worldIndex;
+    public int[] worth;
+    /** Ticks lived, captured for dropped items only. */
+    public int[] age;
+    public long[] uuidMost, uuidLeast;
+    public long[][] flags = new long[FLAG_COUNT][];
+    public long[][] marks = new long[MARK_COUNT][];
+
+    /** Player snapshot of each world index seen by {@link #addPlayers}; immutable, so safe to read off-thread. */
+    public final PlayerProximityIndex.WorldSnapshot[] players = new PlayerProximityIndex.WorldSnapshot[MAX_WORLDS];
+
+    /** Capture epoch stamped by the snapshot pipeline; 0 for buffers filled by hand. */
+    public volatile long epoch = 0L;
+
+    /** Calculator scratch, owned by whoever holds the buffer. */
+    public final LongIntMap table = new LongIntMap();
+    private long[] sortKeys = new long[0];
+    private int[] ints = new int[0];
+
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+    private final Pair owner;
+
+    public EntitySnapshotBuffer() {
+        this(null);
+    }
+
+    private EntitySnapshotBuffer(Pair owner) {
+        this.owner = owner;
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        x = x == null ? new double[capacity] : Arrays.copyOf(x, capacity);
+        y = y == null ? new double[capacity] : Arrays.copyOf(y, capacity);
+        z = z == null ? new double[capacity] : Arrays.copyOf(z, capacity);
+        typeOrdinal = typeOrdinal == null ? new int[capacity] : Arrays.copyOf(typeOrdinal, capacity);
+        worldIndex = worldIndex == null ? new int[capacity] : Arrays.copyOf(worldIndex, capacity);
+        worth = worth == null ? new int[capacity] : Arrays.copyOf(worth, capacity);
+        age = age == null ? new int[capacity] : Arrays.copyOf(age, capacity);
+        uuidMost = uuidMost == null ? new long[capacity] : Arrays.copyOf(uuidMost, capacity);
+        uuidLeast = uuidLeast == null ? new long[capacity] : Arrays.copyOf(uuidLeast, capacity);
+        int words = (capacity + 63) >>> 6;
+        for (int f = 0; f < FLAG_COUNT; f++) flags[f] = flags[f] == null ? new long[words] : Arrays.copyOf(flags[f], words);
+        for (int m = 0; m < MARK_COUNT; m++) marks[m] = marks[m] == null ? new long[words] : Arrays.copyOf(marks[m], words);
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    /** Empties the buffer for the next fill; arrays are kept. */
+    public void reset() {
+        int words = (size + 63) >>> 6;
+        for (int f = 0; f < FLAG_COUNT; f++) Arrays.fill(flags[f], 0, words, 0L);
+        for (int m = 0; m < MARK_COUNT; m++) Arrays.fill(marks[m], 0, words, 0L);
+        size = 0;
+        epoch = 0L;
+        Arrays.fill(players, null);
+        table.clear();
+    }
+
+    /** Clears marks, worth and the lookup table so the next calculator starts from the captured rows only. */
+    public void clearScratch() {
+        int words = (size + 63) >>> 6;
+        for (int m = 0; m < MARK_COUNT; m++) Arrays.fill(marks[m], 0, words, 0L);
+        Arrays.fill(worth, 0, size, 0);
+        table.clear();
+    }
+
+    /** Appends a row and returns its index; set flags on the returned row with {@link #setFlag}. */
+    public int add(UUID id, int world, double ex, double ey, double ez, EntityType type, int entityWorth) {
+        int i = size;
+        if (i == x.length) allocate(x.length << 1);
+        x[i] = ex;
+        y[i] = ey;
+        z[i] = ez;
+        typeOrdinal[i] = type == null ? -1 : type.ordinal();
+        worldIndex[i] = world;
+        worth[i] = entityWorth;
+        age[i] = 0;
+        uuidMost[i] = id == null ? 0L : id.getMostSignificantBits();
+        uuidLeast[i] = id == null ? 0L : id.getLeastSignificantBits();
+        size = i + 1;
+        return i;
+    }
+
+    /** Records this tick's player snapshot for {@code world} so calculators can query it later. */
+    public void addPlayers(World world) {
+        if (world == null) return;
+        players[BlockKey.worldIndex(world.getName())] = PlayerProximityIndex.snapshot(world);
+    }
+
+    public boolean hasPlayers(int world) {
+        PlayerProximityIndex.WorldSnapshot s = players[world];
+        return s != null && !s.isEmpty();
+    }
+
+    /** Squared distance from row {@code i} to the closest player of its world within {@code maxRadius}, or positive infinity. */
+    public double nearestPlayerDistSq(int i, boolean horizontal, double maxRadius) {
+        PlayerProximityIndex.WorldSnapshot s = players[worldIndex[i]];
+        if (s == null) return Double.POSITIVE_INFINITY;
+        return s.nearestDistanceSq(x[i], y[i], z[i], maxRadius, horizontal);
+    }
+
+    /** Chunk row {@code i} was captured in, packed like {@link PlayerProximityIndex.WorldSnapshot#playerChunk}. */
+    public long chunkKey(int i) {
+        return BlockKey.pack(worldIndex[i], ((int) Math.floor(x[i])) >> 4, 0, ((int) Math.floor(z[i])) >> 4);
+    }
+
+    public EntityType type(int i) {
+        int o = typeOrdinal[i];
+        return o < 0 || o >= TYPES.length ? null : TYPES[o];
+    }
+
+    public UUID uuid(int i) {
+        return new UUID(uuidMost[i], uuidLeast[i]);
+    }
+
+    public void setFlag(int i, int flag) {
+        flags[flag][i >>> 6] |= 1L << i;
+    }
+
+    public boolean hasFlag(int i, int flag) {
+        return (flags[flag][i >>> 6] & (1L << i)) != 0L;
+    }
+
+    public void mark(int i, int mark) {
+        marks[mark][i >>> 6] |= 1L << i;
+    }
+
+    public boolean isMarked(int i, int mark) {
+        return (marks[mark][i >>> 6] & (1L << i)) != 0L;
+    }
+
+    /** Next row at or after {@code from} carrying {@code mark}, or -1. */
+    public int nextMarked(int from, int mark) {
+        if (from >= size) return -1;
+        long[] bits = marks[mark];
+        int word = from >>> 6;
+        long w = bits[word] & (-1L << from);
+        int words = (size + 63) >>> 6;
+        while (true) {
+            if (w != 0L) {
+                int i = (word << 6) + Long.numberOfTrailingZeros(w);
+                return i < size ? i : -1;
+            }
+            if (++word >= words) return -1;
+            w = bits[word];
+        }
+    }
+
+    public int countMarked(int mark) {
+        long[] bits = marks[mark];
+        int n = 0;
+        for (int w = 0, words = (size + 63) >>> 6; w < words; w++) n += Long.bitCount(bits[w]);
+        return n;
+    }
+
+    public long[] sortScratch(int n) {
+        if (sortKeys.length < n) sortKeys = new long[Math.max(n, capacity())];
+        return sortKeys;
+    }
+
+    public int[] intScratch(int n) {
+        if (ints.length < n) ints = new int[Math.max(n, capacity())];
+        return ints;
+    }
+
+    /** Hands the buffer back to its {@link Pair}; a no-op for standalone buffers. */
+    public void release() {
+        if (owner != null) busy.set(false);
+    }
+
+    /**
+     * Two recycled buffers: one can be filled on the main thread while the other is still
+     * being read or applied. If both are out, {@link #acquire()} hands out a throwaway buffer
+     * rather than block the tick.
+     */
+    public static final class Pair {
+        private final EntitySnapshotBuffer a = new EntitySnapshotBuffer(this);
+        private final EntitySnapshotBuffer b = new EntitySnapshotBuffer(this);
+
+        public EntitySnapshotBuffer acquire() {
+            EntitySnapshotBuffer buf = null;
+            if (a.busy.compareAndSet(false, true)) buf = a;
+            else if (b.busy.compareAndSet(false, true)) buf = b;
+            if (buf == null) buf = new EntitySnapshotBuffer();
+            buf.reset();
+            return buf;
+        }
+    }
+}
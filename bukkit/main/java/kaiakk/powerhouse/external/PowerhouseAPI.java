@@ -52,6 +52,16 @@ public final class PowerhouseAPI {
         return inst != null ? inst.getCrammingRemovals() : 0L;
     }
 
+    /**
+     * Get total spawns cancelled because the chunk was already at its density cap.
+     *
+     * @return number of prevented spawns, or 0 if unavailable
+     */
+    public static long getPreventedSpawns() {
+        AllOptimizations inst = instance();
+        return inst != null ? inst.getPreventedSpawns() : 0L;
+    }
+
     /**
      * Get total item removals performed by cleanup systems.
      *
@@ -101,19 +101,20 @@ public class WebManager extends NanoHTTPD {
                 totalEntities = entities;
                 totalChunks = chunks;
             } else {
-                totalEntities = 0;
-                totalChunks = 0;
+                kaiakk.powerhouse.world.entity.ChunkEntityIndex index = kaiakk.powerhouse.world.entity.ChunkEntityIndex.getInstance();
+                int entities = index != null ? index.total() + totalPlayers : 0;
+                int chunks = 0;
 
                 for (World world : Bukkit.getWorlds()) {
                     try {
-                        int worldEntities = world.getEntities().size();
-                        int worldChunks = world.getLoadedChunks().length;
-                        totalEntities += worldEntities;
-                        totalChunks += worldChunks;
+                        if (index == null) entities += world.getEntities().size();
+                        chunks += world.getLoadedChunks().length;
                     } catch (Throwable t) {
                         plugin.getLogger().warning("Error getting world stats: " + t.getMessage());
                     }
                 }
+                totalEntities = entities;
+                totalChunks = chunks;
             }
         } catch (Throwable t) {
             plugin.getLogger().warning("Error in updateGlobalStats: " + t.getMessage());
@@ -142,6 +143,8 @@ public class WebManager extends NanoHTTPD {
             return newFixedLengthResponse(Response.Status.OK, "application/json", getRegionsJson());
         } else if (uri.equals("/api/players")) {
             return newFixedLengthResponse(Response.Status.OK, "application/json", getPlayersJson());
+        } else if (uri.equals("/api/spawners")) {
+            return newFixedLengthResponse(Response.Status.OK, "application/json", getSpawnersJson());
         } else if (uri.equals("/api/lag-sources")) {
             String base = getLagSourcesJson();
             String withBreakdown = appendPluginBreakdownJson(base);
@@ -320,13 +323,73 @@ public class WebManager extends NanoHTTPD {
             tpsPart = String.format("%.2f", tps);
         }
 
+        int[] tiers = new int[4];
+        try {
+            kaiakk.powerhouse.world.entity.AiManagement ai = kaiakk.powerhouse.world.entity.AiManagement.getInstance();
+            if (ai != null) tiers = ai.getTierCounts();
+        } catch (Throwable ignored) {}
+
+        String spawnLimitsJson = "null";
+        try {
+            kaiakk.powerhouse.world.controllers.SpawnLimitController limits = opts == null ? null : opts.getSpawnLimitController();
+            if (limits != null) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(String.format(Locale.ROOT, "{\"limitMultiplier\":%.2f,\"ticksMultiplier\":%.2f,\"worlds\":[", limits.getLimitMultiplier(), limits.getTicksMultiplier()));
+                boolean firstWorld = true;
+                for (Map.Entry<String, long[]> en : limits.getApplied().entrySet()) {
+                    long[] v = en.getValue();
+                    if (!firstWorld) sb.append(",");
+                    firstWorld = false;
+                    sb.append(String.format("{\"name\":\"%s\",\"monster\":%d,\"animal\":%d,\"water\":%d,\"ambient\":%d,\"ticksMonster\":%d,\"ticksAnimal\":%d}",
+                        escapeJson(en.getKey()), v[0], v[1], v[2], v[3], v[4], v[5]));
+                }
+                sb.append("]}");
+                spawnLimitsJson = sb.toString();
+            }
+        } catch (Throwable ignored) {}
+
+        String mobStacksJson = "null";
+        try {
+            kaiakk.powerhouse.world.entity.MobStacker stacker = opts == null ? null : opts.getMobStacker();
+            if (stacker != null) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(String.format("{\"saved\":%d,\"carriers\":%d,\"worlds\":[", stacker.getSavedTotal(), stacker.getCarrierCount()));
+                boolean firstWorld = true;
+                for (Map.Entry<String, Long> en : stacker.getSavedByWorld().entrySet()) {
+                    if (!firstWorld) sb.append(",");
+                    firstWorld = false;
+                    sb.append(String.format("{\"name\":\"%s\",\"saved\":%d}", escapeJson(en.getKey()), en.getValue()));
+                }
+                sb.append("]}");
+                mobStacksJson = sb.toString();
+            }
+        } catch (Throwable ignored) {}
+
         return String.format(
-            "{\"tps\":%s,\"mspt\":%s,\"entities\":%d,\"chunks\":%d,\"players\":%d,\"playerList\":%s,\"regions\":%d,\"memory\":{\"used\":%d,\"max\":%d}}",
+            "{\"tps\":%s,\"mspt\":%s,\"entities\":%d,\"chunks\":%d,\"players\":%d,\"playerList\":%s,\"regions\":%d,\"memory\":{\"used\":%d,\"max\":%d},\"aiTiers\":{\"full\":%d,\"reduced\":%d,\"frozen\":%d,\"dormant\":%d},\"spawnLimits\":%s,\"mobStacks\":%s}",
             tpsPart, msptPart, totalEntities, totalChunks, totalPlayers, playersJson.toString(), regionMsptAverages.size(),
-            usedMemory, maxMemory
+            usedMemory, maxMemory, tiers[0], tiers[1], tiers[2], tiers[3], spawnLimitsJson, mobStacksJson
         );
     }
     
+    private String getSpawnersJson() {
+        kaiakk.powerhouse.world.limiters.SpawnerThrottle throttle = null;
+        try {
+            AllOptimizations opts = AllOptimizations.getInstance();
+            throttle = opts == null ? null : opts.getSpawnerThrottle();
+        } catch (Throwable ignored) {}
+        if (throttle == null) return "{\"enabled\":false,\"spawners\":[]}";
+
+        List<String> items = new ArrayList<>();
+        for (kaiakk.powerhouse.world.limiters.SpawnerThrottle.SpawnerInfo s : throttle.getTopSpawners(25)) {
+            items.add(String.format(Locale.ROOT,
+                "{\"world\":\"%s\",\"x\":%d,\"y\":%d,\"z\":%d,\"type\":\"%s\",\"spawnsPerMinute\":%.1f,\"spawned\":%d,\"throttled\":%d,\"density\":%d,\"clusterSize\":%d,\"cost\":%.1f}",
+                escapeJson(s.world), s.x, s.y, s.z, escapeJson(s.type), s.spawnsPerMinute, s.spawned, s.throttled, s.density, s.clusterSize, s.cost));
+        }
+        return String.format("{\"enabled\":true,\"tracked\":%d,\"farmClusters\":%d,\"throttled\":%d,\"spawners\":[%s]}",
+            throttle.getTrackedSpawners(), throttle.getFarmClusters(), throttle.getThrottled(), String.join(",", items));
+    }
+
     private String getRegionsJson() {
         if (isFolia) {
             return String.format("{\"isFolia\":%s,\"regions\":[]}", isFolia);
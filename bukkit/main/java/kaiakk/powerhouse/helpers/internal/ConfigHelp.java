@@ -24,6 +24,10 @@ public final class ConfigHelp {
         try { if (plugin == null) return def; String v = plugin.getConfig().getString(path); return v == null ? def : v; } catch (Throwable t) { return def; }
     }
 
+    public static java.util.List<String> getStringList(String path) {
+        try { if (plugin == null) return java.util.Collections.emptyList(); java.util.List<String> v = plugin.getConfig().getStringList(path); return v == null ? java.util.Collections.<String>emptyList() : v; } catch (Throwable t) { return java.util.Collections.emptyList(); }
+    }
+
     public static double getDouble(String path, double def) {
         try { if (plugin == null) return def; return plugin.getConfig().getDouble(path, def); } catch (Throwable t) { return def; }
     }
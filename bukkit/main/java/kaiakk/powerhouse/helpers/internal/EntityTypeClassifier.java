@@ -0,0 +1,76 @@
+package kaiakk.powerhouse.helpers.internal;
+
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Projectile;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ordinal-indexed entity type categories, the {@link EntityType} counterpart of
+ * {@link MaterialClassifier}. Overrides live under {@code classifier.entities.<category>.add/remove}.
+ */
+public final class EntityTypeClassifier {
+    private EntityTypeClassifier() {}
+
+    public enum Category {
+        HEAVY("*TNT*", "*MINECART*", "ARMOR_STAND", "EXPERIENCE_ORB"),
+        BACKGROUND("ARMOR_STAND", "ITEM_FRAME", "GLOW_ITEM_FRAME", "DROPPED_ITEM", "ITEM", "EXPERIENCE_ORB", "PAINTING"),
+        BOSS("WITHER", "ENDER_DRAGON"),
+        STACKABLE("COW", "MUSHROOM_COW", "PIG", "SHEEP", "CHICKEN", "RABBIT", "ZOMBIE", "HUSK", "DROWNED",
+                "SKELETON", "STRAY", "SPIDER", "CAVE_SPIDER", "CREEPER", "ZOMBIFIED_PIGLIN", "PIG_ZOMBIE");
+
+        final String[] defaults;
+
+        Category(String... defaults) {
+            this.defaults = defaults;
+        }
+
+        public String configKey() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private static volatile long[][] bits = null;
+
+    public static synchronized void init() {
+        EntityType[] all = EntityType.values();
+        long[][] built = new long[Category.values().length][(all.length + 63) >>> 6];
+        for (Category c : Category.values()) {
+            List<String> add = ConfigHelp.getStringList("classifier.entities." + c.configKey() + ".add");
+            List<String> remove = ConfigHelp.getStringList("classifier.entities." + c.configKey() + ".remove");
+            long[] set = built[c.ordinal()];
+            for (EntityType t : all) {
+                String name = t.name();
+                boolean in = MaterialClassifier.matchesAny(name, c.defaults) || MaterialClassifier.matchesAny(name, add);
+                if (c == Category.HEAVY && !in) {
+                    try {
+                        Class<?> cls = t.getEntityClass();
+                        if (cls != null && (Projectile.class.isAssignableFrom(cls) || LivingEntity.class.isAssignableFrom(cls))) in = true;
+                    } catch (Throwable ignored) {}
+                }
+                if (in && !MaterialClassifier.matchesAny(name, remove)) set[t.ordinal() >>> 6] |= 1L << t.ordinal();
+            }
+        }
+        bits = built;
+    }
+
+    public static boolean is(Category category, EntityType type) {
+        if (type == null || category == null) return false;
+        long[][] b = bits;
+        if (b == null) {
+            init();
+            b = bits;
+        }
+        int o = type.ordinal();
+        long[] set = b[category.ordinal()];
+        int word = o >>> 6;
+        return word < set.length && (set[word] & (1L << o)) != 0L;
+    }
+
+    public static boolean isHeavy(EntityType t) { return is(Category.HEAVY, t); }
+    public static boolean isBackground(EntityType t) { return is(Category.BACKGROUND, t); }
+    public static boolean isBoss(EntityType t) { return is(Category.BOSS, t); }
+    public static boolean isStackable(EntityType t) { return is(Category.STACKABLE, t); }
+}
@@ -0,0 +1,123 @@
+package kaiakk.powerhouse.helpers.internal;
+
+import org.bukkit.Material;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ordinal-indexed material categories, built once from {@link Material#values()} so the same
+ * rules work on every supported version (and on servers that add materials at runtime).
+ * Rules are name globs; {@code classifier.materials.<category>.add/remove} extends them.
+ */
+public final class MaterialClassifier {
+    private MaterialClassifier() {}
+
+    public enum Category {
+        REDSTONE_COMPONENT("*REDSTONE*", "*REPEATER*", "*COMPARATOR*", "*OBSERVER*", "*PISTON*", "*HOPPER*", "*DISPENSER*", "*DROPPER*"),
+        CONTAINER("CHEST", "TRAPPED_CHEST", "BARREL", "*SHULKER_BOX", "HOPPER", "DISPENSER", "DROPPER", "FURNACE", "BLAST_FURNACE", "SMOKER", "BREWING_STAND"),
+        GRAVITY(),
+        EXPLOSIVE_BLOCK("*_BED", "BED", "RESPAWN_ANCHOR"),
+        PROTECTED_ITEM("*HELMET", "*CHESTPLATE", "*LEGGINGS", "*BOOTS", "*SWORD", "*_AXE", "*PICKAXE", "*SHOVEL", "*_HOE", "ELYTRA", "BOW", "CROSSBOW", "TRIDENT", "SHIELD",
+                "*DIAMOND*", "NETHER_STAR", "*EMERALD*", "ENCHANTED_BOOK", "TOTEM_OF_UNDYING", "HEART_OF_THE_SEA", "*NETHERITE*", "BEACON");
+
+        final String[] defaults;
+
+        Category(String... defaults) {
+            this.defaults = defaults;
+        }
+
+        public String configKey() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private static volatile long[][] bits = null;
+
+    public static synchronized void init() {
+        Material[] all = Material.values();
+        long[][] built = new long[Category.values().length][(all.length + 63) >>> 6];
+        for (Category c : Category.values()) {
+            List<String> add = ConfigHelp.getStringList("classifier.materials." + c.configKey() + ".add");
+            List<String> remove = ConfigHelp.getStringList("classifier.materials." + c.configKey() + ".remove");
+            long[] set = built[c.ordinal()];
+            for (Material m : all) {
+                String name = m.name();
+                if (name.startsWith("LEGACY_")) continue;
+                boolean in = matchesAny(name, c.defaults) || matchesAny(name, add);
+                if (c == Category.GRAVITY) {
+                    try { if (m.isBlock() && m.hasGravity()) in = true; } catch (Throwable ignored) {}
+                }
+                if (in && !matchesAny(name, remove)) set[m.ordinal() >>> 6] |= 1L << m.ordinal();
+            }
+        }
+        bits = built;
+    }
+
+    public static boolean is(Category category, Material material) {
+        if (material == null || category == null) return false;
+        long[][] b = bits;
+        if (b == null) {
+            init();
+            b = bits;
+        }
+        int o = material.ordinal();
+        long[] set = b[category.ordinal()];
+        int word = o >>> 6;
+        return word < set.length && (set[word] & (1L << o)) != 0L;
+    }
+
+    public static boolean isRedstoneComponent(Material m) { return is(Category.REDSTONE_COMPONENT, m); }
+    public static boolean isContainer(Material m) { return is(Category.CONTAINER, m); }
+    public static boolean isGravityBlock(Material m) { return is(Category.GRAVITY, m); }
+    public static boolean isExplosiveBlock(Material m) { return is(Category.EXPLOSIVE_BLOCK, m); }
+    public static boolean isProtectedItem(Material m) { return is(Category.PROTECTED_ITEM, m); }
+
+    public static int count(Category category) {
+        long[][] b = bits;
+        if (b == null) {
+            init();
+            b = bits;
+        }
+        int n = 0;
+        for (long w : b[category.ordinal()]) n += Long.bitCount(w);
+        return n;
+    }
+
+    static boolean matchesAny(String name, String[] globs) {
+        if (globs == null) return false;
+        for (String g : globs) if (matches(name, g)) return true;
+        return false;
+    }
+
+    static boolean matchesAny(String name, List<String> globs) {
+        if (globs == null) return false;
+        for (String g : globs) if (matches(name, g)) return true;
+        return false;
+    }
+
+    /** Case-insensitive glob match where {@code *} stands for any run of characters. */
+    static boolean matches(String name, String glob) {
+        if (name == null || glob == null) return false;
+        String g = glob.trim().toUpperCase(Locale.ROOT);
+        if (g.isEmpty()) return false;
+        if (g.indexOf('*') < 0) return name.equals(g);
+        String[] parts = g.split("\\*", -1);
+        int pos = 0;
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            if (part.isEmpty()) continue;
+            if (i == 0) {
+                if (!name.startsWith(part)) return false;
+                pos = part.length();
+            } else if (i == parts.length - 1) {
+                return name.length() - part.length() >= pos && name.endsWith(part);
+            } else {
+                int idx = name.indexOf(part, pos);
+                if (idx < 0) return false;
+                pos = idx + part.length();
+            }
+        }
+        return true;
+    }
+}
@@ -5,7 +5,6 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.ExperienceOrb;
@@ -58,12 +57,24 @@ public class AllOptimizations implements Listener {
     private double currentArrowInterval = 30.0;
     private final java.util.concurrent.ConcurrentLinkedQueue<Runnable> pendingSyncTasks = new java.util.concurrent.ConcurrentLinkedQueue<Runnable>();
     
-    private final java.util.concurrent.ConcurrentHashMap<kaiakk.powerhouse.data.BlockKey, java.util.concurrent.atomic.AtomicInteger> redstoneListenerCounts = new java.util.concurrent.ConcurrentHashMap<>();
+    private final kaiakk.powerhouse.data.RedstoneIngestBuffer redstoneIngest = new kaiakk.powerhouse.data.RedstoneIngestBuffer();
+    private org.bukkit.scheduler.BukkitTask redstoneIngestTask = null;
+    private kaiakk.powerhouse.world.limiters.RedstoneTimeDilation redstoneDilation = null;
+    private kaiakk.powerhouse.world.limiters.SpawnDensityGate spawnGate = null;
+    private kaiakk.powerhouse.world.controllers.SpawnLimitController spawnLimits = null;
+    private kaiakk.powerhouse.world.controllers.GameRuleController gameRules = null;
+    private kaiakk.powerhouse.world.entity.MobStacker mobStacker = null;
+    private kaiakk.powerhouse.world.limiters.SpawnerThrottle spawnerThrottle = null;
+    private kaiakk.powerhouse.world.limiters.RedstoneRefreshPlanner refreshPlanner = null;
+    private final kaiakk.powerhouse.data.OrbIndex orbIndex = new kaiakk.powerhouse.data.OrbIndex();
+    private ChunkScanner chunkScanner = null;
+    private ChunkScanner.Registration arrowSweep = null;
     private static AllOptimizations INSTANCE = null;
     private volatile boolean debugEnabled = false;
     private volatile String debugOwner = null;
     private final java.util.Set<String> debugUsers = java.util.concurrent.ConcurrentHashMap.newKeySet();
     private final java.util.concurrent.atomic.AtomicLong crammingRemovals = new java.util.concurrent.atomic.AtomicLong(0);
+    private final java.util.concurrent.atomic.AtomicLong preventedSpawns = new java.util.concurrent.atomic.AtomicLong(0);
     private final java.util.concurrent.atomic.AtomicLong itemRemovals = new java.util.concurrent.atomic.AtomicLong(0);
     
     public AllOptimizations(JavaPlugin plugin) {
@@ -160,12 +171,21 @@ public class AllOptimizations implements Listener {
         try { crammingRemovals.addAndGet(n); } catch (Throwable ignored) {}
     }
 
+    public void addPreventedSpawns(long n) {
+        if (n <= 0) return;
+        try { preventedSpawns.addAndGet(n); } catch (Throwable ignored) {}
+    }
+
     public void addItemRemovals(long n) {
         if (n <= 0) return;
         try { itemRemovals.addAndGet(n); } catch (Throwable ignored) {}
     }
 
     public long getCrammingRemovals() { try { return crammingRemovals.get(); } catch (Throwable ignored) { return 0L; } }
+    public kaiakk.powerhouse.world.controllers.SpawnLimitController getSpawnLimitController() { return spawnLimits; }
+    public kaiakk.powerhouse.world.entity.MobStacker getMobStacker() { return mobStacker; }
+    public kaiakk.powerhouse.world.limiters.SpawnerThrottle getSpawnerThrottle() { return spawnerThrottle; }
+    public long getPreventedSpawns() { try { return preventedSpawns.get(); } catch (Throwable ignored) { return 0L; } }
     public long getItemRemovals() { try { return itemRemovals.get(); } catch (Throwable ignored) { return 0L; } }
 
     public boolean isLocationCulled(Location loc) {
@@ -178,7 +198,15 @@ public class AllOptimizations implements Listener {
 
     public boolean isEntityAiDisabled(java.util.UUID id) {
         try {
-            if (entityPusher != null && id != null) return entityPusher.isAiDisabled(id);
+            kaiakk.powerhouse.world.entity.AiManagement ai = kaiakk.powerhouse.world.entity.AiManagement.getInstance();
+            if (ai != null && id != null) return ai.isAiDisabled(id);
+        } catch (Throwable ignored) {}
+        return false;
+    }
+
+    public boolean isEntityDecollided(java.util.UUID id) {
+        try {
+            if (entityPusher != null && id != null) return entityPusher.isDecollided(id);
         } catch (Throwable ignored) {}
         return false;
     }
@@ -221,6 +249,14 @@ public class AllOptimizations implements Listener {
     public void start() {
         Bukkit.getPluginManager().registerEvents(this, plugin);
         
+        try { kaiakk.powerhouse.helpers.internal.MaterialClassifier.init(); } catch (Throwable ignored) {}
+        try { kaiakk.powerhouse.helpers.internal.EntityTypeClassifier.init(); } catch (Throwable ignored) {}
+
+        try { kaiakk.powerhouse.data.PlayerProximityIndex.init(plugin); } catch (Throwable ignored) {}
+        chunkScanner = ChunkScanner.init(plugin);
+        try { kaiakk.powerhouse.world.entity.EntitySnapshotPipeline.init(plugin); } catch (Throwable ignored) {}
+        try { kaiakk.powerhouse.world.entity.ChunkEntityIndex.init(plugin); } catch (Throwable ignored) {}
+        
         try { RecentActionTracker.init(plugin); RecentActionTracker.getInstance().startCleanupTask();
             try { kaiakk.powerhouse.world.limiters.BookLimiter.init(plugin); } catch (Throwable ignored) {}
             try { kaiakk.powerhouse.world.physics.ParticleCulling.init(plugin); } catch (Throwable ignored) {}
@@ -233,89 +269,31 @@ public class AllOptimizations implements Listener {
         
         PowerhouseLogger.info("Starting Powerhouse optimization systems...");
         
-        for (World world : Bukkit.getWorlds()) {
-            startItemMergingTask(world);
+        if (chunkScanner != null) {
+            chunkScanner.register("item-merge", ITEM_MERGE_INTERVAL_SECONDS, new ChunkScanner.Visitor() {
+                public void visit(World world, org.bukkit.Chunk chunk, Entity[] entities) {
+                    mergeChunk(chunk, entities);
+                }
+            });
+            PowerhouseLogger.info("Item and XP merging enabled (incremental chunk sweep)");
+        } else {
+            for (World world : Bukkit.getWorlds()) {
+                startItemMergingTask(world);
+            }
         }
         
+        startRedstoneIngestTask();
         startRedstoneCullingTask();
         try {
-            final int nudgeDelay = kaiakk.powerhouse.helpers.internal.ConfigHelp.getInt("redstone-culling.nudge-delay-ticks", 2);
-            Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        final java.util.List<Location> toFix = kaiakk.powerhouse.calculations.Calculations.drainThrottledLocations();
-                        if (toFix == null || toFix.isEmpty()) return;
-                        Bukkit.getScheduler().runTaskLater(plugin, new Runnable() {
-                            @Override
-                            public void run() {
-                                try {
-                                    for (Location loc : toFix) {
-                                        try {
-                                            Block b = loc.getBlock();
-                                            if (b == null) continue;
-                                            try {
-                                                org.bukkit.block.data.BlockData data = b.getBlockData();
-                                                b.setBlockData(data, true);
-                                            } catch (Throwable ex) {
-                                                try { b.getState().update(true, true); } catch (Throwable ignored) {}
-                                            }
-
-                                            try {
-                                                for (BlockFace face : new BlockFace[] { BlockFace.NORTH, BlockFace.SOUTH, BlockFace.EAST, BlockFace.WEST, BlockFace.UP, BlockFace.DOWN }) {
-                                                    try {
-                                                        Block nb = b.getRelative(face);
-                                                        if (nb == null) continue;
-                                                        try { nb.getState().update(true, true); } catch (Throwable ignored) {}
-                                                    } catch (Throwable ignored) {}
-                                                }
-                                            } catch (Throwable ignored) {}
-                                            try {
-                                                for (BlockFace face : new BlockFace[] { BlockFace.NORTH, BlockFace.SOUTH, BlockFace.EAST, BlockFace.WEST }) {
-                                                    try {
-                                                        Block nb = b.getRelative(face);
-                                                        if (nb == null) continue;
-                                                        Block nb2 = nb.getRelative(face);
-                                                        if (nb2 == null) continue;
-                                                        try { nb2.getState().update(true, true); } catch (Throwable ignored) {}
-                                                    } catch (Throwable ignored) {}
-                                                }
-                                            } catch (Throwable ignored) {}
-                                            try {
-                                                try {
-                                                    Block down2 = b.getRelative(BlockFace.DOWN, 2);
-                                                    if (down2 != null) {
-                                                        try { down2.getState().update(true, true); } catch (Throwable ignored) {}
-                                                        for (BlockFace face : new BlockFace[] { BlockFace.NORTH, BlockFace.SOUTH, BlockFace.EAST, BlockFace.WEST }) {
-                                                            try { Block nb2 = down2.getRelative(face); if (nb2 != null) try { nb2.getState().update(true, true); } catch (Throwable ignored) {} } catch (Throwable ignored) {}
-                                                        }
-                                                    }
-                                                } catch (Throwable ignored) {}
-                                            } catch (Throwable ignored) {}
-
-                                            try {
-                                                Object bd = b.getBlockData();
-                                                if (bd != null) {
-                                                    try {
-                                                        java.lang.reflect.Method m = bd.getClass().getMethod("getPower");
-                                                        Object val = m.invoke(bd);
-                                                        if (val instanceof Number && ((Number) val).intValue() > 0) {
-                                                            try { b.getState().update(true, true); } catch (Throwable ignored) {}
-                                                        }
-                                                    } catch (NoSuchMethodException nsme) {
-                                                    } catch (Throwable ignored) {}
-                                                }
-                                            } catch (Throwable ignored) {}
-                                        } catch (Throwable ignored) {}
-                                    }
-                                } catch (Throwable ignored) {}
-                            }
-                        }, Math.max(0, nudgeDelay));
-                    } catch (Throwable ignored) {}
-                }
-            }, 1L, 1L);
+            refreshPlanner = new kaiakk.powerhouse.world.limiters.RedstoneRefreshPlanner(plugin);
+            refreshPlanner.start();
+        } catch (Throwable ignored) {}
+        try {
+            redstoneDilation = new kaiakk.powerhouse.world.limiters.RedstoneTimeDilation(plugin, refreshPlanner);
+            redstoneDilation.start();
         } catch (Throwable ignored) {}
         
+        startExpiryTask();
         startCleanupTask();
 
         metricCollector = new MetricCollector(plugin);
@@ -325,6 +303,44 @@ public class AllOptimizations implements Listener {
             dynamicScaler = new kaiakk.powerhouse.helpers.scaling.DynamicScaler(plugin, metricCollector, 40);
             dynamicScaler.start();
         } catch (Throwable ignored) {}
+        if (redstoneDilation != null) registerScalable(redstoneDilation);
+        if (kaiakk.powerhouse.helpers.internal.ConfigHelp.getBoolean("spawn-gate.enabled", true)) {
+            try {
+                spawnGate = new kaiakk.powerhouse.world.limiters.SpawnDensityGate(plugin);
+                spawnGate.start();
+                registerScalable(spawnGate);
+            } catch (Throwable ignored) {}
+        }
+        if (kaiakk.powerhouse.helpers.internal.ConfigHelp.getBoolean("spawner-throttle.enabled", true)) {
+            try {
+                spawnerThrottle = new kaiakk.powerhouse.world.limiters.SpawnerThrottle(plugin);
+                spawnerThrottle.start();
+                registerScalable(spawnerThrottle);
+            } catch (Throwable ignored) {}
+        }
+        if (kaiakk.powerhouse.helpers.internal.ConfigHelp.getBoolean("spawn-governor.enabled", true)) {
+            try {
+                spawnLimits = new kaiakk.powerhouse.world.controllers.SpawnLimitController(plugin);
+                spawnLimits.start();
+                registerScalable(spawnLimits);
+            } catch (Throwable ignored) {}
+        }
+        if (kaiakk.powerhouse.helpers.internal.ConfigHelp.getBoolean("game-rules.enabled", true)) {
+            try {
+                gameRules = new kaiakk.powerhouse.world.controllers.GameRuleController(plugin);
+                gameRules.start();
+                registerScalable(gameRules);
+            } catch (Throwable ignored) {}
+        } else {
+            try { kaiakk.powerhouse.world.controllers.GameRuleController.restoreStored(plugin); } catch (Throwable ignored) {}
+        }
+        if (kaiakk.powerhouse.helpers.internal.ConfigHelp.getBoolean("mob-stacking.enabled", false)) {
+            try {
+                mobStacker = new kaiakk.powerhouse.world.entity.MobStacker(plugin);
+                mobStacker.start();
+                registerScalable(mobStacker);
+            } catch (Throwable ignored) {}
+        }
         distanceController = new kaiakk.powerhouse.world.controllers.DistanceController();
         distanceCalculator = new kaiakk.powerhouse.calculations.DistanceCalculator(plugin, metricCollector, distanceController);
         distanceCalculator.start();
@@ -440,6 +456,24 @@ public class AllOptimizations implements Listener {
         Calculations.clearAllData();
         lastItemScan.clear();
         lastRedstoneScan.clear();
+        try { if (redstoneIngestTask != null) { redstoneIngestTask.cancel(); redstoneIngestTask = null; } } catch (Throwable ignored) {}
+        try { redstoneIngest.clear(); } catch (Throwable ignored) {}
+        try { if (redstoneDilation != null) { redstoneDilation.stop(); redstoneDilation = null; } } catch (Throwable ignored) {}
+        try { if (spawnGate != null) { spawnGate.stop(); spawnGate = null; } } catch (Throwable ignored) {}
+        try { if (spawnerThrottle != null) { spawnerThrottle.stop(); spawnerThrottle = null; } } catch (Throwable ignored) {}
+        try { if (spawnLimits != null) { spawnLimits.stop(); spawnLimits = null; } } catch (Throwable ignored) {}
+        try { if (gameRules != null) { gameRules.stop(); gameRules = null; } } catch (Throwable ignored) {}
+        try { if (mobStacker != null) { mobStacker.stop(); mobStacker = null; } } catch (Throwable ignored) {}
+        try { if (refreshPlanner != null) { refreshPlanner.stop(); refreshPlanner = null; } } catch (Throwable ignored) {}
+        try { orbIndex.clear(); } catch (Throwable ignored) {}
+        try {
+            if (chunkScanner != null) {
+                chunkScanner.unregister("item-merge");
+                chunkScanner.unregister("arrow-cleanup");
+            }
+        } catch (Throwable ignored) {}
+        chunkScanner = null;
+        arrowSweep = null;
         if (distanceCalculator != null) distanceCalculator.stop();
         if (metricCollector != null) metricCollector.stop();
             if (dynamicScaler != null) {
@@ -492,7 +526,19 @@ public class AllOptimizations implements Listener {
             try { lastItemScan.remove(w); } catch (Throwable ignored) {}
             try { lastRedstoneScan.remove(w); } catch (Throwable ignored) {}
             try { kaiakk.powerhouse.calculations.Calculations.clearWorldData(w.getName()); } catch (Throwable ignored) {}
+            try { orbIndex.clearWorld(w.getName()); } catch (Throwable ignored) {}
+            try { if (spawnerThrottle != null) spawnerThrottle.clearWorld(kaiakk.powerhouse.data.BlockKey.worldIndex(w.getName())); } catch (Throwable ignored) {}
             try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("Powerhouse: cleared caches for unloaded world: " + w.getName()); } catch (Throwable ignored) {}
+            if (!ev.isCancelled()) {
+                // Other MONITOR listeners may still look the index up, and in-flight snapshots
+                // carry it; hand it back a second later, once the world is really gone.
+                final String name = w.getName();
+                SchedulerHelper.runLater(plugin, new Runnable() {
+                    public void run() {
+                        if (org.bukkit.Bukkit.getWorld(name) == null) kaiakk.powerhouse.data.BlockKey.releaseWorld(name);
+                    }
+                }, 20L);
+            }
         } catch (Throwable ignored) {}
     }
     
@@ -505,140 +551,147 @@ private void startItemMergingTask(final World world) {
                     final org.bukkit.Chunk fChunk = chunk;
                     runAtLocation(fChunk.getBlock(0, 64, 0).getLocation(), new Runnable() {
                         public void run() {
-                            List<Item> droppedItems = new ArrayList<Item>();
-                            List<ExperienceOrb> droppedOrbs = new ArrayList<ExperienceOrb>();
+                            mergeChunk(fChunk, null);
+                        }
+                    });
+                }
+            } catch (Throwable ignored) {}
+        }
+    }, ITEM_MERGE_INTERVAL_SECONDS, ITEM_MERGE_INTERVAL_SECONDS);
 
-                            try {
-                                for (Entity ent : fChunk.getEntities()) {
-                                    if (ent instanceof Item) droppedItems.add((Item) ent);
-                                    else if (ent instanceof ExperienceOrb) droppedOrbs.add((ExperienceOrb) ent);
-                                }
-                            } catch (Throwable ignored) {
-                                return;
-                            }
+    PowerhouseLogger.info("Item and XP merging enabled for world: " + world.getName());
+}
 
-                            if (droppedItems.isEmpty() && droppedOrbs.isEmpty()) return;
+    private void mergeChunk(final org.bukkit.Chunk fChunk, Entity[] entities) {
+        kaiakk.powerhouse.world.entity.ChunkEntityIndex index = kaiakk.powerhouse.world.entity.ChunkEntityIndex.getInstance();
+        if (index != null) {
+            org.bukkit.World w = fChunk.getWorld();
+            int cx = fChunk.getX(), cz = fChunk.getZ();
+            if (index.chunkCount(w, cx, cz, kaiakk.powerhouse.world.entity.ChunkEntityIndex.ITEM_TYPE) < 2
+                    && index.chunkCount(w, cx, cz, org.bukkit.entity.EntityType.EXPERIENCE_ORB) < 2) return;
+        }
 
-                            final List<kaiakk.powerhouse.data.snapshot.ItemSnapshot> itemSnaps = new ArrayList<>();
-                            final Map<Integer, Item> indexToItem = new HashMap<>();
-                            final List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot> orbSnaps = new ArrayList<>();
+        List<Item> droppedItems = new ArrayList<Item>();
+        List<ExperienceOrb> droppedOrbs = new ArrayList<ExperienceOrb>();
 
-                            List<Player> worldPlayers = fChunk.getWorld().getPlayers();
+        try {
+            if (entities == null) entities = fChunk.getEntities();
+            for (Entity ent : entities) {
+                if (ent instanceof Item) droppedItems.add((Item) ent);
+                else if (ent instanceof ExperienceOrb) droppedOrbs.add((ExperienceOrb) ent);
+            }
+        } catch (Throwable ignored) {
+            return;
+        }
 
-                            for (int i = 0; i < droppedItems.size(); i++) {
-                                Item it = droppedItems.get(i);
-                                if (it == null || !it.isValid()) continue;
-                                ItemStack stack = null;
-                                try { stack = it.getItemStack(); } catch (Throwable ignored) {}
-                                if (stack == null || stack.getType() == org.bukkit.Material.AIR) continue;
+        try { orbIndex.reindexChunk(fChunk.getWorld(), fChunk.getX(), fChunk.getZ(), droppedOrbs); } catch (Throwable ignored) {}
 
-                                Location loc = it.getLocation();
-                                boolean hasMeta = false;
-                                try {
-                                    if (stack.hasItemMeta()) {
-                                        ItemMeta meta = stack.getItemMeta();
-                                        hasMeta = meta.hasDisplayName() || meta.hasLore() || meta.hasEnchants();
-                                    }
-                                } catch (Throwable ignored) {}
+        if (droppedItems.isEmpty() && droppedOrbs.isEmpty()) return;
 
-                                boolean playerNearby = false;
-                                try {
-                                    for (Player p : worldPlayers) {
-                                        if (p != null && p.getLocation().distanceSquared(loc) <= 2.25) { playerNearby = true; break; }
-                                    }
-                                } catch (Throwable ignored) {}
+        final List<kaiakk.powerhouse.data.snapshot.ItemSnapshot> itemSnaps = new ArrayList<>(droppedItems.size());
+        final List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot> orbSnaps = new ArrayList<>(droppedOrbs.size());
 
-                                kaiakk.powerhouse.data.snapshot.ItemSnapshot s = new kaiakk.powerhouse.data.snapshot.ItemSnapshot(i, loc.getX(), loc.getY(), loc.getZ(),
-                                        stack.getType(), stack.getAmount(), stack.getDurability(), stack.getMaxStackSize(), hasMeta, playerNearby);
-                                itemSnaps.add(s);
-                                indexToItem.put(i, it);
-                            }
+        kaiakk.powerhouse.data.PlayerProximityIndex.WorldSnapshot players = kaiakk.powerhouse.data.PlayerProximityIndex.snapshot(fChunk.getWorld());
+
+        for (int i = 0; i < droppedItems.size(); i++) {
+            Item it = droppedItems.get(i);
+            if (it == null || !it.isValid()) continue;
+            ItemStack stack = null;
+            try { stack = it.getItemStack(); } catch (Throwable ignored) {}
+            if (stack == null || stack.getType() == org.bukkit.Material.AIR) continue;
+
+            Location loc = it.getLocation();
+            boolean hasMeta = false;
+            try {
+                if (stack.hasItemMeta()) {
+                    ItemMeta meta = stack.getItemMeta();
+                    hasMeta = meta.hasDisplayName() || meta.hasLore() || meta.hasEnchants();
+                }
+            } catch (Throwable ignored) {}
+
+            boolean playerNearby = players.anyWithin(loc.getX(), loc.getY(), loc.getZ(), 1.5);
 
-                            for (int i = 0; i < droppedOrbs.size(); i++) {
-                                ExperienceOrb o = droppedOrbs.get(i);
-                                if (o == null || o.isDead()) continue;
-                                Location loc = o.getLocation();
-                                orbSnaps.add(new kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot(i, loc.getX(), loc.getY(), loc.getZ(), o.getExperience()));
+            kaiakk.powerhouse.data.snapshot.ItemSnapshot s = new kaiakk.powerhouse.data.snapshot.ItemSnapshot(i, loc.getX(), loc.getY(), loc.getZ(),
+                    stack.getType(), stack.getAmount(), stack.getDurability(), stack.getMaxStackSize(), hasMeta, playerNearby);
+            itemSnaps.add(s);
+        }
+
+        for (int i = 0; i < droppedOrbs.size(); i++) {
+            ExperienceOrb o = droppedOrbs.get(i);
+            if (o == null || o.isDead()) continue;
+            Location loc = o.getLocation();
+            orbSnaps.add(new kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot(i, loc.getX(), loc.getY(), loc.getZ(), o.getExperience()));
+        }
+
+        // Snapshots index straight into droppedItems/droppedOrbs, which nothing touches after this point,
+        // so the async side reads them as they are instead of from copies.
+        SchedulerHelper.runAsync(plugin, new Runnable() {
+            public void run() {
+                try {
+                    final Map<kaiakk.powerhouse.data.snapshot.ItemSnapshot, List<kaiakk.powerhouse.data.snapshot.ItemSnapshot>> snapResult = kaiakk.powerhouse.calculations.Calculations.scanItemMergeCandidatesSnapshots(itemSnaps);
+
+                    final Map<Item, List<Item>> mapped = new HashMap<>();
+                    if (snapResult != null && !snapResult.isEmpty()) {
+                        for (Map.Entry<kaiakk.powerhouse.data.snapshot.ItemSnapshot, List<kaiakk.powerhouse.data.snapshot.ItemSnapshot>> ent : snapResult.entrySet()) {
+                            Item key = droppedItems.get(ent.getKey().originalIndex);
+                            if (key == null) continue;
+                            List<Item> merged = new ArrayList<>();
+                            for (kaiakk.powerhouse.data.snapshot.ItemSnapshot s : ent.getValue()) {
+                                Item o = droppedItems.get(s.originalIndex);
+                                if (o != null) merged.add(o);
                             }
+                            if (!merged.isEmpty()) mapped.put(key, merged);
+                        }
+                    }
 
-                            final List<kaiakk.powerhouse.data.snapshot.ItemSnapshot> finalItemSnaps = new ArrayList<>(itemSnaps);
-                            final Map<Integer, Item> finalIndexToItem = new HashMap<>(indexToItem);
-                            final List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot> finalOrbSnaps = new ArrayList<>(orbSnaps);
+                    final Map<Item, List<Item>> finalMapped = mapped;
 
-                            SchedulerHelper.runAsync(plugin, new Runnable() {
-                                public void run() {
-                                    try {
-                                        final Map<kaiakk.powerhouse.data.snapshot.ItemSnapshot, List<kaiakk.powerhouse.data.snapshot.ItemSnapshot>> snapResult = kaiakk.powerhouse.calculations.Calculations.scanItemMergeCandidatesSnapshots(finalItemSnaps);
-
-                                        final Map<Item, List<Item>> mapped = new HashMap<>();
-                                        if (snapResult != null && !snapResult.isEmpty()) {
-                                            for (Map.Entry<kaiakk.powerhouse.data.snapshot.ItemSnapshot, List<kaiakk.powerhouse.data.snapshot.ItemSnapshot>> ent : snapResult.entrySet()) {
-                                                Item key = finalIndexToItem.get(ent.getKey().originalIndex);
-                                                if (key == null) continue;
-                                                List<Item> merged = new ArrayList<>();
-                                                for (kaiakk.powerhouse.data.snapshot.ItemSnapshot s : ent.getValue()) {
-                                                    Item o = finalIndexToItem.get(s.originalIndex);
-                                                    if (o != null) merged.add(o);
-                                                }
-                                                if (!merged.isEmpty()) mapped.put(key, merged);
-                                            }
+                    final Map<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot, List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot>> xpGroups = kaiakk.powerhouse.calculations.Calculations.scanXpMergeCandidatesSnapshots(orbSnaps);
+
+                    SchedulerHelper.run(plugin, new Runnable() {
+                        public void run() {
+                            try {
+                                if (!finalMapped.isEmpty()) performItemMerges(finalMapped);
+                            } catch (Throwable ignored) {}
+
+                            if (xpGroups != null && !xpGroups.isEmpty()) {
+                                Map<ExperienceOrb, Integer> xpToMerge = new HashMap<ExperienceOrb, Integer>();
+                                Set<ExperienceOrb> toRemove = new HashSet<ExperienceOrb>();
+                                for (Map.Entry<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot, List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot>> e : xpGroups.entrySet()) {
+                                    ExperienceOrb tgt = droppedOrbs.size() > e.getKey().originalIndex ? droppedOrbs.get(e.getKey().originalIndex) : null;
+                                    if (tgt == null || !tgt.isValid()) continue;
+                                    int total = tgt.getExperience();
+                                    for (kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot s : e.getValue()) {
+                                        ExperienceOrb src = droppedOrbs.size() > s.originalIndex ? droppedOrbs.get(s.originalIndex) : null;
+                                        if (src != null && src.isValid()) {
+                                            total += src.getExperience();
+                                            toRemove.add(src);
                                         }
+                                    }
+                                    xpToMerge.put(tgt, total);
+                                }
 
-                                        final Map<Item, List<Item>> finalMapped = mapped;
-
-                                        final Map<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot, List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot>> xpGroups = kaiakk.powerhouse.calculations.Calculations.scanXpMergeCandidatesSnapshots(finalOrbSnaps);
-
-                                        SchedulerHelper.run(plugin, new Runnable() {
-                                            public void run() {
-                                                try {
-                                                    if (!finalMapped.isEmpty()) performItemMerges(finalMapped);
-                                                } catch (Throwable ignored) {}
-
-                                                if (xpGroups != null && !xpGroups.isEmpty()) {
-                                                    Map<ExperienceOrb, Integer> xpToMerge = new HashMap<ExperienceOrb, Integer>();
-                                                    Set<ExperienceOrb> toRemove = new HashSet<ExperienceOrb>();
-                                                    for (Map.Entry<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot, List<kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot>> e : xpGroups.entrySet()) {
-                                                        ExperienceOrb tgt = droppedOrbs.size() > e.getKey().originalIndex ? droppedOrbs.get(e.getKey().originalIndex) : null;
-                                                        if (tgt == null || !tgt.isValid()) continue;
-                                                        int total = tgt.getExperience();
-                                                        for (kaiakk.powerhouse.data.snapshot.ExperienceOrbSnapshot s : e.getValue()) {
-                                                            ExperienceOrb src = droppedOrbs.size() > s.originalIndex ? droppedOrbs.get(s.originalIndex) : null;
-                                                            if (src != null && src.isValid()) {
-                                                                total += src.getExperience();
-                                                                toRemove.add(src);
-                                                            }
-                                                        }
-                                                        xpToMerge.put(tgt, total);
-                                                    }
-
-                                                    if (!xpToMerge.isEmpty()) {
-                                                        for (Map.Entry<ExperienceOrb, Integer> e : xpToMerge.entrySet()) {
-                                                            ExperienceOrb tgt = e.getKey();
-                                                            if (tgt != null && tgt.isValid()) {
-                                                                try { tgt.setExperience(e.getValue()); } catch (Throwable ignored) {}
-                                                            }
-                                                        }
-                                                        for (ExperienceOrb src : toRemove) {
-                                                            if (src != null && src.isValid()) {
-                                                                try { markEntityDead(src); } catch (Throwable ignored) {}
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        });
-                                    } catch (Throwable ignored) {}
+                                if (!xpToMerge.isEmpty()) {
+                                    for (Map.Entry<ExperienceOrb, Integer> e : xpToMerge.entrySet()) {
+                                        ExperienceOrb tgt = e.getKey();
+                                        if (tgt != null && tgt.isValid()) {
+                                            try { tgt.setExperience(e.getValue()); } catch (Throwable ignored) {}
+                                        }
+                                    }
+                                    for (ExperienceOrb src : toRemove) {
+                                        if (src != null && src.isValid()) {
+                                            try { orbIndex.remove(src); } catch (Throwable ignored) {}
+                                            try { markEntityDead(src); } catch (Throwable ignored) {}
+                                        }
+                                    }
                                 }
-                            });
+                            }
                         }
                     });
-                }
-            } catch (Throwable ignored) {}
-        }
-    }, ITEM_MERGE_INTERVAL_SECONDS, ITEM_MERGE_INTERVAL_SECONDS);
-
-    PowerhouseLogger.info("Item and XP merging enabled for world: " + world.getName());
-}
+                } catch (Throwable ignored) {}
+            }
+        });
+    }
 
     private void runAtLocation(Location loc, Runnable task) {
         if (loc == null || task == null) return;
@@ -778,23 +831,17 @@ private void startItemMergingTask(final World world) {
         if (isRedstoneBlock(type)) {
             
             if (Calculations.isBlockCulled(block)) {
-                try { Calculations.markThrottled(block.getLocation()); } catch (Throwable ignored) {}
+                try {
+                    if (redstoneDilation != null && redstoneDilation.admit(block)) return;
+                } catch (Throwable ignored) {}
                 event.setCancelled(true);
                 return;
             }
 
             
             try {
-                kaiakk.powerhouse.data.BlockKey bk = new kaiakk.powerhouse.data.BlockKey(block.getX(), block.getY(), block.getZ(), block.getWorld().getName());
-                redstoneListenerCounts.computeIfAbsent(bk, k -> new java.util.concurrent.atomic.AtomicInteger(0)).incrementAndGet();
+                redstoneIngest.record(kaiakk.powerhouse.data.BlockKey.pack(block.getWorld().getName(), block.getX(), block.getY(), block.getZ()));
             } catch (Throwable ignored) {}
-
-            final Location fLoc = block.getLocation();
-            SchedulerHelper.runAsync(plugin, new Runnable() {
-                public void run() {
-                    Calculations.recordBlockUpdate(fLoc);
-                }
-            });
         }
     }
 
@@ -806,23 +853,9 @@ private void startItemMergingTask(final World world) {
             if (!isRedstoneBlock(block.getType())) return;
 
             
-            if (Calculations.isBlockCulled(block)) {
-                try { Calculations.markThrottled(block.getLocation()); } catch (Throwable ignored) {}
-                return;
-            }
-
-            try {
-                kaiakk.powerhouse.data.BlockKey bk = new kaiakk.powerhouse.data.BlockKey(block.getX(), block.getY(), block.getZ(), block.getWorld().getName());
-                redstoneListenerCounts.computeIfAbsent(bk, k -> new java.util.concurrent.atomic.AtomicInteger(0)).incrementAndGet();
-            } catch (Throwable ignored) {}
+            if (Calculations.isBlockCulled(block)) return;
 
-            
-            final org.bukkit.Location loc = block.getLocation();
-            SchedulerHelper.runAsync(plugin, new Runnable() {
-                public void run() {
-                    Calculations.recordBlockUpdate(loc);
-                }
-            });
+            redstoneIngest.record(kaiakk.powerhouse.data.BlockKey.pack(block.getWorld().getName(), block.getX(), block.getY(), block.getZ()));
         } catch (Throwable ignored) {}
     }
 
@@ -833,39 +866,48 @@ private void startItemMergingTask(final World world) {
             if (!(spawned instanceof ExperienceOrb)) return;
             ExperienceOrb orb = (ExperienceOrb) spawned;
             org.bukkit.Location loc = orb.getLocation();
-            org.bukkit.World w = loc.getWorld();
-            java.util.Collection<org.bukkit.entity.Entity> nearby = null;
-            try {
-                nearby = w.getNearbyEntities(loc, 2.0, 2.0, 2.0);
-            } catch (Throwable ex) {
-                nearby = new java.util.ArrayList<org.bukkit.entity.Entity>(w.getEntities());
-            }
-
-            for (org.bukkit.entity.Entity e : nearby) {
-                if (e instanceof ExperienceOrb && e != orb) {
-                    ExperienceOrb existing = (ExperienceOrb) e;
-                    try {
-                        existing.setExperience(existing.getExperience() + orb.getExperience());
-                        event.setCancelled(true);
-                        return;
-                    } catch (Throwable ignored) {}
-                }
+            ExperienceOrb existing = orbIndex.nearest(loc.getWorld(), loc.getX(), loc.getY(), loc.getZ(), kaiakk.powerhouse.data.OrbIndex.CELL_SIZE, orb);
+            if (existing != null) {
+                try {
+                    existing.setExperience(existing.getExperience() + orb.getExperience());
+                    event.setCancelled(true);
+                    return;
+                } catch (Throwable ignored) {}
             }
+            orbIndex.add(orb);
         } catch (Throwable ignored) {}
     }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(org.bukkit.event.world.ChunkUnloadEvent event) {
+        try { orbIndex.dropChunk(event.getWorld(), event.getChunk().getX(), event.getChunk().getZ()); } catch (Throwable ignored) {}
+    }
     
     private boolean isRedstoneBlock(Material type) {
-        String name = type.name();
-        return name.contains("REDSTONE") || 
-               name.contains("REPEATER") || 
-               name.contains("COMPARATOR") ||
-               name.contains("OBSERVER") ||
-               name.contains("PISTON") ||
-               name.contains("HOPPER") ||
-               name.contains("DISPENSER") ||
-               name.contains("DROPPER");
+        return kaiakk.powerhouse.helpers.internal.MaterialClassifier.isRedstoneComponent(type);
     }
     
+    private void startRedstoneIngestTask() {
+        if (redstoneIngestTask != null) return;
+        try {
+            final long[] tickNow = new long[1];
+            final kaiakk.powerhouse.data.RedstoneIngestBuffer.Sink sink = new kaiakk.powerhouse.data.RedstoneIngestBuffer.Sink() {
+                public void accept(long packedKey, int count) {
+                    Calculations.applyPackedBlockUpdates(packedKey, count, tickNow[0]);
+                }
+            };
+            redstoneIngestTask = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+                public void run() {
+                    tickNow[0] = System.currentTimeMillis();
+                    try { redstoneIngest.drain(sink); } catch (Throwable ignored) {}
+                }
+            }, 1L, 1L);
+        } catch (Throwable ignored) {}
+    }
+
+    public int getRedstoneEventsLastTick() { return redstoneIngest.getLastTickEvents(); }
+    public double getRedstoneEventsPerTick() { return redstoneIngest.getAverageEventsPerTick(); }
+
     private void startRedstoneCullingTask() {
     final AllOptimizations self = this;
     SchedulerHelper.runTimerSeconds(plugin, new Runnable() {
@@ -888,45 +930,30 @@ private void startItemMergingTask(final World world) {
                         }
                     } catch (Throwable ignored) {}
 
-                    
-                    try {
-                        java.util.Map<kaiakk.powerhouse.data.BlockKey, Integer> drained = new java.util.HashMap<>();
-                        for (java.util.Map.Entry<kaiakk.powerhouse.data.BlockKey, java.util.concurrent.atomic.AtomicInteger> e : redstoneListenerCounts.entrySet()) {
-                            try {
-                                int got = e.getValue().getAndSet(0);
-                                if (got > 0) drained.put(e.getKey(), got);
-                            } catch (Throwable ignored) {}
-                        }
-                        if (!drained.isEmpty()) {
-                            try { kaiakk.powerhouse.calculations.Calculations.applyListenerCounts(drained); } catch (Throwable ignored) {}
-                        }
-                    } catch (Throwable ignored) {}
 
-                    final java.util.Map<Location, Integer> toCullWithCounts = Calculations.scanRedstoneCullingCandidatesWithCounts(dynamicThreshold);
+                    final long baseCullTtlMs = Math.max(1, kaiakk.powerhouse.helpers.internal.ConfigHelp.getInt("redstone-culling.cull-ttl-seconds", 10)) * 1000L;
+                    final List<kaiakk.powerhouse.data.RedstoneCluster> clusters = Calculations.scanRedstoneClusters(dynamicThreshold);
                     
-                    if (!toCullWithCounts.isEmpty()) {
+                    if (!clusters.isEmpty()) {
                         SchedulerHelper.run(plugin, new Runnable() {
                             public void run() {
-                                for (java.util.Map.Entry<Location, Integer> entry : toCullWithCounts.entrySet()) {
-                                    Location loc = entry.getKey();
-                                    int count = entry.getValue();
+                                for (kaiakk.powerhouse.data.RedstoneCluster cluster : clusters) {
+                                    World world = Bukkit.getWorld(cluster.worldName);
+                                    if (world == null) continue;
                                     
                                     boolean playerNearby = false;
                                     if (ScaleUtils.continuousScaleFromMspt(finalMspt) > 0.05) {
-                                        for (Player p : loc.getWorld().getPlayers()) {
-                                            if (p.getLocation().distanceSquared(loc) <= 256) {
-                                                playerNearby = true;
-                                                break;
-                                            }
-                                        }
+                                        playerNearby = kaiakk.powerhouse.data.PlayerProximityIndex.snapshot(world).anyWithinBox(
+                                                cluster.minX, cluster.minY, cluster.minZ, cluster.maxX, cluster.maxY, cluster.maxZ, 16.0);
                                     }
 
                                     if (playerNearby) continue;
 
-                                    Calculations.markLocationCulled(loc);
-                                    String locStr = formatLocation(loc);
+                                    // Clusters far over the threshold stay culled longer, up to three times the base TTL.
+                                    double overload = Math.max(1.0, Math.min(3.0, cluster.peakUpdates / (double) Math.max(1, dynamicThreshold)));
+                                    Calculations.markClusterCulled(cluster, (long) (baseCullTtlMs * overload));
                                     
-                                    PowerhouseLogger.warn("Culled redstone at: " + locStr + " (" + count + " updates/sec @ " + String.format("%.1f", finalMspt) + "mspt)");
+                                    PowerhouseLogger.warn("Culled redstone cluster #" + cluster.id + " at " + cluster.describeBounds() + " (" + cluster.size() + " blocks, " + cluster.totalUpdates + " updates/sec @ " + String.format("%.1f", finalMspt) + "mspt)");
                                 }
                             }
                         });
@@ -939,71 +966,48 @@ private void startItemMergingTask(final World world) {
     kaiakk.powerhouse.helpers.logs.DebugLog.debug("Adaptive redstone culling active!");
 }
     
-    private void startCleanupTask() {
-        final AllOptimizations self = this;
+    private void startExpiryTask() {
         SchedulerHelper.runTimerSeconds(plugin, new Runnable() {
             public void run() {
                 SchedulerHelper.runAsync(plugin, new Runnable() {
                     public void run() {
-                        final List<Location> expired = Calculations.getExpiredCulledLocations();
-                        
-                        if (!expired.isEmpty()) {
+                        try { Calculations.getExpiredParticleCulledLocations(); } catch (Throwable ignored) {}
+                        final List<kaiakk.powerhouse.data.RedstoneCluster> expiredClusters = Calculations.getExpiredCulledClusters();
+                        if (!expiredClusters.isEmpty()) {
                             SchedulerHelper.run(plugin, new Runnable() {
                                 public void run() {
-                                    for (Location loc : expired) {
-                                        
+                                    for (final kaiakk.powerhouse.data.RedstoneCluster cluster : expiredClusters) {
+                                        refreshClusterArea(cluster);
                                         try {
-                                            for (int dx = -2; dx <= 2; dx++) {
-                                                for (int dy = -1; dy <= 1; dy++) {
-                                                    for (int dz = -2; dz <= 2; dz++) {
-                                                        try {
-                                                            final Location nloc = loc.clone().add(dx, dy, dz);
-                                                            Calculations.uncullLocation(nloc);
-                                                            try {
-                                                                org.bukkit.block.Block nb = nloc.getBlock();
-                                                                if (nb != null) try { nb.getState().update(true, true); } catch (Throwable ignored) {}
-                                                            } catch (Throwable ignored) {}
-                                                        } catch (Throwable ignored) {}
-                                                    }
+                                            SchedulerHelper.runLater(plugin, new Runnable() {
+                                                public void run() {
+                                                    refreshClusterArea(cluster);
                                                 }
-                                            }
-
-                                            
-                                            try {
-                                                final Location base = loc;
-                                                SchedulerHelper.runLater(plugin, new Runnable() {
-                                                    public void run() {
-                                                        try {
-                                                            for (int dx = -2; dx <= 2; dx++) {
-                                                                for (int dy = -1; dy <= 1; dy++) {
-                                                                    for (int dz = -2; dz <= 2; dz++) {
-                                                                        try {
-                                                                            Location nloc2 = base.clone().add(dx, dy, dz);
-                                                                            try {
-                                                                                org.bukkit.block.Block b2 = nloc2.getBlock();
-                                                                                if (b2 != null) try { b2.getState().update(true, true); } catch (Throwable ignored) {}
-                                                                            } catch (Throwable ignored) {}
-                                                                        } catch (Throwable ignored) {}
-                                                                    }
-                                                                }
-                                                            }
-                                                        } catch (Throwable ignored) {}
-                                                    }
-                                                }, 2L);
-                                            } catch (Throwable ignored) {}
+                                            }, 2L);
                                         } catch (Throwable ignored) {}
-                                        String locStr = formatLocation(loc);
-                                        kaiakk.powerhouse.helpers.logs.DebugLog.debug("Restored redstone at: " + locStr);
-
+                                        kaiakk.powerhouse.helpers.logs.DebugLog.debug("Restored redstone cluster #" + cluster.id + " at " + cluster.describeBounds() + " (" + cluster.size() + " blocks)");
                                     }
                                 }
                             });
                         }
-                        
+
+                        try { Calculations.expireUncullExemptions(); } catch (Throwable ignored) {}
+                    }
+                });
+            }
+        }, (double) REDSTONE_CHECK_INTERVAL_SECONDS, (double) REDSTONE_CHECK_INTERVAL_SECONDS);
+    }
+
+    private void startCleanupTask() {
+        final AllOptimizations self = this;
+        SchedulerHelper.runTimerSeconds(plugin, new Runnable() {
+            public void run() {
+                SchedulerHelper.runAsync(plugin, new Runnable() {
+                    public void run() {
                         final Map<String, Object> stats = Calculations.getStatistics();
                             if ((int) stats.get("culled_locations") > 0) {
                             PowerhouseLogger.info("Powerhouse Stats - Monitored: " + stats.get("monitored_locations") + 
-                                          ", Culled: " + stats.get("culled_locations"));
+                                          ", Culled: " + stats.get("culled_locations") + " in " + stats.get("culled_clusters") + " clusters");
 
                         }
                     }
@@ -1014,6 +1018,28 @@ private void startItemMergingTask(final World world) {
         PowerhouseLogger.info("Cleanup task enabled");
     }
 
+    private void refreshClusterArea(kaiakk.powerhouse.data.RedstoneCluster cluster) {
+        try {
+            if (refreshPlanner != null) {
+                refreshPlanner.planBox(cluster.worldName, cluster.minX - 1, cluster.minY - 1, cluster.minZ - 1,
+                        cluster.maxX + 1, cluster.maxY + 1, cluster.maxZ + 1, kaiakk.powerhouse.world.limiters.RedstoneRefreshPlanner.REDSTONE_ONLY);
+                return;
+            }
+            World w = Bukkit.getWorld(cluster.worldName);
+            if (w == null) return;
+            for (int x = cluster.minX - 1; x <= cluster.maxX + 1; x++) {
+                for (int y = cluster.minY - 1; y <= cluster.maxY + 1; y++) {
+                    for (int z = cluster.minZ - 1; z <= cluster.maxZ + 1; z++) {
+                        try {
+                            Block b = w.getBlockAt(x, y, z);
+                            if (b != null && isRedstoneBlock(b.getType())) b.getState().update(true, true);
+                        } catch (Throwable ignored) {}
+                    }
+                }
+            }
+        } catch (Throwable ignored) {}
+    }
+
     private void startArrowCleanupTask(double intervalSeconds) {
         double prevInterval = currentArrowInterval;
         boolean wasRunning = arrowTask != null;
@@ -1023,6 +1049,18 @@ private void startItemMergingTask(final World world) {
         }
         final double useInterval = Math.max(1.0, intervalSeconds);
         currentArrowInterval = useInterval;
+        if (chunkScanner != null) {
+            if (arrowSweep == null) {
+                arrowSweep = chunkScanner.register("arrow-cleanup", useInterval, new ChunkScanner.Visitor() {
+                    public void visit(World world, org.bukkit.Chunk chunk, Entity[] entities) {
+                        cleanupArrows(entities);
+                    }
+                });
+            } else {
+                arrowSweep.setPeriodSeconds(useInterval);
+            }
+            return;
+        }
         arrowTask = SchedulerHelper.runTimerSeconds(plugin, new Runnable() {
             public void run() {
                 String tname = Thread.currentThread().getName();
@@ -1033,16 +1071,7 @@ private void startItemMergingTask(final World world) {
 
                 for (World w : Bukkit.getWorlds()) {
                     try {
-                        for (Entity e : new ArrayList<Entity>(w.getEntities())) {
-                            if (e == null) continue;
-                            try { if (!e.isValid()) continue; } catch (Throwable ignored) { continue; }
-                            if (!(e instanceof Arrow)) continue;
-                            Arrow a = (Arrow) e;
-                                double v2 = a.getVelocity().lengthSquared();
-                                if (v2 < 0.0001) {
-                                    try { if (a.isValid() && !a.isDead()) { AllOptimizations.getInstance().markEntityDead(a); } } catch (Throwable ignored) {}
-                                }
-                        }
+                        for (org.bukkit.Chunk c : w.getLoadedChunks()) cleanupArrows(c.getEntities());
                     } catch (Throwable ignored) {
                     }
                 }
@@ -1053,20 +1082,24 @@ private void startItemMergingTask(final World world) {
         
     }
 
+    private void cleanupArrows(Entity[] entities) {
+        if (entities == null) return;
+        for (Entity e : entities) {
+            if (!(e instanceof Arrow)) continue;
+            try {
+                Arrow a = (Arrow) e;
+                if (!a.isValid() || a.isDead()) continue;
+                if (a.getVelocity().lengthSquared() < 0.0001) markEntityDead(a);
+            } catch (Throwable ignored) {}
+        }
+    }
+
     private void setArrowInterval(double seconds) {
         if (Math.abs(currentArrowInterval - seconds) < 1.0) return;
         startArrowCleanupTask(seconds);
     }
     
     
-    private String formatLocation(Location loc) {
-        return String.format("%s(%d, %d, %d)", 
-            loc.getWorld().getName(),
-            loc.getBlockX(), 
-            loc.getBlockY(), 
-            loc.getBlockZ());
-    }
-
     private void attemptPruneTileEntities() {
         SchedulerHelper.runLater(plugin, new Runnable() {
             public void run() {
@@ -1115,7 +1148,108 @@ private void startItemMergingTask(final World world) {
         try {
             Map<String, Object> stats = new HashMap<>(Calculations.getStatistics());
             stats.put("cramming_removals", getCrammingRemovals());
+            stats.put("prevented_spawns", getPreventedSpawns());
+            if (entityPusher != null) {
+                stats.put("cramming_mode", entityPusher.isCollisionMode() ? "collision" : "remove");
+                stats.put("cramming_collision_clusters", entityPusher.getCollisionClusters());
+                stats.put("cramming_decollided", entityPusher.getDecollidedCount());
+                stats.put("cramming_removal_clusters", entityPusher.getRemovalClusters());
+            }
+            if (spawnLimits != null) {
+                stats.put("spawn_limit_multiplier", Math.round(spawnLimits.getLimitMultiplier() * 100.0) / 100.0);
+                stats.put("spawn_ticks_multiplier", Math.round(spawnLimits.getTicksMultiplier() * 100.0) / 100.0);
+                stats.put("spawn_limit_changes", spawnLimits.getChanges());
+            }
+            if (gameRules != null) {
+                stats.put("game_rule_random_tick_multiplier", Math.round(gameRules.getRandomTickMultiplier() * 100.0) / 100.0);
+                stats.put("game_rule_cramming_multiplier", Math.round(gameRules.getCrammingMultiplier() * 100.0) / 100.0);
+                stats.put("game_rule_spawners_off", gameRules.isSpawnersOff());
+                stats.put("game_rule_changes", gameRules.getChanges());
+            }
+            if (spawnerThrottle != null) {
+                stats.put("spawner_tracked", spawnerThrottle.getTrackedSpawners());
+                stats.put("spawner_farm_clusters", spawnerThrottle.getFarmClusters());
+                stats.put("spawner_admitted_total", spawnerThrottle.getAdmitted());
+                stats.put("spawner_throttled_total", spawnerThrottle.getThrottled());
+                stats.put("spawner_delayed_total", spawnerThrottle.getDelayed());
+                stats.put("spawner_rate_multiplier", Math.round(spawnerThrottle.getScaleMultiplier() * 100.0) / 100.0);
+            }
+            if (mobStacker != null) {
+                stats.put("mob_stack_saved", mobStacker.getSavedTotal());
+                stats.put("mob_stack_saved_by_world", mobStacker.getSavedByWorld());
+                stats.put("mob_stack_carriers", mobStacker.getCarrierCount());
+                stats.put("mob_stack_merged_total", mobStacker.getMerged());
+                stats.put("mob_stack_unstacked_total", mobStacker.getUnstacked());
+                stats.put("mob_stack_active", mobStacker.isStacking());
+            }
+            if (spawnGate != null) {
+                for (kaiakk.powerhouse.world.limiters.SpawnDensityGate.Category c : kaiakk.powerhouse.world.limiters.SpawnDensityGate.Category.values()) {
+                    stats.put("prevented_spawns_" + c.configKey(), spawnGate.getPrevented(c));
+                    stats.put("spawn_cap_" + c.configKey(), spawnGate.getCap(c));
+                }
+            }
             stats.put("item_removals", getItemRemovals());
+            stats.put("redstone_events_last_tick", redstoneIngest.getLastTickEvents());
+            stats.put("redstone_blocks_last_tick", redstoneIngest.getLastTickBlocks());
+            stats.put("redstone_events_per_tick", Math.round(redstoneIngest.getAverageEventsPerTick() * 10.0) / 10.0);
+            stats.put("redstone_events_total", redstoneIngest.getTotalIngested());
+            if (redstoneDilation != null) {
+                stats.put("redstone_dilated_chunks", redstoneDilation.getDilatedChunks());
+                stats.put("redstone_deferred_queued", redstoneDilation.getQueuedCount());
+                stats.put("redstone_deferred_total", redstoneDilation.getDeferred());
+                stats.put("redstone_replayed_total", redstoneDilation.getReplayed());
+                stats.put("redstone_chunk_budget", Math.round(redstoneDilation.getBudgetPerTick() * 10.0) / 10.0);
+            }
+            stats.put("orb_index_size", orbIndex.size());
+            if (chunkScanner != null) {
+                stats.put("chunk_scan_ms_per_tick", Math.round(chunkScanner.getAverageTickMillis() * 1000.0) / 1000.0);
+                stats.put("chunk_scan_max_ms", Math.round(chunkScanner.getMaxTickMillis() * 1000.0) / 1000.0);
+                stats.put("chunk_scan_chunks_total", chunkScanner.getChunksVisited());
+                stats.put("chunk_scan_passes_total", chunkScanner.getPassesCompleted());
+            }
+            kaiakk.powerhouse.world.entity.EntitySnapshotPipeline pipeline = kaiakk.powerhouse.world.entity.EntitySnapshotPipeline.getInstance();
+            if (pipeline != null) {
+                stats.put("entity_snapshot_epoch", pipeline.getEpoch());
+                stats.put("entity_snapshot_capture_ms", Math.round(pipeline.getAverageCaptureMillis() * 1000.0) / 1000.0);
+                stats.put("entity_snapshot_last_capture_ms", Math.round(pipeline.getLastCaptureMillis() * 1000.0) / 1000.0);
+                stats.put("entity_snapshot_entities", pipeline.getLastEntityCount());
+                stats.put("entity_snapshot_analyze_ms", Math.round(pipeline.getAverageAnalyzeMillis() * 1000.0) / 1000.0);
+                stats.put("entity_snapshot_consumers", pipeline.getConsumerCount());
+                stats.put("entity_apply_queue_depth", pipeline.getApplyQueueDepth());
+                stats.put("entity_apply_total", pipeline.getAppliedTotal());
+            }
+            stats.put("entity_lookup_per_tick", Math.round(kaiakk.powerhouse.world.entity.EntityLookup.sampleResolutionsPerTick() * 10.0) / 10.0);
+            stats.put("entity_lookup_hit_rate", Math.round(kaiakk.powerhouse.world.entity.EntityLookup.getCacheHitRate() * 1000.0) / 10.0);
+            stats.put("entity_lookup_total", kaiakk.powerhouse.world.entity.EntityLookup.getLookups());
+            stats.put("entity_lookup_chunk_scans", kaiakk.powerhouse.world.entity.EntityLookup.getChunkScans());
+            stats.put("entity_lookup_cache_size", kaiakk.powerhouse.world.entity.EntityLookup.getCacheSize());
+            kaiakk.powerhouse.world.entity.AiManagement ai = kaiakk.powerhouse.world.entity.AiManagement.getInstance();
+            if (ai != null) {
+                int[] tiers = ai.getTierCounts();
+                stats.put("ai_tier_full", tiers[0]);
+                stats.put("ai_tier_reduced", tiers[1]);
+                stats.put("ai_tier_frozen", tiers[2]);
+                stats.put("ai_tier_dormant", tiers[3]);
+                stats.put("ai_tier_transitions", ai.getTransitions());
+                stats.put("ai_queue_depth", ai.getQueueDepth());
+                stats.put("ai_transitions_last_tick", ai.getLastTickTransitions());
+                stats.put("ai_transitions_per_tick", Math.round(ai.getAverageTickTransitions() * 100.0) / 100.0);
+                stats.put("ai_transitions_stale", ai.getStaleTransitions());
+            }
+            kaiakk.powerhouse.world.entity.ChunkEntityIndex entityIndex = kaiakk.powerhouse.world.entity.ChunkEntityIndex.getInstance();
+            if (entityIndex != null) {
+                stats.put("entity_index_tracked", entityIndex.trackedCount());
+                stats.put("entity_index_chunks", entityIndex.chunkCount());
+                stats.put("entity_index_reconciled_chunks", entityIndex.getReconciledChunks());
+                stats.put("entity_index_reconcile_delta", entityIndex.getReconcileDelta());
+                stats.put("entity_index_density_events", entityIndex.getDensityEvents());
+            }
+            if (refreshPlanner != null) {
+                stats.put("redstone_refreshes_last_tick", refreshPlanner.getLastTickRefreshes());
+                stats.put("redstone_refreshes_per_tick", Math.round(refreshPlanner.getAverageRefreshesPerTick() * 10.0) / 10.0);
+                stats.put("redstone_refresh_pending", refreshPlanner.getPendingCount());
+                stats.put("redstone_refresh_merged_total", refreshPlanner.getMerged());
+            }
             return stats;
         } catch (Throwable ignored) {
             return Calculations.getStatistics();
@@ -1145,6 +1279,10 @@ private void startItemMergingTask(final World world) {
 
     public void markEntityDead(org.bukkit.entity.Entity ent) {
         if (ent == null) return;
+        try {
+            kaiakk.powerhouse.world.entity.ChunkEntityIndex index = kaiakk.powerhouse.world.entity.ChunkEntityIndex.getInstance();
+            if (index != null) index.untrack(ent);
+        } catch (Throwable ignored) {}
         try {
             Object handle = null;
             try {
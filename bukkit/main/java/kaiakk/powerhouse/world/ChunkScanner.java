@@ -0,0 +1,237 @@
+package kaiakk.powerhouse.world;
+
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shared, resumable sweep over loaded chunks. Each world keeps a cursor into a snapshot of its
+ * loaded chunks, and every tick advances it by at most a time and chunk budget. Visitors
+ * register with a period; a world pass starts once any of them is due, and every due visitor
+ * sees each chunk of that pass with one shared {@code getEntities()} call. A 3 s or 300 s
+ * sweep therefore costs a flat slice per tick instead of one burst.
+ */
+public final class ChunkScanner {
+
+    public interface Visitor {
+        default void beginSweep(World world) {}
+        void visit(World world, Chunk chunk, Entity[] entities);
+        default void endSweep(World world) {}
+        /** The world unloaded; drop anything kept for it. An unfinished sweep never gets {@code endSweep}. */
+        default void forgetWorld(String worldName) {}
+    }
+
+    public static final class Registration {
+        final String name;
+        final Visitor visitor;
+        volatile long periodMs;
+        volatile boolean active = true;
+        final Map<String, Long> lastStart = new HashMap<>();
+
+        Registration(String name, Visitor visitor, long periodMs) {
+            this.name = name;
+            this.visitor = visitor;
+            this.periodMs = periodMs;
+        }
+
+        public void setPeriodSeconds(double seconds) {
+            periodMs = Math.max(50L, (long) (seconds * 1000.0));
+        }
+
+        public String getName() { return name; }
+    }
+
+    private static final class Pass {
+        final Chunk[] chunks;
+        final List<Registration> visitors;
+        int cursor = 0;
+
+        Pass(Chunk[] chunks, List<Registration> visitors) {
+            this.chunks = chunks;
+            this.visitors = visitors;
+        }
+    }
+
+    private static ChunkScanner INSTANCE = null;
+
+    private final Plugin plugin;
+    private final long budgetNanos;
+    private final int maxChunksPerTick;
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+    private final Map<String, Pass> passes = new HashMap<>();
+    /** Every world a pass was started for, checked each tick so unloaded worlds are let go. */
+    private final Set<String> knownWorlds = new HashSet<>();
+    private volatile BukkitTask task = null;
+    private int worldCursor = 0;
+
+    private volatile long lastTickNanos = 0L;
+    private volatile double avgTickNanos = 0.0;
+    private volatile long maxTickNanos = 0L;
+    private volatile long chunksVisited = 0L;
+    private volatile long passesCompleted = 0L;
+
+    private ChunkScanner(Plugin plugin) {
+        this.plugin = plugin;
+        this.budgetNanos = Math.max(50L, ConfigHelp.getInt("chunk-scanner.budget-micros", 500)) * 1000L;
+        this.maxChunksPerTick = Math.max(1, ConfigHelp.getInt("chunk-scanner.max-chunks-per-tick", 64));
+    }
+
+    /** Starts the shared scanner; returns null when the per-tick task cannot be scheduled (e.g. on Folia). */
+    public static synchronized ChunkScanner init(Plugin plugin) {
+        if (INSTANCE != null) return INSTANCE;
+        ChunkScanner s = new ChunkScanner(plugin);
+        try {
+            s.task = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+                public void run() { tickInstance(); }
+            }, 1L, 1L);
+        } catch (Throwable t) {
+            return null;
+        }
+        INSTANCE = s;
+        PowerhouseLogger.info("Chunk scanner enabled (" + (s.budgetNanos / 1000L) + "us, " + s.maxChunksPerTick + " chunks per tick)");
+        return s;
+    }
+
+    private static void tickInstance() {
+        ChunkScanner s = INSTANCE;
+        if (s != null) s.tick();
+    }
+
+    public static ChunkScanner getInstance() { return INSTANCE; }
+
+    public static synchronized void shutdown() {
+        ChunkScanner s = INSTANCE;
+        INSTANCE = null;
+        if (s == null) return;
+        if (s.task != null) {
+            try { s.task.cancel(); } catch (Throwable ignored) {}
+            s.task = null;
+        }
+        s.registrations.clear();
+        s.passes.clear();
+        s.knownWorlds.clear();
+    }
+
+    public Registration register(String name, double periodSeconds, Visitor visitor) {
+        unregister(name);
+        Registration r = new Registration(name, visitor, 0L);
+        r.setPeriodSeconds(periodSeconds);
+        registrations.add(r);
+        return r;
+    }
+
+    public void unregister(String name) {
+        for (Registration r : registrations) {
+            if (!r.name.equals(name)) continue;
+            r.active = false;
+            registrations.remove(r);
+        }
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        int visited = 0;
+        try {
+            List<World> worlds = Bukkit.getWorlds();
+            int n = worlds.size();
+            if (n == 0 || registrations.isEmpty()) return;
+            dropUnloadedWorlds();
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < n && visited < maxChunksPerTick && System.nanoTime() - start < budgetNanos; i++) {
+                World w = worlds.get((worldCursor + i) % n);
+                String name = w.getName();
+                Pass pass = passes.get(name);
+                if (pass == null) {
+                    pass = beginPass(w, name, now);
+                    if (pass == null) continue;
+                    passes.put(name, pass);
+                }
+                while (pass.cursor < pass.chunks.length && visited < maxChunksPerTick && System.nanoTime() - start < budgetNanos) {
+                    Chunk chunk = pass.chunks[pass.cursor];
+                    pass.chunks[pass.cursor++] = null;
+                    try {
+                        if (chunk == null || !chunk.isLoaded()) continue;
+                        Entity[] entities = chunk.getEntities();
+                        for (Registration r : pass.visitors) {
+                            if (r.active) try { r.visitor.visit(w, chunk, entities); } catch (Throwable ignored) {}
+                        }
+                    } catch (Throwable ignored) {}
+                    visited++;
+                }
+                if (pass.cursor >= pass.chunks.length) {
+                    passes.remove(name);
+                    for (Registration r : pass.visitors) {
+                        if (r.active) try { r.visitor.endSweep(w); } catch (Throwable ignored) {}
+                    }
+                    passesCompleted++;
+                }
+            }
+            worldCursor = (worldCursor + 1) % n;
+        } catch (Throwable ignored) {
+        } finally {
+            long spent = System.nanoTime() - start;
+            lastTickNanos = spent;
+            avgTickNanos = avgTickNanos * 0.95 + spent * 0.05;
+            if (spent > maxTickNanos) maxTickNanos = spent;
+            chunksVisited += visited;
+        }
+    }
+
+    private Pass beginPass(World w, String name, long now) {
+        List<Registration> due = null;
+        for (Registration r : registrations) {
+            Long last = r.lastStart.get(name);
+            if (last != null && now - last < r.periodMs) continue;
+            if (due == null) due = new ArrayList<>();
+            due.add(r);
+        }
+        if (due == null) return null;
+        Chunk[] chunks;
+        try { chunks = w.getLoadedChunks(); } catch (Throwable t) { return null; }
+        knownWorlds.add(name);
+        for (Registration r : due) {
+            r.lastStart.put(name, now);
+            try { r.visitor.beginSweep(w); } catch (Throwable ignored) {}
+        }
+        return new Pass(chunks, due);
+    }
+
+    /** Drops the pass and start times of worlds that are no longer loaded, so no Chunk keeps a World alive. */
+    private void dropUnloadedWorlds() {
+        if (knownWorlds.isEmpty()) return;
+        Iterator<String> it = knownWorlds.iterator();
+        while (it.hasNext()) {
+            String name = it.next();
+            if (Bukkit.getWorld(name) != null) continue;
+            it.remove();
+            passes.remove(name);
+            for (Registration r : registrations) {
+                r.lastStart.remove(name);
+                try { r.visitor.forgetWorld(name); } catch (Throwable ignored) {}
+            }
+        }
+    }
+
+    public double getLastTickMillis() { return lastTickNanos / 1_000_000.0; }
+    public double getAverageTickMillis() { return avgTickNanos / 1_000_000.0; }
+    public double getMaxTickMillis() { return maxTickNanos / 1_000_000.0; }
+    public long getChunksVisited() { return chunksVisited; }
+    public long getPassesCompleted() { return passesCompleted; }
+    public int getActivePasses() { return passes.size(); }
+    public int getVisitorCount() { return registrations.size(); }
+}
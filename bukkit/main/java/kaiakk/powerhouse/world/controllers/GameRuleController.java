@@ -0,0 +1,298 @@
+package kaiakk.powerhouse.world.controllers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.GameRule;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import kaiakk.multimedia.classes.SchedulerHelper;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+import kaiakk.powerhouse.helpers.scaling.Scalable;
+import kaiakk.powerhouse.helpers.scaling.ScaleUtils;
+
+/**
+ * Lowers per-world game rules with hidden tick cost as the server slows: {@code randomTickSpeed}
+ * (crop farms), {@code maxEntityCramming}, and under heavy load the patrol and wandering-trader
+ * spawners. Changes are spaced by {@code game-rules.cooldown-seconds}; the original rules are
+ * kept per world and written back on recovery and on {@link #stop()}.
+ *
+ * <p>These rules live in level.dat, so autosaves persist the lowered values. The originals are
+ * therefore stored in {@code gamerules.yml} the first time a world is touched and only dropped
+ * once written back; after a crash the stored values, not the live (lowered) ones, are the
+ * baseline, and they are restored before anything is scaled again.
+ */
+public class GameRuleController implements Scalable, Listener {
+
+    /** Rules as found, per world. */
+    private static final class Baseline {
+        int randomTickSpeed = -1;
+        int maxEntityCramming = -1;
+        Boolean patrolSpawning = null;
+        Boolean traderSpawning = null;
+    }
+
+    private static final String STORE_FILE = "gamerules.yml";
+
+    private final Plugin plugin;
+    private final File storeFile;
+    private final YamlConfiguration store;
+    private final long cooldownMs;
+    private final double healthyScale;
+    private final double minRandomTickMultiplier;
+    private final double minCrammingMultiplier;
+    private final double disableSpawnersBelow;
+
+    private final Map<String, Baseline> baselines = new HashMap<>();
+    private double lastT = 1.0;
+    private long lastChangeMs = 0L;
+    private double randomTickMultiplier = 1.0;
+    private double crammingMultiplier = 1.0;
+    private boolean spawnersOff = false;
+    private boolean running = false;
+    /** Latest scale seen during a cooldown; applied once it ends, since the scaler only republishes on change. */
+    private double pendingScale = Double.NaN;
+    private boolean retryScheduled = false;
+    private long changes = 0L;
+
+    public GameRuleController(Plugin plugin) {
+        this.plugin = plugin;
+        this.storeFile = new File(plugin.getDataFolder(), STORE_FILE);
+        this.store = loadStore(storeFile);
+        this.cooldownMs = Math.max(0, ConfigHelp.getInt("game-rules.cooldown-seconds", 30)) * 1000L;
+        this.healthyScale = Math.max(0.05, Math.min(1.0, ConfigHelp.getDouble("game-rules.healthy-scale", 0.85)));
+        this.minRandomTickMultiplier = Math.max(0.0, Math.min(1.0, ConfigHelp.getDouble("game-rules.min-random-tick-multiplier", 0.33)));
+        this.minCrammingMultiplier = Math.max(0.1, Math.min(1.0, ConfigHelp.getDouble("game-rules.min-cramming-multiplier", 0.5)));
+        this.disableSpawnersBelow = Math.max(0.0, Math.min(1.0, ConfigHelp.getDouble("game-rules.disable-spawners-below-scale", 0.4)));
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        try { Bukkit.getPluginManager().registerEvents(this, plugin); } catch (Throwable ignored) {}
+        for (World w : Bukkit.getWorlds()) capture(w);
+        PowerhouseLogger.info("Game rule scaler enabled (cooldown " + (cooldownMs / 1000L) + "s)");
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        try { HandlerList.unregisterAll(this); } catch (Throwable ignored) {}
+        for (Map.Entry<String, Baseline> en : baselines.entrySet()) {
+            World w = Bukkit.getWorld(en.getKey());
+            if (w == null) continue;
+            restore(w, en.getValue());
+            store.set(en.getKey(), null);
+        }
+        saveStore(store, storeFile);
+        baselines.clear();
+        randomTickMultiplier = 1.0;
+        crammingMultiplier = 1.0;
+        spawnersOff = false;
+    }
+
+    @Override
+    public synchronized void setScale(double scale) {
+        if (!running || Double.isNaN(scale)) return;
+        long now = System.currentTimeMillis();
+        long wait = cooldownMs - (now - lastChangeMs);
+        if (wait > 0L) {
+            pendingScale = scale;
+            if (!retryScheduled) {
+                retryScheduled = true;
+                try {
+                    SchedulerHelper.runLater(plugin, new Runnable() {
+                        public void run() { retryPending(); }
+                    }, wait / 50L + 1L);
+                } catch (Throwable t) {
+                    retryScheduled = false;
+                }
+            }
+            return;
+        }
+        pendingScale = Double.NaN;
+        double t = Math.min(1.0, scale / healthyScale);
+        if (t == lastT) return;
+        lastT = t;
+        randomTickMultiplier = ScaleUtils.multiplierFromScale(t, minRandomTickMultiplier, 1.0);
+        crammingMultiplier = ScaleUtils.multiplierFromScale(t, minCrammingMultiplier, 1.0);
+        spawnersOff = t < disableSpawnersBelow;
+        boolean changed = false;
+        for (World w : Bukkit.getWorlds()) changed |= apply(w);
+        if (changed) {
+            lastChangeMs = now;
+            changes++;
+        }
+    }
+
+    private synchronized void retryPending() {
+        retryScheduled = false;
+        if (!Double.isNaN(pendingScale)) setScale(pendingScale);
+    }
+
+    private synchronized void capture(World w) {
+        if (w == null || baselines.containsKey(w.getName())) return;
+        Baseline b = read(store.getConfigurationSection(w.getName()));
+        if (b != null) {
+            // Left over from a run that never restored: undo whatever it lowered first.
+            restore(w, b);
+        } else {
+            b = readLive(w);
+            write(store.createSection(w.getName()), b);
+            saveStore(store, storeFile);
+        }
+        baselines.put(w.getName(), b);
+        apply(w);
+    }
+
+    private static Baseline readLive(World w) {
+        Baseline b = new Baseline();
+        try {
+            Integer v = w.getGameRuleValue(GameRule.RANDOM_TICK_SPEED);
+            if (v != null) b.randomTickSpeed = v;
+        } catch (Throwable ignored) {}
+        try {
+            Integer v = w.getGameRuleValue(GameRule.MAX_ENTITY_CRAMMING);
+            if (v != null) b.maxEntityCramming = v;
+        } catch (Throwable ignored) {}
+        try { b.patrolSpawning = w.getGameRuleValue(GameRule.DO_PATROL_SPAWNING); } catch (Throwable ignored) {}
+        try { b.traderSpawning = w.getGameRuleValue(GameRule.DO_TRADER_SPAWNING); } catch (Throwable ignored) {}
+        return b;
+    }
+
+    private static Baseline read(ConfigurationSection sec) {
+        if (sec == null) return null;
+        Baseline b = new Baseline();
+        b.randomTickSpeed = sec.getInt("random-tick-speed", -1);
+        b.maxEntityCramming = sec.getInt("max-entity-cramming", -1);
+        if (sec.isBoolean("patrol-spawning")) b.patrolSpawning = sec.getBoolean("patrol-spawning");
+        if (sec.isBoolean("trader-spawning")) b.traderSpawning = sec.getBoolean("trader-spawning");
+        return b;
+    }
+
+    private static void write(ConfigurationSection sec, Baseline b) {
+        sec.set("random-tick-speed", b.randomTickSpeed);
+        sec.set("max-entity-cramming", b.maxEntityCramming);
+        sec.set("patrol-spawning", b.patrolSpawning);
+        sec.set("trader-spawning", b.traderSpawning);
+    }
+
+    /** World names may contain dots, so the store uses '/' as its path separator. */
+    private static YamlConfiguration loadStore(File file) {
+        YamlConfiguration yc = new YamlConfiguration();
+        yc.options().pathSeparator('/');
+        try {
+            if (file.exists()) yc.load(file);
+        } catch (Throwable t) {
+            PowerhouseLogger.warn("Could not read " + file.getName() + ": " + t.getMessage());
+        }
+        return yc;
+    }
+
+    private static void saveStore(YamlConfiguration yc, File file) {
+        try {
+            if (yc.getKeys(false).isEmpty()) {
+                if (file.exists()) file.delete();
+                return;
+            }
+            yc.save(file);
+        } catch (Throwable t) {
+            PowerhouseLogger.warn("Could not save original game rules to " + file.getName() + ": " + t.getMessage());
+        }
+    }
+
+    /**
+     * Writes back rules stored by an earlier run that never restored them (crash, kill), for
+     * servers that have since turned {@code game-rules.enabled} off. Worlds not loaded yet keep
+     * their entry.
+     */
+    public static void restoreStored(Plugin plugin) {
+        File file = new File(plugin.getDataFolder(), STORE_FILE);
+        if (!file.exists()) return;
+        YamlConfiguration yc = loadStore(file);
+        for (String name : yc.getKeys(false)) {
+            World w = Bukkit.getWorld(name);
+            Baseline b = read(yc.getConfigurationSection(name));
+            if (w == null || b == null) continue;
+            restore(w, b);
+            yc.set(name, null);
+            PowerhouseLogger.info("Restored original game rules of " + name);
+        }
+        saveStore(yc, file);
+    }
+
+    /** Writes the scaled rules; returns true if any rule actually changed. */
+    private boolean apply(World w) {
+        Baseline b = baselines.get(w.getName());
+        if (b == null) return false;
+        boolean changed = false;
+        // Zero or negative rules are already off; there is nothing to scale.
+        if (b.randomTickSpeed > 0) {
+            changed |= setInt(w, GameRule.RANDOM_TICK_SPEED, (int) Math.round(b.randomTickSpeed * randomTickMultiplier));
+        }
+        if (b.maxEntityCramming > 0) {
+            changed |= setInt(w, GameRule.MAX_ENTITY_CRAMMING, Math.max(1, (int) Math.round(b.maxEntityCramming * crammingMultiplier)));
+        }
+        if (Boolean.TRUE.equals(b.patrolSpawning)) changed |= setBool(w, GameRule.DO_PATROL_SPAWNING, !spawnersOff);
+        if (Boolean.TRUE.equals(b.traderSpawning)) changed |= setBool(w, GameRule.DO_TRADER_SPAWNING, !spawnersOff);
+        return changed;
+    }
+
+    private static void restore(World w, Baseline b) {
+        if (b.randomTickSpeed >= 0) setInt(w, GameRule.RANDOM_TICK_SPEED, b.randomTickSpeed);
+        if (b.maxEntityCramming >= 0) setInt(w, GameRule.MAX_ENTITY_CRAMMING, b.maxEntityCramming);
+        if (b.patrolSpawning != null) setBool(w, GameRule.DO_PATROL_SPAWNING, b.patrolSpawning);
+        if (b.traderSpawning != null) setBool(w, GameRule.DO_TRADER_SPAWNING, b.traderSpawning);
+    }
+
+    private static boolean setInt(World w, GameRule<Integer> rule, int value) {
+        try {
+            Integer cur = w.getGameRuleValue(rule);
+            if (cur != null && cur == value) return false;
+            return w.setGameRule(rule, value);
+        } catch (Throwable ignored) {}
+        return false;
+    }
+
+    private static boolean setBool(World w, GameRule<Boolean> rule, boolean value) {
+        try {
+            Boolean cur = w.getGameRuleValue(rule);
+            if (cur != null && cur == value) return false;
+            return w.setGameRule(rule, value);
+        } catch (Throwable ignored) {}
+        return false;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent e) {
+        capture(e.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public synchronized void onWorldUnload(WorldUnloadEvent e) {
+        if (e.isCancelled()) return;
+        String name = e.getWorld().getName();
+        Baseline b = baselines.remove(name);
+        if (b == null) return;
+        restore(e.getWorld(), b);
+        store.set(name, null);
+        saveStore(store, storeFile);
+    }
+
+    public synchronized double getRandomTickMultiplier() { return randomTickMultiplier; }
+    public synchronized double getCrammingMultiplier() { return crammingMultiplier; }
+    public synchronized boolean isSpawnersOff() { return spawnersOff; }
+    public synchronized long getChanges() { return changes; }
+}
@@ -0,0 +1,161 @@
+package kaiakk.powerhouse.world.controllers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+import kaiakk.powerhouse.helpers.scaling.Scalable;
+import kaiakk.powerhouse.helpers.scaling.ScaleUtils;
+
+/**
+ * Scales each world's vanilla spawn limits down and its ticks-per-spawn up as the server
+ * slows, so fewer spawn attempts are made in the first place. The values found when a world
+ * is first seen are kept and written back on {@link #stop()}.
+ */
+public class SpawnLimitController implements Scalable, Listener {
+    public static final int MONSTER = 0, ANIMAL = 1, WATER = 2, AMBIENT = 3, TICKS_MONSTER = 4, TICKS_ANIMAL = 5;
+    private static final int FIELDS = 6;
+    /** Multipliers are rounded to this step so small scale wobbles map to the same values. */
+    private static final double STEP = 0.05;
+
+    private final Plugin plugin;
+    private final double minLimitMultiplier;
+    private final double maxTicksMultiplier;
+    private final double healthyScale;
+    private final double hysteresis;
+
+    private final Map<String, long[]> baselines = new HashMap<>();
+    private final Map<String, long[]> applied = new LinkedHashMap<>();
+    private double limitMultiplier = 1.0;
+    private double ticksMultiplier = 1.0;
+    private boolean running = false;
+    private long changes = 0L;
+
+    public SpawnLimitController(Plugin plugin) {
+        this.plugin = plugin;
+        this.minLimitMultiplier = Math.max(0.05, Math.min(1.0, ConfigHelp.getDouble("spawn-governor.min-limit-multiplier", 0.25)));
+        this.maxTicksMultiplier = Math.max(1.0, ConfigHelp.getDouble("spawn-governor.max-ticks-multiplier", 4.0));
+        this.healthyScale = Math.max(0.05, Math.min(1.0, ConfigHelp.getDouble("spawn-governor.healthy-scale", 0.85)));
+        this.hysteresis = Math.max(STEP, ConfigHelp.getDouble("spawn-governor.hysteresis", 0.1));
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        try { Bukkit.getPluginManager().registerEvents(this, plugin); } catch (Throwable ignored) {}
+        for (World w : Bukkit.getWorlds()) capture(w);
+        PowerhouseLogger.info("Spawn limit governor enabled (limits down to x" + minLimitMultiplier + ", spawn interval up to x" + maxTicksMultiplier + ")");
+    }
+
+    /** Puts every world back to the values it had before the governor touched it. */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        try { HandlerList.unregisterAll(this); } catch (Throwable ignored) {}
+        for (Map.Entry<String, long[]> en : baselines.entrySet()) {
+            World w = Bukkit.getWorld(en.getKey());
+            if (w != null) write(w, en.getValue());
+        }
+        baselines.clear();
+        applied.clear();
+        limitMultiplier = 1.0;
+        ticksMultiplier = 1.0;
+    }
+
+    @Override
+    public synchronized void setScale(double scale) {
+        if (!running || Double.isNaN(scale)) return;
+        double t = Math.min(1.0, scale / healthyScale);
+        double lm = quantize(ScaleUtils.multiplierFromScale(t, minLimitMultiplier, 1.0));
+        double tm = quantize(ScaleUtils.multiplierFromScale(t, maxTicksMultiplier, 1.0));
+        // Full recovery is always taken; anything else has to move past the hysteresis band.
+        boolean recover = lm >= 1.0 && limitMultiplier < 1.0;
+        if (!recover && Math.abs(lm - limitMultiplier) < hysteresis) return;
+        limitMultiplier = lm;
+        ticksMultiplier = tm;
+        changes++;
+        for (World w : Bukkit.getWorlds()) apply(w);
+    }
+
+    private static double quantize(double m) {
+        return Math.round(m / STEP) * STEP;
+    }
+
+    private synchronized void capture(World w) {
+        if (w == null || baselines.containsKey(w.getName())) return;
+        long[] base = new long[FIELDS];
+        try {
+            base[MONSTER] = w.getMonsterSpawnLimit();
+            base[ANIMAL] = w.getAnimalSpawnLimit();
+            base[WATER] = w.getWaterAnimalSpawnLimit();
+            base[AMBIENT] = w.getAmbientSpawnLimit();
+            base[TICKS_MONSTER] = w.getTicksPerMonsterSpawns();
+            base[TICKS_ANIMAL] = w.getTicksPerAnimalSpawns();
+        } catch (Throwable t) {
+            return;
+        }
+        baselines.put(w.getName(), base);
+        apply(w);
+    }
+
+    private void apply(World w) {
+        long[] base = baselines.get(w.getName());
+        if (base == null) return;
+        long[] next = new long[FIELDS];
+        for (int f = MONSTER; f <= AMBIENT; f++) {
+            // Zero or negative means spawning is off or deferred to the server default; leave those alone.
+            next[f] = base[f] <= 0 ? base[f] : Math.max(1L, Math.round(base[f] * limitMultiplier));
+        }
+        for (int f = TICKS_MONSTER; f <= TICKS_ANIMAL; f++) {
+            next[f] = base[f] <= 0 ? base[f] : Math.max(1L, Math.round(base[f] * ticksMultiplier));
+        }
+        write(w, next);
+        applied.put(w.getName(), next);
+    }
+
+    private static void write(World w, long[] v) {
+        try { w.setMonsterSpawnLimit((int) v[MONSTER]); } catch (Throwable ignored) {}
+        try { w.setAnimalSpawnLimit((int) v[ANIMAL]); } catch (Throwable ignored) {}
+        try { w.setWaterAnimalSpawnLimit((int) v[WATER]); } catch (Throwable ignored) {}
+        try { w.setAmbientSpawnLimit((int) v[AMBIENT]); } catch (Throwable ignored) {}
+        try { w.setTicksPerMonsterSpawns((int) v[TICKS_MONSTER]); } catch (Throwable ignored) {}
+        try { w.setTicksPerAnimalSpawns((int) v[TICKS_ANIMAL]); } catch (Throwable ignored) {}
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent e) {
+        capture(e.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public synchronized void onWorldUnload(WorldUnloadEvent e) {
+        if (e.isCancelled()) return;
+        String name = e.getWorld().getName();
+        long[] base = baselines.remove(name);
+        if (base != null) write(e.getWorld(), base);
+        applied.remove(name);
+    }
+
+    public synchronized double getLimitMultiplier() { return limitMultiplier; }
+    public synchronized double getTicksMultiplier() { return ticksMultiplier; }
+    public synchronized long getChanges() { return changes; }
+
+    /** Values currently applied per world, indexed by the field constants above. */
+    public synchronized Map<String, long[]> getApplied() {
+        Map<String, long[]> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> en : applied.entrySet()) copy.put(en.getKey(), en.getValue().clone());
+        return copy;
+    }
+}
@@ -1,7 +1,6 @@
 package kaiakk.powerhouse.world.entity;
 
 import org.bukkit.Bukkit;
-import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
@@ -10,11 +9,16 @@ import org.bukkit.util.Vector;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 import kaiakk.multimedia.classes.SchedulerHelper;
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
 import kaiakk.powerhouse.helpers.scaling.Scalable;
 import kaiakk.powerhouse.helpers.scaling.ScaleUtils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.function.DoubleSupplier;
 
 import org.bukkit.event.Listener;
@@ -25,34 +29,106 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import java.lang.reflect.Method;
 
+/**
+ * Distance-banded AI level of detail. Each mob sits in one {@link Tier}; the bands shrink as
+ * the {@code DynamicScaler} scale drops, and a mob only changes tier once it is
+ * {@code ai-lod.hysteresis} blocks past a boundary, so mobs on an edge do not flap.
+ *
+ * <p>This is the only place mob AI is toggled. Tier changes are not applied as they are found:
+ * they wait in a priority queue (restores nearest a player first, then demotions farthest
+ * away first) that is drained each tick within {@code ai-lod.transition-budget-micros}, so a
+ * teleport or a scale drop spreads its {@code setAI} calls over several ticks.
+ */
 public class AiManagement implements Scalable, Listener {
-	private static final double DIST_SQ = 64.0 * 64.0;
-	private final Set<UUID> simplified = ConcurrentHashMap.newKeySet();
-	private final Map<UUID, Boolean> originalAI = new ConcurrentHashMap<>();
+	public enum Tier {
+		/** Vanilla behaviour. */
+		FULL,
+		/** Target cleared; awareness toggled on a duty cycle so pathfinding runs part-time. */
+		REDUCED,
+		/** No AI; gravity off once grounded. */
+		FROZEN,
+		/** As frozen and also not collidable, roughly what a mob in an unloaded chunk costs. */
+		DORMANT
+	}
+
+	private static final Tier[] TIERS = Tier.values();
+	private static final int ORIG_AI = 1, ORIG_GRAVITY = 2, ORIG_COLLIDABLE = 4;
+
+	private static volatile AiManagement INSTANCE = null;
+	/** Transitions resolved together between budget checks. */
+	private static final int DRAIN_CHUNK = 32;
+
+	/** A queued tier change; superseded entries stay in the queue and are skipped when polled. */
+	private static final class Transition {
+		final UUID id;
+		final long chunkKey;
+		final Tier target;
+		final boolean restore;
+		final double distance;
+
+		Transition(UUID id, long chunkKey, Tier target, boolean restore, double distance) {
+			this.id = id;
+			this.chunkKey = chunkKey;
+			this.target = target;
+			this.restore = restore;
+			this.distance = distance;
+		}
+	}
+
+	private static final Comparator<Transition> PRIORITY = new Comparator<Transition>() {
+		public int compare(Transition a, Transition b) {
+			if (a.restore != b.restore) return a.restore ? -1 : 1;
+			return a.restore ? Double.compare(a.distance, b.distance) : Double.compare(b.distance, a.distance);
+		}
+	};
+
+	private final PriorityBlockingQueue<Transition> queue = new PriorityBlockingQueue<>(64, PRIORITY);
+	/** Latest queued transition per mob; a polled entry that is no longer here is stale. */
+	private final Map<UUID, Transition> pending = new ConcurrentHashMap<>();
+	private volatile BukkitTask drainTask = null;
+	private long budgetNanos;
+	private volatile int lastTickTransitions = 0;
+	private volatile double avgTickTransitions = 0.0;
+	private volatile long staleTransitions = 0L;
+
+	private final Map<UUID, Tier> tiers = new ConcurrentHashMap<>();
+	/** Flags the mob had before it first left {@link Tier#FULL}, restored on the way back. */
+	private final Map<UUID, Integer> original = new ConcurrentHashMap<>();
+	/** Chunk each non-full mob was last captured in, so the duty cycle can resolve them as one batch. */
+	private final Map<UUID, Long> chunkOf = new ConcurrentHashMap<>();
 
 	private volatile BukkitTask task = null;
+	private volatile BukkitTask throttleTask = null;
+	private volatile boolean running = false;
 	private final DoubleSupplier msptSupplier;
 	private Plugin plugin;
 
 	private volatile double currentScale = 1.0;
+	private final EntitySnapshotBuffer.Pair buffers = new EntitySnapshotBuffer.Pair();
+	private volatile int[] lastCounts = new int[TIERS.length];
+	private volatile long transitions = 0L;
+	private int throttleCycle = 0;
+
+	private final double[] bands = new double[3];
+	private double hysteresis;
+	private double minScaleMultiplier;
+	private int toggleTicks;
 
-	private static final Method GET_TARGET_METHOD;
 	private static final Method SET_TARGET_METHOD;
 	private static final Method SET_AWARE_METHOD;
 	static {
-		Method get = null;
 		Method setTarget = null;
 		Method setAware = null;
+		Class<?> mob = null;
 		try {
-			get = LivingEntity.class.getMethod("getTarget");
+			mob = Class.forName("org.bukkit.entity.Mob");
 		} catch (Throwable ignored) {}
 		try {
-			setTarget = LivingEntity.class.getMethod("setTarget", org.bukkit.entity.Entity.class);
+			setTarget = (mob != null ? mob : org.bukkit.entity.Creature.class).getMethod("setTarget", LivingEntity.class);
 		} catch (Throwable ignored) {}
 		try {
-			setAware = LivingEntity.class.getMethod("setAware", boolean.class);
+			if (mob != null) setAware = mob.getMethod("setAware", boolean.class);
 		} catch (Throwable ignored) {}
-		GET_TARGET_METHOD = get;
 		SET_TARGET_METHOD = setTarget;
 		SET_AWARE_METHOD = setAware;
 	}
@@ -61,31 +137,78 @@ public class AiManagement implements Scalable, Listener {
 		this.msptSupplier = msptSupplier;
 	}
 
+	public static AiManagement getInstance() { return INSTANCE; }
+
 	private void setAiSafe(LivingEntity ent, boolean enabled) {
 		try { kaiakk.powerhouse.helpers.internal.ItemVersion.setAI(ent, enabled); } catch (Throwable ignored) {}
 	}
 
+	private void loadConfig() {
+		bands[0] = Math.max(1.0, ConfigHelp.getDouble("ai-lod.full-distance", 48.0));
+		bands[1] = Math.max(bands[0], ConfigHelp.getDouble("ai-lod.reduced-distance", 64.0));
+		bands[2] = Math.max(bands[1], ConfigHelp.getDouble("ai-lod.frozen-distance", 96.0));
+		hysteresis = Math.max(0.0, ConfigHelp.getDouble("ai-lod.hysteresis", 6.0));
+		minScaleMultiplier = Math.max(0.1, Math.min(1.0, ConfigHelp.getDouble("ai-lod.min-scale-multiplier", 0.5)));
+		toggleTicks = Math.max(2, ConfigHelp.getInt("ai-lod.reduced-toggle-ticks", 20));
+		budgetNanos = Math.max(50L, ConfigHelp.getInt("ai-lod.transition-budget-micros", 1000)) * 1000L;
+	}
+
 	public void start(Plugin plugin) {
-		if (task != null) return;
+		if (task != null || running) return;
+		running = true;
 		this.plugin = plugin;
+		loadConfig();
+		INSTANCE = this;
 		try { Bukkit.getPluginManager().registerEvents(this, plugin); } catch (Throwable ignored) {}
+		try {
+			throttleTask = SchedulerHelper.runTimerSeconds(plugin, this::throttleReduced, toggleTicks / 20.0, toggleTicks / 20.0);
+		} catch (Throwable ignored) {}
+		try {
+			drainTask = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+				public void run() { drainTransitions(); }
+			}, 1L, 1L);
+		} catch (Throwable ignored) {
+			drainTask = null;
+		}
+		EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+		if (pipeline != null) {
+			pipeline.register("ai-management", 5.0, consumer);
+			return;
+		}
 		task = SchedulerHelper.runTimerSeconds(plugin, this::tickMainThreadSnapshot, 1.0, 5.0);
 	}
 
 	public void stop() {
+		running = false;
+		if (INSTANCE == this) INSTANCE = null;
+		try {
+			EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+			if (pipeline != null) pipeline.unregister("ai-management");
+		} catch (Throwable ignored) {}
 		if (task != null) {
 			SchedulerHelper.cancelTask(task);
 			task = null;
 		}
+		if (throttleTask != null) {
+			SchedulerHelper.cancelTask(throttleTask);
+			throttleTask = null;
+		}
+		if (drainTask != null) {
+			try { drainTask.cancel(); } catch (Throwable ignored) {}
+			drainTask = null;
+		}
+		queue.clear();
+		pending.clear();
 		try { HandlerList.unregisterAll(this); } catch (Throwable ignored) {}
-		for (UUID id : simplified) {
-			Entity e = kaiakk.powerhouse.world.entity.EntityLookup.getEntity(id);
+		for (UUID id : new ArrayList<>(tiers.keySet())) {
+			Entity e = EntityLookup.getEntity(id);
 			if (e instanceof LivingEntity && !(e instanceof Player) && e.isValid() && !e.isDead()) {
-				restoreMobAI((LivingEntity) e);
+				applyTier((LivingEntity) e, Tier.FULL);
 			}
 		}
-		simplified.clear();
-		originalAI.clear();
+		tiers.clear();
+		original.clear();
+		chunkOf.clear();
 	}
 
 	private void tickMainThreadSnapshot() {
@@ -94,145 +217,244 @@ public class AiManagement implements Scalable, Listener {
 			try { SchedulerHelper.run(plugin, this::tickMainThreadSnapshot); } catch (Throwable ignored) {}
 			return;
 		}
+		EntitySnapshotPipeline.runDetached(plugin, buffers, consumer);
+	}
 
-		final List<MobSnapshot> snapshots = new ArrayList<>();
-		final Map<String, List<double[]>> playersByWorld = new HashMap<>();
-
-		for (World world : Bukkit.getWorlds()) {
-			List<double[]> playerLocs = new ArrayList<>();
-			for (Player p : world.getPlayers()) {
-				org.bukkit.Location pl = p.getLocation();
-				playerLocs.add(new double[] { pl.getX(), pl.getY(), pl.getZ() });
-			}
-			playersByWorld.put(world.getName(), playerLocs);
-
-			for (Entity ent : world.getEntities()) {
-				if (!(ent instanceof LivingEntity) || ent instanceof Player || !ent.isValid()) continue;
-				if (ent.getType() == EntityType.ARMOR_STAND) continue;
-
-				LivingEntity mob = (LivingEntity) ent;
-				org.bukkit.Location el = mob.getLocation();
-				boolean hasTarget = false;
-				try {
-					if (GET_TARGET_METHOD != null) {
-						Object t = GET_TARGET_METHOD.invoke(mob);
-						if (t != null) hasTarget = true;
-					}
-				} catch (Throwable ignored) {}
-				snapshots.add(new MobSnapshot(ent.getUniqueId(), world.getName(), el.getX(), el.getY(), el.getZ(), hasTarget));
-			}
+	/** Tier for a player distance, with every band shifted by {@code shift} blocks. */
+	private Tier tierFor(double dist, double m, double shift) {
+		for (int t = 0; t < bands.length; t++) {
+			if (dist <= bands[t] * m + shift) return TIERS[t];
 		}
-
-		SchedulerHelper.runAsync(plugin, () -> calculateAIStatesAsync(snapshots, playersByWorld));
+		return Tier.DORMANT;
 	}
 
-	private void calculateAIStatesAsync(List<MobSnapshot> snapshots, Map<String, List<double[]>> playersByWorld) {
-		final Set<UUID> toSimplify = new HashSet<>();
-		final Set<UUID> toRestore = new HashSet<>();
-		final double currentMspt = msptSupplier == null ? 0.0 : msptSupplier.getAsDouble();
-		final double s = currentScale;
-		final boolean highLag = s < 0.05; 
-		double dynamicDistSq = ScaleUtils.multiplierFromScale(s, 32.0 * 32.0, 64.0 * 64.0);
+	/** Next tier for a mob at {@code dist}: it moves out only past band + hysteresis and back in only inside band - hysteresis. */
+	Tier nextTier(Tier current, double dist, double m) {
+		Tier outward = tierFor(dist, m, hysteresis);
+		if (outward.ordinal() > current.ordinal()) return outward;
+		Tier inward = tierFor(dist, m, -hysteresis);
+		if (inward.ordinal() < current.ordinal()) return inward;
+		return current;
+	}
 
-		for (MobSnapshot snap : snapshots) {
-			List<double[]> playerLocs = playersByWorld.get(snap.worldName);
-			if (playerLocs == null || playerLocs.isEmpty()) continue;
-			
-			double minSq = Double.POSITIVE_INFINITY;
-			for (double[] pp : playerLocs) {
-				double dx = snap.x - pp[0], dy = snap.y - pp[1], dz = snap.z - pp[2];
-				double d2 = dx*dx + dy*dy + dz*dz;
-				if (d2 < minSq) minSq = d2;
-				if (minSq <= 25.0) break;
+	private final EntitySnapshotPipeline.Consumer consumer = new EntitySnapshotPipeline.Consumer() {
+		public void analyze(EntitySnapshotBuffer buf, Executor apply) {
+			final double m = ScaleUtils.multiplierFromScale(currentScale, minScaleMultiplier, 1.0);
+			final double maxRadius = bands[2] * m + hysteresis;
+			int[] counts = new int[TIERS.length];
+			int queued = 0;
+
+			for (int i = 0; i < buf.size; i++) {
+				if (!buf.hasFlag(i, EntitySnapshotBuffer.FLAG_LIVING) || buf.type(i) == EntityType.ARMOR_STAND) continue;
+				if (!buf.hasPlayers(buf.worldIndex[i])) continue;
+
+				UUID id = buf.uuid(i);
+				Tier current = tiers.getOrDefault(id, Tier.FULL);
+				if (current != Tier.FULL) chunkOf.put(id, buf.chunkKey(i));
+				Transition waiting = pending.get(id);
+				double d2 = buf.nearestPlayerDistSq(i, false, maxRadius);
+				double dist = Double.isInfinite(d2) ? Double.MAX_VALUE : Math.sqrt(d2);
+				Tier next = buf.hasFlag(i, EntitySnapshotBuffer.FLAG_TARGET)
+						? Tier.FULL
+						: nextTier(waiting != null ? waiting.target : current, dist, m);
+				counts[next.ordinal()]++;
+
+				if (next == current) {
+					if (waiting != null) pending.remove(id, waiting);
+					continue;
+				}
+				if (waiting != null && waiting.target == next) continue;
+				Transition t = new Transition(id, buf.chunkKey(i), next, next.ordinal() < current.ordinal(), dist);
+				pending.put(id, t);
+				queue.add(t);
+				queued++;
 			}
 
-			boolean isSimplified = simplified.contains(snap.id);
-
-			if (minSq > dynamicDistSq && !snap.hasActiveTarget) {
-				if (!isSimplified) toSimplify.add(snap.id);
-			} else {
-				if (isSimplified) toRestore.add(snap.id);
-			}
+			lastCounts = counts;
+			// Without a per-tick drain (e.g. Folia) the pipeline's own apply budget paces the queue instead.
+			if (queued > 0 && drainTask == null) apply.execute(AiManagement.this::drainTransitions);
 		}
-
-		if (!toSimplify.isEmpty() || !toRestore.isEmpty()) {
-			SchedulerHelper.run(plugin, () -> applyAIChangesSync(toSimplify, toRestore));
+	};
+
+	/** Applies queued transitions in priority order until this tick's budget is spent. Main thread only. */
+	private void drainTransitions() {
+		int applied = 0;
+		if (!queue.isEmpty()) {
+			long start = System.nanoTime();
+			List<Transition> chunk = new ArrayList<>(DRAIN_CHUNK);
+			while (System.nanoTime() - start < budgetNanos) {
+				chunk.clear();
+				EntityLookup.Batch batch = EntityLookup.batch(DRAIN_CHUNK);
+				Transition t;
+				while (chunk.size() < DRAIN_CHUNK && (t = queue.poll()) != null) {
+					if (!pending.remove(t.id, t)) {
+						staleTransitions++;
+						continue;
+					}
+					chunk.add(t);
+					batch.add(t.id, t.chunkKey);
+				}
+				if (chunk.isEmpty()) break;
+				Entity[] resolved = batch.resolve();
+				for (int k = 0; k < resolved.length; k++) {
+					Entity e = resolved[k];
+					if (!(e instanceof LivingEntity) || e instanceof Player || !e.isValid()) continue;
+					try {
+						applyTier((LivingEntity) e, chunk.get(k).target);
+						applied++;
+					} catch (Throwable ignored) {}
+				}
+			}
 		}
+		lastTickTransitions = applied;
+		avgTickTransitions = avgTickTransitions * 0.95 + applied * 0.05;
 	}
 
-	private void applyAIChangesSync(Set<UUID> toSimplify, Set<UUID> toRestore) {
-		for (UUID id : toSimplify) {
-			Entity e = kaiakk.powerhouse.world.entity.EntityLookup.getEntity(id);
-			if (e instanceof LivingEntity && !(e instanceof Player)) simplifyMobAI((LivingEntity) e);
-		}
-		for (UUID id : toRestore) {
-			Entity e = kaiakk.powerhouse.world.entity.EntityLookup.getEntity(id);
-			if (e instanceof LivingEntity && !(e instanceof Player)) restoreMobAI((LivingEntity) e);
+	private void applyTier(LivingEntity mob, Tier tier) {
+		UUID id = mob.getUniqueId();
+		Tier from = tiers.getOrDefault(id, Tier.FULL);
+		if (from == tier) return;
+		transitions++;
+
+		if (from == Tier.FULL) {
+			int flags = 0;
+			try { if (mob.hasAI()) flags |= ORIG_AI; } catch (Throwable ignored) { flags |= ORIG_AI; }
+			try { if (mob.hasGravity()) flags |= ORIG_GRAVITY; } catch (Throwable ignored) { flags |= ORIG_GRAVITY; }
+			try { if (mob.isCollidable() || crowdDecollided(id)) flags |= ORIG_COLLIDABLE; } catch (Throwable ignored) { flags |= ORIG_COLLIDABLE; }
+			original.put(id, flags);
 		}
-	}
-	
-	private static class MobSnapshot {
-		final UUID id;
-		final String worldName;
-		final double x, y, z;
-		final boolean hasActiveTarget;
-		MobSnapshot(UUID id, String worldName, double x, double y, double z, boolean hasActiveTarget) {
-			this.id = id; this.worldName = worldName; this.x = x; this.y = y; this.z = z; this.hasActiveTarget = hasActiveTarget;
+		int orig = original.getOrDefault(id, ORIG_AI | ORIG_GRAVITY | ORIG_COLLIDABLE);
+		boolean origAi = (orig & ORIG_AI) != 0;
+		boolean origGravity = (orig & ORIG_GRAVITY) != 0;
+		boolean origCollidable = (orig & ORIG_COLLIDABLE) != 0;
+
+		switch (tier) {
+			case FULL:
+				setAiSafe(mob, origAi);
+				setAware(mob, true);
+				try { mob.setGravity(origGravity); } catch (Throwable ignored) {}
+				try { mob.setCollidable(origCollidable && !crowdDecollided(id)); } catch (Throwable ignored) {}
+				tiers.remove(id);
+				original.remove(id);
+				chunkOf.remove(id);
+				return;
+			case REDUCED:
+				setAiSafe(mob, origAi);
+				clearTarget(mob);
+				try { mob.setGravity(origGravity); } catch (Throwable ignored) {}
+				try { mob.setCollidable(origCollidable && !crowdDecollided(id)); } catch (Throwable ignored) {}
+				break;
+			case FROZEN:
+			case DORMANT:
+				setAiSafe(mob, false);
+				clearTarget(mob);
+				setAware(mob, false);
+				try { mob.setVelocity(new Vector(0, 0, 0)); } catch (Throwable ignored) {}
+				try { if (mob.isOnGround()) mob.setGravity(false); } catch (Throwable ignored) {}
+				try { mob.setCollidable(tier == Tier.FROZEN && origCollidable); } catch (Throwable ignored) {}
+				break;
 		}
+		tiers.put(id, tier);
 	}
 
+	/** True while EntityPusher holds the mob non-collidable for crowding; its collision is not ours to restore. */
+	private static boolean crowdDecollided(UUID id) {
+		try {
+			kaiakk.powerhouse.world.AllOptimizations ao = kaiakk.powerhouse.world.AllOptimizations.getInstance();
+			return ao != null && ao.isEntityDecollided(id);
+		} catch (Throwable ignored) {}
+		return false;
+	}
 
-	private void simplifyMobAI(LivingEntity mob) {
-		UUID id = mob.getUniqueId();
-		boolean orig = true;
-		try { orig = mob.hasAI(); } catch (Throwable ignored) {}
-		originalAI.put(id, orig);
+	/**
+	 * Flips awareness of reduced-tier mobs, half of them per cycle, so each one thinks every other
+	 * period. The whole tier is resolved as one batch; ids that no longer resolve are forgotten.
+	 */
+	private void throttleReduced() {
+		int cycle = ++throttleCycle;
+		// The async capture can re-add a mob that was just restored to full.
+		if (chunkOf.size() > tiers.size()) chunkOf.keySet().retainAll(tiers.keySet());
+		EntityLookup.Batch batch = EntityLookup.batch(lastCounts[Tier.REDUCED.ordinal()]);
+		for (Map.Entry<UUID, Tier> en : tiers.entrySet()) {
+			if (en.getValue() != Tier.REDUCED) continue;
+			Long chunk = chunkOf.get(en.getKey());
+			batch.add(en.getKey(), chunk == null ? BlockKey.NO_KEY : chunk);
+		}
+		if (batch.isEmpty()) return;
+		Entity[] resolved = batch.resolve();
+		for (int k = 0; k < resolved.length; k++) {
+			UUID id = batch.id(k);
+			Entity e = resolved[k];
+			if (e == null) {
+				forget(id);
+				continue;
+			}
+			if (!(e instanceof LivingEntity) || !e.isValid()) continue;
+			setAware((LivingEntity) e, ((id.hashCode() + cycle) & 1) == 0);
+		}
+	}
 
-		setAiSafe(mob, false);
+	private void clearTarget(LivingEntity mob) {
 		try {
-			if (SET_TARGET_METHOD != null) {
+			if (SET_TARGET_METHOD != null && SET_TARGET_METHOD.getDeclaringClass().isInstance(mob)) {
 				SET_TARGET_METHOD.invoke(mob, (Object) null);
 			}
 		} catch (Throwable ignored) {}
-		try {
-			if (SET_AWARE_METHOD != null) {
-				SET_AWARE_METHOD.invoke(mob, false);
-			}
-		} catch (Throwable ignored) {}
-		try { mob.setVelocity(new Vector(0, 0, 0)); } catch (Throwable ignored) {}
-		simplified.add(id);
 	}
 
-	private void restoreMobAI(LivingEntity mob) {
-		UUID id = mob.getUniqueId();
-		boolean orig = originalAI.getOrDefault(id, true);
-		setAiSafe(mob, orig);
+	private void setAware(LivingEntity mob, boolean aware) {
 		try {
-			if (SET_AWARE_METHOD != null) {
-				SET_AWARE_METHOD.invoke(mob, true);
+			if (SET_AWARE_METHOD != null && SET_AWARE_METHOD.getDeclaringClass().isInstance(mob)) {
+				SET_AWARE_METHOD.invoke(mob, aware);
 			}
 		} catch (Throwable ignored) {}
-		simplified.remove(id);
-		originalAI.remove(id);
+	}
+
+	public Tier getTier(UUID id) {
+		if (id == null) return Tier.FULL;
+		return tiers.getOrDefault(id, Tier.FULL);
+	}
+
+	/** Mobs per tier as of the last analysis, indexed by {@link Tier#ordinal()}. */
+	public int[] getTierCounts() {
+		return lastCounts.clone();
+	}
+
+	public long getTransitions() { return transitions; }
+	public int getQueueDepth() { return pending.size(); }
+	public int getLastTickTransitions() { return lastTickTransitions; }
+	public double getAverageTickTransitions() { return avgTickTransitions; }
+	public long getStaleTransitions() { return staleTransitions; }
+
+	/** True while the mob's AI is switched off by a frozen or dormant tier. */
+	public boolean isAiDisabled(UUID id) {
+		Tier t = getTier(id);
+		return t == Tier.FROZEN || t == Tier.DORMANT;
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onDeath(EntityDeathEvent e) {
 		if (e == null || e.getEntity() == null) return;
-		UUID id = e.getEntity().getUniqueId();
-		try { simplified.remove(id); } catch (Throwable ignored) {}
-		try { originalAI.remove(id); } catch (Throwable ignored) {}
+		forget(e.getEntity().getUniqueId());
 	}
 
+	/** Drops all state for a mob that is gone. */
+	private void forget(UUID id) {
+		try { pending.remove(id); } catch (Throwable ignored) {}
+		try { tiers.remove(id); } catch (Throwable ignored) {}
+		try { original.remove(id); } catch (Throwable ignored) {}
+		try { chunkOf.remove(id); } catch (Throwable ignored) {}
+	}
+
+	/** Restores mobs before their chunk is saved, so no lowered tier is written to disk. */
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onUnload(ChunkUnloadEvent e) {
-		if (e == null) return;
+		if (e == null || (tiers.isEmpty() && pending.isEmpty())) return;
 		try {
 			for (Entity ent : e.getChunk().getEntities()) {
-				if (ent == null) continue;
-				UUID id = ent.getUniqueId();
-				try { simplified.remove(id); } catch (Throwable ignored) {}
-				try { originalAI.remove(id); } catch (Throwable ignored) {}
+				pending.remove(ent.getUniqueId());
+				if (!(ent instanceof LivingEntity) || !tiers.containsKey(ent.getUniqueId())) continue;
+				try { applyTier((LivingEntity) ent, Tier.FULL); } catch (Throwable ignored) {}
 			}
 		} catch (Throwable ignored) {}
 	}
@@ -243,5 +465,3 @@ public class AiManagement implements Scalable, Listener {
 		this.currentScale = Math.max(0.0, Math.min(1.0, scale));
 	}
 }
-
-
@@ -0,0 +1,483 @@
+package kaiakk.powerhouse.world.entity;
+
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.internal.EntityTypeClassifier;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+import kaiakk.powerhouse.world.ChunkScanner;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.event.entity.ItemDespawnEvent;
+import org.bukkit.event.entity.ItemMergeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Live count of non-player entities per chunk, per type and per world, kept up to date from
+ * spawn, death, despawn, merge and chunk load/unload events instead of rescanning worlds.
+ * {@code ItemSpawnEvent} and {@code CreatureSpawnEvent} arrive through the
+ * {@link EntitySpawnEvent} handler. Entities that walk into another chunk, or vanish without an
+ * event, are corrected by a slow reconcile sweep on the shared {@link ChunkScanner}. On Paper,
+ * {@code EntityAddToWorldEvent} / {@code EntityRemoveFromWorldEvent} close most of that gap,
+ * and {@code EntitiesLoadEvent} / {@code EntitiesUnloadEvent} cover the separate entity
+ * loading of 1.17+.
+ *
+ * <p>Counts are read in O(1) from any thread; density listeners hear about a chunk when its
+ * total crosses their threshold in either direction, on the main thread.
+ */
+public final class ChunkEntityIndex implements Listener {
+
+    public interface DensityListener {
+        /** Main thread; keep it short. {@code dense} is true when {@code count} just rose above the threshold. */
+        void onDensityChange(String worldName, int chunkX, int chunkZ, int count, boolean dense);
+    }
+
+    private static final class Threshold {
+        final String name;
+        final int threshold;
+        final DensityListener listener;
+
+        Threshold(String name, int threshold, DensityListener listener) {
+            this.name = name;
+            this.threshold = threshold;
+            this.listener = listener;
+        }
+    }
+
+    /** Per-chunk counts as parallel (type ordinal, count) arrays; a chunk rarely holds more than a handful of types. */
+    private static final class ChunkCounts {
+        final int world, cx, cz;
+        int total = 0;
+        int[] types = new int[4];
+        int[] counts = new int[4];
+        int distinct = 0;
+        final Set<UUID> members = new HashSet<>();
+
+        ChunkCounts(int world, int cx, int cz) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+        }
+
+        int get(int type) {
+            for (int i = 0; i < distinct; i++) if (types[i] == type) return counts[i];
+            return 0;
+        }
+
+        void add(int type, int delta) {
+            total += delta;
+            for (int i = 0; i < distinct; i++) {
+                if (types[i] != type) continue;
+                counts[i] += delta;
+                if (counts[i] <= 0) {
+                    distinct--;
+                    types[i] = types[distinct];
+                    counts[i] = counts[distinct];
+                }
+                return;
+            }
+            if (delta <= 0) return;
+            if (distinct == types.length) {
+                types = Arrays.copyOf(types, distinct << 1);
+                counts = Arrays.copyOf(counts, distinct << 1);
+            }
+            types[distinct] = type;
+            counts[distinct++] = delta;
+        }
+    }
+
+    private static final int MAX_WORLDS = 64;
+    private static final EntityType[] TYPES = EntityType.values();
+    /** Dropped-item type under either name ({@code DROPPED_ITEM} before 1.20.5, {@code ITEM} after). */
+    public static final EntityType ITEM_TYPE = resolveType("DROPPED_ITEM", "ITEM");
+
+    private static EntityType resolveType(String... names) {
+        for (String n : names) {
+            try { return EntityType.valueOf(n); } catch (Throwable ignored) {}
+        }
+        return null;
+    }
+
+    private static ChunkEntityIndex INSTANCE = null;
+
+    private final Plugin plugin;
+    private final HashMap<Long, ChunkCounts> chunks = new HashMap<>();
+    private final HashMap<UUID, Long> tracked = new HashMap<>();
+    private final int[] worldTotals = new int[MAX_WORLDS];
+    private final int[][] worldTypes = new int[MAX_WORLDS][TYPES.length];
+    private final String[] worldNames = new String[MAX_WORLDS];
+    private final CopyOnWriteArrayList<Threshold> thresholds = new CopyOnWriteArrayList<>();
+    private final List<Listener> extraListeners = new ArrayList<>();
+
+    private long reconciledChunks = 0L;
+    private long reconcileDelta = 0L;
+    private long densityEvents = 0L;
+
+    private ChunkEntityIndex(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public static synchronized ChunkEntityIndex init(Plugin plugin) {
+        if (INSTANCE != null) return INSTANCE;
+        // Region threads would race on the chunk walks below.
+        if (kaiakk.powerhouse.helpers.internal.FoliaChecker.isFolia(plugin)) return null;
+        ChunkEntityIndex idx = new ChunkEntityIndex(plugin);
+        try {
+            Bukkit.getPluginManager().registerEvents(idx, plugin);
+        } catch (Throwable t) {
+            return null;
+        }
+        idx.registerOptional("com.destroystokyo.paper.event.entity.EntityAddToWorldEvent", "getEntity", true);
+        idx.registerOptional("com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent", "getEntity", false);
+        idx.registerOptional("org.bukkit.event.world.EntitiesLoadEvent", "getEntities", true);
+        idx.registerOptional("org.bukkit.event.world.EntitiesUnloadEvent", "getEntities", false);
+        try {
+            for (World w : Bukkit.getWorlds()) {
+                for (Chunk c : w.getLoadedChunks()) idx.reconcile(w, c, c.getEntities());
+            }
+        } catch (Throwable ignored) {}
+        idx.reconciledChunks = 0L;
+        idx.reconcileDelta = 0L;
+
+        ChunkScanner scanner = ChunkScanner.getInstance();
+        if (scanner != null) {
+            double secs = Math.max(1.0, ConfigHelp.getDouble("entity-index.reconcile-seconds", 60.0));
+            scanner.register("entity-index", secs, new ChunkScanner.Visitor() {
+                public void visit(World world, Chunk chunk, Entity[] entities) {
+                    idx.reconcile(world, chunk, entities);
+                }
+            });
+        }
+        INSTANCE = idx;
+        PowerhouseLogger.info("Chunk entity index enabled (" + idx.trackedCount() + " entities)");
+        return idx;
+    }
+
+    public static ChunkEntityIndex getInstance() { return INSTANCE; }
+
+    public static synchronized void shutdown() {
+        ChunkEntityIndex idx = INSTANCE;
+        INSTANCE = null;
+        if (idx == null) return;
+        try {
+            ChunkScanner scanner = ChunkScanner.getInstance();
+            if (scanner != null) scanner.unregister("entity-index");
+        } catch (Throwable ignored) {}
+        try { HandlerList.unregisterAll(idx); } catch (Throwable ignored) {}
+        for (Listener l : idx.extraListeners) {
+            try { HandlerList.unregisterAll(l); } catch (Throwable ignored) {}
+        }
+        idx.thresholds.clear();
+        synchronized (idx) {
+            idx.chunks.clear();
+            idx.tracked.clear();
+        }
+    }
+
+    /**
+     * Hooks an event that only exists on some server versions. {@code getter} returns either one
+     * entity or a list of them; {@code load} decides whether they are counted or dropped.
+     */
+    @SuppressWarnings("unchecked")
+    private void registerOptional(String className, String getter, final boolean load) {
+        try {
+            final Class<? extends Event> cls = (Class<? extends Event>) Class.forName(className);
+            final java.lang.reflect.Method m = cls.getMethod(getter);
+            Listener holder = new Listener() {};
+            Bukkit.getPluginManager().registerEvent(cls, holder, EventPriority.MONITOR, new EventExecutor() {
+                public void execute(Listener listener, Event event) {
+                    if (!cls.isInstance(event)) return;
+                    try {
+                        Object res = m.invoke(event);
+                        if (res instanceof Entity) {
+                            if (load) track((Entity) res); else untrack((Entity) res);
+                        } else if (res instanceof Iterable) {
+                            for (Object o : (Iterable<?>) res) {
+                                if (!(o instanceof Entity)) continue;
+                                if (load) track((Entity) o); else untrack((Entity) o);
+                            }
+                        }
+                    } catch (Throwable ignored) {}
+                }
+            }, plugin, true);
+            extraListeners.add(holder);
+        } catch (Throwable ignored) {}
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSpawn(EntitySpawnEvent e) {
+        track(e.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDeath(EntityDeathEvent e) {
+        untrack(e.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDespawn(ItemDespawnEvent e) {
+        untrack(e.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMerge(ItemMergeEvent e) {
+        untrack(e.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent e) {
+        try { reconcile(e.getWorld(), e.getChunk(), e.getChunk().getEntities()); } catch (Throwable ignored) {}
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        try {
+            Chunk c = e.getChunk();
+            dropChunk(BlockKey.pack(BlockKey.worldIndex(e.getWorld().getName()), c.getX(), 0, c.getZ()));
+        } catch (Throwable ignored) {}
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent e) {
+        try { dropWorld(BlockKey.worldIndex(e.getWorld().getName())); } catch (Throwable ignored) {}
+    }
+
+    /** Counts {@code e} in the chunk it stands in; a no-op for players and entities already counted. */
+    public void track(Entity e) {
+        if (e == null || e instanceof Player) return;
+        try {
+            Location loc = e.getLocation();
+            World w = loc.getWorld();
+            if (w == null) return;
+            int wi = BlockKey.worldIndex(w.getName());
+            if (wi == 0) return;
+            worldNames[wi] = w.getName();
+            int type = e.getType().ordinal();
+            synchronized (this) {
+                UUID id = e.getUniqueId();
+                if (tracked.containsKey(id)) return;
+                long key = BlockKey.pack(wi, loc.getBlockX() >> 4, 0, loc.getBlockZ() >> 4);
+                tracked.put(id, key);
+                ChunkCounts cc = chunkFor(key, wi, loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+                cc.members.add(id);
+                change(cc, type, 1);
+            }
+        } catch (Throwable ignored) {}
+    }
+
+    /** Drops {@code e} from the chunk it was counted in, wherever it stands now. */
+    public void untrack(Entity e) {
+        if (e == null || e instanceof Player) return;
+        try {
+            UUID id = e.getUniqueId();
+            int type = e.getType().ordinal();
+            synchronized (this) {
+                Long key = tracked.remove(id);
+                if (key == null) return;
+                ChunkCounts cc = chunks.get(key);
+                if (cc != null && cc.members.remove(id)) change(cc, type, -1);
+            }
+        } catch (Throwable ignored) {}
+    }
+
+    /** Replaces the counts of {@code chunk} with what {@code entities} actually holds. */
+    public void reconcile(World world, Chunk chunk, Entity[] entities) {
+        if (world == null || chunk == null || entities == null) return;
+        int wi = BlockKey.worldIndex(world.getName());
+        if (wi == 0) return;
+        worldNames[wi] = world.getName();
+        long key = BlockKey.pack(wi, chunk.getX(), 0, chunk.getZ());
+        int n = entities.length;
+        UUID[] ids = new UUID[n];
+        int[] types = new int[n];
+        int m = 0;
+        for (Entity e : entities) {
+            if (e == null || e instanceof Player) continue;
+            try {
+                ids[m] = e.getUniqueId();
+                types[m] = e.getType().ordinal();
+                m++;
+            } catch (Throwable ignored) {}
+        }
+        synchronized (this) {
+            ChunkCounts old = chunks.remove(key);
+            int before = 0;
+            if (old != null) {
+                before = old.total;
+                for (UUID id : old.members) {
+                    Long at = tracked.get(id);
+                    if (at != null && at == key) tracked.remove(id);
+                }
+                worldTotals[wi] -= old.total;
+                for (int i = 0; i < old.distinct; i++) worldTypes[wi][old.types[i]] -= old.counts[i];
+            }
+            ChunkCounts cc = new ChunkCounts(wi, chunk.getX(), chunk.getZ());
+            chunks.put(key, cc);
+            for (int i = 0; i < m; i++) {
+                Long prev = tracked.put(ids[i], key);
+                if (prev != null && prev != key) {
+                    ChunkCounts from = chunks.get(prev);
+                    if (from != null && from.members.remove(ids[i])) change(from, types[i], -1);
+                }
+                cc.members.add(ids[i]);
+                cc.add(types[i], 1);
+                worldTotals[wi]++;
+                worldTypes[wi][types[i]]++;
+            }
+            if (cc.total == 0) chunks.remove(key);
+            reconciledChunks++;
+            reconcileDelta += Math.abs(cc.total - before);
+            notifyCrossing(cc, before, cc.total);
+        }
+    }
+
+    private ChunkCounts chunkFor(long key, int wi, int cx, int cz) {
+        ChunkCounts cc = chunks.get(key);
+        if (cc == null) {
+            cc = new ChunkCounts(wi, cx, cz);
+            chunks.put(key, cc);
+        }
+        return cc;
+    }
+
+    private void change(ChunkCounts cc, int type, int delta) {
+        int before = cc.total;
+        cc.add(type, delta);
+        worldTotals[cc.world] += delta;
+        worldTypes[cc.world][type] += delta;
+        if (cc.total <= 0) chunks.remove(BlockKey.pack(cc.world, cc.cx, 0, cc.cz));
+        notifyCrossing(cc, before, cc.total);
+    }
+
+    private synchronized void dropChunk(long key) {
+        ChunkCounts cc = chunks.remove(key);
+        if (cc == null) return;
+        for (UUID id : cc.members) {
+            Long at = tracked.get(id);
+            if (at != null && at == key) tracked.remove(id);
+        }
+        worldTotals[cc.world] -= cc.total;
+        for (int i = 0; i < cc.distinct; i++) worldTypes[cc.world][cc.types[i]] -= cc.counts[i];
+    }
+
+    private synchronized void dropWorld(int wi) {
+        Iterator<Map.Entry<Long, ChunkCounts>> it = chunks.entrySet().iterator();
+        while (it.hasNext()) {
+            ChunkCounts cc = it.next().getValue();
+            if (cc.world != wi) continue;
+            for (UUID id : cc.members) tracked.remove(id);
+            it.remove();
+        }
+        worldTotals[wi] = 0;
+        Arrays.fill(worldTypes[wi], 0);
+    }
+
+    private void notifyCrossing(ChunkCounts cc, int before, int after) {
+        if (before == after || thresholds.isEmpty()) return;
+        for (Threshold t : thresholds) {
+            boolean wasDense = before > t.threshold, isDense = after > t.threshold;
+            if (wasDense == isDense) continue;
+            densityEvents++;
+            try { t.listener.onDensityChange(worldNames[cc.world], cc.cx, cc.cz, after, isDense); } catch (Throwable ignored) {}
+        }
+    }
+
+    public void addDensityListener(String name, int threshold, DensityListener listener) {
+        removeDensityListener(name);
+        thresholds.add(new Threshold(name, threshold, listener));
+    }
+
+    public void removeDensityListener(String name) {
+        for (Threshold t : thresholds) {
+            if (t.name.equals(name)) thresholds.remove(t);
+        }
+    }
+
+    public synchronized int total() {
+        int n = 0;
+        for (int t : worldTotals) n += t;
+        return n;
+    }
+
+    public synchronized int total(int worldIndex) {
+        return worldIndex <= 0 || worldIndex >= MAX_WORLDS ? 0 : worldTotals[worldIndex];
+    }
+
+    public int total(World world) {
+        return world == null ? 0 : total(BlockKey.worldIndex(world.getName()));
+    }
+
+    public synchronized int count(int worldIndex, EntityType type) {
+        if (type == null || worldIndex <= 0 || worldIndex >= MAX_WORLDS) return 0;
+        return worldTypes[worldIndex][type.ordinal()];
+    }
+
+    /** Entities of {@link EntityTypeClassifier#isHeavy heavy} types in the world. */
+    public synchronized int heavyCount(int worldIndex) {
+        if (worldIndex <= 0 || worldIndex >= MAX_WORLDS) return 0;
+        int[] counts = worldTypes[worldIndex];
+        int n = 0;
+        for (int t = 0; t < counts.length; t++) {
+            if (counts[t] > 0 && EntityTypeClassifier.isHeavy(TYPES[t])) n += counts[t];
+        }
+        return n;
+    }
+
+    public synchronized int chunkTotal(World world, int chunkX, int chunkZ) {
+        if (world == null) return 0;
+        ChunkCounts cc = chunks.get(BlockKey.pack(BlockKey.worldIndex(world.getName()), chunkX, 0, chunkZ));
+        return cc == null ? 0 : cc.total;
+    }
+
+    public synchronized int chunkCount(World world, int chunkX, int chunkZ, EntityType type) {
+        if (world == null || type == null) return 0;
+        ChunkCounts cc = chunks.get(BlockKey.pack(BlockKey.worldIndex(world.getName()), chunkX, 0, chunkZ));
+        return cc == null ? 0 : cc.get(type.ordinal());
+    }
+
+    /** Entities in the chunk whose type ordinal is set in {@code typeMask}; O(distinct types in the chunk). */
+    public synchronized int chunkCount(World world, int chunkX, int chunkZ, long[] typeMask) {
+        if (world == null || typeMask == null) return 0;
+        ChunkCounts cc = chunks.get(BlockKey.pack(BlockKey.worldIndex(world.getName()), chunkX, 0, chunkZ));
+        if (cc == null) return 0;
+        int n = 0;
+        for (int i = 0; i < cc.distinct; i++) {
+            int word = cc.types[i] >>> 6;
+            if (word < typeMask.length && (typeMask[word] & (1L << cc.types[i])) != 0L) n += cc.counts[i];
+        }
+        return n;
+    }
+
+    public synchronized int trackedCount() { return tracked.size(); }
+    public synchronized int chunkCount() { return chunks.size(); }
+    public synchronized long getReconciledChunks() { return reconciledChunks; }
+    public synchronized long getReconcileDelta() { return reconcileDelta; }
+    public synchronized long getDensityEvents() { return densityEvents; }
+}
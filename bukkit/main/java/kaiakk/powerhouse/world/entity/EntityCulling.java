@@ -3,31 +3,21 @@ package kaiakk.powerhouse.world.entity;
 import kaiakk.multimedia.classes.SchedulerHelper;
 import kaiakk.powerhouse.calculations.entity.EntityCalculator;
 import kaiakk.powerhouse.data.RecentActionTracker;
-import kaiakk.powerhouse.data.snapshot.EntitySnapshot;
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
 import kaiakk.powerhouse.world.AllOptimizations;
 
 import org.bukkit.Bukkit;
 import org.bukkit.World;
-import org.bukkit.Location;
-import org.bukkit.entity.ArmorStand;
-import org.bukkit.entity.Item;
-import org.bukkit.entity.LivingEntity;
-import org.bukkit.entity.Tameable;
-import org.bukkit.entity.EnderDragon;
-import org.bukkit.entity.Wither;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 public class EntityCulling {
 	private final Plugin plugin;
@@ -36,8 +26,9 @@ public class EntityCulling {
 	private final double intervalSeconds;
 	private volatile BukkitTask task = null;
 
-	private static final java.util.concurrent.ConcurrentHashMap<String, Integer> WORLD_ID = new java.util.concurrent.ConcurrentHashMap<>();
-	private static final java.util.concurrent.atomic.AtomicInteger NEXT_WORLD_ID = new java.util.concurrent.atomic.AtomicInteger(1);
+	private final EntitySnapshotBuffer.Pair buffers = new EntitySnapshotBuffer.Pair();
+	private final EntitySnapshotBuffer.Pair chunkBuffers = new EntitySnapshotBuffer.Pair();
+	private final Set<String> pendingChunks = new HashSet<String>();
 
 	public EntityCulling(Plugin plugin, int maxPerChunk, double maxDistance, double intervalSeconds) {
 		this.plugin = plugin;
@@ -48,7 +39,7 @@ public class EntityCulling {
 
 	private void safeRemoveEntity(Entity e) {
 		if (e == null) return;
-		if (e instanceof Player) return;
+		if (e instanceof Player || MobStacker.isCarrier(e)) return;
 		try {
 			if (!e.isDead()) AllOptimizations.getInstance().markEntityDead(e);
 		} catch (Throwable ignored) {}
@@ -57,12 +48,27 @@ public class EntityCulling {
 	public void start() {
 		final EntityCulling self = this;
 		if (task != null) return;
+		ChunkEntityIndex index = ChunkEntityIndex.getInstance();
+		if (index != null) index.addDensityListener("entity-culling", maxPerChunk, densityListener);
+		EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+		if (pipeline != null) {
+			pipeline.register("entity-culling", intervalSeconds, consumer);
+			return;
+		}
 		task = SchedulerHelper.runTimerSeconds(plugin, new Runnable() {
 			public void run() { self.tickMain(); }
 		}, intervalSeconds, intervalSeconds);
 	}
 
 	public void stop() {
+		try {
+			ChunkEntityIndex index = ChunkEntityIndex.getInstance();
+			if (index != null) index.removeDensityListener("entity-culling");
+		} catch (Throwable ignored) {}
+		try {
+			EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+			if (pipeline != null) pipeline.unregister("entity-culling");
+		} catch (Throwable ignored) {}
 		if (task != null) {
 			SchedulerHelper.cancelTask(task);
 			task = null;
@@ -75,142 +81,76 @@ public class EntityCulling {
 			try { SchedulerHelper.run(plugin, this::tickMain); } catch (Throwable ignored) {}
 			return;
 		}
-		final List<EntitySnapshot> snapshots = new ArrayList<EntitySnapshot>();
-		final Map<String, List<double[]>> playersByWorld = new HashMap<String, List<double[]>>();
-		final Set<UUID> present = new HashSet<UUID>();
-
-		final Set<UUID> immediateRemovals = new HashSet<UUID>();
-		final Map<Long, Integer> crammingCount = new HashMap<Long, Integer>();
-
-		for (World w : Bukkit.getWorlds()) {
-			String worldName = (w == null) ? "" : w.getName();
-			List<double[]> playerList = new ArrayList<double[]>();
-			for (Player p : w.getPlayers()) {
-				playerList.add(new double[] { p.getLocation().getX(), p.getLocation().getY(), p.getLocation().getZ() });
-			}
-			if (!playerList.isEmpty()) playersByWorld.put(worldName, playerList);
-
-			for (Entity e : w.getEntities()) {
-				if (e == null || !e.isValid()) continue;
-
-					Location loc = e.getLocation();
-
-					if (e instanceof ArmorStand) {
-						continue;
-					}
-
-					UUID id = e.getUniqueId();
-					int bx = loc.getBlockX();
-					int by = loc.getBlockY();
-					int bz = loc.getBlockZ();
-
-					if (e instanceof Player) continue;
-
-					LivingEntity le = (e instanceof LivingEntity) ? (LivingEntity) e : null;
-
-					if (le != null) {
-						try {
-							if (le.getCustomName() != null) continue;
-						} catch (Throwable ignored) {}
-						try {
-							if (le instanceof Tameable) continue;
-						} catch (Throwable ignored) {}
-						try {
-							if (le instanceof EnderDragon || le instanceof Wither) continue;
-						} catch (Throwable ignored) {}
-						try {
-							if (le.getScoreboardTags().contains("PH_KEEP")) continue;
-						} catch (Throwable ignored) {}
-					}
-
-					long packed = packLocation(bx, by, bz, worldName);
-					Integer cur = crammingCount.merge(packed, 1, Integer::sum);
-					if (cur != null && cur > maxPerChunk) immediateRemovals.add(id);
-					present.add(id);
-					boolean isPlayer = (e instanceof Player);
-					boolean hasName = e.getCustomName() != null && !e.getCustomName().isEmpty();
-					int worth = 50;
-					if (hasName) worth += 200;
-					if (e.getType() == EntityType.EXPERIENCE_ORB) worth = 1;
-
-					if (e instanceof Item) {
-						Item item = (Item) e;
-						int ageTicks = item.getTicksLived();
-						if (ageTicks > 30 * 20) worth = Math.min(worth, 5);
-					}
+		EntitySnapshotPipeline.runDetached(plugin, buffers, consumer);
+	}
 
-					snapshots.add(new EntitySnapshot(id, worldName, loc.getX(), loc.getY(), loc.getZ(), e.getType(), hasName, isPlayer, worth));
+	/** Culls a chunk as soon as it outgrows {@code maxPerChunk}, a second later so a burst of spawns is handled once. */
+	private final ChunkEntityIndex.DensityListener densityListener = new ChunkEntityIndex.DensityListener() {
+		public void onDensityChange(final String worldName, final int chunkX, final int chunkZ, int count, boolean dense) {
+			if (!dense || worldName == null) return;
+			final String key = worldName + ":" + chunkX + ":" + chunkZ;
+			if (!pendingChunks.add(key)) return;
+			SchedulerHelper.runLater(plugin, new Runnable() {
+				public void run() {
+					pendingChunks.remove(key);
+					try {
+						World w = Bukkit.getWorld(worldName);
+						if (w == null || !w.isChunkLoaded(chunkX, chunkZ)) return;
+						EntitySnapshotPipeline.runDetached(plugin, chunkBuffers, consumer, w.getChunkAt(chunkX, chunkZ));
+					} catch (Throwable ignored) {}
+				}
+			}, 20L);
+		}
+	};
+
+	private final EntitySnapshotPipeline.Consumer consumer = new EntitySnapshotPipeline.Consumer() {
+		public void analyze(EntitySnapshotBuffer buf, Executor apply) {
+			for (int i = 0; i < buf.size; i++) {
+				EntityType type = buf.type(i);
+				if (type == EntityType.ARMOR_STAND
+						|| (buf.hasFlag(i, EntitySnapshotBuffer.FLAG_LIVING) && (buf.hasFlag(i, EntitySnapshotBuffer.FLAG_NAMED)
+								|| buf.hasFlag(i, EntitySnapshotBuffer.FLAG_TAMEABLE)
+								|| buf.hasFlag(i, EntitySnapshotBuffer.FLAG_KEEP)
+								|| buf.hasFlag(i, EntitySnapshotBuffer.FLAG_STACKED)))) {
+					buf.mark(i, EntitySnapshotBuffer.MARK_EXCLUDE);
+					continue;
 				}
+				int worth = 50;
+				if (buf.hasFlag(i, EntitySnapshotBuffer.FLAG_NAMED)) worth += 200;
+				if (type == EntityType.EXPERIENCE_ORB) worth = 1;
+				if (buf.age[i] > 30 * 20) worth = Math.min(worth, 5);
+				buf.worth[i] = worth;
 			}
 
-		final List<EntitySnapshot> snapForAsync = new ArrayList<EntitySnapshot>(snapshots);
-		final Map<String, List<double[]>> playersForAsync = new HashMap<String, List<double[]>>(playersByWorld);
-		final Set<UUID> presentNow = new HashSet<UUID>(present);
+			int candidates = EntityCalculator.markCullCandidates(buf, maxPerChunk, maxDistance);
+			if (candidates == 0) return;
+			final EntityLookup.Batch batch = EntityLookup.batch(candidates);
+			for (int i = buf.nextMarked(0, EntitySnapshotBuffer.MARK_REMOVE); i >= 0; i = buf.nextMarked(i + 1, EntitySnapshotBuffer.MARK_REMOVE)) {
+				batch.add(buf.uuid(i), buf.chunkKey(i));
+			}
 
-		if (!immediateRemovals.isEmpty()) {
-			final Set<UUID> toKillNow = new HashSet<UUID>(immediateRemovals);
-			try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityCulling: scheduling immediate removals: " + toKillNow.size()); } catch (Throwable ignored) {}
-				SchedulerHelper.runLater(plugin, new Runnable() {
+			try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityCulling: async culling candidates=" + candidates); } catch (Throwable ignored) {}
+			apply.execute(new Runnable() {
 				public void run() {
 					int removed = 0;
-					for (UUID id : toKillNow) {
-						Entity e = kaiakk.powerhouse.world.entity.EntityLookup.getEntity(id);
+					RecentActionTracker rt = RecentActionTracker.getInstance();
+					Entity[] resolved = batch.resolve();
+					for (int k = 0; k < resolved.length; k++) {
+						Entity e = resolved[k];
+						UUID id = batch.id(k);
 						if (e == null) continue;
 						if (e instanceof Player) continue;
 						try {
-							RecentActionTracker rt = RecentActionTracker.getInstance();
 							boolean recentPlayer = (rt != null && rt.wasEntityRecentlyPlayerSpawned(id));
 							if (recentPlayer) continue;
+
 							safeRemoveEntity(e);
 							removed++;
 						} catch (Throwable ignored) {}
 					}
-					try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityCulling: applied immediate removals, removed=" + removed); } catch (Throwable ignored) {}
+					try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityCulling: applied async removals, removed=" + removed); } catch (Throwable ignored) {}
 				}
-			}, 1L);
-
-			for (UUID u : toKillNow) {
-				snapForAsync.removeIf(s -> s != null && s.uuid.equals(u));
-			}
+			});
 		}
-
-		SchedulerHelper.runAsync(plugin, new Runnable() {
-			public void run() {
-				final Set<UUID> toRemove = EntityCalculator.calculateCullCandidates(snapForAsync, playersForAsync, maxPerChunk, maxDistance);
-				if (toRemove == null || toRemove.isEmpty()) return;
-
-				try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityCulling: async culling candidates=" + (toRemove == null ? 0 : toRemove.size())); } catch (Throwable ignored) {}
-				SchedulerHelper.runLater(plugin, new Runnable() {
-					public void run() {
-						int removed = 0;
-						for (UUID id : toRemove) {
-							if (!presentNow.contains(id)) continue;
-							Entity e = kaiakk.powerhouse.world.entity.EntityLookup.getEntity(id);
-							if (e == null) continue;
-							if (e instanceof Player) continue;
-							try {
-								RecentActionTracker rt = RecentActionTracker.getInstance();
-								boolean recentPlayer = (rt != null && rt.wasEntityRecentlyPlayerSpawned(id));
-								if (recentPlayer) continue;
-
-								safeRemoveEntity(e);
-								removed++;
-							} catch (Throwable ignored) {}
-						}
-						try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityCulling: applied async removals, removed=" + removed); } catch (Throwable ignored) {}
-					}
-				}, 1L);
-			}
-		});
-	}
-
-	private long packLocation(int bx, int by, int bz, String worldName) {
-		int wid = WORLD_ID.computeIfAbsent(worldName == null ? "" : worldName, k -> NEXT_WORLD_ID.getAndIncrement());
-		long w = (long) (wid & 0xFF) << 56;
-		long y = (long) (by + 128 & 0x3FF) << 46;
-		long x = (long) (bx & 0x7FFFFFFL) << 23;
-		long z = (long) (bz & 0x7FFFFFFL);
-		return w | y | x | z;
-	}
+	};
 }
-
@@ -1,23 +1,106 @@
 package kaiakk.powerhouse.world.entity;
 
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.LongIntMap;
+
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * UUID to entity resolution. The server's {@code getEntity(UUID)} is looked up once and kept
+ * as a {@link MethodHandle}; recent answers sit in a weak cache and are trusted only while
+ * {@code isValid()}. A {@link Batch} resolves many ids at once and, where several of them
+ * were captured in the same chunk, reads that chunk's entity list once instead.
+ */
 public final class EntityLookup {
     private EntityLookup() {}
 
-    public static Entity getEntity(UUID id) {
-        if (id == null) return null;
+    private static final int CACHE_LIMIT = 16384;
+    /** Misses in one chunk before a batch scans the chunk rather than asking the server per id. */
+    private static final int CHUNK_SCAN_MIN = 4;
+
+    private static final MethodType GET_ENTITY = MethodType.methodType(Entity.class, UUID.class);
+    private static final Object UNRESOLVED = new Object();
+    private static volatile Object resolver = UNRESOLVED;
+
+    private static final ConcurrentHashMap<UUID, WeakReference<Entity>> CACHE = new ConcurrentHashMap<>();
+
+    private static final AtomicLong lookups = new AtomicLong();
+    private static final AtomicLong cacheHits = new AtomicLong();
+    private static final AtomicLong chunkScans = new AtomicLong();
+    private static volatile long sampleLookups = 0L;
+    private static volatile long sampleNanos = System.nanoTime();
+    private static volatile double perTick = 0.0;
+
+    /** {@code Bukkit.getEntity(UUID)} when the API has it (1.11+), else the server's own method bound to it, else null. */
+    private static MethodHandle handle() {
+        Object r = resolver;
+        if (r != UNRESOLVED) return (MethodHandle) r;
+        MethodHandle h = null;
         try {
+            h = MethodHandles.publicLookup().findStatic(Bukkit.class, "getEntity", GET_ENTITY);
+        } catch (Throwable ignored) {}
+        if (h == null) {
             try {
-                java.lang.reflect.Method m = Bukkit.class.getMethod("getEntity", java.util.UUID.class);
-                Object res = m.invoke(null, id);
-                if (res instanceof Entity) return (Entity) res;
+                Object server = Bukkit.getServer();
+                if (server != null) {
+                    h = MethodHandles.publicLookup().unreflect(server.getClass().getMethod("getEntity", UUID.class)).bindTo(server);
+                }
             } catch (Throwable ignored) {}
+        }
+        resolver = h;
+        return h;
+    }
+
+    public static Entity getEntity(UUID id) {
+        if (id == null) return null;
+        lookups.incrementAndGet();
+        Entity e = cached(id);
+        if (e != null) return e;
+        e = direct(id);
+        if (e == null) e = scanWorlds(id);
+        remember(id, e);
+        return e;
+    }
+
+    private static Entity cached(UUID id) {
+        WeakReference<Entity> ref = CACHE.get(id);
+        if (ref == null) return null;
+        Entity e = ref.get();
+        try {
+            if (e != null && e.isValid()) {
+                cacheHits.incrementAndGet();
+                return e;
+            }
+        } catch (Throwable ignored) {}
+        CACHE.remove(id, ref);
+        return null;
+    }
+
+    private static Entity direct(UUID id) {
+        MethodHandle h = handle();
+        if (h == null) return null;
+        try {
+            return (Entity) h.invoke(id);
+        } catch (Throwable ignored) {}
+        return null;
+    }
 
+    private static Entity scanWorlds(UUID id) {
+        if (handle() != null) return null;
+        try {
             for (World w : Bukkit.getWorlds()) {
                 try {
                     for (Entity e : w.getEntities()) {
@@ -28,6 +111,136 @@ public final class EntityLookup {
         } catch (Throwable ignored) {}
         return null;
     }
-}
 
+    private static void remember(UUID id, Entity e) {
+        if (e == null) return;
+        if (CACHE.size() >= CACHE_LIMIT) CACHE.clear();
+        CACHE.put(id, new WeakReference<>(e));
+    }
 
+    public static void forget(UUID id) {
+        if (id != null) CACHE.remove(id);
+    }
+
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    public static Batch batch(int expected) {
+        return new Batch(expected);
+    }
+
+    /**
+     * Ids to resolve together on the main thread. Fill it anywhere (typically while analyzing a
+     * snapshot, passing the chunk each row was captured in), then call {@link #resolve()}.
+     */
+    public static final class Batch {
+        private UUID[] ids;
+        private long[] chunks;
+        private int size = 0;
+
+        Batch(int expected) {
+            ids = new UUID[Math.max(4, expected)];
+            chunks = new long[ids.length];
+        }
+
+        /** {@code chunkKey} as {@link BlockKey#pack(int, int, int, int)} with y = 0, or {@link BlockKey#NO_KEY}. */
+        public Batch add(UUID id, long chunkKey) {
+            if (id == null) return this;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+                chunks = Arrays.copyOf(chunks, size << 1);
+            }
+            ids[size] = id;
+            chunks[size++] = chunkKey;
+            return this;
+        }
+
+        public Batch add(UUID id) {
+            return add(id, BlockKey.NO_KEY);
+        }
+
+        public int size() { return size; }
+        public boolean isEmpty() { return size == 0; }
+        public UUID id(int i) { return ids[i]; }
+
+        /** Entities in insertion order; null where the id no longer resolves. Main thread only. */
+        public Entity[] resolve() {
+            Entity[] out = new Entity[size];
+            if (size == 0) return out;
+            lookups.addAndGet(size);
+
+            // Cache hits first; count the remaining misses per chunk.
+            LongIntMap misses = new LongIntMap();
+            int pending = 0;
+            for (int i = 0; i < size; i++) {
+                out[i] = cached(ids[i]);
+                if (out[i] != null) continue;
+                pending++;
+                if (chunks[i] != BlockKey.NO_KEY) misses.add(chunks[i], 1);
+            }
+            if (pending == 0) return out;
+
+            // Chunks holding several misses are read once and matched by id.
+            HashMap<UUID, Entity> found = null;
+            LongIntMap scanned = new LongIntMap();
+            for (int i = 0; i < size; i++) {
+                long key = chunks[i];
+                if (out[i] != null || key == BlockKey.NO_KEY || misses.get(key, 0) < CHUNK_SCAN_MIN) continue;
+                if (scanned.put(key, 1, 0) != 0) continue;
+                Entity[] entities = chunkEntities(key);
+                if (entities == null) continue;
+                chunkScans.incrementAndGet();
+                if (found == null) found = new HashMap<>();
+                for (Entity e : entities) {
+                    try { if (e != null) found.put(e.getUniqueId(), e); } catch (Throwable ignored) {}
+                }
+            }
+
+            for (int i = 0; i < size; i++) {
+                if (out[i] != null) continue;
+                Entity e = found == null ? null : found.get(ids[i]);
+                if (e == null) e = direct(ids[i]);
+                if (e == null) e = scanWorlds(ids[i]);
+                out[i] = e;
+                remember(ids[i], e);
+            }
+            return out;
+        }
+
+        private static Entity[] chunkEntities(long key) {
+            try {
+                String name = BlockKey.worldName(BlockKey.unpackWorld(key));
+                World w = name == null ? null : Bukkit.getWorld(name);
+                int cx = BlockKey.unpackX(key), cz = BlockKey.unpackZ(key);
+                if (w == null || !w.isChunkLoaded(cx, cz)) return null;
+                Chunk c = w.getChunkAt(cx, cz);
+                return c.getEntities();
+            } catch (Throwable ignored) {}
+            return null;
+        }
+    }
+
+    public static long getLookups() { return lookups.get(); }
+    public static long getCacheHits() { return cacheHits.get(); }
+    public static long getChunkScans() { return chunkScans.get(); }
+    public static int getCacheSize() { return CACHE.size(); }
+
+    public static double getCacheHitRate() {
+        long n = lookups.get();
+        return n == 0 ? 0.0 : (double) cacheHits.get() / n;
+    }
+
+    /** Lookups per tick since the previous call. */
+    public static synchronized double sampleResolutionsPerTick() {
+        long now = System.nanoTime();
+        long n = lookups.get();
+        double ticks = (now - sampleNanos) / 50_000_000.0;
+        if (ticks >= 1.0) {
+            perTick = (n - sampleLookups) / ticks;
+            sampleLookups = n;
+            sampleNanos = now;
+        }
+        return perTick;
+    }
+}
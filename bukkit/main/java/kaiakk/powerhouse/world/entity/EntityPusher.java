@@ -2,25 +2,33 @@ package kaiakk.powerhouse.world.entity;
 
 import kaiakk.multimedia.classes.SchedulerHelper;
 import kaiakk.powerhouse.calculations.entity.CrammingCalculator;
-import kaiakk.powerhouse.data.snapshot.EntitySnapshot;
+import kaiakk.powerhouse.data.LongIntMap;
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
 import kaiakk.powerhouse.helpers.scaling.Scalable;
 import kaiakk.powerhouse.helpers.scaling.ScaleUtils;
 import kaiakk.powerhouse.world.AllOptimizations;
 
-import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
-import org.bukkit.World;
-import org.bukkit.Location;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.ArmorStand;
-import org.bukkit.entity.Player;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.DoubleSupplier;
 
+/**
+ * Handles crowded mobs. In the default {@code collision} mode a mob with more than the threshold
+ * of neighbours stops colliding (and is stilled) until its crowd drops below
+ * {@code cramming.revert-ratio} of the threshold, which removes the server's pairwise push work
+ * without touching farms or pens; only crowds past {@code cramming.removal-multiplier} times the
+ * threshold are trimmed. {@code cramming.mode: remove} restores the old trim-only behaviour.
+ */
 public class EntityPusher implements Scalable {
     private final Plugin plugin;
     private volatile int threshold;
@@ -28,9 +36,16 @@ public class EntityPusher implements Scalable {
     private final double intervalSeconds;
     private volatile BukkitTask task = null;
     private final DoubleSupplier msptSupplier;
-    private static final int MAX_MAP_ENTRIES = 5000;
-    private final java.util.Map<java.util.UUID, Long> aiDisabled = createLRUMap(MAX_MAP_ENTRIES);
-    private static final int MAX_ENTITIES_PER_RUN = 500;
+    private static final int MAX_ENTITIES_PER_RUN = 20000;
+    private final EntitySnapshotBuffer.Pair buffers = new EntitySnapshotBuffer.Pair();
+
+    private final boolean collisionMode;
+    private final double removalMultiplier;
+    private final double revertRatio;
+    /** Mobs we made non-collidable, with the collidable state they had before. */
+    private final Map<UUID, Boolean> decollided = new ConcurrentHashMap<>();
+    private volatile int collisionClusters = 0;
+    private volatile int removalClusters = 0;
 
     public EntityPusher(Plugin plugin, int threshold, double radius, double intervalSeconds) {
         this(plugin, threshold, radius, intervalSeconds, null);
@@ -43,6 +58,9 @@ public class EntityPusher implements Scalable {
         this.radius = radius;
         this.intervalSeconds = intervalSeconds;
         this.msptSupplier = msptSupplier;
+        this.collisionMode = !"remove".equalsIgnoreCase(ConfigHelp.getString("cramming.mode", "collision"));
+        this.removalMultiplier = Math.max(1.0, ConfigHelp.getDouble("cramming.removal-multiplier", 4.0));
+        this.revertRatio = Math.max(0.0, Math.min(1.0, ConfigHelp.getDouble("cramming.revert-ratio", 0.75)));
     }
 
     private volatile int baseThreshold = 16;
@@ -54,220 +72,189 @@ public class EntityPusher implements Scalable {
         setThreshold(thr);
     }
 
-    private void setAiSafe(LivingEntity ent, boolean enabled) {
-        try { kaiakk.powerhouse.helpers.internal.ItemVersion.setAI(ent, enabled); } catch (Throwable ignored) {}
-    }
-
     public void setThreshold(int newThreshold) {
         if (newThreshold <= 0) return;
         this.threshold = newThreshold;
     }
 
-    public boolean isAiDisabled(UUID id) {
-        if (id == null) return false;
-        return aiDisabled.containsKey(id);
-    }
-
     public void start() {
         if (task != null) return;
+        EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+        if (pipeline != null) {
+            pipeline.register("entity-pusher", intervalSeconds, consumer);
+            return;
+        }
         task = SchedulerHelper.runTimerSeconds(plugin, this::tickMain, intervalSeconds, intervalSeconds);
     }
 
     public void stop() {
+        try {
+            EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+            if (pipeline != null) pipeline.unregister("entity-pusher");
+        } catch (Throwable ignored) {}
         if (task != null) {
             SchedulerHelper.cancelTask(task);
             task = null;
         }
+        restoreAll();
+    }
+
+    public boolean isDecollided(UUID id) {
+        return id != null && decollided.containsKey(id);
     }
 
+    public int getDecollidedCount() { return decollided.size(); }
+    public int getCollisionClusters() { return collisionClusters; }
+    public int getRemovalClusters() { return removalClusters; }
+    public boolean isCollisionMode() { return collisionMode; }
+
     private void tickMain() {
         String tname = Thread.currentThread().getName();
         if (tname != null && (kaiakk.powerhouse.helpers.internal.FoliaChecker.isFolia(plugin) || tname.contains("Region") || tname.contains("Threaded"))) {
             try { SchedulerHelper.run(plugin, this::tickMain); } catch (Throwable ignored) {}
             return;
         }
-        final List<EntitySnapshot> globalSnaps = new ArrayList<>();
-        final double mspt = msptSupplier == null ? 0.0 : msptSupplier.getAsDouble();
-        double s = ScaleUtils.continuousScaleFromMspt(ScaleUtils.getSmoothedMspt());
-        final boolean canDisableAI = s < 0.30; 
-
-        try { aiDisabled.keySet().removeIf(id -> getEntitySafe(id) == null); } catch (Throwable ignored) {}
+        EntitySnapshotPipeline.runDetached(plugin, buffers, consumer);
+    }
 
-        final Set<LivingEntity> toDisableAI = new HashSet<>();
-        final Set<LivingEntity> toEnableAI = new HashSet<>();
+    private final EntitySnapshotPipeline.Consumer consumer = new EntitySnapshotPipeline.Consumer() {
+        public void analyze(EntitySnapshotBuffer buf, Executor apply) {
+            // Only chunks within two chunks of a player take part, capped per world.
+            int[] processed = new int[buf.players.length];
+            for (int w = 0; w < buf.players.length; w++) {
+                if (!buf.hasPlayers(w)) continue;
+                for (long chunkKey : buf.players[w].chunksAround(2)) buf.table.put(chunkKey, 1, 0);
+            }
 
-        for (World w : Bukkit.getWorlds()) {
-            final String worldName = w.getName();
-            final List<Player> worldPlayers = w.getPlayers();
+            for (int i = 0; i < buf.size; i++) {
+                int w = buf.worldIndex[i];
+                long chunkKey = buf.chunkKey(i);
+                // Stack carriers are left out entirely: trimming one would delete the whole stack.
+                if (!buf.hasFlag(i, EntitySnapshotBuffer.FLAG_LIVING) || buf.type(i) == EntityType.ARMOR_STAND
+                        || buf.hasFlag(i, EntitySnapshotBuffer.FLAG_STACKED)
+                        || processed[w] >= MAX_ENTITIES_PER_RUN || !buf.table.containsKey(chunkKey)) {
+                    buf.mark(i, EntitySnapshotBuffer.MARK_EXCLUDE);
+                    continue;
+                }
+                processed[w]++;
+                buf.worth[i] = buf.hasFlag(i, EntitySnapshotBuffer.FLAG_NAMED) ? 250 : 50;
 
-            final double[][] playerLocs = new double[worldPlayers.size()][];
-            for (int i = 0; i < worldPlayers.size(); i++) {
-                Location pl = worldPlayers.get(i).getLocation();
-                playerLocs[i] = new double[] { pl.getX(), pl.getY(), pl.getZ() };
+                double minDistSq = buf.nearestPlayerDistSq(i, false, 32.0);
+                if (minDistSq <= 25.0) buf.worth[i] += 100;
             }
 
-            if (worldPlayers.isEmpty()) continue;
-
-            final int chunkRadius = 2;
-            final Set<Chunk> chunksToProcess = new HashSet<>();
-            for (Player p : worldPlayers) {
-                int pcx = p.getLocation().getBlockX() >> 4;
-                int pcz = p.getLocation().getBlockZ() >> 4;
-                for (int dx = -chunkRadius; dx <= chunkRadius; dx++) {
-                    for (int dz = -chunkRadius; dz <= chunkRadius; dz++) {
-                        int tx = pcx + dx;
-                        int tz = pcz + dz;
-                        try {
-                            if (!w.isChunkLoaded(tx, tz)) continue;
-                            Chunk c = w.getChunkAt(tx, tz);
-                            if (c != null) chunksToProcess.add(c);
-                        } catch (Throwable ignored) {}
+            final EntityLookup.Batch toDecollide = EntityLookup.batch(16);
+            final EntityLookup.Batch toRestore = EntityLookup.batch(16);
+            int removeThreshold = threshold;
+            if (collisionMode) {
+                removeThreshold = Math.max(threshold + 1, (int) Math.round(threshold * removalMultiplier));
+                int revertAt = (int) Math.floor(threshold * revertRatio);
+                int[] counts = new int[buf.size];
+                CrammingCalculator.countNeighbors(buf, radius, counts);
+                LongIntMap clusters = new LongIntMap();
+                for (int i = 0; i < buf.size; i++) {
+                    // Excluded rows (far from players) keep whatever state they have.
+                    if (counts[i] == 0) continue;
+                    UUID id = buf.uuid(i);
+                    boolean off = decollided.containsKey(id);
+                    if (counts[i] > threshold) {
+                        clusters.put(clusterCell(buf, i), 1, 0);
+                        if (!off) toDecollide.add(id, buf.chunkKey(i));
+                    } else if (off && counts[i] <= revertAt) {
+                        toRestore.add(id, buf.chunkKey(i));
                     }
                 }
+                collisionClusters = clusters.size();
             }
 
-            int processed = 0;
-            for (Chunk c : chunksToProcess) {
-                if (processed >= MAX_ENTITIES_PER_RUN) break;
-                try {
-                    for (Entity e : c.getEntities()) {
-                        if (e == null || !e.isValid() || e instanceof Player || !(e instanceof LivingEntity) || e instanceof ArmorStand) continue;
-                        LivingEntity living = (LivingEntity) e;
-                        Location eloc = e.getLocation();
-                        double ex = eloc.getX();
-                        double ey = eloc.getY();
-                        double ez = eloc.getZ();
-
-                        double minDistSq = Double.MAX_VALUE;
-                        if (playerLocs.length > 0) {
-                            for (double[] pp : playerLocs) {
-                                double dx = ex - pp[0];
-                                double dy = ey - pp[1];
-                                double dz = ez - pp[2];
-                                double d2 = dx*dx + dy*dy + dz*dz;
-                                if (d2 < minDistSq) minDistSq = d2;
-                                if (minDistSq <= 25.0) break;
-                            }
-                        }
-
-                        boolean hasName = (e.getCustomName() != null && !e.getCustomName().isEmpty());
-                        int worth = hasName ? 250 : 50;
-                        if (minDistSq <= 25.0) worth += 100;
-
-                        if (canDisableAI) {
-                            if (minDistSq == Double.MAX_VALUE) {
-                                toDisableAI.add(living);
-                            } else {
-                                if (minDistSq > 1024.0) {
-                                    toDisableAI.add(living);
-                                } else if (minDistSq <= 256.0) {
-                                    toEnableAI.add(living);
-                                }
-                            }
-                        }
-
-                        globalSnaps.add(new EntitySnapshot(
-                                e.getUniqueId(), worldName,
-                                ex, ey, ez,
-                                e.getType(), hasName, false, worth
-                        ));
-
-                        processed++;
-                        if (processed >= MAX_ENTITIES_PER_RUN) break;
-                    }
-                } catch (Throwable ignored) {}
+            int candidates = CrammingCalculator.markCrammingRemovals(buf, radius, removeThreshold);
+            final EntityLookup.Batch crammed = EntityLookup.batch(candidates);
+            LongIntMap removalCells = new LongIntMap();
+            for (int i = buf.nextMarked(0, EntitySnapshotBuffer.MARK_REMOVE); i >= 0; i = buf.nextMarked(i + 1, EntitySnapshotBuffer.MARK_REMOVE)) {
+                crammed.add(buf.uuid(i), buf.chunkKey(i));
+                removalCells.put(clusterCell(buf, i), 1, 0);
             }
+            removalClusters = removalCells.size();
+            if (candidates > 0) {
+                try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityPusher: cramming detection found " + candidates + " candidates"); } catch (Throwable ignored) {}
             }
 
-        if (canDisableAI) {
-            for (LivingEntity ent : toDisableAI) {
-                try {
-                    java.util.UUID id = ent.getUniqueId();
-                    if (aiDisabled.containsKey(id)) continue;
-                    setAiSafe(ent, false);
-                    aiDisabled.put(id, System.currentTimeMillis());
-                } catch (Throwable ignored) {}
-            }
-            for (LivingEntity ent : toEnableAI) {
-                try {
-                    java.util.UUID id = ent.getUniqueId();
-                    if (!aiDisabled.containsKey(id)) continue;
-                    setAiSafe(ent, true);
-                    aiDisabled.remove(id);
-                } catch (Throwable ignored) {}
-            }
+            apply.execute(() -> applyResults(toDecollide, toRestore, crammed));
         }
+    };
 
-        if (globalSnaps.isEmpty()) return;
-
-        final List<EntitySnapshot> snapCopy = new ArrayList<>(globalSnaps);
-                SchedulerHelper.runAsync(plugin, () -> {
-            final Set<UUID> toRemove = CrammingCalculator.calculateCrammingRemovals(snapCopy, radius, threshold);
-            if (toRemove == null || toRemove.isEmpty()) return;
-                    try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityPusher: cramming detection found " + (toRemove == null ? 0 : toRemove.size()) + " candidates"); } catch (Throwable ignored) {}
-
-            SchedulerHelper.runLater(plugin, () -> {
-                int removed = 0;
-                for (UUID id : toRemove) {
-                    final Entity e = getEntitySafe(id);
-                    if (e == null || !e.isValid() || e instanceof ArmorStand) continue;
-                    try {
-                        AllOptimizations.getInstance().markEntityDead(e);
-                        removed++;
-                    } catch (Throwable ignored) {}
-                }
-                try {
-                    AllOptimizations ao = AllOptimizations.getInstance();
-                    if (ao != null) {
-                        if (removed > 0) ao.addCrammingRemovals(removed);
-                        if (removed > 0) {
-                            try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityPusher: removed " + removed + " entities due to cramming (threshold=" + threshold + ", radius=" + radius + ")"); } catch (Throwable ignored) {}
-                        }
-                    }
-                } catch (Throwable ignored) {}
-            }, 1L);
-        });
+    /** Grid cell two radii wide, used only to tell separate clusters apart for the counts. */
+    private long clusterCell(EntitySnapshotBuffer buf, int i) {
+        double size = Math.max(radius, 0.5) * 2.0;
+        long cx = (long) Math.floor(buf.x[i] / size), cy = (long) Math.floor(buf.y[i] / size), cz = (long) Math.floor(buf.z[i] / size);
+        return ((long) buf.worldIndex[i] << 58) ^ ((cx & 0xFFFFFL) << 38) ^ ((cy & 0x3FFFL) << 24) ^ (cz & 0xFFFFFFL);
     }
 
-    private Entity getEntitySafe(UUID id) {
-        if (id == null) return null;
-        try {
+    private void applyResults(EntityLookup.Batch toDecollide, EntityLookup.Batch toRestore, EntityLookup.Batch crammed) {
+        Entity[] resolved = toDecollide.resolve();
+        for (int k = 0; k < resolved.length; k++) {
+            Entity e = resolved[k];
+            if (!(e instanceof LivingEntity) || !e.isValid()) continue;
+            LivingEntity mob = (LivingEntity) e;
             try {
-                java.lang.reflect.Method m = Bukkit.class.getMethod("getEntity", java.util.UUID.class);
-                Object res = m.invoke(null, id);
-                if (res instanceof Entity) return (Entity) res;
+                decollided.put(toDecollide.id(k), mob.isCollidable());
+                mob.setCollidable(false);
+                mob.setVelocity(new Vector());
             } catch (Throwable ignored) {}
+        }
+        resolved = toRestore.resolve();
+        for (int k = 0; k < resolved.length; k++) {
+            Boolean original = decollided.remove(toRestore.id(k));
+            if (original != null && resolved[k] instanceof LivingEntity) restoreCollision((LivingEntity) resolved[k], original);
+        }
+        pruneDecollided();
 
+        int removed = 0;
+        for (Entity e : crammed.resolve()) {
+            if (e == null || !e.isValid() || e instanceof ArmorStand || MobStacker.isCarrier(e)) continue;
             try {
-                Object server = Bukkit.getServer();
-                if (server != null) {
-                    java.lang.reflect.Method m2 = server.getClass().getMethod("getEntity", java.util.UUID.class);
-                    Object res2 = m2.invoke(server, id);
-                    if (res2 instanceof Entity) return (Entity) res2;
-                }
+                AllOptimizations.getInstance().markEntityDead(e);
+                removed++;
             } catch (Throwable ignored) {}
-
-            for (World w : Bukkit.getWorlds()) {
-                try {
-                    for (Chunk c : w.getLoadedChunks()) {
-                        for (Entity e : c.getEntities()) {
-                            if (e != null && id.equals(e.getUniqueId())) return e;
-                        }
-                    }
-                } catch (Throwable ignored) {}
+        }
+        try {
+            AllOptimizations ao = AllOptimizations.getInstance();
+            if (ao != null) {
+                if (removed > 0) ao.addCrammingRemovals(removed);
+                if (removed > 0) {
+                    try { kaiakk.powerhouse.helpers.logs.DebugLog.debug("EntityPusher: removed " + removed + " entities due to cramming (threshold=" + threshold + ", radius=" + radius + ")"); } catch (Throwable ignored) {}
+                }
             }
         } catch (Throwable ignored) {}
-        return null;
     }
 
-    private static <K,V> java.util.Map<K,V> createLRUMap(final int maxEntries) {
-        return java.util.Collections.synchronizedMap(new java.util.LinkedHashMap<K,V>(16, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(java.util.Map.Entry<K,V> eldest) {
-                return size() > maxEntries;
-            }
-        });
+    private void restoreCollision(LivingEntity mob, boolean original) {
+        // A dormant mob's collision belongs to AiManagement until it wakes.
+        AiManagement ai = AiManagement.getInstance();
+        if (ai != null && ai.getTier(mob.getUniqueId()) == AiManagement.Tier.DORMANT) return;
+        try { mob.setCollidable(original); } catch (Throwable ignored) {}
     }
-}
 
+    /** Forgets mobs that no longer exist, resolved as one batch. */
+    private void pruneDecollided() {
+        if (decollided.isEmpty()) return;
+        EntityLookup.Batch batch = EntityLookup.batch(decollided.size());
+        for (UUID id : decollided.keySet()) batch.add(id);
+        Entity[] resolved = batch.resolve();
+        for (int k = 0; k < resolved.length; k++) {
+            if (resolved[k] == null) decollided.remove(batch.id(k));
+        }
+    }
 
+    private void restoreAll() {
+        if (decollided.isEmpty()) return;
+        EntityLookup.Batch batch = EntityLookup.batch(decollided.size());
+        for (UUID id : decollided.keySet()) batch.add(id);
+        Entity[] resolved = batch.resolve();
+        for (int k = 0; k < resolved.length; k++) {
+            Boolean original = decollided.remove(batch.id(k));
+            if (original != null && resolved[k] instanceof LivingEntity) restoreCollision((LivingEntity) resolved[k], original);
+        }
+        decollided.clear();
+    }
+}
@@ -0,0 +1,356 @@
+package kaiakk.powerhouse.world.entity;
+
+import kaiakk.multimedia.classes.SchedulerHelper;
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+import kaiakk.powerhouse.world.ChunkScanner;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Creature;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Tameable;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Captures every non-player entity once per epoch and hands the same table to all entity
+ * modules. Capture rides the shared {@link ChunkScanner} sweep, so it is spread over ticks;
+ * once a world's pass completes the table is sealed with an epoch number and every due
+ * consumer analyzes it, one after another, on a single async task. Consumers push their
+ * main-thread work into one apply queue that is drained each tick under a time budget.
+ */
+public final class EntitySnapshotPipeline {
+
+    public interface Consumer {
+        /**
+         * Runs off the main thread. Snapshot rows are read-only; the marks and {@code worth}
+         * columns are scratch, cleared before each consumer. Anything that must touch live
+         * entities goes to {@code apply}, which runs on the main thread.
+         */
+        void analyze(EntitySnapshotBuffer snapshot, Executor apply);
+    }
+
+    public static final class Registration {
+        final String name;
+        final Consumer consumer;
+        volatile long periodMs;
+        volatile boolean active = true;
+        final Map<String, Long> lastDelivered = new HashMap<>();
+
+        Registration(String name, Consumer consumer) {
+            this.name = name;
+            this.consumer = consumer;
+        }
+
+        public void setPeriodSeconds(double seconds) {
+            periodMs = Math.max(50L, (long) (seconds * 1000.0));
+            EntitySnapshotPipeline p = INSTANCE;
+            if (p != null) p.updatePeriod();
+        }
+
+        public String getName() { return name; }
+    }
+
+    private static EntitySnapshotPipeline INSTANCE = null;
+
+    private final Plugin plugin;
+    private final ChunkScanner scanner;
+    private final long applyBudgetNanos;
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+    private final Map<String, EntitySnapshotBuffer.Pair> buffers = new HashMap<>();
+    private final Map<String, EntitySnapshotBuffer> filling = new HashMap<>();
+    private final Map<String, Long> captureNanos = new HashMap<>();
+    private final ConcurrentLinkedQueue<Runnable> applyQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger applyDepth = new AtomicInteger();
+    private final Executor applyExecutor = new Executor() {
+        public void execute(Runnable r) {
+            if (r == null) return;
+            applyQueue.add(r);
+            applyDepth.incrementAndGet();
+        }
+    };
+    private ChunkScanner.Registration sweep = null;
+    private volatile BukkitTask applyTask = null;
+    private long epoch = 0L;
+
+    private volatile double avgCaptureMs = 0.0;
+    private volatile double lastCaptureMs = 0.0;
+    private volatile int lastEntities = 0;
+    private volatile double avgAnalyzeMs = 0.0;
+    private volatile long epochsCompleted = 0L;
+    private volatile long appliedTotal = 0L;
+
+    private EntitySnapshotPipeline(Plugin plugin, ChunkScanner scanner) {
+        this.plugin = plugin;
+        this.scanner = scanner;
+        this.applyBudgetNanos = Math.max(100L, ConfigHelp.getInt("entity-pipeline.apply-budget-micros", 2000)) * 1000L;
+    }
+
+    /** Starts the pipeline on top of the shared chunk scanner; returns null when the scanner is unavailable (e.g. on Folia). */
+    public static synchronized EntitySnapshotPipeline init(Plugin plugin) {
+        if (INSTANCE != null) return INSTANCE;
+        ChunkScanner scanner = ChunkScanner.init(plugin);
+        if (scanner == null) return null;
+        EntitySnapshotPipeline p = new EntitySnapshotPipeline(plugin, scanner);
+        try {
+            p.applyTask = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+                public void run() { p.drainApplyQueue(); }
+            }, 1L, 1L);
+        } catch (Throwable t) {
+            return null;
+        }
+        INSTANCE = p;
+        PowerhouseLogger.info("Entity snapshot pipeline enabled");
+        return p;
+    }
+
+    public static EntitySnapshotPipeline getInstance() { return INSTANCE; }
+
+    public static synchronized void shutdown() {
+        EntitySnapshotPipeline p = INSTANCE;
+        INSTANCE = null;
+        if (p == null) return;
+        try { p.scanner.unregister("entity-snapshot"); } catch (Throwable ignored) {}
+        if (p.applyTask != null) {
+            try { p.applyTask.cancel(); } catch (Throwable ignored) {}
+            p.applyTask = null;
+        }
+        p.registrations.clear();
+        p.applyQueue.clear();
+        p.applyDepth.set(0);
+    }
+
+    public Registration register(String name, double periodSeconds, Consumer consumer) {
+        unregister(name);
+        Registration r = new Registration(name, consumer);
+        r.periodMs = Math.max(50L, (long) (periodSeconds * 1000.0));
+        registrations.add(r);
+        updatePeriod();
+        return r;
+    }
+
+    public void unregister(String name) {
+        for (Registration r : registrations) {
+            if (!r.name.equals(name)) continue;
+            r.active = false;
+            registrations.remove(r);
+        }
+        updatePeriod();
+    }
+
+    private synchronized void updatePeriod() {
+        long min = Long.MAX_VALUE;
+        for (Registration r : registrations) min = Math.min(min, r.periodMs);
+        if (min == Long.MAX_VALUE) {
+            if (sweep != null) {
+                scanner.unregister("entity-snapshot");
+                sweep = null;
+            }
+            return;
+        }
+        if (sweep == null) {
+            sweep = scanner.register("entity-snapshot", min / 1000.0, new ChunkScanner.Visitor() {
+                public void beginSweep(World world) { begin(world); }
+                public void visit(World world, Chunk chunk, Entity[] entities) { capture(world, entities); }
+                public void endSweep(World world) { seal(world); }
+                public void forgetWorld(String worldName) { forget(worldName); }
+            });
+        } else {
+            sweep.setPeriodSeconds(min / 1000.0);
+        }
+    }
+
+    private void begin(World world) {
+        String name = world.getName();
+        EntitySnapshotBuffer.Pair pair = buffers.get(name);
+        if (pair == null) {
+            pair = new EntitySnapshotBuffer.Pair();
+            buffers.put(name, pair);
+        }
+        long start = System.nanoTime();
+        EntitySnapshotBuffer buf = pair.acquire();
+        buf.addPlayers(world);
+        EntitySnapshotBuffer stale = filling.put(name, buf);
+        if (stale != null) stale.release();
+        captureNanos.put(name, System.nanoTime() - start);
+    }
+
+    private void capture(World world, Entity[] entities) {
+        EntitySnapshotBuffer buf = filling.get(world.getName());
+        if (buf == null || entities == null) return;
+        long start = System.nanoTime();
+        int worldIndex = BlockKey.worldIndex(world.getName());
+        for (Entity e : entities) capture(e, worldIndex, buf);
+        Long spent = captureNanos.get(world.getName());
+        captureNanos.put(world.getName(), (spent == null ? 0L : spent) + System.nanoTime() - start);
+    }
+
+    private void seal(World world) {
+        String name = world.getName();
+        final EntitySnapshotBuffer buf = filling.remove(name);
+        Long spent = captureNanos.remove(name);
+        if (buf == null) return;
+        double ms = (spent == null ? 0L : spent) / 1_000_000.0;
+        lastCaptureMs = ms;
+        avgCaptureMs = epochsCompleted == 0 ? ms : avgCaptureMs * 0.9 + ms * 0.1;
+        lastEntities = buf.size;
+        buf.epoch = ++epoch;
+        epochsCompleted++;
+
+        long now = System.currentTimeMillis();
+        final List<Registration> due = new ArrayList<>();
+        for (Registration r : registrations) {
+            Long last = r.lastDelivered.get(name);
+            if (last != null && now - last < r.periodMs) continue;
+            r.lastDelivered.put(name, now);
+            due.add(r);
+        }
+        if (due.isEmpty()) {
+            buf.release();
+            return;
+        }
+        SchedulerHelper.runAsync(plugin, new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+                try {
+                    for (Registration r : due) {
+                        if (!r.active) continue;
+                        buf.clearScratch();
+                        try { r.consumer.analyze(buf, applyExecutor); } catch (Throwable ignored) {}
+                    }
+                } finally {
+                    buf.release();
+                    double ams = (System.nanoTime() - start) / 1_000_000.0;
+                    avgAnalyzeMs = avgAnalyzeMs == 0.0 ? ams : avgAnalyzeMs * 0.9 + ams * 0.1;
+                }
+            }
+        });
+    }
+
+    /** Releases the half-filled buffer and the buffer pair of a world that unloaded mid-sweep. */
+    private void forget(String name) {
+        EntitySnapshotBuffer buf = filling.remove(name);
+        if (buf != null) buf.release();
+        buffers.remove(name);
+        captureNanos.remove(name);
+        for (Registration r : registrations) r.lastDelivered.remove(name);
+    }
+
+    private void drainApplyQueue() {
+        long start = System.nanoTime();
+        Runnable r;
+        while (System.nanoTime() - start < applyBudgetNanos && (r = applyQueue.poll()) != null) {
+            applyDepth.decrementAndGet();
+            try { r.run(); } catch (Throwable ignored) {}
+            appliedTotal++;
+        }
+    }
+
+    /** Appends one row for {@code e}; players and invalid entities are skipped. */
+    public static void capture(Entity e, int worldIndex, EntitySnapshotBuffer buf) {
+        if (e == null || e instanceof Player) return;
+        try {
+            if (!e.isValid()) return;
+            Location loc = e.getLocation();
+            EntityType type = e.getType();
+            String name = e.getCustomName();
+            boolean living = e instanceof LivingEntity;
+            boolean tameable = living && e instanceof Tameable;
+            boolean keep = false;
+            boolean target = false;
+            if (living) {
+                try { keep = e.getScoreboardTags().contains("PH_KEEP"); } catch (Throwable ignored) {}
+                try { target = e instanceof Creature && ((Creature) e).getTarget() != null; } catch (Throwable ignored) {}
+            }
+            int row = buf.add(e.getUniqueId(), worldIndex, loc.getX(), loc.getY(), loc.getZ(), type, 0);
+            if (name != null && !name.isEmpty()) {
+                buf.setFlag(row, EntitySnapshotBuffer.FLAG_NAMED);
+                if (living && MobStacker.isCarrier(e)) buf.setFlag(row, EntitySnapshotBuffer.FLAG_STACKED);
+            }
+            if (living) buf.setFlag(row, EntitySnapshotBuffer.FLAG_LIVING);
+            if (tameable) buf.setFlag(row, EntitySnapshotBuffer.FLAG_TAMEABLE);
+            if (keep) buf.setFlag(row, EntitySnapshotBuffer.FLAG_KEEP);
+            if (target) buf.setFlag(row, EntitySnapshotBuffer.FLAG_TARGET);
+            if (e instanceof Item) buf.age[row] = e.getTicksLived();
+        } catch (Throwable ignored) {}
+    }
+
+    /**
+     * Fallback for when the pipeline is not running: captures every world on the calling
+     * (main) thread into a buffer from {@code pair}, then runs {@code consumer} async with
+     * apply work scheduled back onto the main thread.
+     */
+    public static void runDetached(final Plugin plugin, EntitySnapshotBuffer.Pair pair, final Consumer consumer) {
+        final EntitySnapshotBuffer buf = pair.acquire();
+        try {
+            for (World w : Bukkit.getWorlds()) {
+                int worldIndex = BlockKey.worldIndex(w.getName());
+                buf.addPlayers(w);
+                for (Entity e : w.getEntities()) capture(e, worldIndex, buf);
+            }
+        } catch (Throwable ignored) {}
+        analyzeDetached(plugin, buf, consumer);
+    }
+
+    /** Like {@link #runDetached(Plugin, EntitySnapshotBuffer.Pair, Consumer)}, but captures a single chunk. */
+    public static void runDetached(final Plugin plugin, EntitySnapshotBuffer.Pair pair, final Consumer consumer, Chunk chunk) {
+        final EntitySnapshotBuffer buf = pair.acquire();
+        try {
+            World w = chunk.getWorld();
+            int worldIndex = BlockKey.worldIndex(w.getName());
+            buf.addPlayers(w);
+            for (Entity e : chunk.getEntities()) capture(e, worldIndex, buf);
+        } catch (Throwable ignored) {}
+        analyzeDetached(plugin, buf, consumer);
+    }
+
+    private static void analyzeDetached(final Plugin plugin, final EntitySnapshotBuffer buf, final Consumer consumer) {
+        if (buf.size == 0) {
+            buf.release();
+            return;
+        }
+        buf.epoch = -1L;
+        SchedulerHelper.runAsync(plugin, new Runnable() {
+            public void run() {
+                try {
+                    consumer.analyze(buf, new Executor() {
+                        public void execute(Runnable r) {
+                            SchedulerHelper.run(plugin, r);
+                        }
+                    });
+                } catch (Throwable ignored) {
+                } finally {
+                    buf.release();
+                }
+            }
+        });
+    }
+
+    public double getAverageCaptureMillis() { return avgCaptureMs; }
+    public double getLastCaptureMillis() { return lastCaptureMs; }
+    public int getLastEntityCount() { return lastEntities; }
+    public double getAverageAnalyzeMillis() { return avgAnalyzeMs; }
+    public long getEpoch() { return epoch; }
+    public long getEpochsCompleted() { return epochsCompleted; }
+    public int getApplyQueueDepth() { return Math.max(0, applyDepth.get()); }
+    public long getAppliedTotal() { return appliedTotal; }
+    public int getConsumerCount() { return registrations.size(); }
+}
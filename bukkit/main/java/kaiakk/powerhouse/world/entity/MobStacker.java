@@ -0,0 +1,537 @@
+package kaiakk.powerhouse.world.entity;
+
+import kaiakk.multimedia.classes.ColorConverter;
+import kaiakk.multimedia.classes.SchedulerHelper;
+import kaiakk.powerhouse.calculations.entity.StackCalculator;
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.internal.EntityTypeClassifier;
+import kaiakk.powerhouse.helpers.internal.ItemVersion;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+import kaiakk.powerhouse.helpers.scaling.Scalable;
+import kaiakk.powerhouse.world.AllOptimizations;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Ageable;
+import org.bukkit.entity.Creeper;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.IronGolem;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.MushroomCow;
+import org.bukkit.entity.Pig;
+import org.bukkit.entity.Projectile;
+import org.bukkit.entity.Rabbit;
+import org.bukkit.entity.Sheep;
+import org.bukkit.entity.Steerable;
+import org.bukkit.entity.Tameable;
+import org.bukkit.entity.Zombie;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.inventory.EntityEquipment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in mob stacking. While the dynamic scale is below {@code mob-stacking.stack-below-scale},
+ * identical unnamed, untamed mobs of a {@link EntityTypeClassifier.Category#STACKABLE stackable}
+ * type within {@code mob-stacking.radius} are collapsed into one carrier whose stack size lives
+ * in its persistent data, so stacks survive restarts. A killing blow on a carrier is taken by a
+ * plain copy that dies in its place (vanilla drops and XP) while the carrier itself lives on one
+ * smaller; right-clicking one splits a single mob off; above {@code mob-stacking.split-above-scale}
+ * stacks are spawned back out a few per second.
+ */
+public class MobStacker implements Listener, Scalable {
+    private static final String PIPELINE_NAME = "mob-stacker";
+    private static final String KEY_NAME = "stack";
+    private static volatile NamespacedKey stackKey = null;
+
+    /** Live stack of one carrier; {@code count} is only written on the main thread. */
+    private static final class Stack {
+        final String world;
+        volatile int count;
+
+        Stack(String world, int count) {
+            this.world = world;
+            this.count = count;
+        }
+    }
+
+    private final Plugin plugin;
+    private final NamespacedKey key;
+    private final double radius;
+    private final int maxStack;
+    private final double intervalSeconds;
+    private final double stackBelowScale;
+    private final double splitAboveScale;
+    private final int unstackPerSecond;
+    private final long splitCooldownMs;
+    private final String nameFormat;
+
+    private final Map<UUID, Stack> stacks = new ConcurrentHashMap<>();
+    /** Mobs a player just split off, kept out of stacking until the cooldown passes. */
+    private final Map<UUID, Long> splitUntil = new ConcurrentHashMap<>();
+    private final EntitySnapshotBuffer.Pair buffers = new EntitySnapshotBuffer.Pair();
+    private volatile double scale = 1.0;
+    private volatile BukkitTask stackTask = null;
+    private volatile BukkitTask unstackTask = null;
+    private boolean registered = false;
+
+    private final AtomicLong merged = new AtomicLong(0);
+    private final AtomicLong unstacked = new AtomicLong(0);
+
+    public MobStacker(Plugin plugin) {
+        this.plugin = plugin;
+        this.key = new NamespacedKey(plugin, KEY_NAME);
+        stackKey = key;
+        this.radius = Math.max(0.5, ConfigHelp.getDouble("mob-stacking.radius", 4.0));
+        this.maxStack = Math.max(2, ConfigHelp.getInt("mob-stacking.max-stack", 100));
+        this.intervalSeconds = Math.max(1.0, ConfigHelp.getDouble("mob-stacking.interval-seconds", 10.0));
+        this.stackBelowScale = Math.max(0.0, Math.min(1.0, ConfigHelp.getDouble("mob-stacking.stack-below-scale", 0.7)));
+        this.splitAboveScale = Math.max(stackBelowScale, Math.min(1.0, ConfigHelp.getDouble("mob-stacking.split-above-scale", 0.85)));
+        this.unstackPerSecond = Math.max(1, ConfigHelp.getInt("mob-stacking.unstack-per-second", 10));
+        this.splitCooldownMs = Math.max(0, ConfigHelp.getInt("mob-stacking.split-cooldown-seconds", 30)) * 1000L;
+        this.nameFormat = ConfigHelp.getString("mob-stacking.name-format", "&ex{count}");
+    }
+
+    /**
+     * True if {@code e} carries a stack, whether or not stacking is enabled right now. Removal
+     * passes (culling, cramming) must leave carriers alone: they skip the death event, so the
+     * stack would be lost rather than split.
+     */
+    public static boolean isCarrier(Entity e) {
+        if (!(e instanceof LivingEntity)) return false;
+        NamespacedKey k = stackKey;
+        if (k == null) {
+            Plugin p = Bukkit.getPluginManager().getPlugin("Powerhouse");
+            if (p == null) return false;
+            k = stackKey = new NamespacedKey(p, KEY_NAME);
+        }
+        try {
+            Integer v = e.getPersistentDataContainer().get(k, PersistentDataType.INTEGER);
+            return v != null && v > 1;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    @Override
+    public void setScale(double scale) {
+        if (!Double.isNaN(scale)) this.scale = scale;
+    }
+
+    public void start() {
+        if (registered) return;
+        try {
+            Bukkit.getPluginManager().registerEvents(this, plugin);
+            registered = true;
+        } catch (Throwable ignored) {
+            return;
+        }
+        for (World w : Bukkit.getWorlds()) {
+            try {
+                for (Entity e : w.getEntities()) adopt(e);
+            } catch (Throwable ignored) {}
+        }
+        EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+        if (pipeline != null) {
+            pipeline.register(PIPELINE_NAME, intervalSeconds, consumer);
+        } else {
+            stackTask = SchedulerHelper.runTimerSeconds(plugin, new Runnable() {
+                public void run() { EntitySnapshotPipeline.runDetached(plugin, buffers, consumer); }
+            }, intervalSeconds, intervalSeconds);
+        }
+        unstackTask = SchedulerHelper.runTimerSeconds(plugin, new Runnable() {
+            public void run() { unstackTick(); }
+        }, 1.0, 1.0);
+        PowerhouseLogger.info("Mob stacking enabled (radius " + radius + ", max stack " + maxStack + ")");
+    }
+
+    /** Stops stacking; carriers keep their stored counts and are picked up again on the next start. */
+    public void stop() {
+        if (!registered) return;
+        registered = false;
+        try {
+            EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+            if (pipeline != null) pipeline.unregister(PIPELINE_NAME);
+        } catch (Throwable ignored) {}
+        try { if (stackTask != null) { SchedulerHelper.cancelTask(stackTask); stackTask = null; } } catch (Throwable ignored) {}
+        try { if (unstackTask != null) { SchedulerHelper.cancelTask(unstackTask); unstackTask = null; } } catch (Throwable ignored) {}
+        try { HandlerList.unregisterAll(this); } catch (Throwable ignored) {}
+        stacks.clear();
+        splitUntil.clear();
+    }
+
+    private final EntitySnapshotPipeline.Consumer consumer = new EntitySnapshotPipeline.Consumer() {
+        public void analyze(EntitySnapshotBuffer buf, Executor apply) {
+            if (scale >= stackBelowScale) return;
+            long now = System.currentTimeMillis();
+            int eligible = 0;
+            for (int i = 0; i < buf.size; i++) {
+                UUID id = buf.uuid(i);
+                Stack s = stacks.get(id);
+                Long until = splitUntil.get(id);
+                if (!buf.hasFlag(i, EntitySnapshotBuffer.FLAG_LIVING) || !EntityTypeClassifier.isStackable(buf.type(i))
+                        || buf.hasFlag(i, EntitySnapshotBuffer.FLAG_TAMEABLE) || buf.hasFlag(i, EntitySnapshotBuffer.FLAG_KEEP)
+                        || buf.hasFlag(i, EntitySnapshotBuffer.FLAG_TARGET)
+                        || (buf.hasFlag(i, EntitySnapshotBuffer.FLAG_NAMED) && s == null)
+                        || (until != null && until > now)) {
+                    buf.mark(i, EntitySnapshotBuffer.MARK_EXCLUDE);
+                    continue;
+                }
+                buf.worth[i] = s == null ? 1 : Math.max(1, s.count);
+                eligible++;
+            }
+            if (eligible < 2) return;
+
+            int[] carrierOf = StackCalculator.groupStacks(buf, radius, maxStack);
+            int[] slot = buf.intScratch(buf.size);
+            int involved = 0;
+            for (int i = 0; i < buf.size; i++) if (carrierOf[i] >= 0) involved++;
+            if (involved == 0) return;
+
+            final EntityLookup.Batch batch = EntityLookup.batch(involved);
+            final int[] parent = new int[involved];
+            for (int i = 0; i < buf.size; i++) {
+                if (carrierOf[i] != i) continue;
+                slot[i] = batch.size();
+                parent[batch.size()] = -1;
+                batch.add(buf.uuid(i), buf.chunkKey(i));
+            }
+            for (int i = 0; i < buf.size; i++) {
+                if (carrierOf[i] < 0 || carrierOf[i] == i) continue;
+                parent[batch.size()] = slot[carrierOf[i]];
+                batch.add(buf.uuid(i), buf.chunkKey(i));
+            }
+            apply.execute(() -> applyStacks(batch, parent));
+        }
+    };
+
+    private void applyStacks(EntityLookup.Batch batch, int[] parent) {
+        Entity[] resolved = batch.resolve();
+        double reachSq = (radius + 1.0) * (radius + 1.0);
+        AllOptimizations ao = AllOptimizations.getInstance();
+        for (int k = 0; k < resolved.length; k++) {
+            if (parent[k] < 0) continue;
+            Entity carrier = resolved[parent[k]];
+            Entity member = resolved[k];
+            if (!(carrier instanceof LivingEntity) || !(member instanceof LivingEntity)) continue;
+            if (!carrier.isValid() || !member.isValid() || carrier.equals(member)) continue;
+            try {
+                if (!carrier.getWorld().equals(member.getWorld())) continue;
+                if (carrier.getLocation().distanceSquared(member.getLocation()) > reachSq) continue;
+                if (!isIdentical((LivingEntity) carrier, (LivingEntity) member)) continue;
+                int total = countOf(carrier) + countOf(member);
+                if (total > maxStack) continue;
+                int absorbed = countOf(member);
+                stacks.remove(member.getUniqueId());
+                if (ao != null) ao.markEntityDead(member);
+                else member.remove();
+                setCount((LivingEntity) carrier, total);
+                merged.addAndGet(absorbed);
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    /** Same type and same visible state, and free of anything a player attached to it. */
+    private boolean isIdentical(LivingEntity a, LivingEntity b) {
+        if (a.getType() != b.getType()) return false;
+        if (!isStackCandidate(a) || !isStackCandidate(b)) return false;
+        if (a instanceof Ageable && ((Ageable) a).isAdult() != ((Ageable) b).isAdult()) return false;
+        if (a instanceof Zombie && ((Zombie) a).isBaby() != ((Zombie) b).isBaby()) return false;
+        if (a.getRemoveWhenFarAway() != b.getRemoveWhenFarAway()) return false;
+        if (!variantOf(a).equals(variantOf(b))) return false;
+        return heldType(a) == heldType(b);
+    }
+
+    /** The per-type look a stack must share: wool, rabbit coat, mooshroom colour, charge. */
+    private static Object variantOf(LivingEntity e) {
+        try {
+            if (e instanceof Sheep) return ((Sheep) e).getColor() + "/" + ((Sheep) e).isSheared();
+            if (e instanceof Rabbit) return ((Rabbit) e).getRabbitType();
+            if (e instanceof MushroomCow) return ((MushroomCow) e).getVariant();
+            if (e instanceof Creeper) return ((Creeper) e).isPowered();
+            return Boolean.FALSE;
+        } catch (Throwable t) {
+            return new Object();
+        }
+    }
+
+    private boolean isStackCandidate(LivingEntity e) {
+        try {
+            if (e.isLeashed() || e.isInsideVehicle() || !e.getPassengers().isEmpty()) return false;
+            if (e.getScoreboardTags().contains("PH_KEEP")) return false;
+            if (e.getCustomName() != null && (!stacks.containsKey(e.getUniqueId()) || !hasOwnName(e))) return false;
+            if (e instanceof Tameable && ((Tameable) e).isTamed()) return false;
+            if (e instanceof IronGolem && ((IronGolem) e).isPlayerCreated()) return false;
+            if (isSaddled(e)) return false;
+            EntityEquipment eq = e.getEquipment();
+            if (eq != null) {
+                for (ItemStack piece : eq.getArmorContents()) {
+                    if (piece != null && piece.getType() != Material.AIR) return false;
+                }
+            }
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    private static boolean isSaddled(LivingEntity e) {
+        if (e instanceof Pig) return ((Pig) e).hasSaddle();
+        try {
+            return e instanceof Steerable && ((Steerable) e).hasSaddle();
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    private static Material heldType(LivingEntity e) {
+        try {
+            EntityEquipment eq = e.getEquipment();
+            ItemStack held = eq == null ? null : eq.getItemInMainHand();
+            return held == null ? Material.AIR : held.getType();
+        } catch (Throwable t) {
+            return Material.AIR;
+        }
+    }
+
+    private int countOf(Entity e) {
+        Stack s = stacks.get(e.getUniqueId());
+        if (s != null) return Math.max(1, s.count);
+        return Math.max(1, readCount(e));
+    }
+
+    private int readCount(Entity e) {
+        try {
+            Integer v = e.getPersistentDataContainer().get(key, PersistentDataType.INTEGER);
+            return v == null ? 0 : v;
+        } catch (Throwable t) {
+            return 0;
+        }
+    }
+
+    private String stackName(int count) {
+        return ColorConverter.colorize(nameFormat.replace("{count}", Integer.toString(count)));
+    }
+
+    /** True unless a player renamed the carrier, i.e. its name is the one {@link #setCount} wrote. */
+    private boolean hasOwnName(LivingEntity e) {
+        String name = e.getCustomName();
+        return name == null || name.equals(stackName(countOf(e)));
+    }
+
+    /**
+     * Writes the stack size to the carrier's data and name tag; a size of one makes it a plain
+     * mob again. A name a player gave the carrier is never touched.
+     */
+    private void setCount(LivingEntity e, int count) {
+        UUID id = e.getUniqueId();
+        try {
+            PersistentDataContainer pdc = e.getPersistentDataContainer();
+            boolean ownName = hasOwnName(e);
+            if (count <= 1) {
+                boolean wasStack = stacks.remove(id) != null || pdc.has(key, PersistentDataType.INTEGER);
+                pdc.remove(key);
+                if (wasStack && ownName) {
+                    e.setCustomName(null);
+                    e.setCustomNameVisible(false);
+                }
+                return;
+            }
+            pdc.set(key, PersistentDataType.INTEGER, count);
+            if (ownName) {
+                e.setCustomName(stackName(count));
+                e.setCustomNameVisible(true);
+            }
+            Stack s = stacks.get(id);
+            if (s == null) stacks.put(id, new Stack(e.getWorld().getName(), count));
+            else s.count = count;
+        } catch (Throwable ignored) {}
+    }
+
+    /**
+     * Spawns a mob matching {@code source} at its feet, with its look, health, effects, fire,
+     * age and persistence, and gives it {@code count}.
+     */
+    private LivingEntity spawnCopy(LivingEntity source, Location at, int count) {
+        try {
+            World w = at.getWorld();
+            if (w == null) return null;
+            Entity spawned = w.spawnEntity(at, source.getType());
+            if (!(spawned instanceof LivingEntity) || !spawned.isValid()) {
+                if (spawned != null) spawned.remove();
+                return null;
+            }
+            LivingEntity copy = (LivingEntity) spawned;
+            try {
+                // setAge carries the breeding cooldown along with baby/adult.
+                if (source instanceof Ageable) ((Ageable) copy).setAge(((Ageable) source).getAge());
+                if (source instanceof Zombie) ((Zombie) copy).setBaby(((Zombie) source).isBaby());
+                if (source instanceof Sheep) {
+                    ((Sheep) copy).setColor(((Sheep) source).getColor());
+                    ((Sheep) copy).setSheared(((Sheep) source).isSheared());
+                }
+                if (source instanceof Rabbit) ((Rabbit) copy).setRabbitType(((Rabbit) source).getRabbitType());
+                if (source instanceof MushroomCow) ((MushroomCow) copy).setVariant(((MushroomCow) source).getVariant());
+                if (source instanceof Creeper) ((Creeper) copy).setPowered(((Creeper) source).isPowered());
+                copy.setRemoveWhenFarAway(source.getRemoveWhenFarAway());
+                copy.setFireTicks(source.getFireTicks());
+                copy.addPotionEffects(source.getActivePotionEffects());
+                copy.setHealth(Math.max(0.5, Math.min(source.getHealth(), ItemVersion.getMaxHealth(copy))));
+                EntityEquipment from = source.getEquipment(), to = copy.getEquipment();
+                if (from != null && to != null) {
+                    ItemStack held = from.getItemInMainHand();
+                    to.setItemInMainHand(held == null ? null : held.clone());
+                    to.setArmorContents(new ItemStack[4]);
+                }
+            } catch (Throwable ignored) {}
+            setCount(copy, count);
+            return copy;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * A killing blow on a carrier kills one mob: a copy takes the blow, drops and XP included,
+     * and the carrier keeps everything else with a fresh health bar and one fewer in the stack.
+     */
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onDamage(EntityDamageEvent e) {
+        Entity hit = e.getEntity();
+        if (!(hit instanceof LivingEntity)) return;
+        LivingEntity carrier = (LivingEntity) hit;
+        try {
+            if (e.getFinalDamage() < carrier.getHealth()) return;
+            int count = countOf(carrier);
+            if (count <= 1) return;
+            LivingEntity one = spawnCopy(carrier, carrier.getLocation(), 1);
+            if (one == null) return;
+            e.setCancelled(true);
+            Entity killer = e instanceof EntityDamageByEntityEvent ? ((EntityDamageByEntityEvent) e).getDamager() : null;
+            if (killer instanceof Projectile && ((Projectile) killer).getShooter() instanceof Entity) {
+                killer = (Entity) ((Projectile) killer).getShooter();
+            }
+            if (killer != null) one.damage(Float.MAX_VALUE, killer);
+            else one.damage(Float.MAX_VALUE);
+            if (one.isValid()) one.remove();
+            setCount(carrier, count - 1);
+            carrier.setHealth(Math.max(0.5, ItemVersion.getMaxHealth(carrier)));
+        } catch (Throwable ignored) {}
+    }
+
+    /** For deaths that skipped {@link #onDamage} (a plugin setting health to 0): the rest respawn as a new carrier. */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDeath(EntityDeathEvent e) {
+        LivingEntity dead = e.getEntity();
+        int count = countOf(dead);
+        stacks.remove(dead.getUniqueId());
+        if (count <= 1) return;
+        spawnCopy(dead, dead.getLocation(), count - 1);
+    }
+
+    /** Anything a player does to a stack happens to one mob, which is split off first. */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInteract(PlayerInteractEntityEvent e) {
+        Entity clicked = e.getRightClicked();
+        if (!(clicked instanceof LivingEntity)) return;
+        int count = countOf(clicked);
+        if (count <= 1) return;
+        LivingEntity mob = (LivingEntity) clicked;
+        LivingEntity rest = spawnCopy(mob, mob.getLocation(), count - 1);
+        if (rest == null) return;
+        setCount(mob, 1);
+        if (splitCooldownMs > 0L) {
+            long until = System.currentTimeMillis() + splitCooldownMs;
+            splitUntil.put(mob.getUniqueId(), until);
+            splitUntil.put(rest.getUniqueId(), until);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent e) {
+        try {
+            for (Entity en : e.getChunk().getEntities()) adopt(en);
+        } catch (Throwable ignored) {}
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        try {
+            for (Entity en : e.getChunk().getEntities()) stacks.remove(en.getUniqueId());
+        } catch (Throwable ignored) {}
+    }
+
+    /** Picks up a carrier stacked in an earlier session or before its chunk unloaded. */
+    private void adopt(Entity e) {
+        if (!(e instanceof LivingEntity)) return;
+        int count = readCount(e);
+        if (count > 1) stacks.put(e.getUniqueId(), new Stack(e.getWorld().getName(), count));
+    }
+
+    /** Once the server has recovered, spawns stacked mobs back out under a per-second budget. */
+    private void unstackTick() {
+        long now = System.currentTimeMillis();
+        splitUntil.values().removeIf(until -> until <= now);
+        if (scale < splitAboveScale || stacks.isEmpty()) return;
+        int budget = unstackPerSecond;
+        for (Iterator<Map.Entry<UUID, Stack>> it = stacks.entrySet().iterator(); it.hasNext() && budget > 0; ) {
+            Map.Entry<UUID, Stack> en = it.next();
+            Entity e = EntityLookup.getEntity(en.getKey());
+            if (!(e instanceof LivingEntity) || !e.isValid()) {
+                it.remove();
+                continue;
+            }
+            LivingEntity carrier = (LivingEntity) e;
+            int count = en.getValue().count;
+            int take = Math.min(budget, count - 1);
+            int spawned = 0;
+            for (int t = 0; t < take; t++) {
+                if (spawnCopy(carrier, carrier.getLocation(), 1) != null) spawned++;
+            }
+            budget -= Math.max(1, spawned);
+            setCount(carrier, count - spawned);
+            unstacked.addAndGet(spawned);
+        }
+    }
+
+    /** Mobs currently folded into carriers (stack size minus the carrier), per world. */
+    public Map<String, Long> getSavedByWorld() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Stack s : stacks.values()) {
+            if (s.count > 1) out.merge(s.world, (long) (s.count - 1), Long::sum);
+        }
+        return out;
+    }
+
+    public long getSavedTotal() {
+        long n = 0L;
+        for (Stack s : stacks.values()) n += Math.max(0, s.count - 1);
+        return n;
+    }
+
+    public int getCarrierCount() { return stacks.size(); }
+    public long getMerged() { return merged.get(); }
+    public long getUnstacked() { return unstacked.get(); }
+    public boolean isStacking() { return scale < stackBelowScale; }
+}
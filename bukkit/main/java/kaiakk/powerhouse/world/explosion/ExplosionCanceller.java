@@ -2,6 +2,7 @@ package kaiakk.powerhouse.world.explosion;
 
 import kaiakk.multimedia.classes.SchedulerHelper;
 import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.PlayerProximityIndex;
 import kaiakk.powerhouse.data.RecentActionTracker;
 import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
 import kaiakk.powerhouse.helpers.scaling.ScaleUtils;
@@ -24,7 +25,6 @@ import org.bukkit.scheduler.BukkitTask;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import org.bukkit.Material;
 import java.util.Comparator;
 import java.util.List;
 import org.bukkit.event.entity.EntityDamageEvent;
@@ -33,7 +33,7 @@ import java.util.Queue;
 
 public class ExplosionCanceller implements Listener {
     private final int threshold;
-    private final ConcurrentMap<BlockKey, Integer> explosionCounts = new ConcurrentHashMap<>();
+    private final kaiakk.powerhouse.data.RateCounter explosionCounts = new kaiakk.powerhouse.data.RateCounter("explosion limiter", kaiakk.powerhouse.data.RateWindow.fromConfig("explosion-limiter"), 5000);
     private final ConcurrentMap<java.util.UUID, String> tntOrigins = new ConcurrentHashMap<>();
     private final ConcurrentMap<java.util.UUID, Long> tntOriginTimestamps = new ConcurrentHashMap<>();
     private volatile long retentionWindowMs = 30_000L;
@@ -104,10 +104,7 @@ public class ExplosionCanceller implements Listener {
                     boolean nearPlayer = false;
                     try {
                         try {
-                            double radiusSqNearby = 3.0 * 3.0;
-                            for (Player p : loc.getWorld().getPlayers()) {
-                                try { if (p != null && p.getLocation().distanceSquared(loc) <= radiusSqNearby) { nearPlayer = true; break; } } catch (Throwable ignored) {}
-                            }
+                            nearPlayer = PlayerProximityIndex.anyWithin(loc, 3.0);
                             if (!nearPlayer) {
                                 try {
                                     java.util.Collection<Entity> found = loc.getWorld().getNearbyEntities(loc, 3.0, 3.0, 3.0);
@@ -181,13 +178,7 @@ public class ExplosionCanceller implements Listener {
                 java.util.Collection<Entity> found = loc.getWorld().getNearbyEntities(loc, radius, radius, radius, e -> e instanceof Player);
                 if (found != null && !found.isEmpty()) playerNearby = true;
             } catch (Throwable inner) {
-                double radiusSq = radius * radius;
-                for (Player p : loc.getWorld().getPlayers()) {
-                    if (p != null && p.getLocation().distanceSquared(loc) <= radiusSq) {
-                        playerNearby = true;
-                        break;
-                    }
-                }
+                playerNearby = PlayerProximityIndex.anyWithin(loc, radius);
             }
         } catch (Throwable ignored) {}
 
@@ -252,12 +243,12 @@ public class ExplosionCanceller implements Listener {
                     }
                 }
             } catch (Throwable ignored) {}
-        BlockKey key = BlockKey.from(loc);
-        if (key == null) return;
+        long key = BlockKey.pack(loc);
+        if (key == BlockKey.NO_KEY) return;
 
         double effectiveThreshold = getEffectiveThreshold();
 
-        int current = explosionCounts.merge(key, 1, Integer::sum);
+        int current = explosionCounts.increment(key, System.currentTimeMillis());
 
             if (current > (int) effectiveThreshold) {
             event.setCancelled(true);
@@ -279,14 +270,14 @@ public class ExplosionCanceller implements Listener {
             }
         }
 
-        if (b != null && (b.getType().name().contains("BED") || b.getType() == Material.RESPAWN_ANCHOR)) {
+        if (b != null && kaiakk.powerhouse.helpers.internal.MaterialClassifier.isExplosiveBlock(b.getType())) {
             event.setCancelled(true);
             PowerhouseLogger.warn("Blocked bed explosion at " + b.getX() + "," + b.getY() + "," + b.getZ());
         }
     }
 
     private void cleanupExpired() {
-        try { explosionCounts.clear(); } catch (Throwable ignored) {}
+        try { explosionCounts.purgeIdle(System.currentTimeMillis()); } catch (Throwable ignored) {}
         try {
             long now = System.currentTimeMillis();
             long cutoff = Math.max(10_000L, retentionWindowMs * 2);
@@ -315,7 +306,7 @@ public class ExplosionCanceller implements Listener {
             if (entity instanceof org.bukkit.entity.Player) return;
 
             org.bukkit.entity.EntityType t = entity.getType();
-            boolean isBackground = (t == EntityType.ARMOR_STAND || t == EntityType.ITEM_FRAME || t == EntityType.DROPPED_ITEM || t == EntityType.EXPERIENCE_ORB || t == EntityType.PAINTING);
+            boolean isBackground = kaiakk.powerhouse.helpers.internal.EntityTypeClassifier.isBackground(t);
             if (!isBackground) return;
 
             org.bukkit.Location loc = entity.getLocation();
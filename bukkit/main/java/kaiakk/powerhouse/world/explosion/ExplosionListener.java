@@ -2,10 +2,10 @@ package kaiakk.powerhouse.world.explosion;
 
 import kaiakk.multimedia.classes.SchedulerHelper;
 import kaiakk.powerhouse.calculations.Calculations;
+import kaiakk.powerhouse.data.PlayerProximityIndex;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -49,11 +49,7 @@ public class ExplosionListener implements Listener {
                 }
 
                 
-                boolean playerNearby = false;
-                for (Player p : loc.getWorld().getPlayers()) {
-                    try { if (p.getLocation().distanceSquared(loc) <= 256) { playerNearby = true; break; } } catch (Throwable ignored) {}
-                }
-                if (!playerNearby) {
+                if (!PlayerProximityIndex.anyWithin(loc, 16.0)) {
                     SchedulerHelper.run(plugin, () -> {
                         try { Calculations.markParticleLocationCulled(loc); } catch (Throwable ignored) {}
                     });
@@ -28,7 +28,7 @@ public class HopperLimiter implements Listener, Scalable {
     private volatile int maxTransfersPerSecond;
     private volatile int baseMaxTransfers;
     private static final int MAX_MAP_ENTRIES = 5000;
-    private final java.util.Map<Long, Integer> hopperTransferCount = createLRUMap(MAX_MAP_ENTRIES);
+    private final kaiakk.powerhouse.data.RateCounter hopperTransferCount = new kaiakk.powerhouse.data.RateCounter("hopper limiter", kaiakk.powerhouse.data.RateWindow.fromConfig("hopper-limiter"), MAX_MAP_ENTRIES);
     private final java.util.Map<Long, Long> proxyCooldowns = createLRUMap(MAX_MAP_ENTRIES);
     private final Map<UUID, Integer> worldIndexMap = new ConcurrentHashMap<>();
     private volatile BukkitTask cleanupTask = null;
@@ -58,7 +58,7 @@ public class HopperLimiter implements Listener, Scalable {
     }
 
     private void resetCounters() {
-        try { hopperTransferCount.clear(); } catch (Throwable ignored) {}
+        try { hopperTransferCount.purgeIdle(System.currentTimeMillis()); } catch (Throwable ignored) {}
         if (!proxyCooldowns.isEmpty()) {
             long now = System.currentTimeMillis();
             try {
@@ -144,7 +144,7 @@ public class HopperLimiter implements Listener, Scalable {
             } catch (Throwable ignored) {}
 
             int currentCount = 0;
-            try { currentCount = hopperTransferCount.merge(key, 1, Integer::sum); } catch (Throwable ignored) {}
+            try { currentCount = hopperTransferCount.increment(key, now); } catch (Throwable ignored) {}
             if (currentCount > effectiveLimit) {
                 event.setCancelled(true);
             }
@@ -0,0 +1,331 @@
+package kaiakk.powerhouse.world.limiters;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.internal.MaterialClassifier;
+import kaiakk.powerhouse.world.physics.PhysicsReplay;
+
+/**
+ * Collects block refreshes for redstone that was un-culled or replayed, merges duplicates and
+ * applies them chunk by chunk on the main thread under a per-tick time budget. Work that does
+ * not fit is kept for the next tick, and overshooting the budget is paid back the tick after.
+ */
+public class RedstoneRefreshPlanner {
+    /** Refresh whatever block is there. */
+    public static final int ANY = 0;
+    /** Only refresh redstone components. */
+    public static final int REDSTONE_ONLY = 1;
+    /** Only refresh when the block reports a power level above zero. */
+    public static final int POWERED_ONLY = 2;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final MethodHandle NO_POWER = MethodHandles.dropArguments(MethodHandles.constant(int.class, 0), 0, Object.class);
+    private static final ConcurrentHashMap<Class<?>, MethodHandle> POWER_GETTERS = new ConcurrentHashMap<>();
+
+    private final Plugin plugin;
+    private final long budgetNanos;
+    private volatile BukkitTask task = null;
+    private long credit = 0L;
+
+    // Pending keys in insertion order, plus an open-addressing index of key -> flags for dedup.
+    private long[] queue = new long[MIN_CAPACITY];
+    private int queueSize = 0;
+    private int queueHead = 0;
+    private int sortedUpTo = 0;
+    private long[] keys = new long[MIN_CAPACITY * 2];
+    private byte[] flags = new byte[MIN_CAPACITY * 2];
+    private int pending = 0;
+
+    private volatile int lastTickRefreshes = 0;
+    private volatile double avgRefreshesPerTick = 0.0;
+    private final AtomicLong planned = new AtomicLong(0);
+    private final AtomicLong merged = new AtomicLong(0);
+    private final AtomicLong refreshed = new AtomicLong(0);
+
+    public RedstoneRefreshPlanner(Plugin plugin) {
+        this.plugin = plugin;
+        this.budgetNanos = Math.max(50L, ConfigHelp.getInt("redstone-culling.refresh-budget-micros", 1000)) * 1000L;
+    }
+
+    public void start() {
+        if (task != null) return;
+        try {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+                public void run() { tickMain(); }
+            }, 1L, 1L);
+        } catch (Throwable t) {
+            task = null;
+        }
+    }
+
+    public void stop() {
+        if (task != null) {
+            try { task.cancel(); } catch (Throwable ignored) {}
+            task = null;
+        }
+        clear();
+    }
+
+    public synchronized void clear() {
+        queue = new long[MIN_CAPACITY];
+        queueSize = 0;
+        queueHead = 0;
+        sortedUpTo = 0;
+        keys = new long[MIN_CAPACITY * 2];
+        flags = new byte[MIN_CAPACITY * 2];
+        pending = 0;
+        credit = 0L;
+    }
+
+    public synchronized void plan(long key, int mode) {
+        if (key == BlockKey.NO_KEY) return;
+        planned.incrementAndGet();
+        int mask = keys.length - 1;
+        int idx = hash(key) & mask;
+        while (keys[idx] != 0L) {
+            if (keys[idx] == key) {
+                // The least restrictive request wins.
+                flags[idx] = (byte) (flags[idx] & mode);
+                merged.incrementAndGet();
+                return;
+            }
+            idx = (idx + 1) & mask;
+        }
+        keys[idx] = key;
+        flags[idx] = (byte) mode;
+        pending++;
+        if (queueHead + queueSize == queue.length) {
+            if (queueHead > 0) {
+                System.arraycopy(queue, queueHead, queue, 0, queueSize);
+                queueHead = 0;
+            }
+            if (queueSize == queue.length) queue = Arrays.copyOf(queue, queue.length << 1);
+        }
+        queue[queueHead + queueSize++] = key;
+        if (pending * 2 > keys.length) rehash(keys.length << 1);
+    }
+
+    /** The block itself (if powered) and the blocks around it whose state depends on it. */
+    public void planNeighbours(long key) {
+        if (key == BlockKey.NO_KEY) return;
+        int w = BlockKey.unpackWorld(key);
+        int x = BlockKey.unpackX(key), y = BlockKey.unpackY(key), z = BlockKey.unpackZ(key);
+        plan(key, POWERED_ONLY);
+        plan(BlockKey.pack(w, x, y + 1, z), ANY);
+        plan(BlockKey.pack(w, x, y - 1, z), ANY);
+        for (int d = 1; d <= 2; d++) {
+            plan(BlockKey.pack(w, x + d, y, z), ANY);
+            plan(BlockKey.pack(w, x - d, y, z), ANY);
+            plan(BlockKey.pack(w, x, y, z + d), ANY);
+            plan(BlockKey.pack(w, x, y, z - d), ANY);
+        }
+        plan(BlockKey.pack(w, x, y - 2, z), ANY);
+        plan(BlockKey.pack(w, x + 1, y - 2, z), ANY);
+        plan(BlockKey.pack(w, x - 1, y - 2, z), ANY);
+        plan(BlockKey.pack(w, x, y - 2, z + 1), ANY);
+        plan(BlockKey.pack(w, x, y - 2, z - 1), ANY);
+    }
+
+    public void planBox(String worldName, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int mode) {
+        int w = BlockKey.worldIndex(worldName);
+        if (w <= 0) return;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    plan(BlockKey.pack(w, x, y, z), mode);
+                }
+            }
+        }
+    }
+
+    private void tickMain() {
+        long start = System.nanoTime();
+        long allowance;
+        synchronized (this) {
+            credit = Math.min(budgetNanos, credit) + budgetNanos;
+            allowance = credit;
+            if (queueSize == 0) {
+                recordTick(0);
+                return;
+            }
+            sortPending();
+        }
+        int done = 0;
+        World world = null;
+        int worldIndex = -1;
+        while (true) {
+            long key;
+            int mode;
+            synchronized (this) {
+                if (queueSize == 0) break;
+                key = queue[queueHead++];
+                queueSize--;
+                if (sortedUpTo > 0) sortedUpTo--;
+                mode = take(key);
+                if (queueSize == 0) {
+                    queueHead = 0;
+                    sortedUpTo = 0;
+                }
+            }
+            if (mode < 0) continue;
+            try {
+                int wi = BlockKey.unpackWorld(key);
+                if (wi != worldIndex) {
+                    worldIndex = wi;
+                    String name = BlockKey.worldName(wi);
+                    world = name == null ? null : Bukkit.getWorld(name);
+                }
+                if (world != null && apply(world, key, mode)) done++;
+            } catch (Throwable ignored) {}
+            if (System.nanoTime() - start >= allowance) break;
+        }
+        synchronized (this) {
+            credit -= System.nanoTime() - start;
+        }
+        refreshed.addAndGet(done);
+        recordTick(done);
+    }
+
+    private boolean apply(World world, long key, int mode) {
+        int x = BlockKey.unpackX(key), z = BlockKey.unpackZ(key);
+        if (!world.isChunkLoaded(x >> 4, z >> 4)) return false;
+        Block block = world.getBlockAt(x, BlockKey.unpackY(key), z);
+        if ((mode & REDSTONE_ONLY) != 0 && !MaterialClassifier.isRedstoneComponent(block.getType())) return false;
+        if ((mode & POWERED_ONLY) != 0 && powerOf(block) <= 0) return false;
+        return PhysicsReplay.replay(block);
+    }
+
+    private void recordTick(int done) {
+        lastTickRefreshes = done;
+        avgRefreshesPerTick = avgRefreshesPerTick * 0.95 + done * 0.05;
+    }
+
+    /** Groups the not-yet-sorted tail of the queue by chunk so block lookups stay local. */
+    private void sortPending() {
+        int from = queueHead + sortedUpTo;
+        int to = queueHead + queueSize;
+        if (to - from < 2) {
+            sortedUpTo = queueSize;
+            return;
+        }
+        for (int i = from; i < to; i++) queue[i] = toChunkMajor(queue[i]);
+        Arrays.sort(queue, from, to);
+        for (int i = from; i < to; i++) queue[i] = fromChunkMajor(queue[i]);
+        sortedUpTo = queueSize;
+    }
+
+    // world(6)|y(12)|x(23)|z(23) <-> world(6)|x>>4(19)|z>>4(19)|y(12)|x&15(4)|z&15(4)
+    static long toChunkMajor(long k) {
+        long world = k >>> 58;
+        long y = (k >>> 46) & 0xFFFL;
+        long x = (k >>> 23) & 0x7FFFFFL;
+        long z = k & 0x7FFFFFL;
+        return (world << 58) | ((x >>> 4) << 39) | ((z >>> 4) << 20) | (y << 8) | ((x & 15L) << 4) | (z & 15L);
+    }
+
+    static long fromChunkMajor(long c) {
+        long world = c >>> 58;
+        long x = (((c >>> 39) & 0x7FFFFL) << 4) | ((c >>> 4) & 15L);
+        long z = (((c >>> 20) & 0x7FFFFL) << 4) | (c & 15L);
+        long y = (c >>> 8) & 0xFFFL;
+        return (world << 58) | (y << 46) | (x << 23) | z;
+    }
+
+    /** Removes {@code key} from the dedup index and returns its flags, or -1 if it was not there. */
+    private int take(long key) {
+        int mask = keys.length - 1;
+        int idx = hash(key) & mask;
+        while (keys[idx] != key) {
+            if (keys[idx] == 0L) return -1;
+            idx = (idx + 1) & mask;
+        }
+        int mode = flags[idx];
+        // Backward-shift deletion keeps probe chains intact without tombstones.
+        int gap = idx;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0L) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                flags[gap] = flags[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0L;
+        flags[gap] = 0;
+        pending--;
+        return mode;
+    }
+
+    private void rehash(int capacity) {
+        long[] oKeys = keys;
+        byte[] oFlags = flags;
+        keys = new long[capacity];
+        flags = new byte[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oKeys.length; i++) {
+            long k = oKeys[i];
+            if (k == 0L) continue;
+            int idx = hash(k) & mask;
+            while (keys[idx] != 0L) idx = (idx + 1) & mask;
+            keys[idx] = k;
+            flags[idx] = oFlags[i];
+        }
+    }
+
+    private static int hash(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        return (int) key;
+    }
+
+    /** Power level through a {@code getPower()} handle cached per block data class; 0 when there is none. */
+    static int powerOf(Block block) {
+        try {
+            Object data = block.getBlockData();
+            if (data == null) return 0;
+            MethodHandle h = POWER_GETTERS.get(data.getClass());
+            if (h == null) {
+                h = resolvePowerGetter(data.getClass());
+                POWER_GETTERS.put(data.getClass(), h);
+            }
+            return (int) h.invokeExact(data);
+        } catch (Throwable ignored) {
+            return 0;
+        }
+    }
+
+    private static MethodHandle resolvePowerGetter(Class<?> cls) {
+        try {
+            Method m = cls.getMethod("getPower");
+            if (m.getReturnType() != int.class) return NO_POWER;
+            try { m.setAccessible(true); } catch (Throwable ignored) {}
+            return MethodHandles.lookup().unreflect(m).asType(MethodType.methodType(int.class, Object.class));
+        } catch (Throwable t) {
+            return NO_POWER;
+        }
+    }
+
+    public int getLastTickRefreshes() { return lastTickRefreshes; }
+    public double getAverageRefreshesPerTick() { return avgRefreshesPerTick; }
+    public synchronized int getPendingCount() { return pending; }
+    public long getPlanned() { return planned.get(); }
+    public long getMerged() { return merged.get(); }
+    public long getRefreshed() { return refreshed.get(); }
+}
@@ -0,0 +1,225 @@
+package kaiakk.powerhouse.world.limiters;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kaiakk.powerhouse.calculations.Calculations;
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+import kaiakk.powerhouse.helpers.scaling.Scalable;
+import kaiakk.powerhouse.helpers.scaling.ScaleUtils;
+import kaiakk.powerhouse.world.physics.PhysicsReplay;
+
+public class RedstoneTimeDilation implements Scalable {
+    private static final int MAX_DEFERRED_PER_CHUNK = 4096;
+    private static final int IDLE_TICKS_BEFORE_EVICT = 200;
+
+    private final Plugin plugin;
+    private final RedstoneRefreshPlanner planner;
+    private final int maxBudgetPerTick;
+    private final int minBudgetPerTick;
+    private volatile double budgetPerTick;
+    private final ConcurrentHashMap<Long, Bucket> buckets = new ConcurrentHashMap<>();
+    private volatile Bucket lastBucket = null;
+    private volatile BukkitTask task = null;
+    private long tick = 0L;
+
+    private final AtomicLong admitted = new AtomicLong(0);
+    private final AtomicLong deferred = new AtomicLong(0);
+    private final AtomicLong replayed = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    public RedstoneTimeDilation(Plugin plugin) {
+        this(plugin, null);
+    }
+
+    public RedstoneTimeDilation(Plugin plugin, RedstoneRefreshPlanner planner) {
+        this.plugin = plugin;
+        this.planner = planner;
+        this.maxBudgetPerTick = Math.max(1, ConfigHelp.getInt("redstone-culling.chunk-budget-per-tick", 32));
+        this.minBudgetPerTick = Math.max(1, Math.min(maxBudgetPerTick, ConfigHelp.getInt("redstone-culling.min-chunk-budget-per-tick", 2)));
+        this.budgetPerTick = maxBudgetPerTick;
+    }
+
+    @Override
+    public void setScale(double scale) {
+        budgetPerTick = Math.max(minBudgetPerTick, ScaleUtils.lerp(minBudgetPerTick, maxBudgetPerTick, scale));
+    }
+
+    public void start() {
+        if (task != null) return;
+        try {
+            setScale(ScaleUtils.continuousScaleFromMspt(ScaleUtils.getSmoothedMspt()));
+            task = Bukkit.getScheduler().runTaskTimer(plugin, new Runnable() {
+                public void run() { tickMain(); }
+            }, 1L, 1L);
+            PowerhouseLogger.info("Redstone time dilation enabled (" + minBudgetPerTick + "-" + maxBudgetPerTick + " updates/tick/chunk)");
+        } catch (Throwable t) {
+            task = null;
+        }
+    }
+
+    public void stop() {
+        if (task != null) {
+            try { task.cancel(); } catch (Throwable ignored) {}
+            task = null;
+        }
+        buckets.clear();
+        lastBucket = null;
+    }
+
+    /**
+     * Called for a physics update on a culled block. Returns true when the chunk still has
+     * budget this tick; otherwise the block is queued for a later replay and the caller
+     * should cancel the event. The event a replay fires is always admitted: its token was
+     * already spent when {@link #tickMain} polled the key.
+     */
+    public boolean admit(Block block) {
+        if (PhysicsReplay.isReplaying()) return true;
+        if (task == null || block == null || block.getWorld() == null) return false;
+        long key = BlockKey.pack(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+        if (key == BlockKey.NO_KEY) return false;
+        Bucket b = bucketFor(BlockKey.chunkKey(key));
+        synchronized (b) {
+            b.lastTouchedTick = tick;
+            if (b.tokens >= 1.0) {
+                b.tokens -= 1.0;
+                admitted.incrementAndGet();
+                return true;
+            }
+            if (!Calculations.markDeferred(key)) return false;
+            if (!b.offer(key)) {
+                Calculations.clearDeferred(key);
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        deferred.incrementAndGet();
+        return false;
+    }
+
+    private Bucket bucketFor(long chunkKey) {
+        Bucket last = lastBucket;
+        if (last != null && last.chunkKey == chunkKey) return last;
+        Bucket b = buckets.get(chunkKey);
+        if (b == null) {
+            Bucket created = new Bucket(chunkKey, budgetPerTick);
+            b = buckets.putIfAbsent(chunkKey, created);
+            if (b == null) b = created;
+        }
+        lastBucket = b;
+        return b;
+    }
+
+    private void tickMain() {
+        tick++;
+        if (buckets.isEmpty()) return;
+        final double budget = budgetPerTick;
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket b = it.next();
+            try {
+                long[] replay = null;
+                int n = 0;
+                synchronized (b) {
+                    b.tokens = Math.min(budget * 2.0, b.tokens + budget);
+                    if (b.size > 0) {
+                        n = Math.min(b.size, (int) b.tokens);
+                        if (n > 0) {
+                            replay = new long[n];
+                            for (int i = 0; i < n; i++) replay[i] = b.poll();
+                            b.tokens -= n;
+                        }
+                    } else if (tick - b.lastTouchedTick > IDLE_TICKS_BEFORE_EVICT) {
+                        it.remove();
+                        if (lastBucket == b) lastBucket = null;
+                        continue;
+                    }
+                }
+                if (replay != null) replay(replay, n);
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    private void replay(long[] keys, int n) {
+        World w = null;
+        int worldIndex = -1;
+        for (int i = 0; i < n; i++) {
+            long key = keys[i];
+            Calculations.clearDeferred(key);
+            if (planner != null) {
+                planner.plan(key, RedstoneRefreshPlanner.ANY);
+                replayed.incrementAndGet();
+                continue;
+            }
+            try {
+                int wi = BlockKey.unpackWorld(key);
+                if (wi != worldIndex) {
+                    worldIndex = wi;
+                    String name = BlockKey.worldName(wi);
+                    w = name == null ? null : Bukkit.getWorld(name);
+                }
+                if (w == null) continue;
+                int x = BlockKey.unpackX(key), z = BlockKey.unpackZ(key);
+                if (!w.isChunkLoaded(x >> 4, z >> 4)) continue;
+                Block block = w.getBlockAt(x, BlockKey.unpackY(key), z);
+                if (PhysicsReplay.replay(block)) replayed.incrementAndGet();
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    public int getDilatedChunks() { return buckets.size(); }
+    public double getBudgetPerTick() { return budgetPerTick; }
+    public long getAdmitted() { return admitted.get(); }
+    public long getDeferred() { return deferred.get(); }
+    public long getReplayed() { return replayed.get(); }
+    public long getDropped() { return dropped.get(); }
+
+    public int getQueuedCount() {
+        int total = 0;
+        for (Bucket b : buckets.values()) total += b.size;
+        return total;
+    }
+
+    private static final class Bucket {
+        final long chunkKey;
+        double tokens;
+        long lastTouchedTick;
+        long[] queue = new long[16];
+        int head = 0;
+        int size = 0;
+
+        Bucket(long chunkKey, double tokens) {
+            this.chunkKey = chunkKey;
+            this.tokens = tokens;
+        }
+
+        boolean offer(long key) {
+            if (size == queue.length) {
+                if (queue.length >= MAX_DEFERRED_PER_CHUNK) return false;
+                long[] grown = new long[queue.length << 1];
+                for (int i = 0; i < size; i++) grown[i] = queue[(head + i) & (queue.length - 1)];
+                queue = grown;
+                head = 0;
+            }
+            queue[(head + size) & (queue.length - 1)] = key;
+            size++;
+            return true;
+        }
+
+        long poll() {
+            long key = queue[head];
+            head = (head + 1) & (queue.length - 1);
+            size--;
+            return key;
+        }
+    }
+}
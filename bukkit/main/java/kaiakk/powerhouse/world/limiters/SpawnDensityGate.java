@@ -0,0 +1,206 @@
+package kaiakk.powerhouse.world.limiters;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Ambient;
+import org.bukkit.entity.Animals;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Flying;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Monster;
+import org.bukkit.entity.Slime;
+import org.bukkit.entity.Tameable;
+import org.bukkit.entity.WaterMob;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.CreatureSpawnEvent.SpawnReason;
+import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.PlayerProximityIndex;
+import kaiakk.powerhouse.data.RecentActionTracker;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+import kaiakk.powerhouse.helpers.scaling.Scalable;
+import kaiakk.powerhouse.helpers.scaling.ScaleUtils;
+import kaiakk.powerhouse.world.AllOptimizations;
+import kaiakk.powerhouse.world.entity.ChunkEntityIndex;
+import kaiakk.powerhouse.world.physics.ItemRemover;
+
+/**
+ * Cancels natural spawns into chunks that already hold their category's cap, read from the
+ * live {@link ChunkEntityIndex} so the check costs a map lookup rather than a chunk walk.
+ * Caps come from {@code spawn-gate.caps.<category>} and shrink with the dynamic scale.
+ * Named, tamed and {@code PH_KEEP} entities and anything a player caused are let through.
+ */
+public class SpawnDensityGate implements Listener, Scalable {
+    public enum Category {
+        MONSTER(32), ANIMAL(24), WATER(16), AMBIENT(8), ITEM(96);
+
+        final int defaultCap;
+
+        Category(int defaultCap) {
+            this.defaultCap = defaultCap;
+        }
+
+        public String configKey() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final EntityType[] TYPES = EntityType.values();
+
+    /**
+     * Spawn reasons that come from a player or a plugin rather than the world, plus conversions:
+     * CraftBukkit still removes the original mob when its conversion spawn is cancelled, so
+     * gating those would delete a mob without lowering the count.
+     */
+    private static final Set<SpawnReason> EXEMPT_REASONS = exemptReasons(
+            "SPAWNER_EGG", "BREEDING", "BUILD_SNOWMAN", "BUILD_IRONGOLEM", "BUILD_WITHER", "CUSTOM", "COMMAND",
+            "DISPENSE_EGG", "EGG", "CURED", "SHOULDER_ENTITY", "SHEARED", "BUCKET", "ENDER_PEARL",
+            "INFECTION", "DROWNED", "LIGHTNING", "FROZEN", "PIGLIN_ZOMBIFIED", "METAMORPHOSIS");
+
+    private static Set<SpawnReason> exemptReasons(String... names) {
+        Set<SpawnReason> set = EnumSet.noneOf(SpawnReason.class);
+        for (String n : names) {
+            try { set.add(SpawnReason.valueOf(n)); } catch (Throwable ignored) {}
+        }
+        return set;
+    }
+
+    private final Plugin plugin;
+    private final byte[] categoryOf = new byte[TYPES.length];
+    private final long[][] masks = new long[CATEGORIES.length][(TYPES.length + 63) >>> 6];
+    private final int[] baseCaps = new int[CATEGORIES.length];
+    private volatile int[] caps = new int[CATEGORIES.length];
+    private final double minScaleMultiplier;
+    private final double itemPlayerRadius;
+    private final AtomicLong[] prevented = new AtomicLong[CATEGORIES.length];
+    private boolean registered = false;
+
+    public SpawnDensityGate(Plugin plugin) {
+        this.plugin = plugin;
+        for (int c = 0; c < CATEGORIES.length; c++) {
+            baseCaps[c] = Math.max(1, ConfigHelp.getInt("spawn-gate.caps." + CATEGORIES[c].configKey(), CATEGORIES[c].defaultCap));
+            prevented[c] = new AtomicLong(0);
+        }
+        caps = baseCaps.clone();
+        this.minScaleMultiplier = Math.max(0.1, Math.min(1.0, ConfigHelp.getDouble("spawn-gate.min-scale-multiplier", 0.5)));
+        this.itemPlayerRadius = Math.max(0.0, ConfigHelp.getDouble("spawn-gate.item-player-radius", 6.0));
+        for (EntityType t : TYPES) {
+            Category c = classify(t);
+            categoryOf[t.ordinal()] = (byte) (c == null ? -1 : c.ordinal());
+            if (c != null) masks[c.ordinal()][t.ordinal() >>> 6] |= 1L << t.ordinal();
+        }
+    }
+
+    private static Category classify(EntityType type) {
+        try {
+            Class<?> cls = type.getEntityClass();
+            if (cls == null) return null;
+            if (Item.class.isAssignableFrom(cls)) return Category.ITEM;
+            if (Monster.class.isAssignableFrom(cls) || Slime.class.isAssignableFrom(cls) || Flying.class.isAssignableFrom(cls)) return Category.MONSTER;
+            if (Animals.class.isAssignableFrom(cls)) return Category.ANIMAL;
+            if (WaterMob.class.isAssignableFrom(cls)) return Category.WATER;
+            if (Ambient.class.isAssignableFrom(cls)) return Category.AMBIENT;
+        } catch (Throwable ignored) {}
+        return null;
+    }
+
+    @Override
+    public void setScale(double scale) {
+        double m = ScaleUtils.multiplierFromScale(scale, minScaleMultiplier, 1.0);
+        int[] next = new int[CATEGORIES.length];
+        for (int c = 0; c < next.length; c++) next[c] = Math.max(1, (int) Math.round(baseCaps[c] * m));
+        caps = next;
+    }
+
+    /** Registers the listeners; stays off when the entity index is unavailable (e.g. on Folia). */
+    public void start() {
+        if (registered || ChunkEntityIndex.getInstance() == null) return;
+        try {
+            Bukkit.getPluginManager().registerEvents(this, plugin);
+            registered = true;
+            PowerhouseLogger.info("Spawn density gate enabled");
+        } catch (Throwable ignored) {}
+    }
+
+    public void stop() {
+        if (!registered) return;
+        try { HandlerList.unregisterAll(this); } catch (Throwable ignored) {}
+        registered = false;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onCreatureSpawn(CreatureSpawnEvent e) {
+        if (EXEMPT_REASONS.contains(e.getSpawnReason())) return;
+        if (shouldPrevent(e.getEntity(), e.getLocation())) e.setCancelled(true);
+    }
+
+    /** Items get the same protection as {@link ItemRemover}; without the action tracker they are not gated at all. */
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onItemSpawn(ItemSpawnEvent e) {
+        Location loc = e.getLocation();
+        if (itemPlayerRadius > 0.0 && PlayerProximityIndex.anyWithin(loc, itemPlayerRadius)) return;
+        RecentActionTracker tracker = RecentActionTracker.getInstance();
+        if (tracker == null) return;
+        try {
+            if (ItemRemover.isProtected(e.getEntity().getItemStack())) return;
+            if (tracker.wasEntityRecentlyPlayerSpawned(e.getEntity().getUniqueId())) return;
+            BlockKey bk = BlockKey.from(loc);
+            if (bk != null && (tracker.wasRecentDispense(bk) || tracker.wasRecentPlayerPlacement(bk))) return;
+        } catch (Throwable t) {
+            return;
+        }
+        if (shouldPrevent(e.getEntity(), loc)) e.setCancelled(true);
+    }
+
+    private boolean shouldPrevent(Entity entity, Location loc) {
+        if (entity == null || loc == null) return false;
+        int c = categoryOf[entity.getType().ordinal()];
+        if (c < 0) return false;
+        World world = loc.getWorld();
+        ChunkEntityIndex index = ChunkEntityIndex.getInstance();
+        if (world == null || index == null) return false;
+        if (index.chunkCount(world, loc.getBlockX() >> 4, loc.getBlockZ() >> 4, masks[c]) < caps[c]) return false;
+        if (isExempt(entity)) return false;
+        prevented[c].incrementAndGet();
+        try {
+            AllOptimizations ao = AllOptimizations.getInstance();
+            if (ao != null) ao.addPreventedSpawns(1);
+        } catch (Throwable ignored) {}
+        return true;
+    }
+
+    private static boolean isExempt(Entity entity) {
+        try { if (entity.getCustomName() != null) return true; } catch (Throwable ignored) {}
+        try { if (entity instanceof Tameable && ((Tameable) entity).isTamed()) return true; } catch (Throwable ignored) {}
+        try { if (entity.getScoreboardTags().contains("PH_KEEP")) return true; } catch (Throwable ignored) {}
+        try {
+            RecentActionTracker tracker = RecentActionTracker.getInstance();
+            if (tracker != null && tracker.wasEntityRecentlyPlayerSpawned(entity.getUniqueId())) return true;
+        } catch (Throwable ignored) {}
+        return false;
+    }
+
+    public int getCap(Category category) { return caps[category.ordinal()]; }
+    public long getPrevented(Category category) { return prevented[category.ordinal()].get(); }
+
+    public long getPreventedTotal() {
+        long n = 0L;
+        for (AtomicLong a : prevented) n += a.get();
+        return n;
+    }
+}
@@ -0,0 +1,505 @@
+package kaiakk.powerhouse.world.limiters;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.CreatureSpawner;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.CreatureSpawnEvent.SpawnReason;
+import org.bukkit.event.entity.SpawnerSpawnEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+import kaiakk.multimedia.classes.SchedulerHelper;
+import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.LongIntMap;
+import kaiakk.powerhouse.helpers.internal.ConfigHelp;
+import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
+import kaiakk.powerhouse.helpers.scaling.Scalable;
+import kaiakk.powerhouse.helpers.scaling.ScaleUtils;
+import kaiakk.powerhouse.world.AllOptimizations;
+import kaiakk.powerhouse.world.entity.ChunkEntityIndex;
+
+/**
+ * Per-spawner token buckets. Each spawner block that fires is given a slot (packed block key to
+ * slot index in a {@link LongIntMap}, state in parallel arrays). Buckets refill at
+ * {@code spawner-throttle.spawns-per-minute}, scaled down by the dynamic scale, by the number of
+ * the spawned type already standing in the 3x3 chunks around the spawner, and by the size of the
+ * farm cluster the spawner belongs to. A spawn without a token is cancelled and the spawner's
+ * delay pushed out until the next token is due, so the mob is never created rather than culled later.
+ * Spawners whose chunk unloads or that stop firing are dropped; if the table still fills up, the
+ * least recently seen eighth makes room.
+ */
+public class SpawnerThrottle implements Listener, Scalable {
+    private static final int MAX_SPAWNERS = 4096;
+    private static final long MAINTENANCE_SECONDS = 5L;
+    private static final int MIN_DELAY_TICKS = 20;
+    /** Slots freed at once when the table is full of active spawners. */
+    private static final int EVICT_BATCH = MAX_SPAWNERS / 8;
+
+    /** One row of {@link #getTopSpawners}; a copy, safe to hand to other threads. */
+    public static final class SpawnerInfo {
+        public final String world;
+        public final int x, y, z;
+        public final String type;
+        public final double spawnsPerMinute;
+        public final long spawned;
+        public final long throttled;
+        public final int density;
+        public final int clusterSize;
+        public final double cost;
+
+        SpawnerInfo(String world, int x, int y, int z, String type, double spawnsPerMinute, long spawned, long throttled, int density, int clusterSize, double cost) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.type = type;
+            this.spawnsPerMinute = spawnsPerMinute;
+            this.spawned = spawned;
+            this.throttled = throttled;
+            this.density = density;
+            this.clusterSize = clusterSize;
+            this.cost = cost;
+        }
+    }
+
+    private final Plugin plugin;
+    private final double baseSpawnsPerMinute;
+    private final double burst;
+    private final double minScaleMultiplier;
+    private final int densitySoft;
+    private final int densityHard;
+    private final double clusterRadius;
+    private final double clusterPenalty;
+    private final int maxDelayTicks;
+    private final long idleMs;
+
+    private final LongIntMap slots = new LongIntMap(64);
+    /** Tracked spawners per chunk ({@link BlockKey#chunkKey}), so most chunk unloads are a single lookup. */
+    private final LongIntMap perChunk = new LongIntMap(64);
+    private long[] keys = new long[64];
+    private int[] typeOrdinal = new int[64];
+    private double[] tokens = new double[64];
+    private long[] lastRefillMs = new long[64];
+    private long[] lastSeenMs = new long[64];
+    private long[] delayedUntilMs = new long[64];
+    private int[] windowSpawns = new int[64];
+    private double[] spawnsPerMinute = new double[64];
+    private long[] spawned = new long[64];
+    private long[] throttled = new long[64];
+    private int[] density = new int[64];
+    private int[] clusterSize = new int[64];
+    private int count = 0;
+    private int clusters = 0;
+    private boolean warnedFull = false;
+    private final AtomicLong evicted = new AtomicLong(0);
+
+    private volatile double scaleMultiplier = 1.0;
+    /** Spawner whose spawn was just admitted; its CreatureSpawnEvent follows on the same tick. */
+    private long pendingKey = BlockKey.NO_KEY;
+    private volatile BukkitTask maintenanceTask = null;
+    private boolean registered = false;
+
+    private final AtomicLong admittedTotal = new AtomicLong(0);
+    private final AtomicLong throttledTotal = new AtomicLong(0);
+    private final AtomicLong delayedTotal = new AtomicLong(0);
+    private final AtomicLong refunded = new AtomicLong(0);
+
+    public SpawnerThrottle(Plugin plugin) {
+        this.plugin = plugin;
+        this.baseSpawnsPerMinute = Math.max(0.1, ConfigHelp.getDouble("spawner-throttle.spawns-per-minute", 12.0));
+        this.burst = Math.max(1.0, ConfigHelp.getDouble("spawner-throttle.burst", 8.0));
+        this.minScaleMultiplier = Math.max(0.0, Math.min(1.0, ConfigHelp.getDouble("spawner-throttle.min-scale-multiplier", 0.25)));
+        this.densitySoft = Math.max(1, ConfigHelp.getInt("spawner-throttle.density-soft", 16));
+        this.densityHard = Math.max(densitySoft + 1, ConfigHelp.getInt("spawner-throttle.density-hard", 48));
+        this.clusterRadius = Math.max(1.0, ConfigHelp.getDouble("spawner-throttle.cluster-radius", 16.0));
+        this.clusterPenalty = Math.max(0.0, ConfigHelp.getDouble("spawner-throttle.cluster-penalty", 0.5));
+        this.maxDelayTicks = Math.max(MIN_DELAY_TICKS, ConfigHelp.getInt("spawner-throttle.max-delay-ticks", 1200));
+        this.idleMs = Math.max(10, ConfigHelp.getInt("spawner-throttle.idle-seconds", 300)) * 1000L;
+    }
+
+    @Override
+    public void setScale(double scale) {
+        scaleMultiplier = ScaleUtils.multiplierFromScale(scale, minScaleMultiplier, 1.0);
+    }
+
+    public void start() {
+        if (registered) return;
+        try {
+            Bukkit.getPluginManager().registerEvents(this, plugin);
+            registered = true;
+        } catch (Throwable ignored) {
+            return;
+        }
+        maintenanceTask = SchedulerHelper.runTimerSeconds(plugin, new Runnable() {
+            public void run() { maintain(); }
+        }, MAINTENANCE_SECONDS, MAINTENANCE_SECONDS);
+        PowerhouseLogger.info("Spawner throttle enabled (" + baseSpawnsPerMinute + " spawns/min per spawner, burst " + (int) burst + ")");
+    }
+
+    public synchronized void stop() {
+        if (!registered) return;
+        registered = false;
+        try { HandlerList.unregisterAll(this); } catch (Throwable ignored) {}
+        try { if (maintenanceTask != null) { SchedulerHelper.cancelTask(maintenanceTask); maintenanceTask = null; } } catch (Throwable ignored) {}
+        slots.clear();
+        perChunk.clear();
+        count = 0;
+        clusters = 0;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onSpawnerSpawn(SpawnerSpawnEvent e) {
+        CreatureSpawner spawner = e.getSpawner();
+        Location loc = spawner != null ? spawner.getLocation() : null;
+        Entity entity = e.getEntity();
+        if (loc == null || entity == null) return;
+        long key = BlockKey.pack(loc);
+        if (key == BlockKey.NO_KEY) return;
+        long now = System.currentTimeMillis();
+        int delayTicks;
+        synchronized (this) {
+            int slot = slotFor(key, entity.getType(), now);
+            if (slot < 0) return;
+            lastSeenMs[slot] = now;
+            density[slot] = nearbyCount(loc, entity.getType());
+            double rate = refillPerMinute(slot);
+            refill(slot, rate, now);
+            if (density[slot] < densityHard && tokens[slot] >= 1.0) {
+                tokens[slot] -= 1.0;
+                pendingKey = key;
+                admittedTotal.incrementAndGet();
+                return;
+            }
+            throttled[slot]++;
+            delayTicks = -1;
+            if (now >= delayedUntilMs[slot]) {
+                delayTicks = delayFor(slot, rate);
+                delayedUntilMs[slot] = now + delayTicks * 50L;
+            }
+        }
+        e.setCancelled(true);
+        throttledTotal.incrementAndGet();
+        try {
+            AllOptimizations ao = AllOptimizations.getInstance();
+            if (ao != null) ao.addPreventedSpawns(1);
+        } catch (Throwable ignored) {}
+        if (delayTicks > 0) scheduleDelay(loc, delayTicks);
+    }
+
+    /** Confirms an admitted spawner spawn; if something later cancelled it, the token goes back. */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onCreatureSpawn(CreatureSpawnEvent e) {
+        if (e.getSpawnReason() != SpawnReason.SPAWNER) return;
+        synchronized (this) {
+            long key = pendingKey;
+            pendingKey = BlockKey.NO_KEY;
+            if (key == BlockKey.NO_KEY) return;
+            int slot = slots.get(key, -1);
+            if (slot < 0) return;
+            if (e.isCancelled()) {
+                tokens[slot] = Math.min(burst, tokens[slot] + 1.0);
+                refunded.incrementAndGet();
+                return;
+            }
+            spawned[slot]++;
+            windowSpawns[slot]++;
+        }
+    }
+
+    private int slotFor(long key, EntityType type, long now) {
+        int slot = slots.get(key, -1);
+        if (slot < 0) {
+            if (count >= MAX_SPAWNERS && makeRoom(now) == 0) return -1;
+            if (count == keys.length) grow(count << 1);
+            slot = count++;
+            slots.put(key, slot, -1);
+            perChunk.add(BlockKey.chunkKey(key), 1);
+            keys[slot] = key;
+            tokens[slot] = burst;
+            lastRefillMs[slot] = now;
+            delayedUntilMs[slot] = 0L;
+            windowSpawns[slot] = 0;
+            spawnsPerMinute[slot] = 0.0;
+            spawned[slot] = 0L;
+            throttled[slot] = 0L;
+            density[slot] = 0;
+            clusterSize[slot] = 1;
+        }
+        typeOrdinal[slot] = type == null ? -1 : type.ordinal();
+        return slot;
+    }
+
+    private void grow(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        typeOrdinal = Arrays.copyOf(typeOrdinal, capacity);
+        tokens = Arrays.copyOf(tokens, capacity);
+        lastRefillMs = Arrays.copyOf(lastRefillMs, capacity);
+        lastSeenMs = Arrays.copyOf(lastSeenMs, capacity);
+        delayedUntilMs = Arrays.copyOf(delayedUntilMs, capacity);
+        windowSpawns = Arrays.copyOf(windowSpawns, capacity);
+        spawnsPerMinute = Arrays.copyOf(spawnsPerMinute, capacity);
+        spawned = Arrays.copyOf(spawned, capacity);
+        throttled = Arrays.copyOf(throttled, capacity);
+        density = Arrays.copyOf(density, capacity);
+        clusterSize = Arrays.copyOf(clusterSize, capacity);
+    }
+
+    /** Refill rate after load, crowding and cluster sharing; 0 once the area is at the hard density cap. */
+    private double refillPerMinute(int slot) {
+        int d = density[slot];
+        if (d >= densityHard) return 0.0;
+        double crowd = d <= densitySoft ? 1.0 : 1.0 - (double) (d - densitySoft) / (double) (densityHard - densitySoft);
+        double share = 1.0 + (clusterSize[slot] - 1) * clusterPenalty;
+        return baseSpawnsPerMinute * scaleMultiplier * crowd / share;
+    }
+
+    private void refill(int slot, double ratePerMinute, long now) {
+        long elapsed = Math.max(0L, now - lastRefillMs[slot]);
+        lastRefillMs[slot] = now;
+        tokens[slot] = Math.min(burst, tokens[slot] + ratePerMinute * elapsed / 60000.0);
+    }
+
+    /** Ticks until the bucket holds a whole token again, clamped to the configured range. */
+    private int delayFor(int slot, double ratePerMinute) {
+        if (ratePerMinute <= 0.0) return maxDelayTicks;
+        double minutes = Math.max(0.0, 1.0 - tokens[slot]) / ratePerMinute;
+        return (int) Math.max(MIN_DELAY_TICKS, Math.min(maxDelayTicks, Math.ceil(minutes * 1200.0)));
+    }
+
+    /** Live count of {@code type} in the 3x3 chunks around the spawner, from the entity index. */
+    private static int nearbyCount(Location loc, EntityType type) {
+        ChunkEntityIndex index = ChunkEntityIndex.getInstance();
+        World world = loc.getWorld();
+        if (index == null || world == null || type == null) return 0;
+        int cx = loc.getBlockX() >> 4, cz = loc.getBlockZ() >> 4;
+        int n = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) n += index.chunkCount(world, cx + dx, cz + dz, type);
+        }
+        return n;
+    }
+
+    /** The spawner is already inside its spawn loop; its delay is rewritten on the next tick. */
+    private void scheduleDelay(final Location loc, final int delayTicks) {
+        try {
+            SchedulerHelper.runLater(plugin, new Runnable() {
+                public void run() {
+                    try {
+                        BlockState state = loc.getBlock().getState();
+                        if (!(state instanceof CreatureSpawner)) return;
+                        ((CreatureSpawner) state).setDelay(delayTicks);
+                        state.update();
+                        delayedTotal.incrementAndGet();
+                    } catch (Throwable ignored) {}
+                }
+            }, 1L);
+        } catch (Throwable ignored) {}
+    }
+
+    /**
+     * Full table: drops idle and unloaded spawners first, and only if none are left evicts the
+     * least recently seen {@link #EVICT_BATCH}, so a full table costs one sort per batch of new
+     * spawners. Returns how many slots were freed.
+     */
+    private int makeRoom(final long now) {
+        int freed = compact(new IntPredicate() {
+            public boolean test(int i) { return now - lastSeenMs[i] <= idleMs; }
+        });
+        if (freed > 0) return freed;
+        if (!warnedFull) {
+            warnedFull = true;
+            PowerhouseLogger.error("Powerhouse: spawner throttle is tracking " + MAX_SPAWNERS + " active spawners; the least recently seen are evicted to make room.");
+        }
+        long[] seen = Arrays.copyOf(lastSeenMs, count);
+        Arrays.sort(seen);
+        final long cutoff = seen[EVICT_BATCH - 1];
+        freed = compact(new IntPredicate() {
+            public boolean test(int i) { return lastSeenMs[i] > cutoff; }
+        });
+        evicted.addAndGet(freed);
+        return freed;
+    }
+
+    /** Folds the spawn window into each rate, drops idle spawners and rebuilds the farm clusters. */
+    private synchronized void maintain() {
+        final long now = System.currentTimeMillis();
+        double perMinute = 60.0 / MAINTENANCE_SECONDS;
+        for (int i = 0; i < count; i++) {
+            spawnsPerMinute[i] = spawnsPerMinute[i] * 0.7 + windowSpawns[i] * perMinute * 0.3;
+            windowSpawns[i] = 0;
+        }
+        compact(new IntPredicate() {
+            public boolean test(int i) { return now - lastSeenMs[i] <= idleMs; }
+        });
+    }
+
+    /** Forgets every spawner in an unloading world, so its world index can go to another world. */
+    public synchronized void clearWorld(final int worldIndex) {
+        compact(new IntPredicate() {
+            public boolean test(int i) { return BlockKey.unpackWorld(keys[i]) != worldIndex; }
+        });
+    }
+
+    /** A spawner in an unloaded chunk can't fire; it is marked idle and goes at the next maintenance pass. */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        try {
+            int world = BlockKey.worldIndex(e.getWorld().getName());
+            long chunk = BlockKey.pack(world, e.getChunk().getX(), 0, e.getChunk().getZ());
+            synchronized (this) {
+                if (perChunk.get(chunk, 0) <= 0) return;
+                for (int i = 0; i < count; i++) {
+                    if (BlockKey.chunkKey(keys[i]) == chunk) lastSeenMs[i] = 0L;
+                }
+            }
+        } catch (Throwable ignored) {}
+    }
+
+    /** Keeps the slots {@code keep} accepts, in order, re-indexes them and rebuilds the clusters; returns how many were dropped. */
+    private int compact(IntPredicate keep) {
+        int kept = 0;
+        slots.clear();
+        perChunk.clear();
+        for (int i = 0; i < count; i++) {
+            if (!keep.test(i)) continue;
+            if (kept != i) move(i, kept);
+            slots.put(keys[kept], kept, -1);
+            perChunk.add(BlockKey.chunkKey(keys[kept]), 1);
+            kept++;
+        }
+        int dropped = count - kept;
+        count = kept;
+        if (dropped > 0 && slots.get(pendingKey, -1) < 0) pendingKey = BlockKey.NO_KEY;
+        rebuildClusters();
+        return dropped;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        typeOrdinal[to] = typeOrdinal[from];
+        tokens[to] = tokens[from];
+        lastRefillMs[to] = lastRefillMs[from];
+        lastSeenMs[to] = lastSeenMs[from];
+        delayedUntilMs[to] = delayedUntilMs[from];
+        windowSpawns[to] = windowSpawns[from];
+        spawnsPerMinute[to] = spawnsPerMinute[from];
+        spawned[to] = spawned[from];
+        throttled[to] = throttled[from];
+        density[to] = density[from];
+        clusterSize[to] = clusterSize[from];
+    }
+
+    /**
+     * Spawners within {@code spawner-throttle.cluster-radius} of each other, chained, form one
+     * farm: several spawners feeding the same kill chamber. Found with a uniform grid and union-find.
+     */
+    private void rebuildClusters() {
+        int n = count;
+        if (n == 0) {
+            clusters = 0;
+            return;
+        }
+        int[] parent = new int[n];
+        int[] next = new int[n];
+        LongIntMap heads = new LongIntMap(n);
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            next[i] = heads.put(cellKey(keys[i], 0, 0, 0), i, -1);
+        }
+        double rSq = clusterRadius * clusterRadius;
+        for (int i = 0; i < n; i++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        for (int j = heads.get(cellKey(keys[i], dx, dy, dz), -1); j >= 0; j = next[j]) {
+                            if (j <= i || BlockKey.unpackWorld(keys[j]) != BlockKey.unpackWorld(keys[i])) continue;
+                            double ddx = BlockKey.unpackX(keys[i]) - BlockKey.unpackX(keys[j]);
+                            double ddy = BlockKey.unpackY(keys[i]) - BlockKey.unpackY(keys[j]);
+                            double ddz = BlockKey.unpackZ(keys[i]) - BlockKey.unpackZ(keys[j]);
+                            if (ddx*ddx + ddy*ddy + ddz*ddz <= rSq) union(parent, i, j);
+                        }
+                    }
+                }
+            }
+        }
+        int[] sizes = new int[n];
+        for (int i = 0; i < n; i++) sizes[find(parent, i)]++;
+        int farms = 0;
+        for (int i = 0; i < n; i++) {
+            clusterSize[i] = sizes[find(parent, i)];
+            if (parent[i] == i && sizes[i] > 1) farms++;
+        }
+        clusters = farms;
+    }
+
+    private long cellKey(long key, int dx, int dy, int dz) {
+        long cx = (long) Math.floor(BlockKey.unpackX(key) / clusterRadius) + dx;
+        long cy = (long) Math.floor(BlockKey.unpackY(key) / clusterRadius) + dy;
+        long cz = (long) Math.floor(BlockKey.unpackZ(key) / clusterRadius) + dz;
+        return ((long) BlockKey.unpackWorld(key) << 58) ^ ((cx & 0xFFFFFL) << 38) ^ ((cy & 0x3FFFL) << 24) ^ (cz & 0xFFFFFFL);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a), rb = find(parent, b);
+        if (ra != rb) parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    }
+
+    /**
+     * The {@code limit} most expensive spawners: recent spawn rate weighted by how crowded their
+     * surroundings already are and by the size of the farm they feed.
+     */
+    public synchronized List<SpawnerInfo> getTopSpawners(int limit) {
+        int n = count;
+        final double[] cost = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            cost[i] = spawnsPerMinute[i] * (1.0 + (double) density[i] / densitySoft) * Math.sqrt(clusterSize[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(cost[b], cost[a]));
+        EntityType[] types = EntityType.values();
+        List<SpawnerInfo> out = new ArrayList<>();
+        for (int k = 0; k < n && out.size() < limit; k++) {
+            int i = order[k];
+            long key = keys[i];
+            int t = typeOrdinal[i];
+            out.add(new SpawnerInfo(BlockKey.worldName(BlockKey.unpackWorld(key)), BlockKey.unpackX(key), BlockKey.unpackY(key), BlockKey.unpackZ(key),
+                    t >= 0 && t < types.length ? types[t].name() : "UNKNOWN", Math.round(spawnsPerMinute[i] * 10.0) / 10.0,
+                    spawned[i], throttled[i], density[i], clusterSize[i], Math.round(cost[i] * 10.0) / 10.0));
+        }
+        return out;
+    }
+
+    public synchronized int getTrackedSpawners() { return count; }
+    public synchronized int getFarmClusters() { return clusters; }
+    public long getAdmitted() { return admittedTotal.get(); }
+    public long getThrottled() { return throttledTotal.get(); }
+    public long getDelayed() { return delayedTotal.get(); }
+    public long getRefunded() { return refunded.get(); }
+    public long getEvicted() { return evicted.get(); }
+    public double getScaleMultiplier() { return scaleMultiplier; }
+}
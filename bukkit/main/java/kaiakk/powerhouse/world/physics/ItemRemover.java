@@ -2,10 +2,12 @@ package kaiakk.powerhouse.world.physics;
 
 import kaiakk.multimedia.classes.SchedulerHelper;
 import kaiakk.powerhouse.data.BlockKey;
+import kaiakk.powerhouse.data.PlayerProximityIndex;
 import kaiakk.powerhouse.data.RecentActionTracker;
 import kaiakk.powerhouse.world.AllOptimizations;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
@@ -17,9 +19,6 @@ import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ItemRemover implements Listener {
     private final Plugin plugin;
     private volatile BukkitTask task = null;
@@ -27,7 +26,6 @@ public class ItemRemover implements Listener {
     // Store UUIDs instead of strong Item references to avoid retaining heavy objects
     private final java.util.concurrent.ConcurrentHashMap<java.util.UUID, Long> hiddenItems = new java.util.concurrent.ConcurrentHashMap<>();
     private static final double PLAYER_CLEAR_RADIUS = 96.0;
-    private static final double PLAYER_CLEAR_RADIUS_SQ = PLAYER_CLEAR_RADIUS * PLAYER_CLEAR_RADIUS;
     private static final int PURGE_INTERVAL_SECONDS = 300;
 
     private volatile double hideDistance = 16.0;
@@ -42,11 +40,20 @@ public class ItemRemover implements Listener {
         if (task != null) return;
         reloadSettings();
         Bukkit.getPluginManager().registerEvents(this, plugin);
-        task = SchedulerHelper.runTimerSeconds(plugin, this::runPurgeTask, PURGE_INTERVAL_SECONDS, PURGE_INTERVAL_SECONDS);
+        kaiakk.powerhouse.world.ChunkScanner scanner = kaiakk.powerhouse.world.ChunkScanner.getInstance();
+        if (scanner != null) {
+            registerPurgeSweep(scanner);
+        } else {
+            task = SchedulerHelper.runTimerSeconds(plugin, this::runPurgeTask, PURGE_INTERVAL_SECONDS, PURGE_INTERVAL_SECONDS);
+        }
         restoreTask = SchedulerHelper.runTimerSeconds(plugin, this::runRestoreTask, 5, 5);
     }
 
     public void stop() {
+        try {
+            kaiakk.powerhouse.world.ChunkScanner scanner = kaiakk.powerhouse.world.ChunkScanner.getInstance();
+            if (scanner != null) scanner.unregister("item-purge");
+        } catch (Throwable ignored) {}
         if (task != null) {
             SchedulerHelper.cancelTask(task);
             task = null;
@@ -68,32 +75,11 @@ public class ItemRemover implements Listener {
 
             if (isProtected(stack)) return;
 
-            World w = it.getWorld();
-                            try {
-                                AllOptimizations ao = AllOptimizations.getInstance();
-                                double vel = ao != null ? ao.getMsptVelocity() : 0.0;
-                                boolean climbing = vel > hideVelocityThreshold;
-                                try {
-                                    for (Player p : w.getPlayers()) {
-                                        try {
-                                            double d2 = p.getLocation().distanceSquared(it.getLocation());
-                                                            if (climbing && d2 > hideDistanceSq) {
-                                                                safeHideEntity(p, it);
-                                                            } else {
-                                                                safeShowEntity(p, it);
-                                                            }
-                                        } catch (Throwable ignored) {}
-                                    }
-                                } catch (Throwable ignored) {}
-                            } catch (Throwable ignored) {}
-
-            boolean nearby = false;
-            for (Player p : w.getPlayers()) {
-                try {
-                    if (p.getLocation().distanceSquared(it.getLocation()) <= PLAYER_CLEAR_RADIUS_SQ) { nearby = true; break; }
-                } catch (Throwable ignored) {}
-            }
-            if (!nearby) {
+            PlayerProximityIndex.WorldSnapshot players = PlayerProximityIndex.snapshot(it.getWorld());
+            Location loc = it.getLocation();
+            updateVisibility(it, loc, players);
+
+            if (!players.anyWithin(loc.getX(), loc.getY(), loc.getZ(), PLAYER_CLEAR_RADIUS)) {
                 try {
                     RecentActionTracker rt = RecentActionTracker.getInstance();
                     boolean recentPlayer = (rt != null && rt.wasEntityRecentlyPlayerSpawned(it.getUniqueId()));
@@ -125,80 +111,98 @@ public class ItemRemover implements Listener {
         int itemRemovalsLocal = 0;
         try {
             for (World world : Bukkit.getWorlds()) {
-                List<Player> players = world.getPlayers();
-                List<double[]> playerLocs = new ArrayList<>();
-                for (Player p : players) {
-                    try { playerLocs.add(new double[] { p.getLocation().getX(), p.getLocation().getY(), p.getLocation().getZ() }); } catch (Throwable ignored) {}
-                }
-
+                PlayerProximityIndex.WorldSnapshot players = PlayerProximityIndex.snapshot(world);
                 for (org.bukkit.Chunk chunk : world.getLoadedChunks()) {
-                    try {
-                        for (org.bukkit.entity.Entity e : chunk.getEntities()) {
-                            if (!(e instanceof Item)) continue;
-                            Item it = (Item) e;
-                            if (!it.isValid() || it.isDead()) continue;
-                            ItemStack stack = null;
-                            try { stack = it.getItemStack(); } catch (Throwable ignored) {}
-                            if (stack == null) continue;
-                            if (isProtected(stack)) continue;
-
-                            try {
-                                AllOptimizations ao = AllOptimizations.getInstance();
-                                double vel = ao != null ? ao.getMsptVelocity() : 0.0;
-                                boolean climbing = vel > hideVelocityThreshold;
-                                try {
-                                    for (Player p : players) {
-                                        try {
-                                            double dx = it.getLocation().getX() - p.getLocation().getX();
-                                            double dy = it.getLocation().getY() - p.getLocation().getY();
-                                            double dz = it.getLocation().getZ() - p.getLocation().getZ();
-                                            double d2 = dx*dx + dy*dy + dz*dz;
-                                            if (climbing && d2 > hideDistanceSq) {
-                                                safeHideEntity(p, it);
-                                            } else {
-                                                safeShowEntity(p, it);
-                                            }
-                                        } catch (Throwable ignored) {}
-                                    }
-                                } catch (Throwable ignored) {}
-                            } catch (Throwable ignored) {}
-
-                            boolean nearby = false;
-                            for (double[] pl : playerLocs) {
-                                double dx = it.getLocation().getX() - pl[0];
-                                double dy = it.getLocation().getY() - pl[1];
-                                double dz = it.getLocation().getZ() - pl[2];
-                                double d2 = dx*dx + dy*dy + dz*dz;
-                                if (d2 <= PLAYER_CLEAR_RADIUS_SQ) { nearby = true; break; }
-                            }
-                            if (!nearby) {
-                                try {
-                                    RecentActionTracker rt = RecentActionTracker.getInstance();
-                                    boolean recentPlayer = (rt != null && rt.wasEntityRecentlyPlayerSpawned(it.getUniqueId()));
-                                    boolean recentDispense = false;
-                                    try { BlockKey bk = BlockKey.from(it.getLocation()); if (bk != null && rt != null) recentDispense = rt.wasRecentDispense(bk); } catch (Throwable ignored) {}
-                                    if (!recentPlayer && !recentDispense) {
-                                        AllOptimizations.getInstance().markEntityDead(it); itemRemovalsLocal++; kaiakk.powerhouse.helpers.logs.DebugLog.debug("ItemRemover: purge removed " + stack.getType() + " @ " + it.getLocation());
-                                    } else {
-                                        kaiakk.powerhouse.helpers.logs.DebugLog.debug("ItemRemover: purge skipped recent item " + stack.getType() + " @ " + it.getLocation());
-                                    }
-                                } catch (Throwable ignored) {}
-                            }
-                        }
-                    } catch (Throwable ignored) {}
+                    try { itemRemovalsLocal += purgeChunk(chunk.getEntities(), players); } catch (Throwable ignored) {}
                 }
             }
         } catch (Throwable ignored) {}
 
+        addRemovals(itemRemovalsLocal);
+    }
+
+    private void registerPurgeSweep(kaiakk.powerhouse.world.ChunkScanner scanner) {
+        scanner.register("item-purge", PURGE_INTERVAL_SECONDS, new kaiakk.powerhouse.world.ChunkScanner.Visitor() {
+            private int removed = 0;
+
+            public void visit(World world, org.bukkit.Chunk chunk, org.bukkit.entity.Entity[] entities) {
+                removed += purgeChunk(entities, PlayerProximityIndex.snapshot(world));
+            }
+
+            public void endSweep(World world) {
+                addRemovals(removed);
+                removed = 0;
+            }
+        });
+    }
+
+    /** Hides the item from far players while MSPT climbs; otherwise only touches items that are currently hidden. */
+    private void updateVisibility(Item it, Location loc, PlayerProximityIndex.WorldSnapshot players) {
         try {
-            if (itemRemovalsLocal > 0) {
+            AllOptimizations ao = AllOptimizations.getInstance();
+            double vel = ao != null ? ao.getMsptVelocity() : 0.0;
+            boolean climbing = vel > hideVelocityThreshold;
+            boolean hidden = hiddenItems.containsKey(it.getUniqueId());
+            if (!climbing && !hidden) return;
+            for (int i = 0; i < players.size(); i++) {
+                try {
+                    double dx = loc.getX() - players.x(i);
+                    double dy = loc.getY() - players.y(i);
+                    double dz = loc.getZ() - players.z(i);
+                    double d2 = dx*dx + dy*dy + dz*dz;
+                    if (climbing && d2 > hideDistanceSq) {
+                        safeHideEntity(players.player(i), it);
+                    } else {
+                        safeShowEntity(players.player(i), it);
+                    }
+                } catch (Throwable ignored) {}
+            }
+        } catch (Throwable ignored) {}
+    }
+
+    private void addRemovals(int count) {
+        try {
+            if (count > 0) {
                 AllOptimizations ao = AllOptimizations.getInstance();
-                if (ao != null) ao.addItemRemovals(itemRemovalsLocal);
+                if (ao != null) ao.addItemRemovals(count);
             }
         } catch (Throwable ignored) {}
     }
 
-    private boolean isProtected(ItemStack stack) {
+    private int purgeChunk(org.bukkit.entity.Entity[] entities, PlayerProximityIndex.WorldSnapshot players) {
+        int removed = 0;
+        if (entities == null) return 0;
+        for (org.bukkit.entity.Entity e : entities) {
+            if (!(e instanceof Item)) continue;
+            Item it = (Item) e;
+            if (!it.isValid() || it.isDead()) continue;
+            ItemStack stack = null;
+            try { stack = it.getItemStack(); } catch (Throwable ignored) {}
+            if (stack == null) continue;
+            if (isProtected(stack)) continue;
+
+            Location loc = it.getLocation();
+            updateVisibility(it, loc, players);
+
+            if (!players.anyWithin(loc.getX(), loc.getY(), loc.getZ(), PLAYER_CLEAR_RADIUS)) {
+                try {
+                    RecentActionTracker rt = RecentActionTracker.getInstance();
+                    boolean recentPlayer = (rt != null && rt.wasEntityRecentlyPlayerSpawned(it.getUniqueId()));
+                    boolean recentDispense = false;
+                    try { BlockKey bk = BlockKey.from(it.getLocation()); if (bk != null && rt != null) recentDispense = rt.wasRecentDispense(bk); } catch (Throwable ignored) {}
+                    if (!recentPlayer && !recentDispense) {
+                        AllOptimizations.getInstance().markEntityDead(it); removed++; kaiakk.powerhouse.helpers.logs.DebugLog.debug("ItemRemover: purge removed " + stack.getType() + " @ " + it.getLocation());
+                    } else {
+                        kaiakk.powerhouse.helpers.logs.DebugLog.debug("ItemRemover: purge skipped recent item " + stack.getType() + " @ " + it.getLocation());
+                    }
+                } catch (Throwable ignored) {}
+            }
+        }
+        return removed;
+    }
+
+    /** Named, lored, enchanted or classifier-protected stacks; never removed or gated. */
+    public static boolean isProtected(ItemStack stack) {
         if (stack == null) return true;
         try {
             if (stack.hasItemMeta()) {
@@ -210,12 +214,7 @@ public class ItemRemover implements Listener {
                 } catch (Throwable ignored) {}
             }
 
-            String name = stack.getType().name();
-            String[] toolOrArmor = new String[]{"HELMET","CHESTPLATE","LEGGINGS","BOOTS","SWORD","AXE","PICKAXE","SHOVEL","HOE","ELYTRA","BOW","CROSSBOW","TRIDENT","SHIELD"};
-            for (String k : toolOrArmor) if (name.contains(k)) return true;
-
-            String[] rare = new String[]{"DIAMOND","NETHER_STAR","EMERALD","ENCHANTED_BOOK","TOTEM_OF_UNDYING","HEART_OF_THE_SEA","NETHERITE","BEACON","ELYTRA"};
-            for (String r : rare) if (name.contains(r)) return true;
+            if (kaiakk.powerhouse.helpers.internal.MaterialClassifier.isProtectedItem(stack.getType())) return true;
         } catch (Throwable ignored) {}
         return false;
     }
@@ -2,10 +2,10 @@ package kaiakk.powerhouse.world.physics;
 
 import kaiakk.multimedia.classes.SchedulerHelper;
 import kaiakk.powerhouse.calculations.Calculations;
+import kaiakk.powerhouse.data.PlayerProximityIndex;
 import kaiakk.powerhouse.helpers.logs.PowerhouseLogger;
 
 import org.bukkit.Location;
-import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
 import java.util.Map;
@@ -47,11 +47,7 @@ public class ParticleCulling {
                     for (Map.Entry<Location, Integer> e : cands.entrySet()) {
                         Location loc = e.getKey();
                         int count = e.getValue();
-                        boolean playerNearby = false;
-                        for (Player p : loc.getWorld().getPlayers()) {
-                            try { if (p.getLocation().distanceSquared(loc) <= 256) { playerNearby = true; break; } } catch (Throwable ignored) {}
-                        }
-                        if (playerNearby) continue;
+                        if (PlayerProximityIndex.anyWithin(loc, 16.0)) continue;
                         Calculations.markParticleLocationCulled(loc);
                         String locStr = String.format("%s(%d, %d, %d)", loc.getWorld().getName(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
                         PowerhouseLogger.warn("Culled particles at: " + locStr + " (" + count + " particles/sec)");
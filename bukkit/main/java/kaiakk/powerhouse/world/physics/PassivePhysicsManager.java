@@ -1,14 +1,17 @@
 package kaiakk.powerhouse.world.physics;
 
 import kaiakk.multimedia.classes.SchedulerHelper;
+import kaiakk.powerhouse.data.PlayerProximityIndex;
 import kaiakk.powerhouse.data.RecentActionTracker;
+import kaiakk.powerhouse.data.snapshot.EntitySnapshotBuffer;
+import kaiakk.powerhouse.helpers.internal.EntityTypeClassifier;
+import kaiakk.powerhouse.world.entity.ChunkEntityIndex;
+import kaiakk.powerhouse.world.entity.EntityLookup;
+import kaiakk.powerhouse.world.entity.EntitySnapshotPipeline;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
-import org.bukkit.entity.Player;
-import org.bukkit.entity.Projectile;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.event.Listener;
 import org.bukkit.event.EventHandler;
@@ -18,10 +21,13 @@ import org.bukkit.metadata.FixedMetadataValue;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public class PassivePhysicsManager implements Listener {
     private final Plugin plugin;
     private volatile org.bukkit.scheduler.BukkitTask task = null;
+    private volatile boolean registered = false;
+    private final EntitySnapshotBuffer.Pair buffers = new EntitySnapshotBuffer.Pair();
     private final Map<UUID, Long> passiveMarked = new ConcurrentHashMap<>();
     private final Queue<java.util.UUID> entitiesToMakePassive = new LinkedList<>();
     private final Queue<java.util.UUID> entitiesToRestore = new LinkedList<>();
@@ -41,15 +47,28 @@ public class PassivePhysicsManager implements Listener {
     }
 
     public void start() {
-        if (task != null) return;
+        if (task != null || registered) return;
         try { Bukkit.getPluginManager().registerEvents(this, plugin); } catch (Throwable ignored) {}
-        task = SchedulerHelper.runTimerSeconds(plugin, this::tick, 5.0, 5.0);
+        EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+        if (pipeline != null) {
+            pipeline.register("passive-physics", 5.0, consumer);
+            registered = true;
+        } else {
+            task = SchedulerHelper.runTimerSeconds(plugin, this::tick, 5.0, 5.0);
+        }
         
         // Process queued entity modifications on main thread
         SchedulerHelper.runTimerSeconds(plugin, this::processEntityQueues, 0.0, 0.05);
     }
 
     public void stop() {
+        if (registered) {
+            try {
+                EntitySnapshotPipeline pipeline = EntitySnapshotPipeline.getInstance();
+                if (pipeline != null) pipeline.unregister("passive-physics");
+            } catch (Throwable ignored) {}
+            registered = false;
+        }
         if (task != null) {
             try { SchedulerHelper.cancelTask(task); } catch (Throwable ignored) {}
             task = null;
@@ -66,7 +85,7 @@ public class PassivePhysicsManager implements Listener {
         for (int i = 0; i < 10 && !entitiesToMakePassive.isEmpty(); i++) {
             java.util.UUID id = entitiesToMakePassive.poll();
             if (id == null) continue;
-            Entity e = Bukkit.getEntity(id);
+            Entity e = EntityLookup.getEntity(id);
             if (e != null && !e.isDead()) {
                 applyPassive(e);
             }
@@ -76,7 +95,7 @@ public class PassivePhysicsManager implements Listener {
         for (int i = 0; i < 10 && !entitiesToRestore.isEmpty(); i++) {
             java.util.UUID id = entitiesToRestore.poll();
             if (id == null) continue;
-            Entity e = Bukkit.getEntity(id);
+            Entity e = EntityLookup.getEntity(id);
             if (e != null && !e.isDead()) {
                 applyRestore(e);
             }
@@ -84,90 +103,68 @@ public class PassivePhysicsManager implements Listener {
     }
 
     private void tick() {
-        try {
-            for (org.bukkit.World w : Bukkit.getWorlds()) {
-                if (w == null) continue;
-                int heavyCount = 0;
-                for (Entity e : w.getEntities()) {
-                    if (isHeavyType(e)) heavyCount++;
+        EntitySnapshotPipeline.runDetached(plugin, buffers, consumer);
+    }
+
+    private final EntitySnapshotPipeline.Consumer consumer = new EntitySnapshotPipeline.Consumer() {
+        public void analyze(EntitySnapshotBuffer buf, Executor apply) {
+            int[] heavy = new int[buf.players.length];
+            ChunkEntityIndex index = ChunkEntityIndex.getInstance();
+            if (index != null) {
+                for (int w = 1; w < heavy.length; w++) heavy[w] = index.heavyCount(w);
+            } else {
+                for (int i = 0; i < buf.size; i++) {
+                    if (EntityTypeClassifier.isHeavy(buf.type(i))) heavy[buf.worldIndex[i]]++;
                 }
+            }
+            if (passiveMarked.isEmpty()) {
+                boolean anyHeavy = false;
+                for (int h : heavy) anyHeavy |= h >= DEFAULT_THRESHOLD;
+                if (!anyHeavy) return;
+            }
 
-                if (heavyCount < DEFAULT_THRESHOLD) {
-                    for (UUID id : passiveMarked.keySet()) {
-                        try {
-                            Entity e = Bukkit.getEntity(id);
-                            if (e == null || e.isDead()) { passiveMarked.remove(id); continue; }
-                            Location loc = e.getLocation();
-                            if (loc == null || loc.getWorld() == null) { passiveMarked.remove(id); continue; }
-                            boolean playerNear = false;
-                            double r2 = PLAYER_RADIUS * PLAYER_RADIUS;
-                            for (Player p : loc.getWorld().getPlayers()) {
-                                try { if (p != null && p.getLocation().distanceSquared(loc) <= r2) { playerNear = true; break; } } catch (Throwable ignored) {}
-                            }
-                            if (playerNear) restoreEntity(e);
-                        } catch (Throwable ignored) {}
-                    }
+            final List<UUID> toRestore = new ArrayList<>();
+            final List<UUID> toPassive = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < buf.size; i++) {
+                int w = buf.worldIndex[i];
+                if (heavy[w] < DEFAULT_THRESHOLD) {
+                    UUID id = buf.uuid(i);
+                    if (passiveMarked.containsKey(id) && nearPlayer(buf, i)) toRestore.add(id);
                     continue;
                 }
-
-                for (Entity e : w.getEntities()) {
-                    try {
-                        if (!isHeavyType(e)) continue;
-                        if (e instanceof Player) continue;
-
-                        UUID id = e.getUniqueId();
-                        if (passiveMarked.containsKey(id)) {
-                            passiveMarked.put(id, System.currentTimeMillis());
-                            continue;
-                        }
-
-                        Location loc = e.getLocation();
-                        if (loc == null || loc.getWorld() == null) continue;
-
+                if (!EntityTypeClassifier.isHeavy(buf.type(i))) continue;
+                UUID id = buf.uuid(i);
+                if (passiveMarked.containsKey(id)) {
+                    passiveMarked.put(id, now);
+                    continue;
+                }
+                if (!nearPlayer(buf, i)) toPassive.add(id);
+            }
+            passiveMarked.entrySet().removeIf(en -> now - en.getValue() > MARKED_TTL_MS);
+
+            if (toRestore.isEmpty() && toPassive.isEmpty()) return;
+            apply.execute(new Runnable() {
+                public void run() {
+                    entitiesToRestore.addAll(toRestore);
+                    RecentActionTracker rt = RecentActionTracker.getInstance();
+                    for (UUID id : toPassive) {
                         try {
-                            RecentActionTracker rt = RecentActionTracker.getInstance();
                             if (rt != null && rt.wasEntityRecentlyPlayerSpawned(id)) continue;
                         } catch (Throwable ignored) {}
-
-                        boolean playerNear = false;
-                        double r2 = PLAYER_RADIUS * PLAYER_RADIUS;
-                        for (Player p : loc.getWorld().getPlayers()) {
-                            try { if (p != null && p.getLocation().distanceSquared(loc) <= r2) { playerNear = true; break; } } catch (Throwable ignored) {}
-                        }
-                        if (playerNear) continue;
-
-                        makePassive(e);
+                        entitiesToMakePassive.offer(id);
                         passiveMarked.put(id, System.currentTimeMillis());
-                    } catch (Throwable ignored) {}
+                    }
                 }
+            });
+        }
+    };
 
-                long now = System.currentTimeMillis();
-                passiveMarked.entrySet().removeIf(en -> now - en.getValue() > MARKED_TTL_MS);
-            }
-        } catch (Throwable ignored) {}
-    }
-
-    private boolean isHeavyType(Entity e) {
-        if (e == null) return false;
-        try {
-            if (e instanceof Projectile) return true;
-            String name = e.getType().name();
-            if (name.contains("TNT") || name.contains("MINECART") || name.contains("ARMOR_STAND") || name.contains("EXPERIENCE_ORB")) return true;
-            if (e instanceof LivingEntity) return true;
-        } catch (Throwable ignored) {}
-        return false;
-    }
-
-    private void makePassive(Entity e) {
-        if (e == null) return;
-        try { entitiesToMakePassive.offer(e.getUniqueId()); } catch (Throwable ignored) {}
+    private static boolean nearPlayer(EntitySnapshotBuffer buf, int i) {
+        PlayerProximityIndex.WorldSnapshot players = buf.players[buf.worldIndex[i]];
+        return players != null && players.anyWithin(buf.x[i], buf.y[i], buf.z[i], PLAYER_RADIUS);
     }
 
-    private void restoreEntity(Entity e) {
-        if (e == null) return;
-        try { entitiesToRestore.offer(e.getUniqueId()); } catch (Throwable ignored) {}
-    }
-    
     private void applyPassive(Entity e) {
         try {
             try { e.setMetadata("powerhouse_passive", new FixedMetadataValue(plugin, true)); } catch (Throwable ignored) {}
@@ -0,0 +1,93 @@
+package kaiakk.powerhouse.world.physics;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Re-delivers a physics update a block missed because its {@code BlockPhysicsEvent} was
+ * deferred. Writing back an unchanged state is not enough: {@code setTypeAndData} returns early
+ * when nothing changed and sends no update. Instead the server's neighbour-changed hook is
+ * called on the deferred block alone, so only that block re-evaluates and nothing around it is
+ * touched. The hook is found by signature, {@code (BlockPosition, Block, BlockPosition)}, with the
+ * types taken from the block itself, so no mapped method name is assumed; when it can't be
+ * found the replay is skipped rather than faked.
+ * <p>
+ * The update fires a new {@code BlockPhysicsEvent}; {@link #isReplaying()} lets the limiter that
+ * deferred it admit that event instead of deferring it again.
+ */
+public final class PhysicsReplay {
+    private PhysicsReplay() {}
+
+    private static volatile boolean resolved = false;
+    private static volatile boolean available = false;
+    private static Method worldHandle;
+    private static Method blockNms;
+    private static Method blockOf;
+    private static Method position;
+    private static Method neighborChanged;
+    private static volatile Thread replayThread = null;
+
+    /** Returns true if an update was actually sent. */
+    public static boolean replay(Block block) {
+        if (block == null) return false;
+        World world = block.getWorld();
+        if (!resolved) resolve(world, block);
+        if (!available) return false;
+        Thread previous = replayThread;
+        replayThread = Thread.currentThread();
+        try {
+            Object handle = worldHandle.invoke(world);
+            Object nmsBlock = blockOf.invoke(blockNms.invoke(block));
+            Object pos = position.invoke(block);
+            neighborChanged.invoke(handle, pos, nmsBlock, pos);
+            return true;
+        } catch (Throwable t) {
+            return false;
+        } finally {
+            replayThread = previous;
+        }
+    }
+
+    /** True while this thread is inside {@link #replay}, i.e. for the physics event a replay fires. */
+    public static boolean isReplaying() {
+        return replayThread == Thread.currentThread();
+    }
+
+    private static synchronized void resolve(World world, Block sample) {
+        if (resolved) return;
+        try {
+            Method wh = world.getClass().getMethod("getHandle");
+            Object handle = wh.invoke(world);
+            Method nms = sample.getClass().getMethod("getNMS");
+            Method of = nms.invoke(sample).getClass().getMethod("getBlock");
+            Method pos = sample.getClass().getMethod("getPosition");
+            Class<?> blockClass = of.getReturnType();
+            Class<?> posClass = pos.getReturnType();
+            Method found = null;
+            for (Method m : handle.getClass().getMethods()) {
+                if (Modifier.isStatic(m.getModifiers()) || m.getReturnType() != void.class) continue;
+                Class<?>[] p = m.getParameterTypes();
+                if (p.length != 3 || p[0] != posClass || p[1] != blockClass || p[2] != posClass) continue;
+                if (found != null && !found.getName().equals(m.getName())) {
+                    found = null;
+                    break;
+                }
+                found = m;
+            }
+            if (found != null) {
+                worldHandle = wh;
+                blockNms = nms;
+                blockOf = of;
+                position = pos;
+                neighborChanged = found;
+                available = true;
+            }
+        } catch (Throwable ignored) {
+            available = false;
+        }
+        resolved = true;
+    }
+}
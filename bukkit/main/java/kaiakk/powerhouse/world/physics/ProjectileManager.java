@@ -1,12 +1,12 @@
 package kaiakk.powerhouse.world.physics;
 
 import kaiakk.multimedia.classes.SchedulerHelper;
+import kaiakk.powerhouse.data.PlayerProximityIndex;
 import kaiakk.powerhouse.world.AllOptimizations;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.Player;
 import org.bukkit.entity.Projectile;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -103,11 +103,7 @@ public class ProjectileManager implements Listener {
 
                 long age = now - d.spawnTime;
                 boolean noPlayersNearby = true;
-                try {
-                    for (Player p : cur.getWorld().getPlayers()) {
-                        try { if (p.getLocation().distanceSquared(cur) <= 256) { noPlayersNearby = false; break; } } catch (Throwable ignored) {}
-                    }
-                } catch (Throwable ignored) {}
+                try { noPlayersNearby = !PlayerProximityIndex.anyWithin(cur, 16.0); } catch (Throwable ignored) {}
 
                 
                 boolean slow = false;